@@ -0,0 +1,70 @@
+package org.bouncycastle.benchmark;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.prng.DigestRandomGenerator;
+import org.bouncycastle.crypto.prng.RandomGenerator;
+
+/**
+ * Shared helpers for the JMH suites.
+ */
+class BenchmarkUtils
+{
+    private BenchmarkUtils()
+    {
+    }
+
+    /**
+     * Return a deterministic source of randomness so that keys and inputs, and therefore results,
+     * are comparable between runs.
+     */
+    static SecureRandom createRandom()
+    {
+        return new FixedSeedRandom();
+    }
+
+    static byte[] randomBytes(SecureRandom random, int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class FixedSeedRandom
+        extends SecureRandom
+    {
+        private final RandomGenerator generator = new DigestRandomGenerator(new SHA256Digest());
+
+        FixedSeedRandom()
+        {
+            generator.addSeedMaterial(0x0123456789ABCDEFL);
+        }
+
+        public void setSeed(long seed)
+        {
+            // SecureRandom calls this from its constructor, before the generator exists.
+            if (generator != null)
+            {
+                generator.addSeedMaterial(seed);
+            }
+        }
+
+        public void setSeed(byte[] seed)
+        {
+            generator.addSeedMaterial(seed);
+        }
+
+        public void nextBytes(byte[] bytes)
+        {
+            generator.nextBytes(bytes);
+        }
+
+        public byte[] generateSeed(int numBytes)
+        {
+            byte[] seed = new byte[numBytes];
+            nextBytes(seed);
+            return seed;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.bouncycastle.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.Blake3Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Message digest and HMAC throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DigestBenchmark
+{
+    @Param({"SHA-256", "SHA-512", "SHA3-256", "BLAKE3-256"})
+    public String algorithm;
+
+    @Param({"64", "1024", "16384", "1048576"})
+    public int size;
+
+    private Digest digest;
+    private Mac hmac;
+    private byte[] message;
+    private byte[] digestOut;
+    private byte[] macOut;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        digest = createDigest(algorithm);
+        hmac = new HMac(createDigest(algorithm));
+        hmac.init(new KeyParameter(BenchmarkUtils.randomBytes(BenchmarkUtils.createRandom(), 32)));
+
+        message = BenchmarkUtils.randomBytes(BenchmarkUtils.createRandom(), size);
+        digestOut = new byte[digest.getDigestSize()];
+        macOut = new byte[hmac.getMacSize()];
+    }
+
+    @Benchmark
+    public byte[] digest()
+    {
+        digest.update(message, 0, message.length);
+        digest.doFinal(digestOut, 0);
+        return digestOut;
+    }
+
+    @Benchmark
+    public byte[] hmac()
+    {
+        hmac.update(message, 0, message.length);
+        hmac.doFinal(macOut, 0);
+        return macOut;
+    }
+
+    private static Digest createDigest(String algorithm)
+    {
+        if ("SHA-256".equals(algorithm))
+        {
+            return new SHA256Digest();
+        }
+        if ("SHA-512".equals(algorithm))
+        {
+            return new SHA512Digest();
+        }
+        if ("SHA3-256".equals(algorithm))
+        {
+            return new SHA3Digest(256);
+        }
+        if ("BLAKE3-256".equals(algorithm))
+        {
+            return new Blake3Digest(256);
+        }
+        throw new IllegalArgumentException("unknown digest: " + algorithm);
+    }
+}
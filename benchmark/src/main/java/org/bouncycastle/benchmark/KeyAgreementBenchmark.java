@@ -0,0 +1,65 @@
+package org.bouncycastle.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.agreement.X25519Agreement;
+import org.bouncycastle.crypto.generators.X25519KeyPairGenerator;
+import org.bouncycastle.crypto.params.X25519KeyGenerationParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * X25519 key generation and agreement, i.e. the ephemeral work in a typical TLS 1.3 key share.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyAgreementBenchmark
+{
+    private X25519KeyPairGenerator kpg;
+    private X25519Agreement agreement;
+    private AsymmetricCipherKeyPair peer;
+    private byte[] secret;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        SecureRandom random = BenchmarkUtils.createRandom();
+
+        kpg = new X25519KeyPairGenerator();
+        kpg.init(new X25519KeyGenerationParameters(random));
+
+        agreement = new X25519Agreement();
+        agreement.init(kpg.generateKeyPair().getPrivate());
+
+        peer = kpg.generateKeyPair();
+        secret = new byte[agreement.getAgreementSize()];
+    }
+
+    @Benchmark
+    public AsymmetricCipherKeyPair generateKeyPair()
+    {
+        return kpg.generateKeyPair();
+    }
+
+    @Benchmark
+    public byte[] calculateAgreement()
+    {
+        agreement.calculateAgreement(peer.getPublic(), secret, 0);
+        return secret;
+    }
+}
@@ -0,0 +1,171 @@
+package org.bouncycastle.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.SecretWithEncapsulation;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumKeyGenerationParameters;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumKeyPairGenerator;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumParameters;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumSigner;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKEMExtractor;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKEMGenerator;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKeyGenerationParameters;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKeyPairGenerator;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberParameters;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberPrivateKeyParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ML-KEM (Kyber) and ML-DSA (Dilithium) operations from pqc.crypto.crystals.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PQCBenchmark
+{
+    @State(Scope.Thread)
+    public static class KEMState
+    {
+        @Param({"kyber512", "kyber768", "kyber1024"})
+        public String kemParameterSet;
+
+        KyberKeyPairGenerator kpg;
+        KyberKEMGenerator generator;
+        KyberKEMExtractor extractor;
+        AsymmetricCipherKeyPair kp;
+        byte[] encapsulation;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            SecureRandom random = BenchmarkUtils.createRandom();
+
+            kpg = new KyberKeyPairGenerator();
+            kpg.init(new KyberKeyGenerationParameters(random, kyberParameters(kemParameterSet)));
+            kp = kpg.generateKeyPair();
+
+            generator = new KyberKEMGenerator(random);
+            extractor = new KyberKEMExtractor((KyberPrivateKeyParameters)kp.getPrivate());
+            encapsulation = generator.generateEncapsulated(kp.getPublic()).getEncapsulation();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SignerState
+    {
+        @Param({"dilithium2", "dilithium3", "dilithium5"})
+        public String dsaParameterSet;
+
+        @Param({"32", "1024", "16384"})
+        public int size;
+
+        DilithiumKeyPairGenerator kpg;
+        DilithiumSigner signer;
+        DilithiumSigner verifier;
+        byte[] message;
+        byte[] signature;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            SecureRandom random = BenchmarkUtils.createRandom();
+
+            kpg = new DilithiumKeyPairGenerator();
+            kpg.init(new DilithiumKeyGenerationParameters(random, dilithiumParameters(dsaParameterSet)));
+            AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+
+            signer = new DilithiumSigner();
+            signer.init(true, kp.getPrivate());
+            verifier = new DilithiumSigner();
+            verifier.init(false, kp.getPublic());
+
+            message = BenchmarkUtils.randomBytes(random, size);
+            signature = signer.generateSignature(message);
+        }
+    }
+
+    @Benchmark
+    public AsymmetricCipherKeyPair kemKeyGen(KEMState state)
+    {
+        return state.kpg.generateKeyPair();
+    }
+
+    @Benchmark
+    public SecretWithEncapsulation kemEncapsulate(KEMState state)
+    {
+        return state.generator.generateEncapsulated(state.kp.getPublic());
+    }
+
+    @Benchmark
+    public byte[] kemDecapsulate(KEMState state)
+    {
+        return state.extractor.extractSecret(state.encapsulation);
+    }
+
+    @Benchmark
+    public AsymmetricCipherKeyPair dsaKeyGen(SignerState state)
+    {
+        return state.kpg.generateKeyPair();
+    }
+
+    @Benchmark
+    public byte[] dsaSign(SignerState state)
+    {
+        return state.signer.generateSignature(state.message);
+    }
+
+    @Benchmark
+    public boolean dsaVerify(SignerState state)
+    {
+        return state.verifier.verifySignature(state.message, state.signature);
+    }
+
+    private static KyberParameters kyberParameters(String name)
+    {
+        if ("kyber512".equals(name))
+        {
+            return KyberParameters.kyber512;
+        }
+        if ("kyber768".equals(name))
+        {
+            return KyberParameters.kyber768;
+        }
+        if ("kyber1024".equals(name))
+        {
+            return KyberParameters.kyber1024;
+        }
+        throw new IllegalArgumentException("unknown Kyber parameter set: " + name);
+    }
+
+    private static DilithiumParameters dilithiumParameters(String name)
+    {
+        if ("dilithium2".equals(name))
+        {
+            return DilithiumParameters.dilithium2;
+        }
+        if ("dilithium3".equals(name))
+        {
+            return DilithiumParameters.dilithium3;
+        }
+        if ("dilithium5".equals(name))
+        {
+            return DilithiumParameters.dilithium5;
+        }
+        throw new IllegalArgumentException("unknown Dilithium parameter set: " + name);
+    }
+}
@@ -0,0 +1,78 @@
+package org.bouncycastle.benchmark;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricBlockCipher;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.RSABlindedEngine;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw RSA public and (blinded, CRT) private operations through RSABlindedEngine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RSABenchmark
+{
+    @Param({"2048", "3072", "4096"})
+    public int keySize;
+
+    private AsymmetricBlockCipher publicEngine;
+    private AsymmetricBlockCipher privateEngine;
+    private byte[] input;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        SecureRandom random = BenchmarkUtils.createRandom();
+
+        RSAKeyPairGenerator kpg = new RSAKeyPairGenerator();
+        kpg.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), random, keySize, 100));
+        AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+
+        publicEngine = new RSABlindedEngine();
+        publicEngine.init(true, kp.getPublic());
+
+        privateEngine = new RSABlindedEngine();
+        privateEngine.init(false, new ParametersWithRandom(kp.getPrivate(), random));
+
+        // any value below the modulus will do, keep the top byte clear to guarantee that
+        input = BenchmarkUtils.randomBytes(random, publicEngine.getInputBlockSize());
+        input[0] &= 0x7F;
+    }
+
+    @Benchmark
+    public byte[] publicOperation()
+        throws InvalidCipherTextException
+    {
+        return publicEngine.processBlock(input, 0, input.length);
+    }
+
+    @Benchmark
+    public byte[] privateOperation()
+        throws InvalidCipherTextException
+    {
+        return privateEngine.processBlock(input, 0, input.length);
+    }
+}
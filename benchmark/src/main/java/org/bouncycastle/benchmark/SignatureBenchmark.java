@@ -0,0 +1,129 @@
+package org.bouncycastle.benchmark;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.CryptoException;
+import org.bouncycastle.crypto.Signer;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.bouncycastle.crypto.generators.Ed25519KeyPairGenerator;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
+import org.bouncycastle.crypto.params.Ed25519KeyGenerationParameters;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.crypto.signers.DSADigestSigner;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.bouncycastle.crypto.signers.RSADigestSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Signature generation and verification rates for the classical signers. ECDSA runs over the
+ * custom SecP256R1Curve implementation and RSA (PKCS#1 v1.5) over RSABlindedEngine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SignatureBenchmark
+{
+    @Param({"ECDSA-P256", "Ed25519", "RSA-2048"})
+    public String algorithm;
+
+    @Param({"32", "1024", "16384"})
+    public int size;
+
+    private Signer signer;
+    private Signer verifier;
+    private byte[] message;
+    private byte[] signature;
+
+    @Setup(Level.Trial)
+    public void setup()
+        throws CryptoException
+    {
+        SecureRandom random = BenchmarkUtils.createRandom();
+        AsymmetricCipherKeyPair kp;
+
+        if ("ECDSA-P256".equals(algorithm))
+        {
+            X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
+            ECKeyPairGenerator kpg = new ECKeyPairGenerator();
+            kpg.init(new ECKeyGenerationParameters(new ECDomainParameters(x9), random));
+            kp = kpg.generateKeyPair();
+
+            signer = new DSADigestSigner(new ECDSASigner(), new SHA256Digest());
+            verifier = new DSADigestSigner(new ECDSASigner(), new SHA256Digest());
+        }
+        else if ("Ed25519".equals(algorithm))
+        {
+            Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+            kpg.init(new Ed25519KeyGenerationParameters(random));
+            kp = kpg.generateKeyPair();
+
+            signer = new Ed25519Signer();
+            verifier = new Ed25519Signer();
+        }
+        else if ("RSA-2048".equals(algorithm))
+        {
+            RSAKeyPairGenerator kpg = new RSAKeyPairGenerator();
+            kpg.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), random, 2048, 100));
+            kp = kpg.generateKeyPair();
+
+            signer = new RSADigestSigner(new SHA256Digest());
+            verifier = new RSADigestSigner(new SHA256Digest());
+        }
+        else
+        {
+            throw new IllegalArgumentException("unknown algorithm: " + algorithm);
+        }
+
+        signer.init(true, new ParametersWithRandom(kp.getPrivate(), random));
+        verifier.init(false, kp.getPublic());
+
+        message = BenchmarkUtils.randomBytes(random, size);
+
+        signer.update(message, 0, message.length);
+        signature = signer.generateSignature();
+    }
+
+    @Benchmark
+    public byte[] sign()
+        throws CryptoException
+    {
+        signer.update(message, 0, message.length);
+        return signer.generateSignature();
+    }
+
+    @Benchmark
+    public boolean verify()
+    {
+        verifier.update(message, 0, message.length);
+        boolean verified = verifier.verifySignature(signature);
+        if (!verified)
+        {
+            throw new IllegalStateException("signature failed to verify");
+        }
+        return verified;
+    }
+}
@@ -0,0 +1,29 @@
+package org.bouncycastle.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Block ciphers which can work directly on the contents of a ByteBuffer, heap or direct, implement this.
+ * <p>
+ * See {@link org.bouncycastle.crypto.util.ByteBuffers} for methods which will fall back to copying for
+ * ciphers which do not.
+ * </p>
+ */
+public interface ByteBufferBlockCipher
+    extends BlockCipher
+{
+    /**
+     * Process one block of input from the current position of in, writing a block of output at the
+     * current position of out. Both buffers are advanced by the block size, so they must be different
+     * objects, although one may be a duplicate() of the other.
+     *
+     * @param in the buffer containing the input data.
+     * @param out the buffer the output data will be written to.
+     * @exception DataLengthException if there isn't a whole block remaining in in.
+     * @exception OutputLengthException if there isn't room for a whole block in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     * @return the number of bytes processed and produced.
+     */
+    public int processBlock(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException, IllegalStateException;
+}
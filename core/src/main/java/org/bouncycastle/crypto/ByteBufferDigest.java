@@ -0,0 +1,32 @@
+package org.bouncycastle.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Digests which can work directly on the contents of a ByteBuffer, heap or direct, implement this.
+ * <p>
+ * See {@link org.bouncycastle.crypto.util.ByteBuffers} for methods which will fall back to copying for
+ * digests which do not.
+ * </p>
+ */
+public interface ByteBufferDigest
+    extends Digest
+{
+    /**
+     * update the message digest with the remaining bytes in a buffer. On return the buffer's position
+     * will be equal to its limit.
+     *
+     * @param in the buffer containing the data.
+     */
+    public void update(ByteBuffer in);
+
+    /**
+     * close the digest, writing the final digest value at the buffer's current position and advancing
+     * it. The doFinal call leaves the digest reset.
+     *
+     * @param out the buffer the digest is to be written to.
+     * @return the number of bytes written.
+     * @throws OutputLengthException if there are less than getDigestSize() bytes remaining in out.
+     */
+    public int doFinal(ByteBuffer out);
+}
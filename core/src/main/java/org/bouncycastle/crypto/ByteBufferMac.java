@@ -0,0 +1,38 @@
+package org.bouncycastle.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MACs which can work directly on the contents of a ByteBuffer, heap or direct, implement this.
+ * <p>
+ * See {@link org.bouncycastle.crypto.util.ByteBuffers} for methods which will fall back to copying for
+ * MACs which do not.
+ * </p>
+ */
+public interface ByteBufferMac
+    extends Mac
+{
+    /**
+     * add the remaining bytes in a buffer to the MAC. On return the buffer's position will be equal to
+     * its limit.
+     *
+     * @param in the buffer containing the input.
+     * @exception IllegalStateException if the MAC is not initialised.
+     */
+    public void update(ByteBuffer in)
+        throws IllegalStateException;
+
+    /**
+     * Compute the final stage of the MAC, writing the output at the buffer's current position and
+     * advancing it.
+     * <p>
+     * doFinal leaves the MAC in the same state it was after the last init.
+     *
+     * @param out the buffer the MAC is to be written to.
+     * @return the number of bytes written.
+     * @exception OutputLengthException if there are less than getMacSize() bytes remaining in out.
+     * @exception IllegalStateException if the MAC is not initialised.
+     */
+    public int doFinal(ByteBuffer out)
+        throws DataLengthException, IllegalStateException;
+}
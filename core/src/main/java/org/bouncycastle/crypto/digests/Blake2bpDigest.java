@@ -1,6 +1,9 @@
 package org.bouncycastle.crypto.digests;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.ExtendedDigest;
+import org.bouncycastle.crypto.util.ParallelTasks;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Pack;
 
@@ -29,10 +32,18 @@
     private final int BLAKE2B_BLOCKBYTES = 128;
     private final int BLAKE2B_KEYBYTES = 64;
     private final int BLAKE2B_OUTBYTES = 64;
+
+    /**
+     * Minimum update length before the leaves are hashed on the executor, if one is set.
+     */
+    private final int PARALLEL_MIN_LENGTH = 16 * 1024;
+
     private final int PARALLELISM_DEGREE = 4;
 
     private final byte[] singleByte = new byte[1];
 
+    private Executor executor = null;
+
     public Blake2bpDigest(byte[] key)
     {
         param = new byte[64];
@@ -40,6 +51,16 @@ public Blake2bpDigest(byte[] key)
         init(key);
     }
 
+    /**
+     * Set an executor to hash the leaves on concurrently, for updates of 16 KB or more.
+     *
+     * @param executor the executor to use, null to hash the leaves in turn on the calling thread.
+     */
+    public void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+
     @Override
     public String getAlgorithmName()
     {
@@ -63,7 +84,7 @@ public void update(byte in)
     public void update(byte[] message, int offset, int len)
     {
         int left = bufferPos;
-        int remainingLength = 8*BLAKE2B_BLOCKBYTES - left;
+        int remainingLength = PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES - left;
 
         if(left != 0 && len >= remainingLength)
         {
@@ -78,18 +99,20 @@ public void update(byte[] message, int offset, int len)
             left = 0;
         }
 
-        //TODO: make threads run each iteration
-        for (int i = 0; i < PARALLELISM_DEGREE; i++)
+        if (executor != null && len >= PARALLEL_MIN_LENGTH)
         {
-            int inlen = len;
-            int inOffset = offset;
-            inOffset += i * BLAKE2B_BLOCKBYTES;
-
-            while (inlen >= PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES)
+            Runnable[] tasks = new Runnable[PARALLELISM_DEGREE];
+            for (int i = 0; i < PARALLELISM_DEGREE; i++)
+            {
+                tasks[i] = new LeafTask(i, message, offset, len);
+            }
+            ParallelTasks.run(executor, tasks);
+        }
+        else
+        {
+            for (int i = 0; i < PARALLELISM_DEGREE; i++)
             {
-                S[i].update(message, inOffset, BLAKE2B_BLOCKBYTES);
-                inOffset += PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES;
-                inlen -= PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES;
+                updateLeaf(i, message, offset, len);
             }
         }
 
@@ -104,6 +127,44 @@ public void update(byte[] message, int offset, int len)
         bufferPos = left + len;
     }
 
+    /**
+     * Feed leaf i its blocks from each complete stripe of the message.
+     */
+    private void updateLeaf(int i, byte[] message, int offset, int len)
+    {
+        int inlen = len;
+        int inOffset = offset + i * BLAKE2B_BLOCKBYTES;
+
+        while (inlen >= PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES)
+        {
+            S[i].update(message, inOffset, BLAKE2B_BLOCKBYTES);
+            inOffset += PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES;
+            inlen -= PARALLELISM_DEGREE * BLAKE2B_BLOCKBYTES;
+        }
+    }
+
+    private class LeafTask
+        implements Runnable
+    {
+        private final int leaf;
+        private final byte[] message;
+        private final int offset;
+        private final int len;
+
+        LeafTask(int leaf, byte[] message, int offset, int len)
+        {
+            this.leaf = leaf;
+            this.message = message;
+            this.offset = offset;
+            this.len = len;
+        }
+
+        public void run()
+        {
+            updateLeaf(leaf, message, offset, len);
+        }
+    }
+
     @Override
     public int doFinal(byte[] out, int outOff)
     {
@@ -2,6 +2,7 @@
 
 import java.util.Iterator;
 import java.util.Stack;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.CryptoServicePurpose;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
@@ -9,6 +10,7 @@
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.Xof;
 import org.bouncycastle.crypto.params.Blake3Parameters;
+import org.bouncycastle.crypto.util.ParallelTasks;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.Memoable;
@@ -16,6 +18,11 @@
 
 /**
  * Blake3 implementation.
+ * <p>
+ * Whole chunks are compressed as subtrees directly from the caller's array. If an executor is set
+ * with {@link #setExecutor(Executor)} large subtrees are split across it, with the output being
+ * identical to the serial calculation.
+ * </p>
  */
 public class Blake3Digest
     implements ExtendedDigest, Memoable, Xof
@@ -165,6 +172,31 @@
      */
     private static final byte[] SIGMA = {2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8};
 
+    /**
+     * Message word schedule for each round, derived from SIGMA.
+     */
+    private static final byte[][] SCHEDULE = new byte[ROUNDS][NUMWORDS << 1];
+
+    static
+    {
+        for (int i = 0; i < SCHEDULE[0].length; i++)
+        {
+            SCHEDULE[0][i] = (byte)i;
+        }
+        for (int round = 1; round < ROUNDS; round++)
+        {
+            for (int i = 0; i < SCHEDULE[round].length; i++)
+            {
+                SCHEDULE[round][i] = SIGMA[SCHEDULE[round - 1][i]];
+            }
+        }
+    }
+
+    /**
+     * Minimum number of chunks handed to a single task when running in parallel.
+     */
+    private static final int MIN_TASK_CHUNKS = 16;
+
     /**
      * Blake3 Initialization Vector.
      */
@@ -252,6 +284,16 @@
      */
     private int thePos;
 
+    /**
+     * The executor for parallel subtree hashing, null if serial.
+     */
+    private Executor theExecutor;
+
+    /**
+     * The maximum number of tasks a subtree is split into.
+     */
+    private int theParallelism;
+
     // digest purpose
     private final CryptoServicePurpose purpose;
 
@@ -307,6 +349,34 @@ public Blake3Digest(final Blake3Digest pSource)
         reset(pSource);
     }
 
+    /**
+     * Set an executor to hash large inputs on, split into up to one task per available processor.
+     *
+     * @param pExecutor the executor to use, null to hash serially.
+     */
+    public void setExecutor(final Executor pExecutor)
+    {
+        setExecutor(pExecutor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Set an executor to hash large inputs on.
+     *
+     * @param pExecutor    the executor to use, null to hash serially.
+     * @param pParallelism the maximum number of tasks a single update is split into.
+     */
+    public void setExecutor(final Executor pExecutor,
+                            final int pParallelism)
+    {
+        if (pParallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        theExecutor = pExecutor;
+        theParallelism = pParallelism;
+    }
+
     public int getByteLength()
     {
         return BLOCKLEN;
@@ -436,12 +506,21 @@ public void update(final byte[] pMessage,
         }
 
         /* process all blocks except the last one */
-        int messagePos;
-        final int blockWiseLastPos = pOffset + pLen - BLOCKLEN;
-        for (messagePos = pOffset + remainingLen; messagePos < blockWiseLastPos; messagePos += BLOCKLEN)
+        int messagePos = pOffset + remainingLen;
+        final int messageEnd = pOffset + pLen;
+        final int blockWiseLastPos = messageEnd - BLOCKLEN;
+        while (messagePos < blockWiseLastPos)
         {
+            /* If we are at a chunk boundary, process whole chunks, keeping back the last byte */
+            if (theCurrBytes == 0 && messageEnd - messagePos > CHUNKLEN)
+            {
+                messagePos += compressChunks(pMessage, messagePos, (messageEnd - messagePos - 1) / CHUNKLEN);
+                continue;
+            }
+
             /* Process the buffer */
             compressBlock(pMessage, messagePos);
+            messagePos += BLOCKLEN;
         }
 
         /* Fill the buffer with the remaining bytes of the message */
@@ -547,6 +626,10 @@ public void reset(final Memoable pSource)
         theCurrBytes = mySource.theCurrBytes;
         theMode = mySource.theMode;
 
+        /* Copy executor */
+        theExecutor = mySource.theExecutor;
+        theParallelism = mySource.theParallelism;
+
         /* Reset output state */
         outputting = mySource.outputting;
         outputAvailable = mySource.outputAvailable;
@@ -592,17 +675,297 @@ private void compressBlock(final byte[] pMessage,
         /* Adjust stack if we have completed a block */
         if (theCurrBytes == 0)
         {
-            adjustStack();
+            adjustStack(0);
         }
     }
 
+    /**
+     * Compress whole chunks of the message, starting at a chunk boundary.
+     *
+     * @param pMessage   the message buffer
+     * @param pMsgPos    the position within the message buffer
+     * @param pNumChunks the number of chunks available
+     * @return the number of bytes processed
+     */
+    private int compressChunks(final byte[] pMessage,
+                               final int pMsgPos,
+                               final int pNumChunks)
+    {
+        int myPos = pMsgPos;
+        int myRemaining = pNumChunks;
+        while (myRemaining > 0)
+        {
+            /* Find the largest subtree that fits and is aligned with the counter */
+            int myShift = 0;
+            while ((2 << myShift) <= myRemaining
+                && (theCounter & ((2L << myShift) - 1)) == 0)
+            {
+                myShift++;
+            }
+            final int myChunks = 1 << myShift;
+
+            /* Hash the subtree and add it to the stack */
+            final int[] myChaining = hashSubtree(pMessage, myPos, theCounter, myChunks);
+            System.arraycopy(myChaining, 0, theChaining, 0, NUMWORDS);
+            theCounter += myChunks;
+            adjustStack(myShift);
+
+            myPos += myChunks * CHUNKLEN;
+            myRemaining -= myChunks;
+        }
+        return myPos - pMsgPos;
+    }
+
+    /**
+     * Hash a subtree of chunks, splitting it across the executor if there is one.
+     *
+     * @param pMessage the message buffer
+     * @param pMsgPos  the position within the message buffer
+     * @param pCounter the counter of the first chunk
+     * @param pChunks  the number of chunks, a power of two
+     * @return the chaining value of the subtree
+     */
+    private int[] hashSubtree(final byte[] pMessage,
+                              final int pMsgPos,
+                              final long pCounter,
+                              final int pChunks)
+    {
+        /* Determine the number of tasks */
+        int myTasks = 1;
+        if (theExecutor != null)
+        {
+            while (myTasks < theParallelism && pChunks / (myTasks << 1) >= MIN_TASK_CHUNKS)
+            {
+                myTasks <<= 1;
+            }
+        }
+
+        if (myTasks == 1)
+        {
+            return hashSubtree(theK, theMode, pMessage, pMsgPos, pCounter, pChunks);
+        }
+
+        /* Hash the parts, the first on this thread */
+        final int myTaskChunks = pChunks / myTasks;
+        final int[][] myChaining = new int[myTasks][];
+        final Runnable[] myRunnables = new Runnable[myTasks];
+        for (int i = 0; i < myTasks; i++)
+        {
+            myRunnables[i] = new SubtreeTask(theK, theMode, pMessage,
+                pMsgPos + i * myTaskChunks * CHUNKLEN, pCounter + (long)i * myTaskChunks, myTaskChunks, myChaining, i);
+        }
+        ParallelTasks.run(theExecutor, myRunnables);
+
+        /* Combine the parts */
+        for (int myCount = myTasks; myCount > 1; myCount >>= 1)
+        {
+            for (int i = 0; i < myCount; i += 2)
+            {
+                myChaining[i >> 1] = hashParent(theK, theMode, myChaining[i], myChaining[i + 1]);
+            }
+        }
+        return myChaining[0];
+    }
+
+    /**
+     * Hash a subtree of chunks serially.
+     *
+     * @param pKey     the key
+     * @param pMode    the mode flags
+     * @param pMessage the message buffer
+     * @param pMsgPos  the position within the message buffer
+     * @param pCounter the counter of the first chunk
+     * @param pChunks  the number of chunks, a power of two
+     * @return the chaining value of the subtree
+     */
+    private static int[] hashSubtree(final int[] pKey,
+                                     final int pMode,
+                                     final byte[] pMessage,
+                                     final int pMsgPos,
+                                     final long pCounter,
+                                     final int pChunks)
+    {
+        if (pChunks == 1)
+        {
+            return hashChunk(pKey, pMode, pMessage, pMsgPos, pCounter);
+        }
+
+        final int myHalf = pChunks >> 1;
+        final int[] myLeft = hashSubtree(pKey, pMode, pMessage, pMsgPos, pCounter, myHalf);
+        final int[] myRight = hashSubtree(pKey, pMode, pMessage, pMsgPos + myHalf * CHUNKLEN, pCounter + myHalf, myHalf);
+        return hashParent(pKey, pMode, myLeft, myRight);
+    }
+
+    /**
+     * Hash a whole chunk that is not the last chunk of the message.
+     *
+     * @param pKey     the key
+     * @param pMode    the mode flags
+     * @param pMessage the message buffer
+     * @param pMsgPos  the position within the message buffer
+     * @param pCounter the chunk counter
+     * @return the chaining value of the chunk
+     */
+    private static int[] hashChunk(final int[] pKey,
+                                   final int pMode,
+                                   final byte[] pMessage,
+                                   final int pMsgPos,
+                                   final long pCounter)
+    {
+        final int[] myChaining = Arrays.copyOf(pKey, NUMWORDS);
+        final int[] myM = new int[NUMWORDS << 1];
+        final int myLastPos = pMsgPos + CHUNKLEN - BLOCKLEN;
+        for (int myPos = pMsgPos; myPos <= myLastPos; myPos += BLOCKLEN)
+        {
+            Pack.littleEndianToInt(pMessage, myPos, myM);
+            final int myFlags = pMode
+                + (myPos == pMsgPos ? CHUNKSTART : 0)
+                + (myPos == myLastPos ? CHUNKEND : 0);
+            compress(myChaining, myM, pCounter, BLOCKLEN, myFlags);
+        }
+        return myChaining;
+    }
+
+    /**
+     * Hash a parent node.
+     *
+     * @param pKey   the key
+     * @param pMode  the mode flags
+     * @param pLeft  the left child chaining value
+     * @param pRight the right child chaining value
+     * @return the chaining value of the parent
+     */
+    private static int[] hashParent(final int[] pKey,
+                                    final int pMode,
+                                    final int[] pLeft,
+                                    final int[] pRight)
+    {
+        final int[] myChaining = Arrays.copyOf(pKey, NUMWORDS);
+        final int[] myM = new int[NUMWORDS << 1];
+        System.arraycopy(pLeft, 0, myM, 0, NUMWORDS);
+        System.arraycopy(pRight, 0, myM, NUMWORDS, NUMWORDS);
+        compress(myChaining, myM, 0, BLOCKLEN, pMode | PARENT);
+        return myChaining;
+    }
+
+    /**
+     * Compression function for non-root nodes, working on locals rather than the instance state.
+     *
+     * @param pChaining the chaining value, replaced by the result
+     * @param pM        the message words
+     * @param pCounter  the counter
+     * @param pDataLen  the data length
+     * @param pFlags    the flags
+     */
+    private static void compress(final int[] pChaining,
+                                 final int[] pM,
+                                 final long pCounter,
+                                 final int pDataLen,
+                                 final int pFlags)
+    {
+        int v0 = pChaining[0], v1 = pChaining[1], v2 = pChaining[2], v3 = pChaining[3];
+        int v4 = pChaining[4], v5 = pChaining[5], v6 = pChaining[6], v7 = pChaining[7];
+        int v8 = IV[0], v9 = IV[1], v10 = IV[2], v11 = IV[3];
+        int v12 = (int)pCounter, v13 = (int)(pCounter >> Integers.SIZE), v14 = pDataLen, v15 = pFlags;
+
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            final byte[] s = SCHEDULE[round];
+
+            /* Apply to columns of V */
+            v0 += v4 + pM[s[0]];
+            v12 = Integers.rotateRight(v12 ^ v0, 16);
+            v8 += v12;
+            v4 = Integers.rotateRight(v4 ^ v8, 12);
+            v0 += v4 + pM[s[1]];
+            v12 = Integers.rotateRight(v12 ^ v0, 8);
+            v8 += v12;
+            v4 = Integers.rotateRight(v4 ^ v8, 7);
+
+            v1 += v5 + pM[s[2]];
+            v13 = Integers.rotateRight(v13 ^ v1, 16);
+            v9 += v13;
+            v5 = Integers.rotateRight(v5 ^ v9, 12);
+            v1 += v5 + pM[s[3]];
+            v13 = Integers.rotateRight(v13 ^ v1, 8);
+            v9 += v13;
+            v5 = Integers.rotateRight(v5 ^ v9, 7);
+
+            v2 += v6 + pM[s[4]];
+            v14 = Integers.rotateRight(v14 ^ v2, 16);
+            v10 += v14;
+            v6 = Integers.rotateRight(v6 ^ v10, 12);
+            v2 += v6 + pM[s[5]];
+            v14 = Integers.rotateRight(v14 ^ v2, 8);
+            v10 += v14;
+            v6 = Integers.rotateRight(v6 ^ v10, 7);
+
+            v3 += v7 + pM[s[6]];
+            v15 = Integers.rotateRight(v15 ^ v3, 16);
+            v11 += v15;
+            v7 = Integers.rotateRight(v7 ^ v11, 12);
+            v3 += v7 + pM[s[7]];
+            v15 = Integers.rotateRight(v15 ^ v3, 8);
+            v11 += v15;
+            v7 = Integers.rotateRight(v7 ^ v11, 7);
+
+            /* Apply to diagonals of V */
+            v0 += v5 + pM[s[8]];
+            v15 = Integers.rotateRight(v15 ^ v0, 16);
+            v10 += v15;
+            v5 = Integers.rotateRight(v5 ^ v10, 12);
+            v0 += v5 + pM[s[9]];
+            v15 = Integers.rotateRight(v15 ^ v0, 8);
+            v10 += v15;
+            v5 = Integers.rotateRight(v5 ^ v10, 7);
+
+            v1 += v6 + pM[s[10]];
+            v12 = Integers.rotateRight(v12 ^ v1, 16);
+            v11 += v12;
+            v6 = Integers.rotateRight(v6 ^ v11, 12);
+            v1 += v6 + pM[s[11]];
+            v12 = Integers.rotateRight(v12 ^ v1, 8);
+            v11 += v12;
+            v6 = Integers.rotateRight(v6 ^ v11, 7);
+
+            v2 += v7 + pM[s[12]];
+            v13 = Integers.rotateRight(v13 ^ v2, 16);
+            v8 += v13;
+            v7 = Integers.rotateRight(v7 ^ v8, 12);
+            v2 += v7 + pM[s[13]];
+            v13 = Integers.rotateRight(v13 ^ v2, 8);
+            v8 += v13;
+            v7 = Integers.rotateRight(v7 ^ v8, 7);
+
+            v3 += v4 + pM[s[14]];
+            v14 = Integers.rotateRight(v14 ^ v3, 16);
+            v9 += v14;
+            v4 = Integers.rotateRight(v4 ^ v9, 12);
+            v3 += v4 + pM[s[15]];
+            v14 = Integers.rotateRight(v14 ^ v3, 8);
+            v9 += v14;
+            v4 = Integers.rotateRight(v4 ^ v9, 7);
+        }
+
+        pChaining[0] = v0 ^ v8;
+        pChaining[1] = v1 ^ v9;
+        pChaining[2] = v2 ^ v10;
+        pChaining[3] = v3 ^ v11;
+        pChaining[4] = v4 ^ v12;
+        pChaining[5] = v5 ^ v13;
+        pChaining[6] = v6 ^ v14;
+        pChaining[7] = v7 ^ v15;
+    }
+
     /**
      * Adjust the stack.
+     *
+     * @param pShift log2 of the number of chunks just added
      */
-    private void adjustStack()
+    private void adjustStack(final int pShift)
     {
         /* Loop to combine blocks */
-        long myCount = theCounter;
+        long myCount = theCounter >>> pShift;
         while (myCount > 0)
         {
             /* Break loop if we are not combining */
@@ -914,6 +1277,46 @@ private void resetBlockCount()
         theCurrBytes = 0;
     }
 
+    /**
+     * Task to hash a subtree.
+     */
+    private static class SubtreeTask
+        implements Runnable
+    {
+        private final int[] theKey;
+        private final int theTaskMode;
+        private final byte[] theMessage;
+        private final int theMsgPos;
+        private final long theTaskCounter;
+        private final int theChunks;
+        private final int[][] theResults;
+        private final int theIndex;
+
+        SubtreeTask(final int[] pKey,
+                    final int pMode,
+                    final byte[] pMessage,
+                    final int pMsgPos,
+                    final long pCounter,
+                    final int pChunks,
+                    final int[][] pResults,
+                    final int pIndex)
+        {
+            theKey = pKey;
+            theTaskMode = pMode;
+            theMessage = pMessage;
+            theMsgPos = pMsgPos;
+            theTaskCounter = pCounter;
+            theChunks = pChunks;
+            theResults = pResults;
+            theIndex = pIndex;
+        }
+
+        public void run()
+        {
+            theResults[theIndex] = hashSubtree(theKey, theTaskMode, theMessage, theMsgPos, theTaskCounter, theChunks);
+        }
+    }
+
     /**
      * Set root indication.
      */
@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.CryptoServiceProperties;
 import org.bouncycastle.crypto.CryptoServicePurpose;
 import org.bouncycastle.crypto.ExtendedDigest;
@@ -126,6 +128,58 @@ public void update(
         byteCount += len;
     }
 
+    /**
+     * update the digest with the remaining bytes in a buffer, whole words are passed to
+     * {@link #processWord(ByteBuffer, int)} directly from the buffer.
+     *
+     * @param in the buffer containing the data.
+     */
+    public void update(ByteBuffer in)
+    {
+        int len = in.remaining();
+
+        if (in.hasArray())
+        {
+            update(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.position() + len);
+            return;
+        }
+
+        //
+        // fill the current word
+        //
+        while (xBufOff != 0 && in.hasRemaining())
+        {
+            xBuf[xBufOff++] = in.get();
+            if (xBufOff == 4)
+            {
+                processWord(xBuf, 0);
+                xBufOff = 0;
+            }
+        }
+
+        //
+        // process whole words.
+        //
+        int pos = in.position();
+        int limit = in.limit() - 3;
+        for (; pos < limit; pos += 4)
+        {
+            processWord(in, pos);
+        }
+        in.position(pos);
+
+        //
+        // load in the remainder.
+        //
+        while (in.hasRemaining())
+        {
+            xBuf[xBufOff++] = in.get();
+        }
+
+        byteCount += len;
+    }
+
     public void finish()
     {
         long    bitLength = (byteCount << 3);
@@ -170,6 +224,24 @@ public int getByteLength()
     
     protected abstract void processWord(byte[] in, int inOff);
 
+    /**
+     * Process the word at an absolute index in a buffer. Subclasses can override this to read the word
+     * straight out of the buffer, by default it is copied out and passed to processWord(byte[], int).
+     *
+     * @param in the buffer containing the word.
+     * @param index the index of the first byte of the word.
+     */
+    protected void processWord(ByteBuffer in, int index)
+    {
+        // xBuf is always empty when whole words are being processed.
+        xBuf[0] = in.get(index);
+        xBuf[1] = in.get(index + 1);
+        xBuf[2] = in.get(index + 2);
+        xBuf[3] = in.get(index + 3);
+
+        processWord(xBuf, 0);
+    }
+
     protected abstract void processLength(long bitLength);
 
     protected abstract void processBlock();
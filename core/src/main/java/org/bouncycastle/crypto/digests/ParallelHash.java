@@ -1,10 +1,13 @@
 package org.bouncycastle.crypto.digests;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.CryptoServicePurpose;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.Xof;
+import org.bouncycastle.crypto.util.ParallelTasks;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Strings;
 
@@ -14,12 +17,21 @@
  * <p>
  * From NIST Special Publication 800-185 - SHA-3 Derived Functions:cSHAKE, KMAC, TupleHash and ParallelHash
  * </p>
+ * <p>
+ * If an executor is set with {@link #setExecutor(Executor)} the blocks in large updates are compressed
+ * concurrently, the output being the same as for the serial calculation.
+ * </p>
  */
 public class ParallelHash
     implements Xof, Digest
 {
     private static final byte[] N_PARALLEL_HASH = Strings.toByteArray("ParallelHash");
 
+    // minimum number of bytes in an update before blocks are compressed on the executor.
+    private static final int PARALLEL_MIN_LENGTH = 16 * 1024;
+    // maximum number of blocks compressed concurrently per task, limiting the output held at once.
+    private static final int MAX_TASK_BLOCKS = 256;
+
     private final CSHAKEDigest cshake;
     private final CSHAKEDigest compressor;
     private final int bitLength;
@@ -34,6 +46,10 @@
 
     private final CryptoServicePurpose purpose;
 
+    private Executor executor;
+    private int parallelism;
+    private CSHAKEDigest[] taskCompressors;
+
     /**
      * Base constructor.
      *
@@ -76,6 +92,8 @@ public ParallelHash(ParallelHash source)
         this.buffer = Arrays.clone(source.buffer);
         this.compressorBuffer = Arrays.clone(source.compressorBuffer);
         this.purpose = source.purpose;
+        this.executor = source.executor;
+        this.parallelism = source.parallelism;
 
         this.firstOutput = source.firstOutput;
         this.nCount = source.nCount;
@@ -84,6 +102,34 @@ public ParallelHash(ParallelHash source)
         CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, bitLength, purpose));
     }
 
+    /**
+     * Set an executor to compress blocks on, using up to one task per available processor.
+     *
+     * @param executor the executor to use, null to compress blocks on the calling thread.
+     */
+    public void setExecutor(Executor executor)
+    {
+        setExecutor(executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Set an executor to compress blocks on.
+     *
+     * @param executor the executor to use, null to compress blocks on the calling thread.
+     * @param parallelism the maximum number of tasks to split an update into.
+     */
+    public void setExecutor(Executor executor, int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.taskCompressors = null;
+    }
+
     public String getAlgorithmName()
     {
         return "ParallelHash" + cshake.getAlgorithmName().substring(6);
@@ -133,6 +179,11 @@ public void update(byte[] in, int inOff, int len)
 
         if (i < len)
         {
+            if (executor != null && parallelism > 1 && len - i >= PARALLEL_MIN_LENGTH && len - i >= 2 * B)
+            {
+                i += compressParallel(in, inOff + i, (len - i) / B);
+            }
+
             while (len - i >= B)
             {
                 compress(in, inOff + i, B);
@@ -162,6 +213,51 @@ private void compress(byte[] buf, int offSet, int len)
         nCount++;
     }
 
+    /**
+     * Compress whole blocks across the executor, feeding the results to cshake in order.
+     *
+     * @return the number of bytes processed.
+     */
+    private int compressParallel(byte[] in, int inOff, int blocks)
+    {
+        int tasks = Math.min(parallelism, blocks);
+        if (taskCompressors == null || taskCompressors.length < tasks)
+        {
+            taskCompressors = new CSHAKEDigest[tasks];
+        }
+        for (int t = 0; t != tasks; t++)
+        {
+            if (taskCompressors[t] == null)
+            {
+                taskCompressors[t] = new CSHAKEDigest(compressor);
+            }
+        }
+
+        int outLen = compressorBuffer.length;
+        int done = 0;
+        while (done < blocks)
+        {
+            int batch = Math.min(blocks - done, tasks * MAX_TASK_BLOCKS);
+            int perTask = (batch + tasks - 1) / tasks;
+            byte[] results = new byte[batch * outLen];
+
+            Runnable[] runnables = new Runnable[(batch + perTask - 1) / perTask];
+            for (int t = 0; t != runnables.length; t++)
+            {
+                int first = t * perTask;
+                runnables[t] = new CompressTask(taskCompressors[t], in, inOff + (done + first) * B,
+                    Math.min(perTask, batch - first), results, first * outLen);
+            }
+            ParallelTasks.run(executor, runnables);
+
+            cshake.update(results, 0, results.length);
+            nCount += batch;
+            done += batch;
+        }
+
+        return blocks * B;
+    }
+
     private void wrapUp(int outputSize)
     {
         if (bufOff != 0)
@@ -216,6 +312,37 @@ public int doOutput(byte[] out, int outOff, int outLen)
         return cshake.doOutput(out, outOff, outLen);
     }
 
+    private class CompressTask
+        implements Runnable
+    {
+        private final CSHAKEDigest taskCompressor;
+        private final byte[] in;
+        private final int inOff;
+        private final int blocks;
+        private final byte[] out;
+        private final int outOff;
+
+        CompressTask(CSHAKEDigest taskCompressor, byte[] in, int inOff, int blocks, byte[] out, int outOff)
+        {
+            this.taskCompressor = taskCompressor;
+            this.in = in;
+            this.inOff = inOff;
+            this.blocks = blocks;
+            this.out = out;
+            this.outOff = outOff;
+        }
+
+        public void run()
+        {
+            int outLen = compressorBuffer.length;
+            for (int b = 0; b != blocks; b++)
+            {
+                taskCompressor.update(in, inOff + b * B, B);
+                taskCompressor.doFinal(out, outOff + b * outLen, outLen);
+            }
+        }
+    }
+
     public void reset()
     {
         cshake.reset();
@@ -1,10 +1,14 @@
 package org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
+import org.bouncycastle.crypto.ByteBufferDigest;
 import org.bouncycastle.crypto.CryptoServiceProperties;
 import org.bouncycastle.crypto.CryptoServicePurpose;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.SavableDigest;
 import org.bouncycastle.util.Memoable;
 import org.bouncycastle.util.Pack;
@@ -23,7 +27,7 @@
  */
 public class SHA256Digest
     extends GeneralDigest
-    implements SavableDigest
+    implements SavableDigest, ByteBufferDigest
 {
     private static final int    DIGEST_LENGTH = 32;
 
@@ -153,6 +157,20 @@ protected void processWord(
         }
     }
 
+    protected void processWord(
+        ByteBuffer in,
+        int        index)
+    {
+        int word = in.getInt(index);
+
+        X[xOff] = in.order() == ByteOrder.BIG_ENDIAN ? word : Integer.reverseBytes(word);
+
+        if (++xOff == 16)
+        {
+            processBlock();
+        }
+    }
+
     protected void processLength(
         long    bitLength)
     {
@@ -183,6 +201,32 @@ public int doFinal(byte[] out, int outOff)
         return DIGEST_LENGTH;
     }
 
+    public int doFinal(ByteBuffer out)
+    {
+        if (out.remaining() < DIGEST_LENGTH)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        finish();
+
+        // putInt() follows the buffer's byte order, the digest is always big endian.
+        boolean bigEndian = out.order() == ByteOrder.BIG_ENDIAN;
+
+        out.putInt(bigEndian ? H1 : Integer.reverseBytes(H1));
+        out.putInt(bigEndian ? H2 : Integer.reverseBytes(H2));
+        out.putInt(bigEndian ? H3 : Integer.reverseBytes(H3));
+        out.putInt(bigEndian ? H4 : Integer.reverseBytes(H4));
+        out.putInt(bigEndian ? H5 : Integer.reverseBytes(H5));
+        out.putInt(bigEndian ? H6 : Integer.reverseBytes(H6));
+        out.putInt(bigEndian ? H7 : Integer.reverseBytes(H7));
+        out.putInt(bigEndian ? H8 : Integer.reverseBytes(H8));
+
+        reset();
+
+        return DIGEST_LENGTH;
+    }
+
     /**
      * reset the chaining variables
      */
@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+
+import org.bouncycastle.crypto.ByteBufferBlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.DataLengthException;
@@ -36,6 +39,7 @@
  */
 public class AESEngine
     extends DefaultMultiBlockCipher
+    implements ByteBufferBlockCipher
 {
     // The S box
     private static final byte[] S = {
@@ -419,6 +423,8 @@ private int[][] generateWorkingKey(byte[] key, boolean forEncryption)
 
     private byte[]      s;
 
+    private byte[]      block;      // staging for buffers without an accessible array, cleared after use
+
     private static final int BLOCK_SIZE = 16;
 
     /**
@@ -512,6 +518,95 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
         return BLOCK_SIZE;
     }
 
+    public int processBlock(ByteBuffer in, ByteBuffer out)
+    {
+        if (WorkingKey == null)
+        {
+            throw new IllegalStateException("AES engine not initialised");
+        }
+
+        if (in == out)
+        {
+            throw new IllegalArgumentException("input and output buffers must be different objects");
+        }
+
+        if (in.remaining() < BLOCK_SIZE)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        if (out.remaining() < BLOCK_SIZE)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        // heap buffers are processed in place, anything else (e.g. a direct buffer) is copied through
+        // the block array, which saves allocating but is still a copy.
+        byte[] inBuf, outBuf;
+        int inOff, outOff;
+
+        if (in.hasArray())
+        {
+            inBuf = in.array();
+            inOff = in.arrayOffset() + in.position();
+        }
+        else
+        {
+            if (block == null)
+            {
+                block = new byte[BLOCK_SIZE];
+            }
+            inBuf = block;
+            inOff = 0;
+            in.get(block, 0, BLOCK_SIZE);
+        }
+
+        if (out.hasArray())
+        {
+            outBuf = out.array();
+            outOff = out.arrayOffset() + out.position();
+        }
+        else
+        {
+            if (block == null)
+            {
+                block = new byte[BLOCK_SIZE];
+            }
+            outBuf = block;
+            outOff = 0;
+        }
+
+        if (forEncryption)
+        {
+            encryptBlock(inBuf, inOff, outBuf, outOff, WorkingKey);
+        }
+        else
+        {
+            decryptBlock(inBuf, inOff, outBuf, outOff, WorkingKey);
+        }
+
+        if (in.hasArray())
+        {
+            in.position(in.position() + BLOCK_SIZE);
+        }
+
+        if (out.hasArray())
+        {
+            out.position(out.position() + BLOCK_SIZE);
+        }
+        else
+        {
+            out.put(block, 0, BLOCK_SIZE);
+        }
+
+        if (block != null)
+        {
+            Arrays.fill(block, (byte)0);
+        }
+
+        return BLOCK_SIZE;
+    }
+
     public void reset()
     {
     }
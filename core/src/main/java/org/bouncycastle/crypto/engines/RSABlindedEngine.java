@@ -10,7 +10,6 @@
 import org.bouncycastle.crypto.params.ParametersWithRandom;
 import org.bouncycastle.crypto.params.RSAKeyParameters;
 import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
-import org.bouncycastle.util.BigIntegers;
 
 /**
  * this does your basic RSA algorithm with blinding
@@ -18,11 +17,10 @@
 public class RSABlindedEngine
     implements AsymmetricBlockCipher
 {
-    private static final BigInteger ONE = BigInteger.valueOf(1);
-
     private RSACoreEngine    core = new RSACoreEngine();
     private RSAKeyParameters key;
     private SecureRandom     random;
+    private RSABlindingContext blindingContext;
 
     /**
      * initialise the RSA engine.
@@ -44,6 +42,7 @@ public void init(boolean forEncryption, CipherParameters parameters)
 
         this.key = (RSAKeyParameters)parameters;
         this.random = initSecureRandom(key instanceof RSAPrivateCrtKeyParameters, providedRandom);
+        this.blindingContext = null;
     }
 
     /**
@@ -107,9 +106,14 @@ private BigInteger processInput(BigInteger input)
             {
                 BigInteger m = crtKey.getModulus();
 
-                BigInteger r = BigIntegers.createRandomInRange(ONE, m.subtract(ONE), random);
-                BigInteger blind = r.modPow(e, m);
-                BigInteger unblind = BigIntegers.modOddInverse(m, r);
+                if (blindingContext == null)
+                {
+                    blindingContext = RSABlindingContext.getInstance(crtKey);
+                }
+
+                BigInteger[] blinding = blindingContext.nextBlindingPair(m, random);
+                BigInteger blind = blinding[0];
+                BigInteger unblind = blinding[1];
 
                 BigInteger blindedInput = blind.multiply(input).mod(m);
                 BigInteger blindedResult = core.processBlock(blindedInput);
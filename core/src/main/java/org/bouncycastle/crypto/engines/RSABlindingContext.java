@@ -0,0 +1,122 @@
+package org.bouncycastle.crypto.engines;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.WeakHashMap;
+
+import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
+import org.bouncycastle.util.BigIntegers;
+
+/**
+ * Blinding state kept for an RSA private key between operations. A fresh blinding pair (r^e, r^-1)
+ * costs a modular exponentiation and an inversion, so, as is usual, the pair is instead updated by
+ * squaring both halves after each use, with a completely new pair generated every REFRESH_PERIOD
+ * operations.
+ * <p>
+ * Contexts are shared by all engines using the same key, and are looked up by modulus and public
+ * exponent so keys recreated from the same provider key still find theirs. The pair depends on
+ * nothing else, and no secret key material is kept, so the cache never holds on to a private key.
+ * An engine only looks its context up once per key it is initialised with.
+ * </p>
+ */
+final class RSABlindingContext
+{
+    private static final BigInteger ONE = BigInteger.valueOf(1);
+
+    private static final int REFRESH_PERIOD = 32;
+
+    // NOTE: Must be a power of 2
+    private static final int STRIPE_COUNT = 16;
+
+    /*
+     * Contexts are spread across stripes, each with its own lock, so that lookups for unrelated keys don't
+     * contend. Note: the weakly held key, the modulus, must not be referenced from a context.
+     */
+    private static final Stripe[] contexts = new Stripe[STRIPE_COUNT];
+
+    static
+    {
+        for (int i = 0; i < STRIPE_COUNT; ++i)
+        {
+            contexts[i] = new Stripe();
+        }
+    }
+
+    static RSABlindingContext getInstance(RSAPrivateCrtKeyParameters key)
+    {
+        BigInteger m = key.getModulus();
+
+        int h = m.hashCode();
+        h ^= (h >>> 16);
+        h ^= (h >>> 8);
+        Stripe stripe = contexts[h & (STRIPE_COUNT - 1)];
+
+        synchronized (stripe)
+        {
+            RSABlindingContext context = stripe.get(m);
+            if (context == null || !context.isFor(key))
+            {
+                context = new RSABlindingContext(key.getPublicExponent());
+                stripe.put(m, context);
+            }
+            return context;
+        }
+    }
+
+    private final BigInteger e;
+
+    private BigInteger blind;
+    private BigInteger unblind;
+    private int uses = REFRESH_PERIOD;
+
+    private RSABlindingContext(BigInteger e)
+    {
+        this.e = e;
+    }
+
+    private boolean isFor(RSAPrivateCrtKeyParameters key)
+    {
+        return e.equals(key.getPublicExponent());
+    }
+
+    /**
+     * Return the blinding pair to use for the next operation.
+     *
+     * @param m the key's modulus.
+     * @param random source of randomness for when the pair is regenerated.
+     * @return an array of { r^e mod m, r^-1 mod m } for some r.
+     */
+    BigInteger[] nextBlindingPair(BigInteger m, SecureRandom random)
+    {
+        synchronized (this)
+        {
+            if (uses < REFRESH_PERIOD)
+            {
+                blind = blind.multiply(blind).mod(m);
+                unblind = unblind.multiply(unblind).mod(m);
+                ++uses;
+
+                return new BigInteger[]{ blind, unblind };
+            }
+        }
+
+        // a fresh pair is generated without holding the lock, so other operations with the key aren't held up.
+        BigInteger r = BigIntegers.createRandomInRange(ONE, m.subtract(ONE), random);
+        BigInteger freshBlind = r.modPow(e, m);
+        BigInteger freshUnblind = BigIntegers.modOddInverse(m, r);
+
+        synchronized (this)
+        {
+            blind = freshBlind;
+            unblind = freshUnblind;
+            uses = 1;
+        }
+
+        return new BigInteger[]{ freshBlind, freshUnblind };
+    }
+
+    private static final class Stripe
+        extends WeakHashMap<BigInteger, RSABlindingContext>
+    {
+    }
+}
@@ -1,8 +1,11 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.Blake2bDigest;
 import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.bouncycastle.crypto.util.ParallelTasks;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Longs;
 import org.bouncycastle.util.Pack;
@@ -36,6 +39,8 @@
 
     private static final byte[] ZERO_BYTES = new byte[4];
 
+    private final Executor executor;
+
     private Argon2Parameters parameters;
     private Block[] memory;
     private int segmentLength;
@@ -43,6 +48,19 @@
 
     public Argon2BytesGenerator()
     {
+        this(null);
+    }
+
+    /**
+     * Create a generator which fills the lanes of each slice concurrently on the passed in executor,
+     * waiting for all of them to complete before moving on to the next slice. The output is the same
+     * as for a generator filling the lanes sequentially.
+     *
+     * @param executor the executor to fill lanes on, null if the lanes should be filled sequentially.
+     */
+    public Argon2BytesGenerator(Executor executor)
+    {
+        this.executor = executor;
     }
 
     /**
@@ -156,6 +174,12 @@ private void initMemory(int memoryBlocks)
 
     private void fillMemoryBlocks()
     {
+        if (executor != null && parameters.getLanes() > 1)
+        {
+            fillMemoryBlocksParallel();
+            return;
+        }
+
         FillBlock filler = new FillBlock();
         Position position = new Position();
         for (int pass = 0; pass < parameters.getIterations(); ++pass)
@@ -176,6 +200,53 @@ private void fillMemoryBlocks()
         }
     }
 
+    private void fillMemoryBlocksParallel()
+    {
+        int lanes = parameters.getLanes();
+
+        // one filler/position per lane, reused for every slice in every pass.
+        final FillBlock[] fillers = new FillBlock[lanes];
+        final Position[] positions = new Position[lanes];
+        for (int lane = 0; lane < lanes; ++lane)
+        {
+            fillers[lane] = new FillBlock();
+            positions[lane] = new Position();
+            positions[lane].lane = lane;
+        }
+
+        Runnable[] segments = new Runnable[lanes];
+        for (int lane = 0; lane < lanes; ++lane)
+        {
+            final FillBlock filler = fillers[lane];
+            final Position position = positions[lane];
+
+            segments[lane] = new Runnable()
+            {
+                public void run()
+                {
+                    fillSegment(filler, position);
+                }
+            };
+        }
+
+        for (int pass = 0; pass < parameters.getIterations(); ++pass)
+        {
+            for (int slice = 0; slice < ARGON2_SYNC_POINTS; ++slice)
+            {
+                for (int lane = 0; lane < lanes; ++lane)
+                {
+                    positions[lane].pass = pass;
+                    positions[lane].slice = slice;
+                }
+
+                // synchronisation point: ParallelTasks only returns once every segment of the slice is
+                // complete, so none is still writing to memory when the next slice starts or a failure
+                // is reported and the caller resets it.
+                ParallelTasks.run(executor, segments);
+            }
+        }
+    }
+
     private void fillSegment(FillBlock filler, Position position)
     {
         Block addressBlock = null, inputBlock = null;
@@ -0,0 +1,310 @@
+package org.bouncycastle.crypto.generators;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
+import org.bouncycastle.crypto.KeyGenerationParameters;
+
+/**
+ * A key pair generator that serves key pairs generated in advance, for workloads such as TLS key
+ * shares where an ephemeral key is needed on the critical path of every exchange.
+ * <p>
+ * Key pairs are generated by the wrapped generator on an executor into a bounded pool. Whenever a
+ * caller takes the pool down to the low watermark, a background task tops it back up to the high
+ * watermark. If the pool is empty the key pair is generated on the calling thread instead, so a
+ * caller never waits for the executor. No lock is held while a key pair is generated, so callers
+ * missing the pool and the background task all generate concurrently.
+ * </p>
+ * <p>
+ * Each key pair is handed out at most once, and a key pair generated under earlier parameters is never
+ * handed out after a call to init(). The generator is safe for use by multiple threads; the wrapped
+ * generator should not be used directly once passed in, and its generateKeyPair() must be safe to call
+ * from several threads at once once it is initialised, as it is for the EC, X25519, X448, DH and ML-KEM
+ * generators in this library.
+ * </p>
+ */
+public class PooledKeyPairGenerator
+    implements AsymmetricCipherKeyPairGenerator
+{
+    private final AsymmetricCipherKeyPairGenerator generator;
+    private final Executor executor;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final BlockingQueue<PooledKeyPair> pool;
+    private final AtomicBoolean filling = new AtomicBoolean();
+    private final Runnable filler = new Filler();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+
+    /*
+     * Incremented before and after each init() of the wrapped generator, so it is odd while an init() is in
+     * progress. A key pair is only used if the epoch is unchanged (and even) across its generation.
+     */
+    private final AtomicLong epoch = new AtomicLong();
+    private final Object initLock = new Object();
+
+    private volatile boolean initialised = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Base constructor.
+     *
+     * @param generator the generator to produce key pairs with.
+     * @param executor the executor to generate key pairs on in the background.
+     * @param lowWatermark the pool size at or below which the pool is refilled.
+     * @param highWatermark the size the pool is refilled to, and its capacity.
+     */
+    public PooledKeyPairGenerator(AsymmetricCipherKeyPairGenerator generator, Executor executor, int lowWatermark,
+        int highWatermark)
+    {
+        if (generator == null)
+        {
+            throw new NullPointerException("'generator' cannot be null");
+        }
+        if (executor == null)
+        {
+            throw new NullPointerException("'executor' cannot be null");
+        }
+        if (lowWatermark < 0 || highWatermark <= lowWatermark)
+        {
+            throw new IllegalArgumentException("watermarks must satisfy 0 <= lowWatermark < highWatermark");
+        }
+
+        this.generator = generator;
+        this.executor = executor;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.pool = new ArrayBlockingQueue<PooledKeyPair>(highWatermark);
+    }
+
+    /**
+     * Initialise the wrapped generator, discard anything pooled under previous parameters and start
+     * filling the pool.
+     *
+     * @param param the parameters the key pairs are to be generated with.
+     */
+    public void init(KeyGenerationParameters param)
+    {
+        synchronized (initLock)
+        {
+            epoch.incrementAndGet();
+            try
+            {
+                generator.init(param);
+            }
+            finally
+            {
+                epoch.incrementAndGet();
+            }
+            pool.clear();
+            initialised = true;
+        }
+
+        refill();
+    }
+
+    public AsymmetricCipherKeyPair generateKeyPair()
+    {
+        if (!initialised)
+        {
+            throw new IllegalStateException("generator not initialised");
+        }
+
+        AsymmetricCipherKeyPair kp = null;
+
+        PooledKeyPair pooled;
+        while (kp == null && (pooled = pool.poll()) != null)
+        {
+            // anything pooled before the last init() is dropped.
+            if (pooled.epoch == epoch.get())
+            {
+                kp = pooled.keyPair;
+            }
+        }
+
+        if (kp != null)
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+
+            do
+            {
+                pooled = generate();
+            }
+            while (pooled == null);
+
+            kp = pooled.keyPair;
+        }
+
+        if (pool.size() <= lowWatermark)
+        {
+            refill();
+        }
+
+        return kp;
+    }
+
+    /**
+     * Stop refilling the pool and discard the key pairs in it. Key pairs are still generated on the
+     * calling thread if requested.
+     */
+    public void close()
+    {
+        closed = true;
+        pool.clear();
+    }
+
+    /**
+     * Return the pool size at or below which the pool is refilled.
+     */
+    public int getLowWatermark()
+    {
+        return lowWatermark;
+    }
+
+    /**
+     * Return the size the pool is refilled to.
+     */
+    public int getHighWatermark()
+    {
+        return highWatermark;
+    }
+
+    /**
+     * Return the number of key pairs currently pooled.
+     */
+    public int size()
+    {
+        return pool.size();
+    }
+
+    /**
+     * Return the number of key pairs served from the pool.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of key pairs generated on the calling thread because the pool was empty.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of key pairs generated in the background.
+     */
+    public long getGenerated()
+    {
+        return generated.get();
+    }
+
+    public String toString()
+    {
+        return "PooledKeyPairGenerator[size=" + size() + ", lowWatermark=" + lowWatermark + ", highWatermark="
+            + highWatermark + ", hits=" + getHits() + ", misses=" + getMisses() + ", generated=" + getGenerated() + "]";
+    }
+
+    /*
+     * Generate a key pair without holding any lock, returning null if the wrapped generator was
+     * re-initialised while it was being generated.
+     */
+    private PooledKeyPair generate()
+    {
+        long start = epoch.get();
+        if ((start & 1) != 0)
+        {
+            // wait for the init() in progress to complete.
+            synchronized (initLock)
+            {
+                start = epoch.get();
+            }
+        }
+
+        AsymmetricCipherKeyPair kp = generator.generateKeyPair();
+
+        return epoch.get() == start ? new PooledKeyPair(kp, start) : null;
+    }
+
+    private void refill()
+    {
+        if (!closed && filling.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.execute(filler);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // callers will generate their own until the executor accepts a refill again.
+                filling.set(false);
+            }
+        }
+    }
+
+    private static final class PooledKeyPair
+    {
+        final AsymmetricCipherKeyPair keyPair;
+        final long epoch;
+
+        PooledKeyPair(AsymmetricCipherKeyPair keyPair, long epoch)
+        {
+            this.keyPair = keyPair;
+            this.epoch = epoch;
+        }
+    }
+
+    private class Filler
+        implements Runnable
+    {
+        public void run()
+        {
+            try
+            {
+                while (!closed && pool.size() < highWatermark)
+                {
+                    PooledKeyPair pooled = generate();
+
+                    // a key pair from before an init() is simply not pooled.
+                    if (pooled != null)
+                    {
+                        if (!pool.offer(pooled))
+                        {
+                            break;
+                        }
+                        generated.incrementAndGet();
+                    }
+                }
+            }
+            finally
+            {
+                filling.set(false);
+            }
+
+            if (closed)
+            {
+                // close() may have cleared the pool just before the last key pair was added.
+                pool.clear();
+            }
+            else if (pool.size() <= lowWatermark)
+            {
+                // the pool may have been drained after the last check, when no new refill could start.
+                refill();
+            }
+        }
+    }
+}
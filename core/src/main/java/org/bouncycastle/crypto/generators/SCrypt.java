@@ -1,9 +1,12 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.PBEParametersGenerator;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.engines.Salsa20Engine;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.util.ParallelTasks;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.Pack;
@@ -35,6 +38,39 @@ private SCrypt()
      * @return the generated key.
      */
     public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    {
+        checkParameters(P, S, N, r, p, dkLen);
+
+        return MFcrypt(P, S, N, r, p, dkLen, null);
+    }
+
+    /**
+     * Generate a key using the scrypt key derivation function, running the p independent SMix
+     * lanes as separate tasks on the passed in executor. The result is identical to that of
+     * {@link #generate(byte[], byte[], int, int, int, int)}.
+     * <p>
+     * Note: each lane in flight requires its own <code>128 * r * N</code> bytes of working memory.
+     * </p>
+     *
+     * @param P     the bytes of the pass phrase.
+     * @param S     the salt to use for this invocation.
+     * @param N     CPU/Memory cost parameter. Must be larger than 1, a power of 2 and less than
+     *              <code>2^(128 * r / 8)</code>.
+     * @param r     the block size, must be &gt;= 1.
+     * @param p     Parallelization parameter. Must be a positive integer less than or equal to
+     *              <code>Integer.MAX_VALUE / (128 * r * 8)</code>.
+     * @param dkLen the length of the key to generate.
+     * @param executor the executor to run the SMix lanes on, if null the lanes are run sequentially.
+     * @return the generated key.
+     */
+    public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor)
+    {
+        checkParameters(P, S, N, r, p, dkLen);
+
+        return MFcrypt(P, S, N, r, p, dkLen, p > 1 ? executor : null);
+    }
+
+    private static void checkParameters(byte[] P, byte[] S, int N, int r, int p, int dkLen)
     {
         if (P == null)
         {
@@ -67,10 +103,9 @@ public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen
         {
             throw new IllegalArgumentException("Generated key length dkLen must be >= 1.");
         }
-        return MFcrypt(P, S, N, r, p, dkLen);
     }
 
-    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor)
     {
         int MFLenBytes = r * 128;
         byte[] bytes = SingleIterationPBKDF2(P, S, p * MFLenBytes);
@@ -96,10 +131,25 @@ private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen
             }
 
             int MFLenWords = MFLenBytes >>> 2;
-            for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+            if (executor == null)
             {
-                // TODO These can be done in parallel threads
-                SMix(B, BOff, N, d, r);
+                // the lanes run one after the other, so they can all share the same working memory.
+                SMixLane lane = new SMixLane(N, d, r);
+                try
+                {
+                    for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+                    {
+                        lane.SMix(B, BOff);
+                    }
+                }
+                finally
+                {
+                    lane.clear();
+                }
+            }
+            else
+            {
+                parallelSMix(executor, B, MFLenWords, N, d, r);
             }
 
             Pack.intToLittleEndian(B, bytes, 0);
@@ -113,6 +163,36 @@ private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen
         }
     }
 
+    private static void parallelSMix(Executor executor, final int[] B, int MFLenWords, final int N, final int d,
+        final int r)
+    {
+        // each lane works on its own disjoint slice of B with its own working memory, so no further
+        // coordination is required.
+        Runnable[] lanes = new Runnable[B.length / MFLenWords];
+        for (int i = 0; i < lanes.length; ++i)
+        {
+            final int BOff = i * MFLenWords;
+            lanes[i] = new Runnable()
+            {
+                public void run()
+                {
+                    SMixLane lane = new SMixLane(N, d, r);
+                    try
+                    {
+                        lane.SMix(B, BOff);
+                    }
+                    finally
+                    {
+                        lane.clear();
+                    }
+                }
+            };
+        }
+
+        // B is cleared by the caller, ParallelTasks only returns once every lane has finished with it.
+        ParallelTasks.run(executor, lanes);
+    }
+
     private static byte[] SingleIterationPBKDF2(byte[] P, byte[] S, int dkLen)
     {
         PBEParametersGenerator pGen = new PKCS5S2ParametersGenerator(SHA256Digest.newInstance());
@@ -121,32 +201,49 @@ private static byte[] SingleIterationPBKDF2(byte[] P, byte[] S, int dkLen)
         return key.getKey();
     }
 
-    private static void SMix(int[] B, int BOff, int N, int d, int r)
+    /**
+     * The working memory for an SMix lane, allocated once and reused for each lane run on it.
+     */
+    private static final class SMixLane
     {
-        int powN = Integers.numberOfTrailingZeros(N);
-        int blocksPerChunk = N >>> d;
-        int chunkCount = 1 << d, chunkMask = blocksPerChunk - 1, chunkPow = powN - d;
+        private final int N, r, chunkPow, chunkMask, BCount;
+        private final int[] blockX1 = new int[16];
+        private final int[] blockX2 = new int[16];
+        private final int[] blockY;
+        private final int[] X;
+        private final int[][] VV;
 
-        int BCount = r * 32;
+        SMixLane(int N, int d, int r)
+        {
+            int powN = Integers.numberOfTrailingZeros(N);
+            int blocksPerChunk = N >>> d;
+            int chunkCount = 1 << d;
 
-        int[] blockX1 = new int[16];
-        int[] blockX2 = new int[16];
-        int[] blockY = new int[BCount];
+            this.N = N;
+            this.r = r;
+            this.chunkMask = blocksPerChunk - 1;
+            this.chunkPow = powN - d;
+            this.BCount = r * 32;
+            this.blockY = new int[BCount];
+            this.X = new int[BCount];
+            this.VV = new int[chunkCount][];
 
-        int[] X = new int[BCount];
-        int[][] VV = new int[chunkCount][];
+            for (int c = 0; c < chunkCount; ++c)
+            {
+                VV[c] = new int[blocksPerChunk * BCount];
+            }
+        }
 
-        try
+        void SMix(int[] B, int BOff)
         {
             System.arraycopy(B, BOff, X, 0, BCount);
 
-            for (int c = 0; c < chunkCount; ++c)
+            for (int c = 0; c < VV.length; ++c)
             {
-                int[] V = new int[blocksPerChunk * BCount];
-                VV[c] = V;
+                int[] V = VV[c];
 
                 int off = 0;
-                for (int i = 0; i < blocksPerChunk; i += 2)
+                while (off < V.length)
                 {
                     System.arraycopy(X, 0, V, off, BCount);
                     off += BCount;
@@ -170,10 +267,11 @@ private static void SMix(int[] B, int BOff, int N, int d, int r)
 
             System.arraycopy(X, 0, B, BOff, BCount);
         }
-        finally
+
+        void clear()
         {
             ClearAll(VV);
-            ClearAll(new int[][]{X, blockX1, blockX2, blockY});
+            ClearAll(new int[][]{ X, blockX1, blockX2, blockY });
         }
     }
 
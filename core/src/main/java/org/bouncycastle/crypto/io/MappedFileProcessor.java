@@ -0,0 +1,346 @@
+package org.bouncycastle.crypto.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.crypto.ByteBufferDigest;
+import org.bouncycastle.crypto.ByteBufferMac;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.Signer;
+import org.bouncycastle.crypto.util.ByteBuffers;
+import org.bouncycastle.util.Memoable;
+
+/**
+ * Utility methods for feeding the contents of a file to a digest, MAC or signer by mapping the file
+ * into memory a window at a time.
+ * <p>
+ * Primitives implementing {@link ByteBufferDigest} or {@link ByteBufferMac} read straight from the
+ * mapped window; others are fed through a small temporary array. Mapped windows are released when
+ * they are garbage collected, so the window size bounds how much address space a call can tie up.
+ * </p>
+ */
+public final class MappedFileProcessor
+{
+    /**
+     * The default size of the window mapped at one time - 32 MB.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 32 * 1024 * 1024;
+
+    private static final int COPY_SIZE = 64 * 1024;
+
+    private MappedFileProcessor()
+    {
+    }
+
+    /**
+     * Update a digest with the contents of a file.
+     *
+     * @param digest the digest to update.
+     * @param file the file to read.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void update(Digest digest, File file)
+        throws IOException
+    {
+        update(digest, file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Update a digest with the contents of a file, mapping windowSize bytes at a time.
+     *
+     * @param digest the digest to update.
+     * @param file the file to read.
+     * @param windowSize the number of bytes to map at once.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void update(Digest digest, File file, int windowSize)
+        throws IOException
+    {
+        process(new DigestSink(digest), file, windowSize);
+    }
+
+    /**
+     * Update a MAC with the contents of a file.
+     *
+     * @param mac the MAC to update.
+     * @param file the file to read.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void update(Mac mac, File file)
+        throws IOException
+    {
+        update(mac, file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Update a MAC with the contents of a file, mapping windowSize bytes at a time.
+     *
+     * @param mac the MAC to update.
+     * @param file the file to read.
+     * @param windowSize the number of bytes to map at once.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void update(Mac mac, File file, int windowSize)
+        throws IOException
+    {
+        process(new MacSink(mac), file, windowSize);
+    }
+
+    /**
+     * Update a signer with the contents of a file.
+     *
+     * @param signer the signer to update.
+     * @param file the file to read.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void update(Signer signer, File file)
+        throws IOException
+    {
+        update(signer, file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Update a signer with the contents of a file, mapping windowSize bytes at a time.
+     *
+     * @param signer the signer to update.
+     * @param file the file to read.
+     * @param windowSize the number of bytes to map at once.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void update(Signer signer, File file, int windowSize)
+        throws IOException
+    {
+        process(new SignerSink(signer), file, windowSize);
+    }
+
+    /**
+     * Calculate the digest of a file.
+     *
+     * @param digest the digest to use, it will be reset on return.
+     * @param file the file to read.
+     * @return the digest value.
+     * @throws IOException if the file cannot be read.
+     */
+    public static byte[] digest(Digest digest, File file)
+        throws IOException
+    {
+        update(digest, file);
+
+        byte[] rv = new byte[digest.getDigestSize()];
+
+        digest.doFinal(rv, 0);
+
+        return rv;
+    }
+
+    /**
+     * Calculate the digests of several files concurrently, each file being processed by a copy of
+     * the passed in digest. Files the executor will not take are processed on the calling thread.
+     *
+     * @param digest the digest to use - it must implement {@link Memoable} and is not itself modified.
+     * @param files the files to read.
+     * @param executor the executor to run the calculations on.
+     * @return the digest values, in the same order as files.
+     * @throws IOException if one of the files cannot be read.
+     */
+    public static byte[][] digest(Digest digest, File[] files, Executor executor)
+        throws IOException
+    {
+        if (!(digest instanceof Memoable))
+        {
+            throw new IllegalArgumentException("digest must implement Memoable to be copied");
+        }
+
+        Memoable prototype = (Memoable)digest;
+
+        List<FutureTask<byte[]>> tasks = new ArrayList<FutureTask<byte[]>>(files.length);
+        for (int i = 0; i != files.length; i++)
+        {
+            Digest fileDigest = (Digest)prototype.copy();
+
+            fileDigest.reset();
+
+            FutureTask<byte[]> task = new FutureTask<byte[]>(new DigestTask(fileDigest, files[i]));
+            tasks.add(task);
+            try
+            {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                task.run();
+            }
+        }
+
+        byte[][] digests = new byte[files.length][];
+        try
+        {
+            for (int i = 0; i != digests.length; i++)
+            {
+                digests[i] = getResult(tasks.get(i));
+            }
+        }
+        finally
+        {
+            for (int i = 0; i != tasks.size(); i++)
+            {
+                tasks.get(i).cancel(true);
+            }
+        }
+
+        return digests;
+    }
+
+    private static byte[] getResult(FutureTask<byte[]> task)
+        throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for digest");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IOException("exception calculating digest: " + cause);
+        }
+    }
+
+    private static void process(Sink sink, File file, int windowSize)
+        throws IOException
+    {
+        if (windowSize <= 0)
+        {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+
+        FileInputStream fIn = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = fIn.getChannel();
+            long size = channel.size();
+
+            for (long pos = 0; pos < size; pos += windowSize)
+            {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, size - pos));
+
+                sink.update(window);
+            }
+        }
+        finally
+        {
+            fIn.close();
+        }
+    }
+
+    private static abstract class Sink
+    {
+        abstract void update(ByteBuffer in);
+    }
+
+    private static class DigestSink
+        extends Sink
+    {
+        private final Digest digest;
+
+        DigestSink(Digest digest)
+        {
+            this.digest = digest;
+        }
+
+        void update(ByteBuffer in)
+        {
+            ByteBuffers.update(digest, in);
+        }
+    }
+
+    private static class MacSink
+        extends Sink
+    {
+        private final Mac mac;
+
+        MacSink(Mac mac)
+        {
+            this.mac = mac;
+        }
+
+        void update(ByteBuffer in)
+        {
+            ByteBuffers.update(mac, in);
+        }
+    }
+
+    private static class SignerSink
+        extends Sink
+    {
+        private final Signer signer;
+        private byte[] buf;
+
+        SignerSink(Signer signer)
+        {
+            this.signer = signer;
+        }
+
+        void update(ByteBuffer in)
+        {
+            if (buf == null)
+            {
+                buf = new byte[COPY_SIZE];
+            }
+            while (in.hasRemaining())
+            {
+                int len = Math.min(in.remaining(), buf.length);
+                in.get(buf, 0, len);
+                signer.update(buf, 0, len);
+            }
+        }
+    }
+
+    private static class DigestTask
+        implements Callable<byte[]>
+    {
+        private final Digest digest;
+        private final File file;
+
+        DigestTask(Digest digest, File file)
+        {
+            this.digest = digest;
+            this.file = file;
+        }
+
+        public byte[] call()
+            throws IOException
+        {
+            return digest(digest, file);
+        }
+    }
+}
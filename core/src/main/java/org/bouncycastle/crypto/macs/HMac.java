@@ -1,12 +1,15 @@
 package org.bouncycastle.crypto.macs;
 
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 
+import org.bouncycastle.crypto.ByteBufferMac;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.ExtendedDigest;
-import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.util.ByteBuffers;
 import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.Memoable;
 
@@ -16,7 +19,7 @@
  * H(K XOR opad, H(K XOR ipad, text))
  */
 public class HMac
-    implements Mac
+    implements ByteBufferMac
 {
     private final static byte IPAD = (byte)0x36;
     private final static byte OPAD = (byte)0x5C;
@@ -170,9 +173,49 @@ public void update(
         digest.update(in, inOff, len);
     }
 
+    /**
+     * Update the MAC with the remaining bytes in a buffer, this is passed straight through to the
+     * underlying digest if it supports ByteBuffers.
+     *
+     * @param in the buffer containing the input.
+     */
+    public void update(
+        ByteBuffer in)
+    {
+        ByteBuffers.update(digest, in);
+    }
+
     public int doFinal(
         byte[] out,
         int outOff)
+    {
+        startOuter();
+
+        int len = digest.doFinal(out, outOff);
+
+        resetInner();
+
+        return len;
+    }
+
+    public int doFinal(
+        ByteBuffer out)
+    {
+        if (out.remaining() < digestSize)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        startOuter();
+
+        int len = ByteBuffers.doFinal(digest, out);
+
+        resetInner();
+
+        return len;
+    }
+
+    private void startOuter()
     {
         digest.doFinal(outputBuf, blockLength);
 
@@ -185,9 +228,10 @@ public int doFinal(
         {
             digest.update(outputBuf, 0, outputBuf.length);
         }
+    }
 
-        int len = digest.doFinal(out, outOff);
-
+    private void resetInner()
+    {
         for (int i = blockLength; i < outputBuf.length; i++)
         {
             outputBuf[i] = 0;
@@ -201,8 +245,6 @@ public int doFinal(
         {
             digest.update(inputPad, 0, inputPad.length);
         }
-
-        return len;
     }
 
     /**
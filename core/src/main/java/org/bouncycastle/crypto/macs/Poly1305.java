@@ -1,13 +1,16 @@
 package org.bouncycastle.crypto.macs;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.ByteBufferMac;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
-import org.bouncycastle.crypto.Mac;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.generators.Poly1305KeyGenerator;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Pack;
 
 /**
@@ -23,7 +26,7 @@
  * @see Poly1305KeyGenerator
  */
 public class Poly1305
-    implements Mac
+    implements ByteBufferMac
 {
     private static final int BLOCK_SIZE = 16;
 
@@ -202,6 +205,31 @@ public void update(final byte[] in, final int inOff, final int len)
 
     }
 
+    public void update(final ByteBuffer in)
+        throws IllegalStateException
+    {
+        if (in.hasArray())
+        {
+            int len = in.remaining();
+            update(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.position() + len);
+            return;
+        }
+
+        while (in.hasRemaining())
+        {
+            if (currentBlockOffset == BLOCK_SIZE)
+            {
+                processBlock();
+                currentBlockOffset = 0;
+            }
+
+            int toCopy = Math.min(in.remaining(), BLOCK_SIZE - currentBlockOffset);
+            in.get(currentBlock, currentBlockOffset, toCopy);
+            currentBlockOffset += toCopy;
+        }
+    }
+
     private void processBlock()
     {
         if (currentBlockOffset < BLOCK_SIZE)
@@ -299,6 +327,31 @@ public int doFinal(final byte[] out, final int outOff)
         return BLOCK_SIZE;
     }
 
+    public int doFinal(final ByteBuffer out)
+        throws DataLengthException,
+        IllegalStateException
+    {
+        if (out.remaining() < BLOCK_SIZE)
+        {
+            throw new OutputLengthException("Output buffer is too short.");
+        }
+
+        if (out.hasArray())
+        {
+            doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + BLOCK_SIZE);
+        }
+        else
+        {
+            // the final block has been processed by the time the tag is written, so it can be staged there.
+            doFinal(currentBlock, 0);
+            out.put(currentBlock, 0, BLOCK_SIZE);
+            Arrays.fill(currentBlock, (byte)0);
+        }
+
+        return BLOCK_SIZE;
+    }
+
     public void reset()
     {
         currentBlockOffset = 0;
@@ -7,6 +7,7 @@
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.gcm.BasicGCMExponentiator;
 import org.bouncycastle.crypto.modes.gcm.GCMExponentiator;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiBlockMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMUtil;
 import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
@@ -29,6 +30,8 @@
     private BlockCipher   cipher;
     private GCMMultiplier multiplier;
     private GCMExponentiator exp;
+    private GCMMultiBlockMultiplier mbMultiplier;
+    private byte[]        ctrBlocks;
 
     // These fields are set by init and not modified by processing
     private boolean             forEncryption;
@@ -64,7 +67,9 @@ public static GCMModeCipher newInstance(BlockCipher cipher)
     }
 
     /**
-     * Return a new GCM mode cipher based on the passed in base cipher and multiplier.
+     * Return a new GCM mode cipher based on the passed in base cipher and multiplier. Passing a
+     * {@link org.bouncycastle.crypto.modes.gcm.Tables4kMultiBlockGCMMultiplier} trades around 32k of
+     * tables per cipher for faster hashing of bulk data.
      *
      * @param cipher the base cipher for the GCM mode.
      * @param m the GCM multiplier to use.
@@ -107,6 +112,13 @@ public GCMBlockCipher(BlockCipher c, GCMMultiplier m)
 
         this.cipher = c;
         this.multiplier = m;
+
+        // if the multiplier can aggregate several blocks we process the data in batches of that size.
+        if (m instanceof GCMMultiBlockMultiplier && ((GCMMultiBlockMultiplier)m).getMultiBlockCount() > 1)
+        {
+            this.mbMultiplier = (GCMMultiBlockMultiplier)m;
+            this.ctrBlocks = new byte[mbMultiplier.getMultiBlockCount() * BLOCK_SIZE];
+        }
     }
 
     public BlockCipher getUnderlyingCipher()
@@ -316,6 +328,18 @@ public void processAADBytes(byte[] in, int inOff, int len)
             //atBlockPos = 0;
         }
 
+        if (mbMultiplier != null)
+        {
+            int mbSize = ctrBlocks.length;
+            while (len >= mbSize)
+            {
+                mbMultiplier.multiplyBlocksH(S_at, in, inOff);
+                atLength += mbSize;
+                inOff += mbSize;
+                len -= mbSize;
+            }
+        }
+
         int inLimit = inOff + len - BLOCK_SIZE;
 
         while (inOff <= inLimit)
@@ -406,6 +430,19 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
                 //bufOff = 0;
             }
 
+            if (ctrBlocks != null)
+            {
+                int mbLimit = inOff + len - ctrBlocks.length;
+
+                while (inOff <= mbLimit)
+                {
+                    encryptBlocks(in, inOff, out, outOff + resultLen);
+                    inOff += ctrBlocks.length;
+                    len -= ctrBlocks.length;
+                    resultLen += ctrBlocks.length;
+                }
+            }
+
             int inLimit = inOff + len - BLOCK_SIZE;
 
             while (inOff <= inLimit)
@@ -452,6 +489,18 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
             resultLen += BLOCK_SIZE;
             //bufOff = 0;
 
+            if (ctrBlocks != null)
+            {
+                int mbLimit = inLimit + BLOCK_SIZE - ctrBlocks.length;
+
+                while (inOff <= mbLimit)
+                {
+                    decryptBlocks(in, inOff, out, outOff + resultLen);
+                    inOff += ctrBlocks.length;
+                    resultLen += ctrBlocks.length;
+                }
+            }
+
             while (inOff <= inLimit)
             {
                 decryptBlock(in, inOff, out, outOff + resultLen);
@@ -674,6 +723,54 @@ private void encryptBlock(byte[] buf, int bufOff, byte[] out, int outOff)
         totalLength += BLOCK_SIZE;
     }
 
+    private void decryptBlocks(byte[] buf, int bufOff, byte[] out, int outOff)
+    {
+        int len = ctrBlocks.length;
+        if ((out.length - outOff) < len)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks();
+
+        mbMultiplier.multiplyBlocksH(S, buf, bufOff);
+
+        for (int off = 0; off < len; off += BLOCK_SIZE)
+        {
+            GCMUtil.xor(ctrBlocks, off, buf, bufOff + off, out, outOff + off);
+        }
+
+        totalLength += len;
+    }
+
+    private void encryptBlocks(byte[] buf, int bufOff, byte[] out, int outOff)
+    {
+        int len = ctrBlocks.length;
+        if ((out.length - outOff) < len)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks();
+
+        for (int off = 0; off < len; off += BLOCK_SIZE)
+        {
+            GCMUtil.xor(ctrBlocks, off, buf, bufOff + off, out, outOff + off);
+        }
+
+        mbMultiplier.multiplyBlocksH(S, out, outOff);
+
+        totalLength += len;
+    }
+
     private void processPartial(byte[] buf, int off, int len, byte[] out, int outOff)
     {
         byte[] ctrBlock = new byte[BLOCK_SIZE];
@@ -722,6 +819,25 @@ private void gHASHPartial(byte[] Y, byte[] b, int off, int len)
     }
 
     private void getNextCTRBlock(byte[] block)
+    {
+        incrementCounter();
+
+        cipher.processBlock(counter, 0, block, 0);
+    }
+
+    private void getNextCTRBlocks()
+    {
+        int blockCount = ctrBlocks.length / BLOCK_SIZE;
+
+        for (int i = 0; i < blockCount; ++i)
+        {
+            incrementCounter();
+
+            cipher.processBlock(counter, 0, ctrBlocks, i * BLOCK_SIZE);
+        }
+    }
+
+    private void incrementCounter()
     {
         if (blocksRemaining == 0)
         {
@@ -734,8 +850,6 @@ private void getNextCTRBlock(byte[] block)
         c += counter[14] & 0xFF; counter[14] = (byte)c; c >>>= 8;
         c += counter[13] & 0xFF; counter[13] = (byte)c; c >>>= 8;
         c += counter[12] & 0xFF; counter[12] = (byte)c;
-
-        cipher.processBlock(counter, 0, block, 0);
     }
 
     private void checkStatus()
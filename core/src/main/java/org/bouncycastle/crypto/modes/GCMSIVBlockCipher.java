@@ -8,6 +8,7 @@
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiBlockMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
 import org.bouncycastle.crypto.params.AEADParameters;
@@ -84,6 +85,11 @@
       */
      private final GCMMultiplier theMultiplier;
 
+     /**
+      * The multiplier if it can hash several blocks at once, otherwise null.
+      */
+     private final GCMMultiBlockMultiplier theMultiBlockMultiplier;
+
      /**
       * The gHash buffer.
       */
@@ -94,6 +100,11 @@
       */
      private final byte[] theReverse = new byte[BUFLEN];
 
+     /**
+      * The reverse buffer for a run of blocks (multi-block multiplier only).
+      */
+     private final byte[] theMultiReverse;
+
      /**
       * The aeadHasher.
       */
@@ -172,6 +183,19 @@ public GCMSIVBlockCipher(final BlockCipher pCipher,
          theCipher = pCipher;
          theMultiplier = pMultiplier;
 
+         /* Note whether the multiplier can hash runs of blocks */
+         if (pMultiplier instanceof GCMMultiBlockMultiplier
+                 && ((GCMMultiBlockMultiplier)pMultiplier).getMultiBlockCount() > 1)
+         {
+             theMultiBlockMultiplier = (GCMMultiBlockMultiplier)pMultiplier;
+             theMultiReverse = new byte[theMultiBlockMultiplier.getMultiBlockCount() * BUFLEN];
+         }
+         else
+         {
+             theMultiBlockMultiplier = null;
+             theMultiReverse = null;
+         }
+
          /* Create the hashers */
          theAEADHasher = new GCMSIVHasher();
          theDataHasher = new GCMSIVHasher();
@@ -675,9 +699,26 @@ private static void fillReverse(final byte[] pInput,
                                      final int pOffset,
                                      final int pLength,
                                      final byte[] pOutput)
+     {
+         fillReverse(pInput, pOffset, pLength, pOutput, 0);
+     }
+
+     /**
+      * Byte reverse a buffer into an output block at an offset.
+      * @param pInput the input buffer
+      * @param pOffset the offset
+      * @param pLength the length of data (<= BUFLEN)
+      * @param pOutput the output buffer
+      * @param pOutOffset the offset of the block in the output buffer
+      */
+     private static void fillReverse(final byte[] pInput,
+                                     final int pOffset,
+                                     final int pLength,
+                                     final byte[] pOutput,
+                                     final int pOutOffset)
      {
          /* Loop through the buffer */
-         for (int i = 0, j = BUFLEN - 1; i < pLength; i++, j--)
+         for (int i = 0, j = pOutOffset + BUFLEN - 1; i < pLength; i++, j--)
          {
              /* Copy byte */
              pOutput[j] = pInput[pOffset + i];
@@ -927,6 +968,25 @@ void updateHash(final byte[] pBuffer,
                  numActive = 0;
              }
 
+             /* While we have runs of blocks that can be hashed together */
+             if (theMultiBlockMultiplier != null)
+             {
+                 final int myMultiLen = theMultiReverse.length;
+                 while (myRemaining >= myMultiLen)
+                 {
+                     /* Access the next data */
+                     for (int i = 0; i < myMultiLen; i += BUFLEN)
+                     {
+                         fillReverse(pBuffer, pOffset + numProcessed + i, BUFLEN, theMultiReverse, i);
+                     }
+                     theMultiBlockMultiplier.multiplyBlocksH(theGHash, theMultiReverse, 0);
+
+                     /* Adjust counters */
+                     numProcessed += myMultiLen;
+                     myRemaining -= myMultiLen;
+                 }
+             }
+
              /* While we have full blocks */
              while (myRemaining >= BUFLEN)
              {
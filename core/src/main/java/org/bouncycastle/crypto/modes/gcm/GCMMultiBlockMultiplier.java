@@ -0,0 +1,26 @@
+package org.bouncycastle.crypto.modes.gcm;
+
+/**
+ * A GCMMultiplier which can also fold several blocks into the hash at once, using
+ * precomputed powers of H so that only one reduction is needed per byte position of the run.
+ */
+public interface GCMMultiBlockMultiplier
+    extends GCMMultiplier
+{
+    /**
+     * Return the number of blocks processed by a call to multiplyBlocksH().
+     *
+     * @return the number of 16 byte blocks handled at once.
+     */
+    int getMultiBlockCount();
+
+    /**
+     * Fold getMultiBlockCount() blocks into x. The result is the same as XORing each block
+     * into x in turn and calling multiplyH(x) after each one.
+     *
+     * @param x the running hash value, updated in place.
+     * @param blocks the array containing the blocks.
+     * @param blocksOff the offset of the first block.
+     */
+    void multiplyBlocksH(byte[] x, byte[] blocks, int blocksOff);
+}
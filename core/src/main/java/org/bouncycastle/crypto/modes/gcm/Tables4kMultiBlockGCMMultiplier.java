@@ -0,0 +1,139 @@
+package org.bouncycastle.crypto.modes.gcm;
+
+import org.bouncycastle.util.Pack;
+
+/**
+ * A 4k table multiplier that also keeps 4k tables for H^2..H^8, allowing 8 blocks to be
+ * hashed with aggregated reduction, i.e. Y = (Y + X1).H^8 + X2.H^7 + ... + X8.H, where the
+ * reduction step for each byte position is shared across the 8 products. The tables for the
+ * higher powers are only built the first time a run of blocks is processed.
+ * <p>
+ * Once built the tables take around 32k per instance, against 4k for {@link Tables4kGCMMultiplier},
+ * so this multiplier is not the default - pass it to the GCM or GCM-SIV cipher explicitly where the
+ * bulk throughput is worth the extra memory.
+ * </p>
+ */
+public class Tables4kMultiBlockGCMMultiplier
+    implements GCMMultiBlockMultiplier
+{
+    private static final int BLOCK_COUNT = 8;
+
+    private byte[] H;
+    private long[][][] T;
+    private boolean powersCalculated;
+
+    public void init(byte[] H)
+    {
+        if (T == null)
+        {
+            T = new long[BLOCK_COUNT][][];
+            T[0] = new long[256][2];
+        }
+        else if (0 != GCMUtil.areEqual(this.H, H))
+        {
+            return;
+        }
+
+        this.H = new byte[GCMUtil.SIZE_BYTES];
+        GCMUtil.copy(H, this.H);
+
+        calculateTable(this.H, T[0]);
+
+        powersCalculated = false;
+    }
+
+    public void multiplyH(byte[] x)
+    {
+        long[][] T0 = T[0];
+        long[] t = T0[x[15] & 0xFF];
+        long z0 = t[0], z1 = t[1];
+
+        for (int i = 14; i >= 0; --i)
+        {
+            t = T0[x[i] & 0xFF];
+
+            long c = z1 << 56;
+            z1 = t[1] ^ ((z1 >>> 8) | (z0 << 56));
+            z0 = t[0] ^ (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+        }
+
+        Pack.longToBigEndian(z0, x, 0);
+        Pack.longToBigEndian(z1, x, 8);
+    }
+
+    public int getMultiBlockCount()
+    {
+        return BLOCK_COUNT;
+    }
+
+    public void multiplyBlocksH(byte[] x, byte[] blocks, int blocksOff)
+    {
+        if (!powersCalculated)
+        {
+            calculatePowers();
+        }
+
+        // T[k] holds the table for H^(k + 1), so the first block (with x folded in) uses T[7]
+        long[][] TX = T[BLOCK_COUNT - 1];
+        long z0 = 0, z1 = 0;
+
+        for (int i = 15; i >= 0; --i)
+        {
+            long c = z1 << 56;
+            z1 = (z1 >>> 8) | (z0 << 56);
+            z0 = (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+
+            long[] t = TX[(x[i] ^ blocks[blocksOff + i]) & 0xFF];
+            z0 ^= t[0];
+            z1 ^= t[1];
+
+            for (int b = 1; b < BLOCK_COUNT; ++b)
+            {
+                t = T[BLOCK_COUNT - 1 - b][blocks[blocksOff + (b << 4) + i] & 0xFF];
+                z0 ^= t[0];
+                z1 ^= t[1];
+            }
+        }
+
+        Pack.longToBigEndian(z0, x, 0);
+        Pack.longToBigEndian(z1, x, 8);
+    }
+
+    private void calculatePowers()
+    {
+        byte[] hPow = new byte[GCMUtil.SIZE_BYTES];
+        GCMUtil.copy(H, hPow);
+
+        for (int k = 1; k < BLOCK_COUNT; ++k)
+        {
+            // hPow = H^(k + 1)
+            GCMUtil.multiply(hPow, H);
+
+            if (T[k] == null)
+            {
+                T[k] = new long[256][2];
+            }
+            calculateTable(hPow, T[k]);
+        }
+
+        powersCalculated = true;
+    }
+
+    private static void calculateTable(byte[] h, long[][] t)
+    {
+        // t[0] = 0
+
+        // t[1] = h.p^7
+        GCMUtil.asLongs(h, t[1]);
+        GCMUtil.multiplyP7(t[1], t[1]);
+
+        for (int n = 2; n < 256; n += 2)
+        {
+            // t[2.n] = t[n].p^-1
+            GCMUtil.divideP(t[n >> 1], t[n]);
+
+            // t[2.n + 1] = t[2.n] + t[1]
+            GCMUtil.xor(t[n], t[1], t[n + 1]);
+        }
+    }
+}
@@ -16,6 +16,18 @@ public ECPublicKeyParameters(
         this.q = parameters.validatePublicPoint(q);
     }
 
+    /**
+     * Constructor for a point that has already been validated against the parameters.
+     */
+    ECPublicKeyParameters(
+        ECDomainParameters  parameters,
+        ECPoint             validatedQ)
+    {
+        super(false, parameters);
+
+        this.q = validatedQ;
+    }
+
     public ECPoint getQ()
     {
         return q;
@@ -64,6 +64,11 @@ public byte[] getEncoded()
         return data;
     }
 
+    public Ed25519.PublicPoint getPublicPoint()
+    {
+        return publicPoint;
+    }
+
     public boolean verify(int algorithm, byte[] ctx, byte[] msg, int msgOff, int msgLen, byte[] sig, int sigOff)
     {
         switch (algorithm)
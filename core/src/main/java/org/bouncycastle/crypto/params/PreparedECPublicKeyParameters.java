@@ -0,0 +1,68 @@
+package org.bouncycastle.crypto.params;
+
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.bouncycastle.math.ec.WNafUtil;
+import org.bouncycastle.math.ec.endo.GLVEndomorphism;
+
+/**
+ * An EC public key prepared for repeated verification. The point is validated once, on construction,
+ * and then configured as a fixed base with its precomputation done up front, so a verifier holding on
+ * to the key does no decoding, validation or table building per signature - Shamir's trick can go
+ * straight to the fixed-point comb for both the generator and the key.
+ * <p>
+ * Instances are immutable and may be shared between threads. They can be passed anywhere an
+ * {@link ECPublicKeyParameters} is accepted, e.g. to ECDSASigner.init().
+ * </p>
+ */
+public class PreparedECPublicKeyParameters
+    extends ECPublicKeyParameters
+{
+    /**
+     * Prepare a point for use as a public key, validating it against the domain parameters.
+     *
+     * @param q the public point.
+     * @param parameters the domain parameters q belongs to.
+     */
+    public PreparedECPublicKeyParameters(
+        ECPoint             q,
+        ECDomainParameters  parameters)
+    {
+        super(q, parameters);
+
+        prepare(getQ());
+    }
+
+    /**
+     * Prepare an existing public key - its point was validated when it was created and is not
+     * checked again.
+     *
+     * @param key the public key to prepare.
+     */
+    public PreparedECPublicKeyParameters(
+        ECPublicKeyParameters key)
+    {
+        super(key.getParameters(), key.getQ());
+
+        prepare(getQ());
+    }
+
+    private static void prepare(ECPoint q)
+    {
+        WNafUtil.configureBasepoint(q);
+
+        // curves with a faster alternative to Shamir's trick never use the comb for the key
+        ECCurve c = q.getCurve();
+        if (c.getEndomorphism() instanceof GLVEndomorphism)
+        {
+            return;
+        }
+        if (c instanceof ECCurve.AbstractF2m && ((ECCurve.AbstractF2m)c).isKoblitz())
+        {
+            return;
+        }
+
+        FixedPointUtil.precompute(q);
+    }
+}
@@ -0,0 +1,107 @@
+package org.bouncycastle.crypto.signers;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
+
+/**
+ * Batch verifier for (pure) Ed25519 signatures. Signatures are accumulated with {@link #add} and then checked
+ * together with {@link #verify()}, which combines them into a single multi-scalar multiplication and only falls
+ * back to checking signatures one at a time if the batch as a whole fails.
+ * <p>
+ * The result for each signature is the same as that of {@link Ed25519Signer#verifySignature(byte[])}.
+ * Note: messages and signatures are not copied when added, so they must not be modified until after
+ * {@link #verify()} has been called.
+ * </p>
+ */
+public class Ed25519BatchVerifier
+{
+    private final SecureRandom random;
+
+    private final List<Ed25519.PublicPoint> publicPoints = new ArrayList<Ed25519.PublicPoint>();
+    private final List<byte[]> messages = new ArrayList<byte[]>();
+    private final List<byte[]> signatures = new ArrayList<byte[]>();
+
+    public Ed25519BatchVerifier()
+    {
+        this(null);
+    }
+
+    /**
+     * Base constructor.
+     *
+     * @param random source of randomness for the batch multipliers, the default is used if null.
+     */
+    public Ed25519BatchVerifier(SecureRandom random)
+    {
+        this.random = CryptoServicesRegistrar.getSecureRandom(random);
+    }
+
+    /**
+     * Add a signature to the batch.
+     *
+     * @param publicKey the public key to verify the signature against.
+     * @param message the signed message.
+     * @param signature the signature.
+     * @return the index of the signature's entry in the array returned by {@link #verify()}.
+     */
+    public int add(Ed25519PublicKeyParameters publicKey, byte[] message, byte[] signature)
+    {
+        if (publicKey == null || message == null || signature == null)
+        {
+            throw new NullPointerException("batch entries cannot have null components");
+        }
+
+        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties("Ed25519", 128, publicKey, false));
+
+        publicPoints.add(publicKey.getPublicPoint());
+        messages.add(message);
+        signatures.add(signature);
+
+        return publicPoints.size() - 1;
+    }
+
+    /**
+     * Return the number of signatures waiting in the batch.
+     *
+     * @return the current batch size.
+     */
+    public int size()
+    {
+        return publicPoints.size();
+    }
+
+    /**
+     * Verify all the signatures added since the last call (or reset), clearing the batch.
+     *
+     * @return the result for each signature, in the order they were added.
+     */
+    public boolean[] verify()
+    {
+        int count = publicPoints.size();
+
+        Ed25519.PublicPoint[] pubs = publicPoints.toArray(new Ed25519.PublicPoint[count]);
+        byte[][] ms = messages.toArray(new byte[count][]);
+        byte[][] sigs = signatures.toArray(new byte[count][]);
+
+        reset();
+
+        boolean[] results = new boolean[count];
+        Ed25519.verifyBatch(random, sigs, pubs, ms, results);
+        return results;
+    }
+
+    /**
+     * Discard any signatures waiting in the batch.
+     */
+    public void reset()
+    {
+        publicPoints.clear();
+        messages.clear();
+        signatures.clear();
+    }
+}
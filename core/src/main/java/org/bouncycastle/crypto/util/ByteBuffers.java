@@ -0,0 +1,358 @@
+package org.bouncycastle.crypto.util;
+
+import java.nio.ByteBuffer;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.ByteBufferBlockCipher;
+import org.bouncycastle.crypto.ByteBufferDigest;
+import org.bouncycastle.crypto.ByteBufferMac;
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.StreamCipher;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * Utility methods for processing ByteBuffers with the lightweight API.
+ * <p>
+ * Where the primitive implements one of the ByteBuffer interfaces (for example {@link ByteBufferDigest})
+ * the buffers are handed straight to it. Otherwise buffers backed by an accessible array are processed
+ * in place and anything else, such as a direct buffer, is copied through a small temporary array which
+ * is cleared once the call completes.
+ * </p>
+ * In all cases input is consumed from the buffer's position up to its limit and output is written from
+ * the output buffer's position, which is advanced past it. Input and output buffers must be different
+ * objects, although one may be a duplicate() of the other.
+ */
+public final class ByteBuffers
+{
+    private static final int COPY_SIZE = 4096;
+
+    private ByteBuffers()
+    {
+    }
+
+    /**
+     * Update a digest with the remaining bytes in a buffer.
+     *
+     * @param digest the digest to update.
+     * @param in the buffer containing the data.
+     */
+    public static void update(Digest digest, ByteBuffer in)
+    {
+        if (digest instanceof ByteBufferDigest)
+        {
+            ((ByteBufferDigest)digest).update(in);
+        }
+        else if (in.hasArray())
+        {
+            int len = in.remaining();
+            digest.update(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.position() + len);
+        }
+        else
+        {
+            byte[] buf = new byte[Math.min(in.remaining(), COPY_SIZE)];
+            while (in.hasRemaining())
+            {
+                int len = Math.min(in.remaining(), buf.length);
+                in.get(buf, 0, len);
+                digest.update(buf, 0, len);
+            }
+            Arrays.clear(buf);
+        }
+    }
+
+    /**
+     * Complete a digest calculation, writing the result to a buffer.
+     *
+     * @param digest the digest to complete.
+     * @param out the buffer to write the digest value to.
+     * @return the number of bytes written.
+     */
+    public static int doFinal(Digest digest, ByteBuffer out)
+    {
+        if (digest instanceof ByteBufferDigest)
+        {
+            return ((ByteBufferDigest)digest).doFinal(out);
+        }
+
+        checkOutput(out, digest.getDigestSize());
+
+        if (out.hasArray())
+        {
+            int len = digest.doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + len);
+            return len;
+        }
+
+        byte[] buf = new byte[digest.getDigestSize()];
+        int len = digest.doFinal(buf, 0);
+        out.put(buf, 0, len);
+        Arrays.clear(buf);
+        return len;
+    }
+
+    /**
+     * Update a MAC with the remaining bytes in a buffer.
+     *
+     * @param mac the MAC to update.
+     * @param in the buffer containing the data.
+     */
+    public static void update(Mac mac, ByteBuffer in)
+    {
+        if (mac instanceof ByteBufferMac)
+        {
+            ((ByteBufferMac)mac).update(in);
+        }
+        else if (in.hasArray())
+        {
+            int len = in.remaining();
+            mac.update(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.position() + len);
+        }
+        else
+        {
+            byte[] buf = new byte[Math.min(in.remaining(), COPY_SIZE)];
+            while (in.hasRemaining())
+            {
+                int len = Math.min(in.remaining(), buf.length);
+                in.get(buf, 0, len);
+                mac.update(buf, 0, len);
+            }
+            Arrays.clear(buf);
+        }
+    }
+
+    /**
+     * Complete a MAC calculation, writing the result to a buffer.
+     *
+     * @param mac the MAC to complete.
+     * @param out the buffer to write the MAC value to.
+     * @return the number of bytes written.
+     */
+    public static int doFinal(Mac mac, ByteBuffer out)
+    {
+        if (mac instanceof ByteBufferMac)
+        {
+            return ((ByteBufferMac)mac).doFinal(out);
+        }
+
+        checkOutput(out, mac.getMacSize());
+
+        if (out.hasArray())
+        {
+            int len = mac.doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + len);
+            return len;
+        }
+
+        byte[] buf = new byte[mac.getMacSize()];
+        int len = mac.doFinal(buf, 0);
+        out.put(buf, 0, len);
+        Arrays.clear(buf);
+        return len;
+    }
+
+    /**
+     * Process a single block with a block cipher.
+     *
+     * @param cipher the cipher to use.
+     * @param in the buffer containing the input block.
+     * @param out the buffer to write the output block to.
+     * @return the number of bytes processed and produced.
+     */
+    public static int processBlock(BlockCipher cipher, ByteBuffer in, ByteBuffer out)
+    {
+        checkBuffers(in, out);
+
+        if (cipher instanceof ByteBufferBlockCipher)
+        {
+            return ((ByteBufferBlockCipher)cipher).processBlock(in, out);
+        }
+
+        int blockSize = cipher.getBlockSize();
+        if (in.remaining() < blockSize)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        checkOutput(out, blockSize);
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int len = cipher.processBlock(in.array(), in.arrayOffset() + in.position(), out.array(), out.arrayOffset() + out.position());
+            in.position(in.position() + len);
+            out.position(out.position() + len);
+            return len;
+        }
+
+        byte[] block = new byte[blockSize];
+        in.get(block);
+        int len = cipher.processBlock(block, 0, block, 0);
+        out.put(block, 0, len);
+        Arrays.clear(block);
+        return len;
+    }
+
+    /**
+     * Process the remaining bytes in a buffer with a stream cipher.
+     *
+     * @param cipher the cipher to use.
+     * @param in the buffer containing the input data.
+     * @param out the buffer to write the output to.
+     * @return the number of bytes produced.
+     */
+    public static int processBytes(StreamCipher cipher, ByteBuffer in, ByteBuffer out)
+    {
+        checkBuffers(in, out);
+
+        int total = in.remaining();
+        checkOutput(out, total);
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int len = cipher.processBytes(in.array(), in.arrayOffset() + in.position(), total, out.array(), out.arrayOffset() + out.position());
+            in.position(in.position() + total);
+            out.position(out.position() + len);
+            return len;
+        }
+
+        byte[] buf = new byte[Math.min(total, COPY_SIZE)];
+        int outLen = 0;
+        while (in.hasRemaining())
+        {
+            int len = Math.min(in.remaining(), buf.length);
+            in.get(buf, 0, len);
+            len = cipher.processBytes(buf, 0, len, buf, 0);
+            out.put(buf, 0, len);
+            outLen += len;
+        }
+        Arrays.clear(buf);
+        return outLen;
+    }
+
+    /**
+     * Add the remaining bytes in a buffer to an AEAD cipher's associated data.
+     *
+     * @param cipher the cipher to use.
+     * @param in the buffer containing the associated data.
+     */
+    public static void processAADBytes(AEADCipher cipher, ByteBuffer in)
+    {
+        if (in.hasArray())
+        {
+            int len = in.remaining();
+            cipher.processAADBytes(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.position() + len);
+        }
+        else
+        {
+            byte[] buf = new byte[Math.min(in.remaining(), COPY_SIZE)];
+            while (in.hasRemaining())
+            {
+                int len = Math.min(in.remaining(), buf.length);
+                in.get(buf, 0, len);
+                cipher.processAADBytes(buf, 0, len);
+            }
+            Arrays.clear(buf);
+        }
+    }
+
+    /**
+     * Process the remaining bytes in a buffer with an AEAD cipher.
+     *
+     * @param cipher the cipher to use.
+     * @param in the buffer containing the input data.
+     * @param out the buffer to write the output to.
+     * @return the number of bytes produced.
+     */
+    public static int processBytes(AEADCipher cipher, ByteBuffer in, ByteBuffer out)
+    {
+        checkBuffers(in, out);
+        checkOutput(out, cipher.getUpdateOutputSize(in.remaining()));
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int inLen = in.remaining();
+            int len = cipher.processBytes(in.array(), in.arrayOffset() + in.position(), inLen, out.array(), out.arrayOffset() + out.position());
+            in.position(in.position() + inLen);
+            out.position(out.position() + len);
+            return len;
+        }
+
+        byte[] inBuf = new byte[Math.min(in.remaining(), COPY_SIZE)];
+        byte[] outBuf = new byte[0];
+        int outLen = 0;
+        while (in.hasRemaining())
+        {
+            int len = Math.min(in.remaining(), inBuf.length);
+            // anything the cipher has buffered may be released by this chunk as well.
+            int updateSize = cipher.getUpdateOutputSize(len);
+            if (outBuf.length < updateSize)
+            {
+                outBuf = new byte[updateSize];
+            }
+            in.get(inBuf, 0, len);
+            len = cipher.processBytes(inBuf, 0, len, outBuf, 0);
+            out.put(outBuf, 0, len);
+            outLen += len;
+        }
+        Arrays.clear(inBuf);
+        Arrays.clear(outBuf);
+        return outLen;
+    }
+
+    /**
+     * Finish an AEAD operation, writing any remaining output and, when encrypting, the MAC to a buffer.
+     *
+     * @param cipher the cipher to use.
+     * @param out the buffer to write the output to.
+     * @return the number of bytes produced.
+     * @throws InvalidCipherTextException if the MAC fails to match.
+     */
+    public static int doFinal(AEADCipher cipher, ByteBuffer out)
+        throws InvalidCipherTextException
+    {
+        int outSize = cipher.getOutputSize(0);
+        checkOutput(out, outSize);
+
+        if (out.hasArray())
+        {
+            int len = cipher.doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + len);
+            return len;
+        }
+
+        byte[] buf = new byte[outSize];
+        try
+        {
+            int len = cipher.doFinal(buf, 0);
+            out.put(buf, 0, len);
+            return len;
+        }
+        finally
+        {
+            // decryption may have written plaintext here before the MAC check failed
+            Arrays.clear(buf);
+        }
+    }
+
+    private static void checkBuffers(ByteBuffer in, ByteBuffer out)
+    {
+        if (in == out)
+        {
+            throw new IllegalArgumentException("input and output buffers must be different objects");
+        }
+    }
+
+    private static void checkOutput(ByteBuffer out, int len)
+    {
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.bouncycastle.crypto.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Helper for digests and key derivation functions that can process independent parts of their
+ * work on an executor.
+ */
+public final class ParallelTasks
+{
+    private ParallelTasks()
+    {
+    }
+
+    /**
+     * Run a set of tasks, the first on the calling thread and the rest on the executor, returning
+     * once all of them have completed. Tasks the executor rejects are run on the calling thread.
+     * <p>
+     * The tasks usually share working memory the caller clears or reuses afterwards, so this
+     * always waits for every task to finish, even after a failure or an interruption. As the
+     * callers cannot report an interruption it is noted and the interrupt status restored after
+     * the tasks complete.
+     * </p>
+     *
+     * @param executor the executor to use.
+     * @param tasks the tasks to run.
+     */
+    public static void run(Executor executor, Runnable[] tasks)
+    {
+        FutureTask<?>[] futures = new FutureTask<?>[tasks.length];
+        for (int i = 1; i < tasks.length; i++)
+        {
+            futures[i] = new FutureTask<Object>(tasks[i], null);
+            try
+            {
+                executor.execute(futures[i]);
+            }
+            catch (RejectedExecutionException e)
+            {
+                futures[i].run();
+            }
+        }
+
+        boolean interrupted = false;
+        Throwable failure = null;
+        try
+        {
+            tasks[0].run();
+        }
+        catch (RuntimeException e)
+        {
+            failure = e;
+        }
+        catch (Error e)
+        {
+            failure = e;
+        }
+
+        // always wait for every task, so none is still working on the caller's state when we return.
+        for (int i = 1; i < tasks.length; i++)
+        {
+            for (;;)
+            {
+                try
+                {
+                    futures[i].get();
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException)failure;
+        }
+        if (failure instanceof Error)
+        {
+            throw (Error)failure;
+        }
+        if (failure != null)
+        {
+            throw new IllegalStateException("exception in parallel task: " + failure);
+        }
+    }
+}
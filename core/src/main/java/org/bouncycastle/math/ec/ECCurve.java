@@ -4,9 +4,10 @@
 import java.security.SecureRandom;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.math.Primes;
@@ -103,6 +104,11 @@ public ECCurve create()
     protected ECEndomorphism endomorphism = null;
     protected ECMultiplier multiplier = null;
 
+    private static final int PRECOMP_LOCK_STRIPES = 32;
+
+    private final Object[] preCompLocks = createLocks(PRECOMP_LOCK_STRIPES);
+    private volatile PreCompCache preCompCache = null;
+
     protected ECCurve(FiniteField field)
     {
         this.field = field;
@@ -172,31 +178,48 @@ public boolean supportsCoordinateSystem(int coord)
         return coord == COORD_AFFINE;
     }
 
-    public PreCompInfo getPreCompInfo(ECPoint point, String name)
+    /**
+     * Return the store that shares precomputation tables between equal points on this curve, along with
+     * hit and miss counts for the precomputations done. The number of points it holds tables for is
+     * set by the "org.bouncycastle.ec.precomp_cache_size" property (default 64, 0 disables sharing).
+     *
+     * @return the curve's precomputation cache.
+     */
+    public PreCompCache getPreCompCache()
     {
-        checkPoint(point);
-
-        Hashtable table;
-        synchronized (point)
+        PreCompCache cache = preCompCache;
+        if (null == cache)
         {
-            table = point.preCompTable;
+            synchronized (preCompLocks)
+            {
+                cache = preCompCache;
+                if (null == cache)
+                {
+                    preCompCache = cache = new PreCompCache(Properties.asInteger("org.bouncycastle.ec.precomp_cache_size", 64));
+                }
+            }
         }
+        return cache;
+    }
 
-        if (null == table)
-        {
-            return null;
-        }
+    public PreCompInfo getPreCompInfo(ECPoint point, String name)
+    {
+        checkPoint(point);
 
-        synchronized (table)
-        {
-            return (PreCompInfo)table.get(name);
-        }
+        ConcurrentMap<String, PreCompInfo> table = getPreCompTable(point, name, false);
+
+        return null == table ? null : table.get(name);
     }
 
     /**
      * Compute a <code>PreCompInfo</code> for a point on this curve, under a given name. Used by
      * <code>ECMultiplier</code>s to save the precomputation for this <code>ECPoint</code> for use
      * by subsequent multiplication.
+     * <p>
+     * An existing table is offered to the callback without locking; only the first computation of a
+     * table for a point is serialised, on one of a set of striped locks. The callback may therefore be
+     * called concurrently with the same existing <code>PreCompInfo</code>.
+     * </p>
      * 
      * @param point
      *            The <code>ECPoint</code> to store precomputations for.
@@ -209,28 +232,87 @@ public PreCompInfo precompute(ECPoint point, String name, PreCompCallback callba
     {
         checkPoint(point);
 
-        Hashtable table;
-        synchronized (point)
+        ConcurrentMap<String, PreCompInfo> table = getPreCompTable(point, name, true);
+        PreCompCache cache = getPreCompCache();
+
+        for (;;)
         {
-            table = point.preCompTable;
-            if (null == table)
+            PreCompInfo existing = table.get(name);
+
+            if (null == existing)
+            {
+                Object lock = preCompLocks[(System.identityHashCode(table) ^ name.hashCode()) & (PRECOMP_LOCK_STRIPES - 1)];
+                synchronized (lock)
+                {
+                    existing = table.get(name);
+                    if (null == existing)
+                    {
+                        PreCompInfo result = callback.precompute(null);
+                        if (null != result)
+                        {
+                            table.put(name, result);
+                        }
+                        cache.recordMiss();
+                        return result;
+                    }
+                }
+            }
+
+            PreCompInfo result = callback.precompute(existing);
+            if (result == existing)
             {
-                point.preCompTable = table = new Hashtable(4);
+                cache.recordHit();
+                return result;
+            }
+
+            cache.recordMiss();
+
+            // if another thread has replaced the table in the meantime, start again from its version.
+            if (null == result ? table.remove(name, existing) : table.replace(name, existing, result))
+            {
+                return result;
             }
         }
+    }
+
+    private ConcurrentMap<String, PreCompInfo> getPreCompTable(ECPoint point, String name, boolean create)
+    {
+        ConcurrentMap<String, PreCompInfo> local = getLocalPreCompTable(point, false);
 
-        synchronized (table)
+        // validity is cheap to establish and mostly asked of one-off points, so it is never shared.
+        if (point.isNormalized() && !point.isInfinity() && !ValidityPrecompInfo.PRECOMP_NAME.equals(name))
         {
-            PreCompInfo existing = (PreCompInfo)table.get(name);
-            PreCompInfo result = callback.precompute(existing);
+            ConcurrentMap<String, PreCompInfo> shared = getPreCompCache().getTable(point, local, create);
+            if (null != shared)
+            {
+                return shared;
+            }
+        }
 
-            if (result != existing)
+        return null != local || !create ? local : getLocalPreCompTable(point, true);
+    }
+
+    private static ConcurrentMap<String, PreCompInfo> getLocalPreCompTable(ECPoint point, boolean create)
+    {
+        synchronized (point)
+        {
+            ConcurrentMap<String, PreCompInfo> local = point.localPreCompTable;
+            if (null == local && create)
             {
-                table.put(name, result);
+                point.localPreCompTable = local = new ConcurrentHashMap<String, PreCompInfo>(4);
             }
+            return local;
+        }
+    }
 
-            return result;
+    private static Object[] createLocks(int count)
+    {
+        Object[] locks = new Object[count];
+        for (int i = 0; i != count; i++)
+        {
+            locks[i] = new Object();
         }
+        return locks;
     }
 
     public ECPoint importPoint(ECPoint p)
@@ -3,6 +3,7 @@
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
 
@@ -49,9 +50,17 @@ protected static ECFieldElement[] getInitialZCoords(ECCurve curve)
     protected ECFieldElement y;
     protected ECFieldElement[] zs;
 
-    // Hashtable is (String -> PreCompInfo)
+    /**
+     * Hashtable is (String -> PreCompInfo).
+     *
+     * @deprecated no longer consulted - ECCurve.precompute() keeps a point's precomputations in the
+     * curve's shared cache or in a table private to the package, values placed here are ignored.
+     */
     protected Hashtable preCompTable = null;
 
+    // the point's own precomputations (see ECCurve.precompute), guarded by the point's lock
+    ConcurrentMap<String, PreCompInfo> localPreCompTable = null;
+
     protected ECPoint(ECCurve curve, ECFieldElement x, ECFieldElement y)
     {
         this(curve, x, y, getInitialZCoords(curve));
@@ -0,0 +1,251 @@
+package org.bouncycastle.math.ec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded store of precomputation tables for the points on a curve, shared between
+ * <code>ECPoint</code> objects with the same (normalized) coordinates. This lets, for example, the
+ * WNAF tables for a frequently used public key survive across verifications even though each
+ * verification decodes a fresh point.
+ * <p>
+ * A point is only admitted the second time it is seen, so one-off points such as ephemeral keys do not
+ * displace the tables of hot ones. Once full, entries are evicted in a second chance (CLOCK) order.
+ * Lookups do not lock.
+ * </p>
+ */
+public class PreCompCache
+{
+    private final int maxPoints;
+    private final ConcurrentMap<PointKey, Entry> entries = new ConcurrentHashMap<PointKey, Entry>();
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+    private final ConcurrentMap<PointKey, Boolean> seen = new ConcurrentHashMap<PointKey, Boolean>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Base constructor.
+     *
+     * @param maxPoints the maximum number of points to hold tables for, 0 to disable sharing.
+     */
+    public PreCompCache(int maxPoints)
+    {
+        if (maxPoints < 0)
+        {
+            throw new IllegalArgumentException("maxPoints cannot be negative");
+        }
+
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Return the maximum number of points tables are kept for.
+     */
+    public int getMaxPoints()
+    {
+        return maxPoints;
+    }
+
+    /**
+     * Return the number of points tables are currently held for.
+     */
+    public int size()
+    {
+        return size.get();
+    }
+
+    /**
+     * Return the number of precomputations on this curve satisfied by an existing table.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of precomputations on this curve that had to create or extend a table.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of points whose tables have been evicted to keep within the bound.
+     */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Remove all shared tables and reset the counters.
+     */
+    public void clear()
+    {
+        entries.clear();
+        clock.clear();
+        seen.clear();
+        size.set(0);
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    void recordHit()
+    {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss()
+    {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Return the shared table for a point, if it has one.
+     *
+     * @param point a normalized, finite point.
+     * @param local the point's own table, adopted as the shared one if the point is being admitted.
+     * @param create true if the point should be considered for admission.
+     * @return the shared table, or null if the point is not (yet) shared.
+     */
+    ConcurrentMap<String, PreCompInfo> getTable(ECPoint point, ConcurrentMap<String, PreCompInfo> local, boolean create)
+    {
+        if (maxPoints == 0)
+        {
+            return null;
+        }
+
+        PointKey key = new PointKey(point);
+
+        Entry entry = entries.get(key);
+        if (entry != null)
+        {
+            entry.referenced = true;
+            return entry.table;
+        }
+
+        if (!create)
+        {
+            return null;
+        }
+
+        if (seen.putIfAbsent(key, Boolean.TRUE) == null)
+        {
+            // first sighting - the doorkeeper is only an approximation, so just drop it when it gets large.
+            if (seen.size() > 4 * maxPoints)
+            {
+                seen.clear();
+            }
+            return null;
+        }
+
+        Entry newEntry = new Entry(key, local != null ? local : new ConcurrentHashMap<String, PreCompInfo>(4));
+
+        entry = entries.putIfAbsent(key, newEntry);
+        if (entry != null)
+        {
+            entry.referenced = true;
+            return entry.table;
+        }
+
+        seen.remove(key);
+        clock.add(newEntry);
+
+        if (size.incrementAndGet() > maxPoints)
+        {
+            evict();
+        }
+
+        return newEntry.table;
+    }
+
+    private void evict()
+    {
+        while (size.get() > maxPoints)
+        {
+            Entry candidate = clock.poll();
+            if (candidate == null)
+            {
+                return;
+            }
+
+            if (candidate.referenced)
+            {
+                candidate.referenced = false;
+                clock.add(candidate);
+            }
+            else if (entries.remove(candidate.key, candidate))
+            {
+                size.decrementAndGet();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public String toString()
+    {
+        return "PreCompCache[size=" + size() + ", maxPoints=" + maxPoints + ", hits=" + getHits()
+            + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    private static class Entry
+    {
+        final PointKey key;
+        final ConcurrentMap<String, PreCompInfo> table;
+
+        volatile boolean referenced = true;
+
+        Entry(PointKey key, ConcurrentMap<String, PreCompInfo> table)
+        {
+            this.key = key;
+            this.table = table;
+        }
+    }
+
+    /**
+     * Key on the raw coordinates of a normalized point, which are unique for each point in every
+     * coordinate system.
+     */
+    private static class PointKey
+    {
+        private final ECFieldElement x;
+        private final ECFieldElement y;
+        private final int hashCode;
+
+        PointKey(ECPoint point)
+        {
+            this.x = point.getRawXCoord();
+            this.y = point.getRawYCoord();
+            this.hashCode = x.hashCode() * 31 ^ y.hashCode();
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof PointKey))
+            {
+                return false;
+            }
+
+            PointKey other = (PointKey)o;
+
+            return hashCode == other.hashCode && x.equals(other.x) && y.equals(other.y);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
@@ -31,10 +31,18 @@
         public static final int Ed25519ph = 2;
     }
 
+    /**
+     * A decoded and validated public key. Verifying with one skips decoding and, after the first use,
+     * also reuses the key's encoding and its window table for the double-scalar multiplication.
+     */
     public static final class PublicPoint
     {
         final int[] data;
 
+        // computed on first use by a verification; racing threads just compute the same values.
+        private volatile byte[] encoding;
+        private volatile PointPrecompZ[] negTable;
+
         PublicPoint(int[] data)
         {
             this.data = data;
@@ -87,6 +95,7 @@ private static class F extends X25519Field {};
 
 //    private static final int WNAF_WIDTH = 5;
     private static final int WNAF_WIDTH_128 = 4;
+    private static final int WNAF_WIDTH_256 = 5;
     private static final int WNAF_WIDTH_BASE = 6;
 
     // scalarMultBase is hard-coded for these values of blocks, teeth, spacing so they can't be freely changed
@@ -97,6 +106,9 @@ private static class F extends X25519Field {};
     private static final int PRECOMP_POINTS = 1 << (PRECOMP_TEETH - 1);
     private static final int PRECOMP_MASK = PRECOMP_POINTS - 1;
 
+    // Maximum number of signatures combined into a single multi-scalar multiplication by verifyBatch
+    private static final int BATCH_CHUNK_SIZE = 64;
+
     private static final Object PRECOMP_LOCK = new Object();
     private static PointPrecomp[] PRECOMP_BASE_WNAF = null;
     private static PointPrecomp[] PRECOMP_BASE128_WNAF = null;    
@@ -607,12 +619,8 @@ private static boolean implVerify(byte[] sig, int sigOff, PublicPoint publicPoin
             return false;
         }
 
-        PointAffine pA = new PointAffine();
-        F.negate(publicPoint.data, pA.x);
-        F.copy(publicPoint.data, F.SIZE, pA.y, 0);
-
-        byte[] A = new byte[PUBLIC_KEY_SIZE];
-        encodePublicPoint(publicPoint, A, 0);
+        byte[] A = getEncoding(publicPoint);
+        PointPrecompZ[] tA = getNegatedTable(publicPoint);
 
         Digest d = createDigest();
         byte[] h = new byte[64];
@@ -642,10 +650,177 @@ private static boolean implVerify(byte[] sig, int sigOff, PublicPoint publicPoin
         Scalar25519.multiply128Var(nS, v1, nS);
 
         PointAccum pZ = new PointAccum();
-        scalarMultStraus128Var(nS, v0, pA, v1, pR, pZ);
+        scalarMultStraus128Var(nS, v0, tA, v1, pR, pZ);
         return normalizeToNeutralElementVar(pZ);
     }
 
+    private static byte[] getEncoding(PublicPoint publicPoint)
+    {
+        byte[] A = publicPoint.encoding;
+        if (A == null)
+        {
+            A = new byte[PUBLIC_KEY_SIZE];
+            encodePublicPoint(publicPoint, A, 0);
+            publicPoint.encoding = A;
+        }
+        return A;
+    }
+
+    private static PointPrecompZ[] getNegatedTable(PublicPoint publicPoint)
+    {
+        PointPrecompZ[] tA = publicPoint.negTable;
+        if (tA == null)
+        {
+            PointAffine pA = new PointAffine();
+            F.negate(publicPoint.data, pA.x);
+            F.copy(publicPoint.data, F.SIZE, pA.y, 0);
+
+            int count = 1 << (WNAF_WIDTH_128 - 2);
+            tA = new PointPrecompZ[count];
+            pointPrecomputeZ(pA, tA, count, new PointTemp());
+            publicPoint.negTable = tA;
+        }
+        return tA;
+    }
+
+    private static boolean implVerifyBatch(SecureRandom random, byte[][] sigs, byte[][] pks,
+        PublicPoint[] publicPoints, byte[][] ms, boolean[] results)
+    {
+        if (random == null || sigs == null || ms == null || results == null || (pks == null && publicPoints == null))
+        {
+            throw new IllegalArgumentException("batch arguments cannot be null");
+        }
+
+        int count = sigs.length;
+        if (ms.length != count || (pks != null && pks.length != count)
+            || (publicPoints != null && publicPoints.length != count))
+        {
+            throw new IllegalArgumentException("batch arrays must have the same length");
+        }
+        if (results.length < count)
+        {
+            throw new IllegalArgumentException("'results' too short");
+        }
+        for (int i = 0; i < count; ++i)
+        {
+            if (ms[i] == null)
+            {
+                throw new IllegalArgumentException("'ms' cannot contain null entries");
+            }
+            if (publicPoints != null && publicPoints[i] == null)
+            {
+                throw new IllegalArgumentException("'publicPoints' cannot contain null entries");
+            }
+        }
+
+        int[][] nSs = new int[count][];
+        int[][] nks = new int[count][];
+        PointAffine[] pAs = new PointAffine[count];
+        PointAffine[] pRs = new PointAffine[count];
+
+        Digest d = createDigest();
+        byte[] h = new byte[64];
+        int[] valid = new int[count];
+        int validCount = 0;
+
+        for (int i = 0; i < count; ++i)
+        {
+            results[i] = false;
+
+            byte[] sig = sigs[i];
+            if (sig == null || sig.length != SIGNATURE_SIZE)
+            {
+                continue;
+            }
+
+            byte[] R = copy(sig, 0, POINT_BYTES);
+            byte[] S = copy(sig, POINT_BYTES, SCALAR_BYTES);
+
+            if (!checkPointVar(R))
+            {
+                continue;
+            }
+
+            int[] nS = new int[SCALAR_INTS];
+            if (!Scalar25519.checkVar(S, nS))
+            {
+                continue;
+            }
+
+            PointAffine pR = new PointAffine();
+            if (!decodePointVar(R, true, pR))
+            {
+                continue;
+            }
+
+            byte[] A;
+            PointAffine pA = new PointAffine();
+            if (publicPoints != null)
+            {
+                PublicPoint publicPoint = publicPoints[i];
+                F.negate(publicPoint.data, pA.x);
+                F.copy(publicPoint.data, F.SIZE, pA.y, 0);
+
+                A = new byte[PUBLIC_KEY_SIZE];
+                encodePublicPoint(publicPoint, A, 0);
+            }
+            else
+            {
+                byte[] pk = pks[i];
+                if (pk == null || pk.length != PUBLIC_KEY_SIZE)
+                {
+                    continue;
+                }
+
+                A = copy(pk, 0, PUBLIC_KEY_SIZE);
+                if (!checkPointFullVar(A) || !decodePointVar(A, true, pA))
+                {
+                    continue;
+                }
+            }
+
+            d.update(R, 0, POINT_BYTES);
+            d.update(A, 0, POINT_BYTES);
+            d.update(ms[i], 0, ms[i].length);
+            d.doFinal(h, 0);
+
+            int[] nk = new int[SCALAR_INTS];
+            Scalar25519.decode(Scalar25519.reduce512(h), nk);
+
+            nSs[i] = nS;
+            nks[i] = nk;
+            pAs[i] = pA;
+            pRs[i] = pR;
+            valid[validCount++] = i;
+        }
+
+        boolean allValid = validCount == count;
+        for (int chunkOff = 0; chunkOff < validCount; chunkOff += BATCH_CHUNK_SIZE)
+        {
+            int chunkLen = Math.min(BATCH_CHUNK_SIZE, validCount - chunkOff);
+
+            if (chunkLen > 1 && verifyChunkVar(random, valid, chunkOff, chunkLen, nSs, nks, pAs, pRs))
+            {
+                for (int j = 0; j < chunkLen; ++j)
+                {
+                    results[valid[chunkOff + j]] = true;
+                }
+                continue;
+            }
+
+            // Batch equation failed (or single item); find out which signatures were at fault.
+            for (int j = 0; j < chunkLen; ++j)
+            {
+                int i = valid[chunkOff + j];
+                boolean result = verifyPreparedVar(nSs[i], nks[i], pAs[i], pRs[i]);
+                results[i] = result;
+                allValid &= result;
+            }
+        }
+
+        return allValid;
+    }
+
     private static void invertDoubleZs(PointExtended[] points)
     {
         int count = points.length;
@@ -1341,6 +1516,16 @@ private static void scalarMultOrderVar(PointAffine p, PointAccum r)
 
     private static void scalarMultStraus128Var(int[] nb, int[] np, PointAffine p, int[] nq, PointAffine q, PointAccum r)
     {
+        int count = 1 << (WNAF_WIDTH_128 - 2);
+        PointPrecompZ[] tp = new PointPrecompZ[count];
+        pointPrecomputeZ(p, tp, count, new PointTemp());
+
+        scalarMultStraus128Var(nb, np, tp, nq, q, r);
+    }
+
+    private static void scalarMultStraus128Var(int[] nb, int[] np, PointPrecompZ[] tp, int[] nq, PointAffine q,
+        PointAccum r)
+    {
 //        assert nb.length == SCALAR_INTS;
 //        assert nb[SCALAR_INTS - 1] >>> 29 == 0;
 //        assert np.length == 4;
@@ -1357,10 +1542,8 @@ private static void scalarMultStraus128Var(int[] nb, int[] np, PointAffine p, in
         Wnaf.getSignedVar(nq, WNAF_WIDTH_128, ws_q);
 
         int count = 1 << (WNAF_WIDTH_128 - 2);
-        PointPrecompZ[] tp = new PointPrecompZ[count];
         PointPrecompZ[] tq = new PointPrecompZ[count];
         PointTemp t = new PointTemp();
-        pointPrecomputeZ(p, tp, count, t);
         pointPrecomputeZ(q, tq, count, t);
 
         pointSetNeutral(r);
@@ -1412,6 +1595,77 @@ private static void scalarMultStraus128Var(int[] nb, int[] np, PointAffine p, in
         pointDouble(r);
     }
 
+    private static void scalarMultStrausBatchVar(int[] nb, int[][] nps, PointAffine[] ps, int[][] nqs,
+        PointAffine[] qs, int count, PointAccum r)
+    {
+//        assert nb.length == SCALAR_INTS;
+//        assert nps[i].length == SCALAR_INTS, nps[i][SCALAR_INTS - 1] >>> 29 == 0;
+//        assert nqs[i].length == 4, nqs[i][3] >>> 31 == 0;
+
+        precompute();
+
+        byte[] ws_b = new byte[256];
+        Wnaf.getSignedVar(nb, WNAF_WIDTH_BASE, ws_b);
+
+        int countP = 1 << (WNAF_WIDTH_256 - 2);
+        int countQ = 1 << (WNAF_WIDTH_128 - 2);
+
+        byte[][] ws_p = new byte[count][256];
+        byte[][] ws_q = new byte[count][128];
+        PointPrecompZ[][] tp = new PointPrecompZ[count][countP];
+        PointPrecompZ[][] tq = new PointPrecompZ[count][countQ];
+        PointTemp t = new PointTemp();
+
+        for (int i = 0; i < count; ++i)
+        {
+            Wnaf.getSignedVar(nps[i], WNAF_WIDTH_256, ws_p[i]);
+            Wnaf.getSignedVar(nqs[i], WNAF_WIDTH_128, ws_q[i]);
+            pointPrecomputeZ(ps[i], tp[i], countP, t);
+            pointPrecomputeZ(qs[i], tq[i], countQ, t);
+        }
+
+        pointSetNeutral(r);
+
+        for (int bit = 255; bit >= 0; --bit)
+        {
+            int wb = ws_b[bit];
+            if (wb != 0)
+            {
+                int index = (wb >> 1) ^ (wb >> 31);
+                pointAddVar(wb < 0, PRECOMP_BASE_WNAF[index], r, t);
+            }
+
+            for (int i = 0; i < count; ++i)
+            {
+                int wp = ws_p[i][bit];
+                if (wp != 0)
+                {
+                    int index = (wp >> 1) ^ (wp >> 31);
+                    pointAddVar(wp < 0, tp[i][index], r, t);
+                }
+            }
+
+            if (bit < 128)
+            {
+                for (int i = 0; i < count; ++i)
+                {
+                    int wq = ws_q[i][bit];
+                    if (wq != 0)
+                    {
+                        int index = (wq >> 1) ^ (wq >> 31);
+                        pointAddVar(wq < 0, tq[i][index], r, t);
+                    }
+                }
+            }
+
+            pointDouble(r);
+        }
+
+        // NOTE: Together with the final pointDouble of the loop, this clears the cofactor of 8
+        pointDouble(r);
+        pointDouble(r);
+    }
+
     public static void sign(byte[] sk, int skOff, byte[] m, int mOff, int mLen, byte[] sig, int sigOff)
     {
         byte[] ctx = null;
@@ -1589,6 +1843,119 @@ public static boolean verify(byte[] sig, int sigOff, PublicPoint publicPoint, by
         return implVerify(sig, sigOff, publicPoint, ctx, phflag, m, mOff, mLen);
     }
 
+    /**
+     * Verify a batch of (pure) Ed25519 signatures, each over the whole of the corresponding message.
+     * <p>
+     * The signatures are combined using random 128-bit multipliers into a single multi-scalar multiplication
+     * (in chunks of up to 64 signatures); only when a chunk fails as a whole are its signatures checked
+     * individually. The per-item results are those of {@link #verify(byte[], int, byte[], int, byte[], int, int)}.
+     *
+     * @param random source of the random multipliers.
+     * @param sigs the signatures, each {@link #SIGNATURE_SIZE} bytes.
+     * @param pks the encoded public keys, each {@link #PUBLIC_KEY_SIZE} bytes.
+     * @param ms the messages.
+     * @param results receives the result for each signature.
+     * @return true if all the signatures in the batch are valid, false otherwise.
+     * @throws IllegalArgumentException if an argument or message is null, or the array lengths differ. A null
+     * or wrongly sized signature or public key only causes that signature to fail.
+     */
+    public static boolean verifyBatch(SecureRandom random, byte[][] sigs, byte[][] pks, byte[][] ms,
+        boolean[] results)
+    {
+        return implVerifyBatch(random, sigs, pks, null, ms, results);
+    }
+
+    /**
+     * Verify a batch of (pure) Ed25519 signatures, each over the whole of the corresponding message. As for
+     * {@link #verifyBatch(SecureRandom, byte[][], byte[][], byte[][], boolean[])}, except that the per-item
+     * results are those of {@link #verify(byte[], int, PublicPoint, byte[], int, int)}.
+     *
+     * @param random source of the random multipliers.
+     * @param sigs the signatures, each {@link #SIGNATURE_SIZE} bytes.
+     * @param publicPoints the (already validated) public points.
+     * @param ms the messages.
+     * @param results receives the result for each signature.
+     * @return true if all the signatures in the batch are valid, false otherwise.
+     * @throws IllegalArgumentException if an argument, message or public point is null, or the array lengths
+     * differ. A null or wrongly sized signature only causes that signature to fail.
+     */
+    public static boolean verifyBatch(SecureRandom random, byte[][] sigs, PublicPoint[] publicPoints, byte[][] ms,
+        boolean[] results)
+    {
+        return implVerifyBatch(random, sigs, null, publicPoints, ms, results);
+    }
+
+    private static boolean verifyChunkVar(SecureRandom random, int[] indices, int off, int len, int[][] nSs,
+        int[][] nks, PointAffine[] pAs, PointAffine[] pRs)
+    {
+        // sum(z_i.S_i).B - sum(z_i.k_i).A_i - sum(z_i).R_i, for random 127-bit z_i
+
+        int[] tt = new int[SCALAR_INTS * 2];
+        int[] zk = new int[SCALAR_INTS * 2];
+        int[] z = new int[SCALAR_INTS];
+        byte[] zBytes = new byte[16];
+        byte[] ttBytes = new byte[SCALAR_BYTES * 2];
+
+        int[][] nzks = new int[len][];
+        int[][] nzs = new int[len][];
+        PointAffine[] ps = new PointAffine[len];
+        PointAffine[] qs = new PointAffine[len];
+
+        for (int j = 0; j < len; ++j)
+        {
+            int i = indices[off + j];
+
+            do
+            {
+                random.nextBytes(zBytes);
+                Codec.decode32(zBytes, 0, z, 0, 4);
+                z[3] &= 0x7FFFFFFF;
+            }
+            while ((z[0] | z[1] | z[2] | z[3]) == 0);
+
+            Nat256.mulAddTo(z, nSs[i], tt);
+
+            Nat256.mul(z, nks[i], zk);
+            Codec.encode32(zk, 0, zk.length, ttBytes, 0);
+            int[] nzk = new int[SCALAR_INTS];
+            Scalar25519.decode(Scalar25519.reduce512(ttBytes), nzk);
+
+            int[] nz = new int[4];
+            System.arraycopy(z, 0, nz, 0, 4);
+
+            nzks[j] = nzk;
+            nzs[j] = nz;
+            ps[j] = pAs[i];
+            qs[j] = pRs[i];
+        }
+
+        Codec.encode32(tt, 0, tt.length, ttBytes, 0);
+        int[] nB = new int[SCALAR_INTS];
+        Scalar25519.decode(Scalar25519.reduce512(ttBytes), nB);
+
+        PointAccum pZ = new PointAccum();
+        scalarMultStrausBatchVar(nB, nzks, ps, nzs, qs, len, pZ);
+        return normalizeToNeutralElementVar(pZ);
+    }
+
+    private static boolean verifyPreparedVar(int[] nS, int[] nk, PointAffine pA, PointAffine pR)
+    {
+        int[] v0 = new int[4];
+        int[] v1 = new int[4];
+
+        if (!Scalar25519.reduceBasisVar(nk, v0, v1))
+        {
+            throw new IllegalStateException();
+        }
+
+        int[] nS128 = new int[SCALAR_INTS];
+        Scalar25519.multiply128Var(nS, v1, nS128);
+
+        PointAccum pZ = new PointAccum();
+        scalarMultStraus128Var(nS128, v0, pA, v1, pR, pZ);
+        return normalizeToNeutralElementVar(pZ);
+    }
+
     public static boolean verifyPrehash(byte[] sig, int sigOff, byte[] pk, int pkOff, byte[] ctx, byte[] ph, int phOff)
     {
         byte phflag = 0x01;
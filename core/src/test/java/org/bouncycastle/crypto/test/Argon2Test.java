@@ -3,6 +3,10 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
 import org.bouncycastle.crypto.params.Argon2Parameters;
@@ -33,7 +37,8 @@ public void performTest()
         }
 
         testPermutations();
-        testVectorsFromInternetDraft();
+        testVectorsFromInternetDraft(null);
+        testParallelLanes();
 
         int version = Argon2Parameters.ARGON2_VERSION_10;
 
@@ -250,7 +255,7 @@ private void hashTest(int version, int iterations, int memory, int parallelism,
      *
      * @throws Exception
      */
-    private void testVectorsFromInternetDraft()
+    private void testVectorsFromInternetDraft(Executor executor)
     {
         byte[] ad = Hex.decode("040404040404040404040404");
         byte[] secret = Hex.decode("0303030303030303");
@@ -266,7 +271,7 @@ private void testVectorsFromInternetDraft()
             .withSecret(secret)
             .withSalt(salt);
 
-        Argon2BytesGenerator dig = new Argon2BytesGenerator();
+        Argon2BytesGenerator dig = new Argon2BytesGenerator(executor);
 
         dig.init(builder.build());
 
@@ -285,7 +290,7 @@ private void testVectorsFromInternetDraft()
             .withSecret(secret)
             .withSalt(salt);
 
-        dig = new Argon2BytesGenerator();
+        dig = new Argon2BytesGenerator(executor);
 
         dig.init(builder.build());
 
@@ -304,7 +309,7 @@ private void testVectorsFromInternetDraft()
             .withSecret(secret)
             .withSalt(salt);
 
-        dig = new Argon2BytesGenerator();
+        dig = new Argon2BytesGenerator(executor);
 
         dig.init(builder.build());
 
@@ -315,6 +320,75 @@ private void testVectorsFromInternetDraft()
 
     }
 
+    private void testParallelLanes()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            testVectorsFromInternetDraft(executor);
+
+            int[] types = new int[]{ Argon2Parameters.ARGON2_d, Argon2Parameters.ARGON2_i, Argon2Parameters.ARGON2_id };
+            int[] versions = new int[]{ Argon2Parameters.ARGON2_VERSION_10, Argon2Parameters.ARGON2_VERSION_13 };
+            byte[] password = Strings.toByteArray("password");
+            byte[] salt = Strings.toByteArray("somesalt");
+
+            for (int t = 0; t != types.length; t++)
+            {
+                for (int v = 0; v != versions.length; v++)
+                {
+                    for (int lanes = 1; lanes <= 5; lanes++)
+                    {
+                        Argon2Parameters parameters = new Argon2Parameters.Builder(types[t])
+                            .withVersion(versions[v])
+                            .withIterations(2)
+                            .withMemoryAsKB(64 + lanes * 8)
+                            .withParallelism(lanes)
+                            .withSalt(salt)
+                            .build();
+
+                        Argon2BytesGenerator sequential = new Argon2BytesGenerator();
+                        Argon2BytesGenerator parallel = new Argon2BytesGenerator(executor);
+                        sequential.init(parameters);
+                        parallel.init(parameters);
+
+                        byte[] expected = new byte[32];
+                        byte[] result = new byte[32];
+                        sequential.generateBytes(password, expected);
+                        parallel.generateBytes(password, result);
+                        isTrue("parallel lanes mismatch: type " + types[t] + " lanes " + lanes,
+                            areEqual(expected, result));
+
+                        // re-use after successful use
+                        Arrays.clear(result);
+                        parallel.generateBytes(password, result);
+                        isTrue("parallel lanes re-use mismatch", areEqual(expected, result));
+                    }
+                }
+            }
+
+            // an executor that only takes some of the segments, the rejected ones are filled inline.
+            final ExecutorService pool = executor;
+            Executor limited = new Executor()
+            {
+                private int count = 0;
+
+                public synchronized void execute(Runnable task)
+                {
+                    if (++count % 3 == 0)
+                    {
+                        throw new RejectedExecutionException("full");
+                    }
+                    pool.execute(task);
+                }
+            };
+            testVectorsFromInternetDraft(limited);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     private static int getJvmVersion()
     {
         String version = System.getProperty("java.specification.version");
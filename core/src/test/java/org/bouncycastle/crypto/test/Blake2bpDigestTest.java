@@ -3,6 +3,8 @@
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 import org.bouncycastle.crypto.digests.Blake2bpDigest;
@@ -119,4 +121,52 @@ public void testReset()
             }
         }
     }
+
+    public void testExecutor()
+    {
+        byte[] key = new byte[64];
+        byte[] buf = new byte[100000 + 77];
+
+        for (int i = 0; i < key.length; i++)
+        {
+            key[i] = (byte) i;
+        }
+        for (int i = 0; i < buf.length; i++)
+        {
+            buf[i] = (byte) i;
+        }
+
+        Blake2bpDigest serial = new Blake2bpDigest(key);
+        byte[] expected = new byte[64];
+
+        for (int i = 0; i < buf.length; i++)
+        {
+            serial.update(buf[i]);
+        }
+        serial.doFinal(expected, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            Blake2bpDigest digest = new Blake2bpDigest(key);
+            byte[] hash = new byte[64];
+
+            digest.setExecutor(executor);
+
+            digest.update(buf, 0, buf.length);
+            digest.doFinal(hash, 0);
+            assertTrue("BLAKE2BP executor mismatch", Arrays.areEqual(expected, hash));
+
+            // partial stripe buffered ahead of a large update.
+            digest.update(buf, 0, 100);
+            digest.update(buf, 100, 700);
+            digest.update(buf, 800, buf.length - 800);
+            digest.doFinal(hash, 0);
+            assertTrue("BLAKE2BP split executor mismatch", Arrays.areEqual(expected, hash));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
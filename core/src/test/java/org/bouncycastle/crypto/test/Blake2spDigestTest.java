@@ -3,6 +3,8 @@
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 import org.bouncycastle.crypto.digests.Blake2spDigest;
@@ -115,4 +117,52 @@ public void testReset()
             }
         }
     }
+
+    public void testExecutor()
+    {
+        byte[] key = new byte[32];
+        byte[] buf = new byte[100000 + 77];
+
+        for (int i = 0; i < key.length; i++)
+        {
+            key[i] = (byte) i;
+        }
+        for (int i = 0; i < buf.length; i++)
+        {
+            buf[i] = (byte) i;
+        }
+
+        Blake2spDigest serial = new Blake2spDigest(key);
+        byte[] expected = new byte[32];
+
+        for (int i = 0; i < buf.length; i++)
+        {
+            serial.update(buf[i]);
+        }
+        serial.doFinal(expected, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            Blake2spDigest digest = new Blake2spDigest(key);
+            byte[] hash = new byte[32];
+
+            digest.setExecutor(executor);
+
+            digest.update(buf, 0, buf.length);
+            digest.doFinal(hash, 0);
+            assertTrue("BLAKE2SP executor mismatch", Arrays.areEqual(expected, hash));
+
+            // partial stripe buffered ahead of a large update.
+            digest.update(buf, 0, 100);
+            digest.update(buf, 100, 700);
+            digest.update(buf, 800, buf.length - 800);
+            digest.doFinal(hash, 0);
+            assertTrue("BLAKE2SP split executor mismatch", Arrays.areEqual(expected, hash));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
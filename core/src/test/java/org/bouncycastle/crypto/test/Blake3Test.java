@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.bouncycastle.crypto.digests.Blake3Digest;
 import org.bouncycastle.crypto.params.Blake3Parameters;
 import org.bouncycastle.util.Arrays;
@@ -257,6 +260,59 @@ public void performTest()
         runTestCase(TEST16384);
         runTestCase(TEST31744);
         runTestCase(TEST102400);
+
+        testParallel();
+    }
+
+    /**
+     * Check hashing on an executor matches serial and byte at a time hashing.
+     */
+    private void testParallel()
+    {
+        final ExecutorService myExecutor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final int[] myLengths = {1024, 1025, 33 * 1024, 64 * 1024 + 1, 200 * 1024 + 17, 1024 * 1024 + 3};
+            for (int i = 0; i < myLengths.length; i++)
+            {
+                final byte[] myData = new byte[myLengths[i]];
+                for (int j = 0; j < myData.length; j++)
+                {
+                    myData[j] = (byte)(j % BLAKE3MOD);
+                }
+
+                /* byte at a time never takes the whole chunk path */
+                final Blake3Digest mySerial = new Blake3Digest();
+                mySerial.init(Blake3Parameters.key(BLAKE3KEY));
+                for (int j = 0; j < myData.length; j++)
+                {
+                    mySerial.update(myData[j]);
+                }
+                final byte[] myExpected = new byte[200];
+                mySerial.doFinal(myExpected, 0, myExpected.length);
+
+                final Blake3Digest myParallel = new Blake3Digest();
+                myParallel.setExecutor(myExecutor, 4);
+                myParallel.init(Blake3Parameters.key(BLAKE3KEY));
+
+                /* unaligned start, then the rest */
+                myParallel.update(myData, 0, 100);
+                myParallel.update(myData, 100, myData.length - 100);
+                final byte[] myOutput = new byte[myExpected.length];
+                myParallel.doFinal(myOutput, 0, myOutput.length);
+                isTrue("parallel mismatch for " + myData.length, Arrays.areEqual(myExpected, myOutput));
+
+                /* copies keep the executor */
+                final Blake3Digest myCopy = (Blake3Digest)myParallel.copy();
+                myCopy.update(myData, 0, myData.length);
+                myCopy.doFinal(myOutput, 0, myOutput.length);
+                isTrue("parallel copy mismatch for " + myData.length, Arrays.areEqual(myExpected, myOutput));
+            }
+        }
+        finally
+        {
+            myExecutor.shutdown();
+        }
     }
 
     /**
@@ -0,0 +1,333 @@
+package org.bouncycastle.crypto.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.StreamCipher;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.ChaCha7539Engine;
+import org.bouncycastle.crypto.engines.DESedeEngine;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.macs.Poly1305;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.modes.ChaCha20Poly1305;
+import org.bouncycastle.crypto.modes.EAXBlockCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.crypto.util.ByteBuffers;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check the ByteBuffer methods give the same results as the byte[] ones for heap, offset, read-only,
+ * direct and little endian buffers.
+ */
+public class ByteBufferTest
+    extends SimpleTest
+{
+    private static final int HEAP = 0;
+    private static final int OFFSET = 1;
+    private static final int READ_ONLY = 2;
+    private static final int DIRECT = 3;
+    private static final int DIRECT_LE = 4;
+    private static final int KINDS = 5;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ByteBuffer";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        byte[] data = new byte[10000 + random.nextInt(100)];
+        random.nextBytes(data);
+
+        for (int kind = 0; kind != KINDS; kind++)
+        {
+            testDigest(new SHA256Digest(), new SHA256Digest(), data, kind);
+            testDigest(new SHA1Digest(), new SHA1Digest(), data, kind);
+            testDigest(new SHA512Digest(), new SHA512Digest(), data, kind);
+
+            testMac(new HMac(new SHA256Digest()), new HMac(new SHA256Digest()), new KeyParameter(randomBytes(32)), data, kind);
+            testMac(new HMac(new SHA512Digest()), new HMac(new SHA512Digest()), new KeyParameter(randomBytes(32)), data, kind);
+            testMac(new Poly1305(), new Poly1305(), new KeyParameter(randomBytes(32)), data, kind);
+
+            testBlockCipher(new AESEngine(), new AESEngine(), new KeyParameter(randomBytes(16)), kind);
+            testBlockCipher(new DESedeEngine(), new DESedeEngine(), new KeyParameter(randomBytes(24)), kind);
+
+            testStreamCipher(new ChaCha7539Engine(), new ChaCha7539Engine(),
+                new ParametersWithIV(new KeyParameter(randomBytes(32)), randomBytes(12)), data, kind);
+
+            byte[] key = randomBytes(32);
+            testAEAD(GCMBlockCipher.newInstance(AESEngine.newInstance()), GCMBlockCipher.newInstance(AESEngine.newInstance()),
+                new AEADParameters(new KeyParameter(key), 128, randomBytes(12)), data, kind);
+            testAEAD(new ChaCha20Poly1305(), new ChaCha20Poly1305(),
+                new AEADParameters(new KeyParameter(key), 128, randomBytes(12)), data, kind);
+            testAEAD(new EAXBlockCipher(AESEngine.newInstance()), new EAXBlockCipher(AESEngine.newInstance()),
+                new AEADParameters(new KeyParameter(key), 128, randomBytes(16)), data, kind);
+        }
+
+        testShortOutput();
+    }
+
+    private void testDigest(Digest bufDigest, Digest arrDigest, byte[] data, int kind)
+    {
+        byte[] expected = new byte[arrDigest.getDigestSize()];
+
+        arrDigest.update(data, 0, data.length);
+        arrDigest.doFinal(expected, 0);
+
+        // odd sized pieces, starting with an unaligned one.
+        ByteBuffer in = wrap(data, kind);
+        int pos = 0;
+        for (int len = 1; pos < data.length; len += 37)
+        {
+            int end = Math.min(data.length, pos + len);
+            in.limit(end);
+            ByteBuffers.update(bufDigest, in);
+            isEquals(bufDigest.getAlgorithmName() + " input not consumed", end, in.position());
+            pos = end;
+        }
+
+        ByteBuffer out = allocate(bufDigest.getDigestSize() + 3, kind);
+        out.position(3);
+        isEquals(expected.length, ByteBuffers.doFinal(bufDigest, out));
+        isEquals(out.limit(), out.position());
+
+        isTrue(bufDigest.getAlgorithmName() + " failed for kind " + kind, Arrays.areEqual(expected, contents(out, 3)));
+    }
+
+    private void testMac(Mac bufMac, Mac arrMac, KeyParameter key, byte[] data, int kind)
+    {
+        byte[] expected = new byte[arrMac.getMacSize()];
+
+        bufMac.init(key);
+        arrMac.init(key);
+
+        // twice, to make sure doFinal leaves the MAC ready for reuse.
+        for (int i = 0; i != 2; i++)
+        {
+            arrMac.update(data, 0, data.length);
+            arrMac.doFinal(expected, 0);
+
+            ByteBuffer in = wrap(data, kind);
+            in.limit(5);
+            ByteBuffers.update(bufMac, in);
+            in.limit(data.length);
+            ByteBuffers.update(bufMac, in);
+            isEquals(data.length, in.position());
+
+            ByteBuffer out = allocate(bufMac.getMacSize(), kind);
+            isEquals(expected.length, ByteBuffers.doFinal(bufMac, out));
+
+            isTrue(bufMac.getAlgorithmName() + " failed for kind " + kind, Arrays.areEqual(expected, contents(out, 0)));
+        }
+    }
+
+    private void testBlockCipher(BlockCipher bufCipher, BlockCipher arrCipher, KeyParameter key, int kind)
+    {
+        int blockSize = arrCipher.getBlockSize();
+        byte[] data = randomBytes(blockSize * 4);
+
+        for (int i = 0; i != 2; i++)
+        {
+            boolean forEncryption = i == 0;
+
+            bufCipher.init(forEncryption, key);
+            arrCipher.init(forEncryption, key);
+
+            byte[] expected = new byte[data.length];
+            for (int off = 0; off != data.length; off += blockSize)
+            {
+                arrCipher.processBlock(data, off, expected, off);
+            }
+
+            ByteBuffer in = wrap(data, kind);
+            ByteBuffer out = allocate(data.length, kind == READ_ONLY ? HEAP : kind);
+            while (in.hasRemaining())
+            {
+                isEquals(blockSize, ByteBuffers.processBlock(bufCipher, in, out));
+            }
+
+            isTrue(bufCipher.getAlgorithmName() + " failed for kind " + kind, Arrays.areEqual(expected, contents(out, 0)));
+        }
+    }
+
+    private void testStreamCipher(StreamCipher bufCipher, StreamCipher arrCipher, ParametersWithIV params, byte[] data, int kind)
+    {
+        bufCipher.init(true, params);
+        arrCipher.init(true, params);
+
+        byte[] expected = new byte[data.length];
+        arrCipher.processBytes(data, 0, data.length, expected, 0);
+
+        ByteBuffer in = wrap(data, kind);
+        ByteBuffer out = allocate(data.length, kind == READ_ONLY ? HEAP : kind);
+        isEquals(data.length, ByteBuffers.processBytes(bufCipher, in, out));
+
+        isTrue(bufCipher.getAlgorithmName() + " failed for kind " + kind, Arrays.areEqual(expected, contents(out, 0)));
+    }
+
+    private void testAEAD(AEADCipher bufCipher, AEADCipher arrCipher, AEADParameters params, byte[] data, int kind)
+        throws InvalidCipherTextException
+    {
+        byte[] aad = randomBytes(45);
+
+        arrCipher.init(true, params);
+        arrCipher.processAADBytes(aad, 0, aad.length);
+        byte[] expected = new byte[arrCipher.getOutputSize(data.length)];
+        int len = arrCipher.processBytes(data, 0, data.length, expected, 0);
+        arrCipher.doFinal(expected, len);
+
+        bufCipher.init(true, params);
+        ByteBuffers.processAADBytes(bufCipher, wrap(aad, kind));
+        ByteBuffer out = allocate(expected.length, kind == READ_ONLY ? HEAP : kind);
+        ByteBuffer in = wrap(data, kind);
+        in.limit(1000);
+        ByteBuffers.processBytes(bufCipher, in, out);
+        in.limit(data.length);
+        ByteBuffers.processBytes(bufCipher, in, out);
+        ByteBuffers.doFinal(bufCipher, out);
+        isEquals(expected.length, out.position());
+
+        isTrue(bufCipher.getAlgorithmName() + " encryption failed for kind " + kind, Arrays.areEqual(expected, contents(out, 0)));
+
+        bufCipher.init(false, params);
+        ByteBuffers.processAADBytes(bufCipher, wrap(aad, kind));
+        ByteBuffer plain = allocate(data.length, kind == READ_ONLY ? HEAP : kind);
+        ByteBuffers.processBytes(bufCipher, wrap(expected, kind), plain);
+        ByteBuffers.doFinal(bufCipher, plain);
+
+        isTrue(bufCipher.getAlgorithmName() + " decryption failed for kind " + kind, Arrays.areEqual(data, contents(plain, 0)));
+
+        expected[expected.length / 2] ^= 1;
+        bufCipher.init(false, params);
+        ByteBuffers.processAADBytes(bufCipher, wrap(aad, kind));
+        plain = allocate(data.length, kind == READ_ONLY ? HEAP : kind);
+        ByteBuffers.processBytes(bufCipher, wrap(expected, kind), plain);
+        try
+        {
+            ByteBuffers.doFinal(bufCipher, plain);
+            fail(bufCipher.getAlgorithmName() + " tampering not detected");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            // expected
+        }
+    }
+
+    private void testShortOutput()
+    {
+        SHA256Digest digest = new SHA256Digest();
+        try
+        {
+            digest.doFinal(ByteBuffer.allocateDirect(31));
+            fail("short digest output not detected");
+        }
+        catch (OutputLengthException e)
+        {
+            // expected
+        }
+
+        AESEngine aes = new AESEngine();
+        aes.init(true, new KeyParameter(new byte[16]));
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        try
+        {
+            aes.processBlock(buf, buf);
+            fail("shared buffer not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            aes.processBlock(ByteBuffer.allocateDirect(16), ByteBuffer.allocateDirect(15));
+            fail("short block output not detected");
+        }
+        catch (OutputLengthException e)
+        {
+            // expected
+        }
+    }
+
+    private ByteBuffer wrap(byte[] data, int kind)
+    {
+        ByteBuffer buf;
+        switch (kind)
+        {
+        case OFFSET:
+            byte[] padded = new byte[data.length + 11];
+            System.arraycopy(data, 0, padded, 7, data.length);
+            buf = ByteBuffer.wrap(padded, 3, data.length + 4);
+            buf.position(7);
+            buf = buf.slice();
+            buf.limit(data.length);
+            return buf;
+        case READ_ONLY:
+            return ByteBuffer.wrap(data).asReadOnlyBuffer();
+        default:
+            buf = allocate(data.length, kind);
+            buf.put(data);
+            buf.flip();
+            return buf;
+        }
+    }
+
+    private ByteBuffer allocate(int len, int kind)
+    {
+        switch (kind)
+        {
+        case HEAP:
+        case READ_ONLY:
+            return ByteBuffer.allocate(len);
+        case OFFSET:
+            ByteBuffer buf = ByteBuffer.wrap(new byte[len + 9], 5, len);
+            return buf.slice();
+        case DIRECT:
+            return ByteBuffer.allocateDirect(len);
+        default:
+            return ByteBuffer.allocateDirect(len).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static byte[] contents(ByteBuffer buf, int from)
+    {
+        ByteBuffer dup = buf.duplicate();
+        dup.flip();
+        dup.position(from);
+
+        byte[] bytes = new byte[dup.remaining()];
+        dup.get(bytes);
+        return bytes;
+    }
+
+    private byte[] randomBytes(int len)
+    {
+        byte[] bytes = new byte[len];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new ByteBufferTest());
+    }
+}
@@ -30,6 +30,7 @@
 import org.bouncycastle.crypto.params.MQVPrivateParameters;
 import org.bouncycastle.crypto.params.MQVPublicParameters;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.crypto.params.PreparedECPublicKeyParameters;
 import org.bouncycastle.crypto.signers.DSADigestSigner;
 import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.math.ec.ECConstants;
@@ -1171,8 +1172,68 @@ public void performTest()
         testECUnifiedTestVector2();
 
         testECDHStagedAgreement();
+
+        testECDSAPreparedKey();
     }
 
+    private void testECDSAPreparedKey()
+    {
+        SecureRandom random = new SecureRandom();
+
+        // plain, GLV and Koblitz curves each take a different path through sumOfTwoMultiplies
+        String[] curveNames = new String[]{ "secp256r1", "secp256k1", "sect233k1" };
+        for (int c = 0; c != curveNames.length; c++)
+        {
+            X9ECParameters x9 = CustomNamedCurves.getByName(curveNames[c]);
+            ECDomainParameters domain = new ECDomainParameters(x9.getCurve(), x9.getG(), x9.getN(), x9.getH());
+
+            ECKeyPairGenerator kpGen = new ECKeyPairGenerator();
+            kpGen.init(new ECKeyGenerationParameters(domain, random));
+            AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+            ECPublicKeyParameters pub = (ECPublicKeyParameters)kp.getPublic();
+            ECPublicKeyParameters[] prepared = new ECPublicKeyParameters[]{
+                new PreparedECPublicKeyParameters(pub),
+                new PreparedECPublicKeyParameters(pub.getQ(), domain) };
+
+            ECDSASigner signer = new ECDSASigner();
+            signer.init(true, new ParametersWithRandom(kp.getPrivate(), random));
+
+            for (int i = 0; i != 8; i++)
+            {
+                byte[] message = new byte[32];
+                random.nextBytes(message);
+
+                BigInteger[] sig = signer.generateSignature(message);
+                if (i % 2 == 1)
+                {
+                    message[i] ^= 1;
+                }
+
+                for (int k = 0; k != prepared.length; k++)
+                {
+                    ECDSASigner verifier = new ECDSASigner();
+                    verifier.init(false, prepared[k]);
+
+                    isTrue(curveNames[c] + " prepared key verify failed at " + i,
+                        verifier.verifySignature(message, sig[0], sig[1]) == (i % 2 == 0));
+                }
+            }
+        }
+
+        try
+        {
+            X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
+            ECDomainParameters domain = new ECDomainParameters(x9.getCurve(), x9.getG(), x9.getN(), x9.getH());
+
+            new PreparedECPublicKeyParameters(x9.getCurve().getInfinity(), domain);
+            fail("invalid point not rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
 
     public static void main(
         String[] args)
@@ -8,6 +8,7 @@
 import org.bouncycastle.crypto.params.Ed25519KeyGenerationParameters;
 import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
 import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519BatchVerifier;
 import org.bouncycastle.crypto.signers.Ed25519Signer;
 import org.bouncycastle.crypto.signers.Ed25519ctxSigner;
 import org.bouncycastle.crypto.signers.Ed25519phSigner;
@@ -47,6 +48,75 @@ public void performTest()
         }
 
         testRegressionInfiniteLoop();
+        testBatchVerifier();
+        testReusedPublicKey();
+    }
+
+    private void testReusedPublicKey()
+    {
+        Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+        kpg.init(new Ed25519KeyGenerationParameters(RANDOM));
+
+        AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+        Ed25519PrivateKeyParameters privateKey = (Ed25519PrivateKeyParameters)kp.getPrivate();
+        Ed25519PublicKeyParameters publicKey = (Ed25519PublicKeyParameters)kp.getPublic();
+
+        // the same parameters object keeps its decoded point and tables between verifications
+        Signer verifier = new Ed25519Signer();
+        for (int i = 0; i < 8; ++i)
+        {
+            byte[] msg = new byte[RANDOM.nextInt() & 255];
+            RANDOM.nextBytes(msg);
+
+            byte[] signature = new byte[Ed25519PrivateKeyParameters.SIGNATURE_SIZE];
+            privateKey.sign(Ed25519.Algorithm.Ed25519, null, msg, 0, msg.length, signature, 0);
+
+            if ((i & 1) != 0)
+            {
+                signature[RANDOM.nextInt(signature.length)] ^= 1 << (RANDOM.nextInt() & 7);
+            }
+
+            verifier.init(false, publicKey);
+            verifier.update(msg, 0, msg.length);
+            isTrue("reused public key verification failed at " + i, verifier.verifySignature(signature) == ((i & 1) == 0));
+        }
+    }
+
+    private void testBatchVerifier()
+        throws Exception
+    {
+        Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+        kpg.init(new Ed25519KeyGenerationParameters(RANDOM));
+
+        Ed25519BatchVerifier batch = new Ed25519BatchVerifier(RANDOM);
+        boolean[] expected = new boolean[20];
+
+        for (int i = 0; i < expected.length; ++i)
+        {
+            AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+
+            byte[] msg = new byte[RANDOM.nextInt() & 255];
+            RANDOM.nextBytes(msg);
+
+            Signer signer = new Ed25519Signer();
+            signer.init(true, kp.getPrivate());
+            signer.update(msg, 0, msg.length);
+            byte[] signature = signer.generateSignature();
+
+            expected[i] = (i % 5) != 3;
+            if (!expected[i])
+            {
+                signature[RANDOM.nextInt(signature.length)] ^= 0x01;
+            }
+
+            isEquals(i, batch.add((Ed25519PublicKeyParameters)kp.getPublic(), msg, signature));
+        }
+
+        isEquals(expected.length, batch.size());
+
+        boolean[] results = batch.verify();
+        isEquals(0, batch.size());
+        isTrue("batch verification results", Arrays.areEqual(expected, results));
     }
 
     private void basicSigTest()
@@ -1,7 +1,12 @@
 package org.bouncycastle.crypto.test;
 
+import java.security.SecureRandom;
+
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
 import org.bouncycastle.crypto.modes.GCMSIVBlockCipher;
+import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables4kMultiBlockGCMMultiplier;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.util.Arrays;
@@ -32,6 +37,47 @@ public void performTest()
         new AESGCMSIV256Test2().testTheCipher(this);
         new AESGCMSIV256Test3().testTheCipher(this);
         new AESGCMSIV256Test4().testTheCipher(this);
+        testMultiBlockHash();
+    }
+
+    /**
+     * Check POLYVAL with an aggregating multiplier, which must be passed in explicitly, matches
+     * the single block one over inputs spanning several batches.
+     */
+    private void testMultiBlockHash()
+            throws InvalidCipherTextException
+    {
+        final SecureRandom myRandom = new SecureRandom();
+
+        for (int i = 0; i != 10; i++)
+        {
+            final byte[] myKey = new byte[16 + 16 * (i & 1)];
+            final byte[] myNonce = new byte[12];
+            final byte[] myAEAD = new byte[(i < 2) ? 128 * (1 + i) : myRandom.nextInt(1024)];
+            final byte[] myData = new byte[(i < 2) ? 256 : myRandom.nextInt(1024)];
+            myRandom.nextBytes(myKey);
+            myRandom.nextBytes(myNonce);
+            myRandom.nextBytes(myAEAD);
+            myRandom.nextBytes(myData);
+
+            final AEADParameters myParams = new AEADParameters(new KeyParameter(myKey), 128, myNonce, myAEAD);
+
+            final GCMSIVBlockCipher mySingle = new GCMSIVBlockCipher(AESEngine.newInstance(), new Tables4kGCMMultiplier());
+            mySingle.init(true, myParams);
+            final byte[] myExpected = new byte[mySingle.getOutputSize(myData.length)];
+            mySingle.processBytes(myData, 0, myData.length, null, 0);
+            mySingle.doFinal(myExpected, 0);
+
+            final Tables4kMultiBlockGCMMultiplier myMultiplier = new Tables4kMultiBlockGCMMultiplier();
+            isTrue("Multiplier does not aggregate", myMultiplier.getMultiBlockCount() > 1);
+            final GCMSIVBlockCipher myMulti = new GCMSIVBlockCipher(AESEngine.newInstance(), myMultiplier);
+            myMulti.init(true, myParams);
+            final byte[] myOutput = new byte[myMulti.getOutputSize(myData.length)];
+            myMulti.processBytes(myData, 0, myData.length, null, 0);
+            myMulti.doFinal(myOutput, 0);
+
+            isTrue("Multi-block encryption mismatch", Arrays.areEqual(myExpected, myOutput));
+        }
     }
 
     /**
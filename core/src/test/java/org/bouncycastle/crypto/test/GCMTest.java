@@ -5,12 +5,15 @@
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESLightEngine;
 import org.bouncycastle.crypto.engines.DESEngine;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
 import org.bouncycastle.crypto.modes.GCMModeCipher;
 import org.bouncycastle.crypto.modes.gcm.BasicGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiBlockMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables4kMultiBlockGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables64kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables8kGCMMultiplier;
 import org.bouncycastle.crypto.params.AEADParameters;
@@ -309,6 +312,8 @@ public void performTest() throws Exception
 
 
         randomTests();
+        multiBlockTests();
+        multiBlockMultiplierTests();
         outputSizeTests();
         testExceptions();
         testResetBehavior();
@@ -598,6 +603,7 @@ private void randomTests()
         randomTests(srng, new Tables4kGCMMultiplier());
         randomTests(srng, new Tables8kGCMMultiplier());
         randomTests(srng, new Tables64kGCMMultiplier());
+        randomTests(srng, new Tables4kMultiBlockGCMMultiplier());
     }
 
     private void randomTests(SecureRandom srng, GCMMultiplier m)
@@ -715,6 +721,143 @@ private void randomTest(SecureRandom srng, GCMMultiplier m)
         }
     }
 
+    /*
+     * An aggregating multiplier makes GCM process its data in batches, check the results match
+     * those from processing a block at a time when the input arrives in fragments.
+     */
+    private void multiBlockTests()
+        throws InvalidCipherTextException
+    {
+        SecureRandom srng = new SecureRandom();
+
+        for (int i = 0; i != 20; i++)
+        {
+            byte[] K = new byte[16 + 8 * nextInt(srng, 3)];
+            byte[] P = new byte[nextInt(srng, 2048)];
+            // the first pass uses AAD that is an exact multiple of the 8 block batch size
+            byte[] A = new byte[i == 0 ? 128 * (1 + nextInt(srng, 4)) : nextInt(srng, 1024)];
+            byte[] IV = new byte[12];
+            srng.nextBytes(K);
+            srng.nextBytes(P);
+            srng.nextBytes(A);
+            srng.nextBytes(IV);
+
+            AEADParameters parameters = new AEADParameters(new KeyParameter(K), 128, IV, A);
+
+            GCMModeCipher single = GCMBlockCipher.newInstance(new AESLightEngine());
+            single.init(true, parameters);
+            byte[] expected = new byte[single.getOutputSize(P.length)];
+            int len = single.processBytes(P, 0, P.length, expected, 0);
+            single.doFinal(expected, len);
+
+            // on odd passes the AAD is fed in fragments rather than through the parameters
+            boolean fragmentAAD = (i & 1) != 0;
+            AEADParameters multiParameters = fragmentAAD
+                ? new AEADParameters(new KeyParameter(K), 128, IV) : parameters;
+
+            GCMModeCipher multi = GCMBlockCipher.newInstance(AESEngine.newInstance(),
+                new Tables4kMultiBlockGCMMultiplier());
+            multi.init(true, multiParameters);
+            if (fragmentAAD)
+            {
+                processAADFragmented(srng, multi, A);
+            }
+            byte[] C = new byte[multi.getOutputSize(P.length)];
+            len = processFragmented(srng, multi, P, C);
+            multi.doFinal(C, len);
+
+            if (!areEqual(expected, C))
+            {
+                fail("multi-block encryption mismatch");
+            }
+
+            multi.init(false, multiParameters);
+            if (fragmentAAD)
+            {
+                processAADFragmented(srng, multi, A);
+            }
+            byte[] decP = new byte[multi.getOutputSize(C.length)];
+            len = processFragmented(srng, multi, C, decP);
+            multi.doFinal(decP, len);
+
+            if (!areEqual(P, decP))
+            {
+                fail("multi-block decryption mismatch");
+            }
+        }
+    }
+
+    private void multiBlockMultiplierTests()
+    {
+        SecureRandom srng = new SecureRandom();
+        GCMMultiBlockMultiplier multi = new Tables4kMultiBlockGCMMultiplier();
+        GCMMultiplier single = new BasicGCMMultiplier();
+
+        for (int i = 0; i != 10; i++)
+        {
+            byte[] H = new byte[16];
+            srng.nextBytes(H);
+            multi.init(H);
+            single.init(H);
+
+            int count = multi.getMultiBlockCount();
+            byte[] blocks = new byte[count * 16 + 5];
+            srng.nextBytes(blocks);
+
+            byte[] expected = new byte[16];
+            srng.nextBytes(expected);
+            byte[] x = Arrays.clone(expected);
+
+            for (int b = 0; b != count; b++)
+            {
+                for (int j = 0; j != 16; j++)
+                {
+                    expected[j] ^= blocks[5 + b * 16 + j];
+                }
+                single.multiplyH(expected);
+            }
+
+            multi.multiplyBlocksH(x, blocks, 5);
+
+            if (!areEqual(expected, x))
+            {
+                fail("multi-block multiplier mismatch");
+            }
+
+            // single block multiplication still available
+            single.multiplyH(expected);
+            multi.multiplyH(x);
+
+            if (!areEqual(expected, x))
+            {
+                fail("multi-block multiplier single block mismatch");
+            }
+        }
+    }
+
+    private int processFragmented(SecureRandom srng, GCMModeCipher cipher, byte[] in, byte[] out)
+    {
+        int inOff = 0, outOff = 0;
+        while (inOff < in.length)
+        {
+            int len = Math.min(in.length - inOff, nextInt(srng, 300));
+            outOff += cipher.processBytes(in, inOff, len, out, outOff);
+            inOff += len;
+        }
+        return outOff;
+    }
+
+    private void processAADFragmented(SecureRandom srng, GCMModeCipher cipher, byte[] aad)
+    {
+        int off = 0;
+        while (off < aad.length)
+        {
+            int len = Math.min(aad.length - off, nextInt(srng, 300));
+            cipher.processAADBytes(aad, off, len);
+            off += len;
+        }
+    }
+
     private void outputSizeTests()
     {
         byte[] K = new byte[16];
@@ -0,0 +1,193 @@
+package org.bouncycastle.crypto.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.Blake3Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.generators.Ed25519KeyPairGenerator;
+import org.bouncycastle.crypto.io.MappedFileProcessor;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.Ed25519KeyGenerationParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+public class MappedFileProcessorTest
+    extends SimpleTest
+{
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "MappedFileProcessor";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        byte[] data = new byte[300000 + random.nextInt(1000)];
+        random.nextBytes(data);
+
+        File file = createFile(data);
+        File empty = createFile(new byte[0]);
+        try
+        {
+            int[] windowSizes = new int[]{ 4097, 65536, MappedFileProcessor.DEFAULT_WINDOW_SIZE };
+
+            for (int i = 0; i != windowSizes.length; i++)
+            {
+                testDigest(new SHA256Digest(), file, data, windowSizes[i]);
+                testDigest(new SHA512Digest(), file, data, windowSizes[i]);
+                testDigest(new Blake3Digest(), file, data, windowSizes[i]);
+                testMac(new HMac(new SHA256Digest()), file, data, windowSizes[i]);
+                testMac(new HMac(new SHA512Digest()), file, data, windowSizes[i]);
+            }
+
+            testDigest(new SHA256Digest(), empty, new byte[0], 4096);
+            testSigner(file, data);
+            testConcurrent(file, empty, data);
+        }
+        finally
+        {
+            file.delete();
+            empty.delete();
+        }
+    }
+
+    private void testDigest(Digest digest, File file, byte[] data, int windowSize)
+        throws IOException
+    {
+        byte[] expected = new byte[digest.getDigestSize()];
+
+        digest.update(data, 0, data.length);
+        digest.doFinal(expected, 0);
+
+        MappedFileProcessor.update(digest, file, windowSize);
+
+        byte[] result = new byte[digest.getDigestSize()];
+        digest.doFinal(result, 0);
+
+        isTrue(digest.getAlgorithmName() + " failed for window " + windowSize, Arrays.areEqual(expected, result));
+    }
+
+    private void testMac(Mac mac, File file, byte[] data, int windowSize)
+        throws IOException
+    {
+        mac.init(new KeyParameter(Arrays.copyOf(data, 32)));
+
+        byte[] expected = new byte[mac.getMacSize()];
+
+        mac.update(data, 0, data.length);
+        mac.doFinal(expected, 0);
+
+        MappedFileProcessor.update(mac, file, windowSize);
+
+        byte[] result = new byte[mac.getMacSize()];
+        mac.doFinal(result, 0);
+
+        isTrue(mac.getAlgorithmName() + " failed for window " + windowSize, Arrays.areEqual(expected, result));
+    }
+
+    private void testSigner(File file, byte[] data)
+        throws Exception
+    {
+        Ed25519KeyPairGenerator kpGen = new Ed25519KeyPairGenerator();
+
+        kpGen.init(new Ed25519KeyGenerationParameters(random));
+
+        AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+        Ed25519Signer signer = new Ed25519Signer();
+
+        signer.init(true, kp.getPrivate());
+        MappedFileProcessor.update(signer, file, 10000);
+        byte[] sig = signer.generateSignature();
+
+        signer.init(false, kp.getPublic());
+        signer.update(data, 0, data.length);
+        isTrue("signature on mapped file failed to verify", signer.verifySignature(sig));
+    }
+
+    private void testConcurrent(File file, File empty, byte[] data)
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            SHA512Digest digest = new SHA512Digest();
+
+            // partially used - the copies should still start from scratch.
+            digest.update(data, 0, 17);
+
+            File[] files = new File[]{ file, empty, file, file };
+            byte[][] digests = MappedFileProcessor.digest(digest, files, executor);
+
+            SHA512Digest check = new SHA512Digest();
+            byte[] expected = new byte[check.getDigestSize()];
+
+            check.update(data, 0, data.length);
+            check.doFinal(expected, 0);
+
+            byte[] expectedEmpty = new byte[check.getDigestSize()];
+
+            check.doFinal(expectedEmpty, 0);
+
+            isTrue(Arrays.areEqual(expected, digests[0]));
+            isTrue(Arrays.areEqual(expectedEmpty, digests[1]));
+            isTrue(Arrays.areEqual(expected, digests[2]));
+            isTrue(Arrays.areEqual(expected, digests[3]));
+
+            try
+            {
+                MappedFileProcessor.digest(digest, new File[]{ file, new File(file.getPath() + ".missing") }, executor);
+                fail("missing file not detected");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+
+            // a shut down executor rejects the tasks, they should be run on the calling thread instead.
+            executor.shutdown();
+
+            digests = MappedFileProcessor.digest(digest, files, executor);
+
+            isTrue(Arrays.areEqual(expected, digests[0]));
+            isTrue(Arrays.areEqual(expectedEmpty, digests[1]));
+            isTrue(Arrays.areEqual(expected, digests[2]));
+            isTrue(Arrays.areEqual(expected, digests[3]));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static File createFile(byte[] data)
+        throws IOException
+    {
+        File file = File.createTempFile("bcmap", ".dat");
+        FileOutputStream fOut = new FileOutputStream(file);
+
+        fOut.write(data);
+        fOut.close();
+
+        return file;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new MappedFileProcessorTest());
+    }
+}
@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.ParallelHash;
 import org.bouncycastle.util.Arrays;
@@ -118,6 +121,52 @@ public void performTest()
 
         testEmpty();
         testClone();
+        testExecutor();
+    }
+
+    private void testExecutor()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            int[] blockSizes = new int[]{ 12, 1000, 8192 };
+            byte[] input = new byte[300000 + 13];
+            for (int i = 0; i != input.length; i++)
+            {
+                input[i] = (byte)i;
+            }
+
+            for (int i = 0; i != blockSizes.length; i++)
+            {
+                ParallelHash serial = new ParallelHash(256, Strings.toByteArray("Parallel Data"), blockSizes[i]);
+                ParallelHash parallel = new ParallelHash(256, Strings.toByteArray("Parallel Data"), blockSizes[i]);
+
+                parallel.setExecutor(executor, 3);
+
+                serial.update(input, 0, input.length);
+
+                parallel.update(input, 0, 7);
+                parallel.update(input, 7, input.length - 7);
+
+                byte[] expected = new byte[serial.getDigestSize()];
+                byte[] result = new byte[parallel.getDigestSize()];
+
+                serial.doFinal(expected, 0);
+                parallel.doFinal(result, 0);
+
+                isTrue("executor mismatch for block size " + blockSizes[i], areEqual(expected, result));
+
+                // the digest is reusable after doFinal.
+                parallel.update(input, 0, input.length);
+                parallel.doFinal(result, 0);
+
+                isTrue("executor reuse mismatch for block size " + blockSizes[i], areEqual(expected, result));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
     }
 
     private void testEmpty()
@@ -0,0 +1,180 @@
+package org.bouncycastle.crypto.test;
+
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.bouncycastle.crypto.generators.PooledKeyPairGenerator;
+import org.bouncycastle.crypto.generators.X25519KeyPairGenerator;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.params.X25519KeyGenerationParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.test.SimpleTest;
+
+public class PooledKeyPairGeneratorTest
+    extends SimpleTest
+{
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "PooledKeyPairGenerator";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            testPool(executor);
+            testReinit(executor);
+            testMissDuringFill(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        try
+        {
+            new PooledKeyPairGenerator(new X25519KeyPairGenerator(), executor, 4, 4);
+            fail("bad watermarks not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            new PooledKeyPairGenerator(new X25519KeyPairGenerator(), executor, 0, 1).generateKeyPair();
+            fail("uninitialised generator not detected");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    private void testPool(ExecutorService executor)
+        throws Exception
+    {
+        PooledKeyPairGenerator kpGen = new PooledKeyPairGenerator(new X25519KeyPairGenerator(), executor, 2, 8);
+
+        kpGen.init(new X25519KeyGenerationParameters(random));
+        awaitSize(kpGen, 8);
+
+        Set keys = new HashSet();
+        for (int i = 0; i != 50; i++)
+        {
+            AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+            isTrue("key pair handed out twice",
+                keys.add(Hex.toHexString(((X25519PublicKeyParameters)kp.getPublic()).getEncoded())));
+        }
+
+        isEquals(50, kpGen.getHits() + kpGen.getMisses());
+        isTrue(kpGen.getHits() >= 8);
+        isTrue(kpGen.getGenerated() >= 8);
+
+        kpGen.close();
+        isEquals(0, kpGen.size());
+        isTrue(kpGen.generateKeyPair() != null);
+    }
+
+    private void testReinit(ExecutorService executor)
+        throws Exception
+    {
+        X9ECParameters p256 = CustomNamedCurves.getByName("secp256r1");
+        X9ECParameters p384 = CustomNamedCurves.getByName("secp384r1");
+        ECDomainParameters d256 = new ECDomainParameters(p256.getCurve(), p256.getG(), p256.getN(), p256.getH());
+        ECDomainParameters d384 = new ECDomainParameters(p384.getCurve(), p384.getG(), p384.getN(), p384.getH());
+
+        PooledKeyPairGenerator kpGen = new PooledKeyPairGenerator(new ECKeyPairGenerator(), executor, 1, 4);
+
+        kpGen.init(new ECKeyGenerationParameters(d256, random));
+        awaitSize(kpGen, 4);
+
+        // nothing generated for P-256 may be handed out once the generator is set up for P-384
+        kpGen.init(new ECKeyGenerationParameters(d384, random));
+        for (int i = 0; i != 10; i++)
+        {
+            ECPublicKeyParameters pub = (ECPublicKeyParameters)kpGen.generateKeyPair().getPublic();
+
+            isTrue("stale key pair returned", pub.getParameters().equals(d384));
+        }
+
+        kpGen.close();
+    }
+
+    private void testMissDuringFill(ExecutorService executor)
+        throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+
+        // a generator that stalls whenever it is asked for a key pair in the background
+        X25519KeyPairGenerator slowGen = new X25519KeyPairGenerator()
+        {
+            public AsymmetricCipherKeyPair generateKeyPair()
+            {
+                if (Thread.currentThread() != caller)
+                {
+                    try
+                    {
+                        release.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.generateKeyPair();
+            }
+        };
+
+        PooledKeyPairGenerator kpGen = new PooledKeyPairGenerator(slowGen, executor, 1, 4);
+        try
+        {
+            kpGen.init(new X25519KeyGenerationParameters(random));
+
+            // the background fill is stuck, a miss must still be served on the calling thread
+            for (int i = 0; i != 3; i++)
+            {
+                isTrue(kpGen.generateKeyPair() != null);
+            }
+            isEquals(3, kpGen.getMisses());
+        }
+        finally
+        {
+            release.countDown();
+            kpGen.close();
+        }
+    }
+
+    private static void awaitSize(PooledKeyPairGenerator kpGen, int size)
+        throws InterruptedException
+    {
+        for (int i = 0; i != 1000 && kpGen.size() < size; i++)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new PooledKeyPairGeneratorTest());
+    }
+}
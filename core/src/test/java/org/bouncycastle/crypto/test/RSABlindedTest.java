@@ -10,6 +10,7 @@
 import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
 import org.bouncycastle.crypto.params.RSAKeyParameters;
 import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.encoders.Hex;
 import org.bouncycastle.util.test.SimpleTest;
 
@@ -100,6 +101,49 @@ private void testStrictPKCS1Length(RSAKeyParameters pubParameters, RSAKeyParamet
         System.getProperties().remove(PKCS1Encoding.STRICT_LENGTH_ENABLED_PROPERTY);
     }
 
+    private void testRepeatedPrivateOperations(RSAKeyParameters pubParameters)
+    {
+        SecureRandom random = new SecureRandom();
+        AsymmetricBlockCipher pubEng = new RSABlindedEngine();
+
+        pubEng.init(true, pubParameters);
+
+        // enough operations for the blinding pair to be squared and regenerated several times, with
+        // the key sometimes recreated as a provider would.
+        RSAKeyParameters privParameters = null;
+        for (int i = 0; i != 100; i++)
+        {
+            if (i % 10 == 0)
+            {
+                privParameters = new RSAPrivateCrtKeyParameters(mod, pubExp, privExp, p, q, pExp, qExp, crtCoef);
+            }
+
+            AsymmetricBlockCipher privEng = new RSABlindedEngine();
+
+            privEng.init(false, privParameters);
+
+            byte[] data = new byte[privEng.getOutputBlockSize()];
+            random.nextBytes(data);
+            // a zero leading byte would be stripped from the decrypted output
+            data[0] = (byte)((data[0] & 0x7f) | 0x01);
+
+            try
+            {
+                byte[] enc = pubEng.processBlock(data, 0, data.length);
+                byte[] dec = privEng.processBlock(enc, 0, enc.length);
+
+                if (!Arrays.areEqual(data, dec))
+                {
+                    fail("repeated private operation failed at " + i);
+                }
+            }
+            catch (Exception e)
+            {
+                fail("repeated private operation failed - exception " + e.toString(), e);
+            }
+        }
+    }
+
     private void testTruncatedPKCS1Block(RSAKeyParameters pubParameters, RSAKeyParameters privParameters)
     {
         checkForPKCS1Exception(pubParameters, privParameters, truncatedDataBlock, "block incorrect");
@@ -416,6 +460,7 @@ public void performTest()
         testMissingDataPKCS1Block(pubParameters, privParameters);
         testTruncatedPKCS1Block(pubParameters, privParameters);
         testWrongPaddingPKCS1Block(pubParameters, privParameters);
+        testRepeatedPrivateOperations(pubParameters);
 
         try
         {
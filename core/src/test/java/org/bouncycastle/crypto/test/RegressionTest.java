@@ -195,6 +195,9 @@
             new SparkleTest(),
             new ISAPTest(),
             new ConcatenationKDFTest(),
+            new ByteBufferTest(),
+            new MappedFileProcessorTest(),
+            new PooledKeyPairGeneratorTest(),
         };
 
     public static void main(String[] args)
@@ -4,6 +4,10 @@
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bouncycastle.crypto.generators.SCrypt;
 import org.bouncycastle.test.TestResourceFinder;
@@ -29,9 +33,56 @@ public void performTest()
     {
         testPermutations();
         testParameters();
+        testParallel();
         testVectors();
     }
 
+    public void testParallel()
+    {
+        // RFC 7914, section 12 - scrypt (P="password", S="NaCl", N=1024, r=8, p=16, dkLen=64)
+        byte[] expected = Hex.decode("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+            + "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640");
+        byte[] P = Strings.toByteArray("password");
+        byte[] S = Strings.toByteArray("NaCl");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            isTrue("sequential", areEqual(expected, SCrypt.generate(P, S, 1024, 8, 16, 64)));
+            isTrue("parallel", areEqual(expected, SCrypt.generate(P, S, 1024, 8, 16, 64, executor)));
+            isTrue("null executor", areEqual(expected, SCrypt.generate(P, S, 1024, 8, 16, 64, null)));
+
+            for (int p = 1; p <= 5; ++p)
+            {
+                byte[] sequential = SCrypt.generate(P, S, 16, 2, p, 48);
+                byte[] parallel = SCrypt.generate(P, S, 16, 2, p, 48, executor);
+
+                isTrue("parallel mismatch for p = " + p, areEqual(sequential, parallel));
+            }
+
+            // an executor that runs out of capacity part way through, the rejected lanes run inline.
+            final ExecutorService pool = executor;
+            Executor limited = new Executor()
+            {
+                private int count = 0;
+
+                public synchronized void execute(Runnable task)
+                {
+                    if (++count > 2)
+                    {
+                        throw new RejectedExecutionException("full");
+                    }
+                    pool.execute(task);
+                }
+            };
+            isTrue("rejected lanes", areEqual(expected, SCrypt.generate(P, S, 1024, 8, 16, 64, limited)));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     public void testParameters()
     {
         checkOK("Minimal values", new byte[0], new byte[0], 2, 1, 1, 1);
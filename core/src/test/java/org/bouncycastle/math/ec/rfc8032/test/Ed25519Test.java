@@ -79,6 +79,144 @@ public void testEd25519Consistency()
         }
     }
     
+//    @Test
+    public void testEd25519BatchConsistency()
+    {
+        // More than one chunk of the batch multi-scalar multiplication
+        int count = 150;
+
+        byte[] sk = new byte[Ed25519.SECRET_KEY_SIZE];
+        byte[][] pks = new byte[count][];
+        Ed25519.PublicPoint[] publicPoints = new Ed25519.PublicPoint[count];
+        byte[][] ms = new byte[count][];
+        byte[][] sigs = new byte[count][];
+
+        for (int i = 0; i < count; ++i)
+        {
+            Ed25519.generatePrivateKey(RANDOM, sk);
+            publicPoints[i] = Ed25519.generatePublicKey(sk, 0);
+            pks[i] = new byte[Ed25519.PUBLIC_KEY_SIZE];
+            Ed25519.encodePublicPoint(publicPoints[i], pks[i], 0);
+
+            ms[i] = new byte[RANDOM.nextInt() & 255];
+            RANDOM.nextBytes(ms[i]);
+
+            sigs[i] = new byte[Ed25519.SIGNATURE_SIZE];
+            Ed25519.sign(sk, 0, ms[i], 0, ms[i].length, sigs[i], 0);
+        }
+
+        boolean[] results = new boolean[count];
+
+        assertTrue(Ed25519.verifyBatch(RANDOM, sigs, pks, ms, results));
+        for (int i = 0; i < count; ++i)
+        {
+            assertTrue("Ed25519 batch sign/verify #" + i, results[i]);
+        }
+
+        assertTrue(Ed25519.verifyBatch(RANDOM, sigs, publicPoints, ms, results));
+        for (int i = 0; i < count; ++i)
+        {
+            assertTrue("Ed25519 batch sign/verify #" + i, results[i]);
+        }
+
+        // Corrupt a selection of signatures, messages and keys
+        for (int i = 0; i < count; i += 7)
+        {
+            switch (RANDOM.nextInt(4))
+            {
+            case 0:
+                sigs[i][RANDOM.nextInt(Ed25519.PUBLIC_KEY_SIZE)] ^= 1 << RANDOM.nextInt(8);
+                break;
+            case 1:
+                sigs[i][Ed25519.PUBLIC_KEY_SIZE + RANDOM.nextInt(Ed25519.SIGNATURE_SIZE / 2 - 1)] ^= 1 << RANDOM.nextInt(8);
+                break;
+            case 2:
+                if (ms[i].length > 0)
+                {
+                    ms[i][RANDOM.nextInt(ms[i].length)] ^= 1;
+                    break;
+                }
+                sigs[i] = new byte[Ed25519.SIGNATURE_SIZE - 1];
+                break;
+            default:
+                int j = (i + 1) % count;
+                pks[i] = pks[j];
+                publicPoints[i] = publicPoints[j];
+                break;
+            }
+        }
+
+        assertFalse(Ed25519.verifyBatch(RANDOM, sigs, pks, ms, results));
+        for (int i = 0; i < count; ++i)
+        {
+            boolean expected = sigs[i].length == Ed25519.SIGNATURE_SIZE
+                && Ed25519.verify(sigs[i], 0, pks[i], 0, ms[i], 0, ms[i].length);
+
+            assertEquals("Ed25519 batch consistent verification #" + i, (i % 7) != 0, expected);
+            assertEquals("Ed25519 batch consistent verification #" + i, expected, results[i]);
+        }
+
+        assertFalse(Ed25519.verifyBatch(RANDOM, sigs, publicPoints, ms, results));
+        for (int i = 0; i < count; ++i)
+        {
+            boolean expected = sigs[i].length == Ed25519.SIGNATURE_SIZE
+                && Ed25519.verify(sigs[i], 0, publicPoints[i], ms[i], 0, ms[i].length);
+
+            assertEquals("Ed25519 batch consistent verification #" + i, expected, results[i]);
+        }
+    }
+
+//    @Test
+    public void testEd25519BatchNullEntries()
+    {
+        byte[] sk = new byte[Ed25519.SECRET_KEY_SIZE];
+        Ed25519.generatePrivateKey(RANDOM, sk);
+        Ed25519.PublicPoint publicPoint = Ed25519.generatePublicKey(sk, 0);
+        byte[] pk = new byte[Ed25519.PUBLIC_KEY_SIZE];
+        Ed25519.encodePublicPoint(publicPoint, pk, 0);
+
+        byte[] m = new byte[32];
+        RANDOM.nextBytes(m);
+        byte[] sig = new byte[Ed25519.SIGNATURE_SIZE];
+        Ed25519.sign(sk, 0, m, 0, m.length, sig, 0);
+
+        boolean[] results = new boolean[2];
+
+        // a null signature or key only fails that entry
+        assertFalse(Ed25519.verifyBatch(RANDOM, new byte[][]{ sig, null }, new byte[][]{ pk, pk },
+            new byte[][]{ m, m }, results));
+        assertTrue(results[0]);
+        assertFalse(results[1]);
+
+        assertFalse(Ed25519.verifyBatch(RANDOM, new byte[][]{ sig, sig }, new byte[][]{ null, pk },
+            new byte[][]{ m, m }, results));
+        assertFalse(results[0]);
+        assertTrue(results[1]);
+
+        // a null message or public point is rejected up front
+        try
+        {
+            Ed25519.verifyBatch(RANDOM, new byte[][]{ sig, sig }, new byte[][]{ pk, pk }, new byte[][]{ m, null },
+                results);
+            fail("no exception for null message");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            Ed25519.verifyBatch(RANDOM, new byte[][]{ sig, sig }, new Ed25519.PublicPoint[]{ null, publicPoint },
+                new byte[][]{ m, m }, results);
+            fail("no exception for null public point");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
 //    @Test
     public void testEd25519ctxConsistency()
     {
@@ -692,7 +830,24 @@ private static boolean implTamingVector(String msgHex, String pubHex, String sig
 
         try
         {
-            return Ed25519.verify(sig, 0, pub, 0, msg, 0, msg.length);
+            boolean result = Ed25519.verify(sig, 0, pub, 0, msg, 0, msg.length);
+
+            // Batch verification (with a known good signature alongside) must agree
+            byte[] sk = new byte[Ed25519.SECRET_KEY_SIZE];
+            Ed25519.generatePrivateKey(RANDOM, sk);
+            byte[] pk = new byte[Ed25519.PUBLIC_KEY_SIZE];
+            Ed25519.generatePublicKey(sk, 0, pk, 0);
+            byte[] sig2 = new byte[Ed25519.SIGNATURE_SIZE];
+            Ed25519.sign(sk, 0, msg, 0, msg.length, sig2, 0);
+
+            boolean[] results = new boolean[2];
+            boolean batch = Ed25519.verifyBatch(RANDOM, new byte[][]{ sig, sig2 }, new byte[][]{ pub, pk },
+                new byte[][]{ msg, msg }, results);
+            assertEquals(result, batch);
+            assertEquals(result, results[0]);
+            assertTrue(results[1]);
+
+            return result;
         }
         catch (RuntimeException e)
         {
@@ -27,6 +27,7 @@ public static Test suite()
         suite.addTestSuite(ECAlgorithmsTest.class);
         suite.addTestSuite(ECPointTest.class);
         suite.addTestSuite(FixedPointTest.class);
+        suite.addTestSuite(PreCompCacheTest.class);
 
         return new BCTestSetup(suite);
     }
@@ -0,0 +1,132 @@
+package org.bouncycastle.math.ec.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.bouncycastle.asn1.x9.ECNamedCurveTable;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.PreCompCache;
+import org.bouncycastle.math.ec.WNafPreCompInfo;
+import org.bouncycastle.math.ec.WNafUtil;
+
+public class PreCompCacheTest
+    extends TestCase
+{
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public void testSharedBetweenEqualPoints()
+    {
+        X9ECParameters x9 = ECNamedCurveTable.getByName("secp256r1");
+        ECCurve curve = x9.getCurve().configure().create();
+        ECPoint g = curve.importPoint(x9.getG());
+
+        BigInteger k = new BigInteger(x9.getN().bitLength(), RANDOM);
+        ECPoint q = g.multiply(k).normalize();
+        byte[] encQ = q.getEncoded(false);
+
+        PreCompCache cache = curve.getPreCompCache();
+
+        // first sighting stays with the point object
+        ECPoint q1 = curve.decodePoint(encQ);
+        WNafPreCompInfo info1 = WNafUtil.precompute(q1, 4, true);
+        assertEquals(0, cache.size());
+
+        // second sighting is admitted
+        ECPoint q2 = curve.decodePoint(encQ);
+        WNafPreCompInfo info2 = WNafUtil.precompute(q2, 4, true);
+        assertEquals(1, cache.size());
+
+        // third, a fresh decoding, finds the table computed for the second
+        ECPoint q3 = curve.decodePoint(encQ);
+        long hits = cache.getHits();
+        WNafPreCompInfo info3 = WNafUtil.precompute(q3, 4, true);
+        assertSame(info2, info3);
+        assertEquals(hits + 1, cache.getHits());
+        assertNotNull(info1);
+
+        // and results are unaffected
+        BigInteger e = new BigInteger(x9.getN().bitLength(), RANDOM);
+        BigInteger f = new BigInteger(x9.getN().bitLength(), RANDOM);
+        ECPoint expected = ECAlgorithms.referenceMultiply(g, e).add(ECAlgorithms.referenceMultiply(q, f)).normalize();
+        for (int i = 0; i < 6; ++i)
+        {
+            ECPoint qi = curve.decodePoint(encQ);
+            assertEquals(expected, ECAlgorithms.sumOfTwoMultiplies(g, e, qi, f).normalize());
+        }
+    }
+
+    public void testBounded()
+    {
+        X9ECParameters x9 = ECNamedCurveTable.getByName("secp256r1");
+        ECCurve curve = x9.getCurve().configure().create();
+        ECPoint g = curve.importPoint(x9.getG());
+
+        PreCompCache cache = curve.getPreCompCache();
+        int max = cache.getMaxPoints();
+
+        for (int i = 0; i < max + 10; ++i)
+        {
+            ECPoint p = g.multiply(BigInteger.valueOf(i + 2)).normalize();
+            WNafUtil.precompute(p, 2, true);
+            WNafUtil.precompute(curve.decodePoint(p.getEncoded(true)), 2, true);
+        }
+
+        assertTrue(cache.size() <= max);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    public void testConcurrent()
+        throws Exception
+    {
+        final X9ECParameters x9 = ECNamedCurveTable.getByName("secp256r1");
+        final ECCurve curve = x9.getCurve().configure().create();
+        final ECPoint g = curve.importPoint(x9.getG());
+        final byte[] encQ = g.multiply(BigInteger.valueOf(12345)).getEncoded(false);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; ++t)
+        {
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i < 20; ++i)
+                        {
+                            BigInteger e = new BigInteger(x9.getN().bitLength(), RANDOM);
+                            ECPoint q = curve.decodePoint(encQ);
+                            ECPoint r = ECAlgorithms.sumOfTwoMultiplies(g, e, q, BigInteger.ONE).normalize();
+                            ECPoint expected = ECAlgorithms.referenceMultiply(g, e).add(q).normalize();
+                            if (!expected.equals(r))
+                            {
+                                throw new IllegalStateException("concurrent multiply mismatch");
+                            }
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        failures.add(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (int t = 0; t < threads.length; ++t)
+        {
+            threads[t].join();
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(curve.getPreCompCache().getHits() > 0);
+    }
+}
@@ -0,0 +1,243 @@
+package org.bouncycastle.openpgp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.util.Longs;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Secondary indexes for a key ring collection: key ID and fingerprint of every key (not just the
+ * master key) to its ring, and user ID, lower case user ID and e-mail address to the rings carrying it.
+ * <p>
+ * An index is only ever modified before it is published to a collection, so lookups need no locking.
+ * Where the same key appears in more than one ring the first ring added wins, as it would in a scan
+ * of the collection. The later rings are kept in add order, so removing the first promotes the next.
+ */
+class KeyRingIndex<T extends PGPKeyRing>
+{
+    private final Map<Long, T> keyIDs;
+    private final Map<String, T> fingerprints;
+    private final Map<Long, List<T>> duplicateKeyIDs;
+    private final Map<String, List<T>> duplicateFingerprints;
+    private final Map<String, List<T>> userIDs;
+    private final Map<String, List<T>> lowerCaseUserIDs;
+    private final Map<String, List<T>> emails;
+
+    KeyRingIndex()
+    {
+        this.keyIDs = new HashMap<Long, T>();
+        this.fingerprints = new HashMap<String, T>();
+        this.duplicateKeyIDs = new HashMap<Long, List<T>>();
+        this.duplicateFingerprints = new HashMap<String, List<T>>();
+        this.userIDs = new HashMap<String, List<T>>();
+        this.lowerCaseUserIDs = new HashMap<String, List<T>>();
+        this.emails = new HashMap<String, List<T>>();
+    }
+
+    KeyRingIndex(KeyRingIndex<T> other)
+    {
+        // the lists are never modified in place, so a shallow copy is enough.
+        this.keyIDs = new HashMap<Long, T>(other.keyIDs);
+        this.fingerprints = new HashMap<String, T>(other.fingerprints);
+        this.duplicateKeyIDs = new HashMap<Long, List<T>>(other.duplicateKeyIDs);
+        this.duplicateFingerprints = new HashMap<String, List<T>>(other.duplicateFingerprints);
+        this.userIDs = new HashMap<String, List<T>>(other.userIDs);
+        this.lowerCaseUserIDs = new HashMap<String, List<T>>(other.lowerCaseUserIDs);
+        this.emails = new HashMap<String, List<T>>(other.emails);
+    }
+
+    /**
+     * Add a ring to the index.
+     *
+     * @param ring the ring being added.
+     * @param keys the keys in the ring that lookups by key ID or fingerprint should find.
+     * @param ids the user IDs the ring should be found by.
+     */
+    void add(T ring, Iterator<PGPPublicKey> keys, Iterator<String> ids)
+    {
+        while (keys.hasNext())
+        {
+            PGPPublicKey key = keys.next();
+
+            addFirst(keyIDs, duplicateKeyIDs, Longs.valueOf(key.getKeyID()), ring);
+            addFirst(fingerprints, duplicateFingerprints, Hex.toHexString(key.getFingerprint()), ring);
+        }
+
+        while (ids.hasNext())
+        {
+            String id = ids.next();
+
+            addTo(userIDs, id, ring);
+            addTo(lowerCaseUserIDs, Strings.toLowerCase(id), ring);
+
+            String email = getEmail(id);
+            if (email != null)
+            {
+                addTo(emails, email, ring);
+            }
+        }
+    }
+
+    /**
+     * Remove a ring from the index.
+     *
+     * @param ring the ring being removed.
+     * @param keys the keys the ring was added with.
+     * @param ids the user IDs the ring was added with.
+     */
+    void remove(T ring, Iterator<PGPPublicKey> keys, Iterator<String> ids)
+    {
+        while (keys.hasNext())
+        {
+            PGPPublicKey key = keys.next();
+
+            removeFirst(keyIDs, duplicateKeyIDs, Longs.valueOf(key.getKeyID()), ring);
+            removeFirst(fingerprints, duplicateFingerprints, Hex.toHexString(key.getFingerprint()), ring);
+        }
+
+        while (ids.hasNext())
+        {
+            String id = ids.next();
+
+            removeFrom(userIDs, id, ring);
+            removeFrom(lowerCaseUserIDs, Strings.toLowerCase(id), ring);
+
+            String email = getEmail(id);
+            if (email != null)
+            {
+                removeFrom(emails, email, ring);
+            }
+        }
+    }
+
+    T getByKeyID(long keyID)
+    {
+        return keyIDs.get(Longs.valueOf(keyID));
+    }
+
+    T getByFingerprint(byte[] fingerprint)
+    {
+        return fingerprints.get(Hex.toHexString(fingerprint));
+    }
+
+    List<T> getByUserID(String userID, boolean ignoreCase)
+    {
+        List<T> rings = ignoreCase ? lowerCaseUserIDs.get(Strings.toLowerCase(userID)) : userIDs.get(userID);
+
+        return rings != null ? rings : Collections.<T>emptyList();
+    }
+
+    List<T> getByEmail(String email)
+    {
+        List<T> rings = emails.get(Strings.toLowerCase(email));
+
+        return rings != null ? rings : Collections.<T>emptyList();
+    }
+
+    /**
+     * Return the lower case e-mail address in a user ID of the form "Name &lt;address&gt;", or the user
+     * ID itself if it looks like a bare address.
+     */
+    static String getEmail(String userID)
+    {
+        int end = userID.lastIndexOf('>');
+        int start = userID.lastIndexOf('<', end);
+
+        if (start >= 0 && end > start + 1)
+        {
+            return Strings.toLowerCase(userID.substring(start + 1, end).trim());
+        }
+
+        if (userID.indexOf('@') > 0 && userID.indexOf(' ') < 0)
+        {
+            return Strings.toLowerCase(userID);
+        }
+
+        return null;
+    }
+
+    private static <K, T> void addFirst(Map<K, T> index, Map<K, List<T>> duplicates, K key, T ring)
+    {
+        if (!index.containsKey(key))
+        {
+            index.put(key, ring);
+        }
+        else
+        {
+            addTo(duplicates, key, ring);
+        }
+    }
+
+    private static <K, T> void addTo(Map<K, List<T>> index, K key, T ring)
+    {
+        List<T> current = index.get(key);
+        List<T> rings = new ArrayList<T>(current == null ? 1 : current.size() + 1);
+
+        if (current != null)
+        {
+            rings.addAll(current);
+        }
+        rings.add(ring);
+
+        index.put(key, rings);
+    }
+
+    private static <K, T> void removeFirst(Map<K, T> index, Map<K, List<T>> duplicates, K key, T ring)
+    {
+        removeFrom(duplicates, key, ring);
+
+        if (index.get(key) == ring)
+        {
+            // the next ring carrying the key, if there is one, takes over.
+            List<T> rings = duplicates.get(key);
+            if (rings == null)
+            {
+                index.remove(key);
+            }
+            else
+            {
+                index.put(key, rings.get(0));
+                if (rings.size() == 1)
+                {
+                    duplicates.remove(key);
+                }
+                else
+                {
+                    duplicates.put(key, new ArrayList<T>(rings.subList(1, rings.size())));
+                }
+            }
+        }
+    }
+
+    private static <K, T> void removeFrom(Map<K, List<T>> index, K key, T ring)
+    {
+        List<T> current = index.get(key);
+
+        if (current != null && current.contains(ring))
+        {
+            List<T> rings = new ArrayList<T>(current.size());
+            for (int i = 0; i != current.size(); i++)
+            {
+                if (current.get(i) != ring)
+                {
+                    rings.add(current.get(i));
+                }
+            }
+
+            if (rings.isEmpty())
+            {
+                index.remove(key);
+            }
+            else
+            {
+                index.put(key, rings);
+            }
+        }
+    }
+}
@@ -27,13 +27,16 @@
 {
     private Map<Long, PGPPublicKeyRing> pubRings = new HashMap<Long, PGPPublicKeyRing>();
     private List<Long> order = new ArrayList<Long>();
+    private volatile KeyRingIndex<PGPPublicKeyRing> index;
 
     private PGPPublicKeyRingCollection(
         Map<Long, PGPPublicKeyRing> pubRings,
-        List<Long> order)
+        List<Long> order,
+        KeyRingIndex<PGPPublicKeyRing> index)
     {
         this.pubRings = pubRings;
         this.order = order;
+        this.index = index;
     }
 
     public PGPPublicKeyRingCollection(
@@ -154,6 +157,11 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
         boolean matchPartial,
         boolean ignoreCase)
     {
+        if (!matchPartial)
+        {
+            return new ArrayList<PGPPublicKeyRing>(getIndex().getByUserID(userID, ignoreCase)).iterator();
+        }
+
         Iterator<PGPPublicKeyRing> it = this.getKeyRings();
         List<PGPPublicKeyRing> rings = new ArrayList<PGPPublicKeyRing>();
 
@@ -175,19 +183,9 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
                     next = Strings.toLowerCase(next);
                 }
 
-                if (matchPartial)
-                {
-                    if (next.indexOf(userID) >= 0)
-                    {
-                        rings.add(pubRing);
-                    }
-                }
-                else
+                if (next.indexOf(userID) >= 0)
                 {
-                    if (next.equals(userID))
-                    {
-                        rings.add(pubRing);
-                    }
+                    rings.add(pubRing);
                 }
             }
         }
@@ -195,6 +193,19 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
         return rings.iterator();
     }
 
+    /**
+     * Return an iterator of the key rings with a user ID carrying the passed in e-mail address, either
+     * in the form "Name &lt;address&gt;" or as a bare address. Case is ignored.
+     *
+     * @param email the e-mail address to be matched.
+     * @return an iterator (possibly empty) of key rings which matched.
+     */
+    public Iterator<PGPPublicKeyRing> getKeyRingsForEmail(
+        String email)
+    {
+        return new ArrayList<PGPPublicKeyRing>(getIndex().getByEmail(email)).iterator();
+    }
+
     /**
      * Return the PGP public key associated with the given key id.
      *
@@ -204,17 +215,11 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
     public PGPPublicKey getPublicKey(
         long keyID)
     {
-        Iterator<PGPPublicKeyRing> it = this.getKeyRings();
+        PGPPublicKeyRing pubRing = getIndex().getByKeyID(keyID);
 
-        while (it.hasNext())
+        if (pubRing != null)
         {
-            PGPPublicKeyRing pubRing = (PGPPublicKeyRing)it.next();
-            PGPPublicKey pub = pubRing.getPublicKey(keyID);
-
-            if (pub != null)
-            {
-                return pub;
-            }
+            return pubRing.getPublicKey(keyID);
         }
 
         return null;
@@ -236,20 +241,7 @@ public PGPPublicKeyRing getPublicKeyRing(
             return (PGPPublicKeyRing)pubRings.get(id);
         }
 
-        Iterator<PGPPublicKeyRing> it = this.getKeyRings();
-
-        while (it.hasNext())
-        {
-            PGPPublicKeyRing pubRing = (PGPPublicKeyRing)it.next();
-            PGPPublicKey pub = pubRing.getPublicKey(keyID);
-
-            if (pub != null)
-            {
-                return pubRing;
-            }
-        }
-
-        return null;
+        return getIndex().getByKeyID(keyID);
     }
 
     /**
@@ -261,17 +253,11 @@ public PGPPublicKeyRing getPublicKeyRing(
     public PGPPublicKey getPublicKey(
         byte[] fingerprint)
     {
-        Iterator<PGPPublicKeyRing> it = this.getKeyRings();
+        PGPPublicKeyRing pubRing = getIndex().getByFingerprint(fingerprint);
 
-        while (it.hasNext())
+        if (pubRing != null)
         {
-            PGPPublicKeyRing pubRing = (PGPPublicKeyRing)it.next();
-            PGPPublicKey pub = pubRing.getPublicKey(fingerprint);
-
-            if (pub != null)
-            {
-                return pub;
-            }
+            return pubRing.getPublicKey(fingerprint);
         }
 
         return null;
@@ -286,20 +272,7 @@ public PGPPublicKey getPublicKey(
     public PGPPublicKeyRing getPublicKeyRing(
         byte[] fingerprint)
     {
-        Iterator<PGPPublicKeyRing> it = this.getKeyRings();
-
-        while (it.hasNext())
-        {
-            PGPPublicKeyRing pubRing = (PGPPublicKeyRing)it.next();
-            PGPPublicKey pub = pubRing.getPublicKey(fingerprint);
-
-            if (pub != null)
-            {
-                return pubRing;
-            }
-        }
-
-        return null;
+        return getIndex().getByFingerprint(fingerprint);
     }
 
     /**
@@ -398,7 +371,14 @@ public static PGPPublicKeyRingCollection addPublicKeyRing(
         newPubRings.put(key, publicKeyRing);
         newOrder.add(key);
 
-        return new PGPPublicKeyRingCollection(newPubRings, newOrder);
+        KeyRingIndex<PGPPublicKeyRing> newIndex = null;
+        if (ringCollection.index != null)
+        {
+            newIndex = new KeyRingIndex<PGPPublicKeyRing>(ringCollection.index);
+            addToIndex(newIndex, publicKeyRing);
+        }
+
+        return new PGPPublicKeyRingCollection(newPubRings, newOrder, newIndex);
     }
 
     /**
@@ -437,7 +417,43 @@ public static PGPPublicKeyRingCollection removePublicKeyRing(
             }
         }
 
-        return new PGPPublicKeyRingCollection(newPubRings, newOrder);
+        KeyRingIndex<PGPPublicKeyRing> newIndex = null;
+        if (ringCollection.index != null)
+        {
+            newIndex = new KeyRingIndex<PGPPublicKeyRing>(ringCollection.index);
+            removeFromIndex(newIndex, ringCollection.pubRings.get(key));
+        }
+
+        return new PGPPublicKeyRingCollection(newPubRings, newOrder, newIndex);
+    }
+
+    private KeyRingIndex<PGPPublicKeyRing> getIndex()
+    {
+        KeyRingIndex<PGPPublicKeyRing> idx = index;
+
+        if (idx == null)
+        {
+            idx = new KeyRingIndex<PGPPublicKeyRing>();
+
+            for (Iterator<PGPPublicKeyRing> it = this.iterator(); it.hasNext();)
+            {
+                addToIndex(idx, it.next());
+            }
+
+            index = idx;
+        }
+
+        return idx;
+    }
+
+    private static void addToIndex(KeyRingIndex<PGPPublicKeyRing> idx, PGPPublicKeyRing pubRing)
+    {
+        idx.add(pubRing, pubRing.getPublicKeys(), pubRing.getPublicKey().getUserIDs());
+    }
+
+    private static void removeFromIndex(KeyRingIndex<PGPPublicKeyRing> idx, PGPPublicKeyRing pubRing)
+    {
+        idx.remove(pubRing, pubRing.getPublicKeys(), pubRing.getPublicKey().getUserIDs());
     }
 
     /**
@@ -27,13 +27,16 @@
 {
     private Map<Long, PGPSecretKeyRing> secretRings = new HashMap<Long, PGPSecretKeyRing>();
     private List<Long> order = new ArrayList<Long>();
+    private volatile KeyRingIndex<PGPSecretKeyRing> index;
 
     private PGPSecretKeyRingCollection(
         Map<Long, PGPSecretKeyRing> secretRings,
-        List<Long> order)
+        List<Long> order,
+        KeyRingIndex<PGPSecretKeyRing> index)
     {
         this.secretRings = secretRings;
         this.order = order;
+        this.index = index;
     }
 
     public PGPSecretKeyRingCollection(
@@ -153,6 +156,11 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
         boolean matchPartial,
         boolean ignoreCase)
     {
+        if (!matchPartial)
+        {
+            return new ArrayList<PGPSecretKeyRing>(getIndex().getByUserID(userID, ignoreCase)).iterator();
+        }
+
         Iterator<PGPSecretKeyRing> it = this.getKeyRings();
         List<PGPSecretKeyRing> rings = new ArrayList<PGPSecretKeyRing>();
 
@@ -174,19 +182,9 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
                     next = Strings.toLowerCase(next);
                 }
 
-                if (matchPartial)
-                {
-                    if (next.indexOf(userID) >= 0)
-                    {
-                        rings.add(secRing);
-                    }
-                }
-                else
+                if (next.indexOf(userID) >= 0)
                 {
-                    if (next.equals(userID))
-                    {
-                        rings.add(secRing);
-                    }
+                    rings.add(secRing);
                 }
             }
         }
@@ -194,6 +192,19 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
         return rings.iterator();
     }
 
+    /**
+     * Return an iterator of the key rings with a user ID carrying the passed in e-mail address, either
+     * in the form "Name &lt;address&gt;" or as a bare address. Case is ignored.
+     *
+     * @param email the e-mail address to be matched.
+     * @return an iterator (possibly empty) of key rings which matched.
+     */
+    public Iterator<PGPSecretKeyRing> getKeyRingsForEmail(
+        String email)
+    {
+        return new ArrayList<PGPSecretKeyRing>(getIndex().getByEmail(email)).iterator();
+    }
+
     /**
      * Return the PGP secret key associated with the given key id.
      *
@@ -203,17 +214,11 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
     public PGPSecretKey getSecretKey(
         long keyID)
     {
-        Iterator<PGPSecretKeyRing> it = this.getKeyRings();
+        PGPSecretKeyRing secRing = getIndex().getByKeyID(keyID);
 
-        while (it.hasNext())
+        if (secRing != null)
         {
-            PGPSecretKeyRing secRing = (PGPSecretKeyRing)it.next();
-            PGPSecretKey sec = secRing.getSecretKey(keyID);
-
-            if (sec != null)
-            {
-                return sec;
-            }
+            return secRing.getSecretKey(keyID);
         }
 
         return null;
@@ -235,22 +240,40 @@ public PGPSecretKeyRing getSecretKeyRing(
             return (PGPSecretKeyRing)secretRings.get(id);
         }
 
-        Iterator<PGPSecretKeyRing> it = this.getKeyRings();
+        return getIndex().getByKeyID(keyID);
+    }
 
-        while (it.hasNext())
-        {
-            PGPSecretKeyRing secretRing = (PGPSecretKeyRing)it.next();
-            PGPSecretKey secret = secretRing.getSecretKey(keyID);
+    /**
+     * Return the PGP secret key associated with the given key fingerprint.
+     *
+     * @param fingerprint the key fingerprint to match against.
+     * @return the secret key matching fingerprint, null if not present.
+     */
+    public PGPSecretKey getSecretKey(
+        byte[] fingerprint)
+    {
+        PGPSecretKeyRing secRing = getIndex().getByFingerprint(fingerprint);
 
-            if (secret != null)
-            {
-                return secretRing;
-            }
+        if (secRing != null)
+        {
+            return secRing.getSecretKey(fingerprint);
         }
 
         return null;
     }
 
+    /**
+     * Return the secret key ring which contains the secret key associated with the given key fingerprint.
+     *
+     * @param fingerprint the key fingerprint to match against.
+     * @return the secret key ring containing the key matching fingerprint, null if not present.
+     */
+    public PGPSecretKeyRing getSecretKeyRing(
+        byte[] fingerprint)
+    {
+        return getIndex().getByFingerprint(fingerprint);
+    }
+
     /**
      * Return true if a key matching the passed in key ID is present, false otherwise.
      *
@@ -312,7 +335,14 @@ public static PGPSecretKeyRingCollection addSecretKeyRing(
         newSecretRings.put(key, secretKeyRing);
         newOrder.add(key);
 
-        return new PGPSecretKeyRingCollection(newSecretRings, newOrder);
+        KeyRingIndex<PGPSecretKeyRing> newIndex = null;
+        if (ringCollection.index != null)
+        {
+            newIndex = new KeyRingIndex<PGPSecretKeyRing>(ringCollection.index);
+            addToIndex(newIndex, secretKeyRing);
+        }
+
+        return new PGPSecretKeyRingCollection(newSecretRings, newOrder, newIndex);
     }
 
     /**
@@ -351,7 +381,55 @@ public static PGPSecretKeyRingCollection removeSecretKeyRing(
             }
         }
 
-        return new PGPSecretKeyRingCollection(newSecretRings, newOrder);
+        KeyRingIndex<PGPSecretKeyRing> newIndex = null;
+        if (ringCollection.index != null)
+        {
+            newIndex = new KeyRingIndex<PGPSecretKeyRing>(ringCollection.index);
+            removeFromIndex(newIndex, ringCollection.secretRings.get(key));
+        }
+
+        return new PGPSecretKeyRingCollection(newSecretRings, newOrder, newIndex);
+    }
+
+    private KeyRingIndex<PGPSecretKeyRing> getIndex()
+    {
+        KeyRingIndex<PGPSecretKeyRing> idx = index;
+
+        if (idx == null)
+        {
+            idx = new KeyRingIndex<PGPSecretKeyRing>();
+
+            for (Iterator<PGPSecretKeyRing> it = this.iterator(); it.hasNext();)
+            {
+                addToIndex(idx, it.next());
+            }
+
+            index = idx;
+        }
+
+        return idx;
+    }
+
+    private static void addToIndex(KeyRingIndex<PGPSecretKeyRing> idx, PGPSecretKeyRing secRing)
+    {
+        idx.add(secRing, getIndexedKeys(secRing), secRing.getSecretKey().getUserIDs());
+    }
+
+    private static void removeFromIndex(KeyRingIndex<PGPSecretKeyRing> idx, PGPSecretKeyRing secRing)
+    {
+        idx.remove(secRing, getIndexedKeys(secRing), secRing.getSecretKey().getUserIDs());
+    }
+
+    // only keys with a secret part are found by key ID or fingerprint, as in PGPSecretKeyRing.getSecretKey().
+    private static Iterator<PGPPublicKey> getIndexedKeys(PGPSecretKeyRing secRing)
+    {
+        List<PGPPublicKey> keys = new ArrayList<PGPPublicKey>();
+        for (Iterator<PGPSecretKey> it = secRing.getSecretKeys(); it.hasNext();)
+        {
+            keys.add(it.next().getPublicKey());
+        }
+
+        return keys.iterator();
     }
 
     /**
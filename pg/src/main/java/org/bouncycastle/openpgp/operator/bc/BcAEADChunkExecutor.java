@@ -0,0 +1,40 @@
+package org.bouncycastle.openpgp.operator.bc;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The executor settings shared by the Bc encryptor builder and decryptor factories for processing
+ * AEAD chunks in parallel.
+ */
+class BcAEADChunkExecutor
+{
+    private Executor executor;
+    private int maxChunksInFlight;
+
+    /**
+     * Set the executor to process chunks on.
+     *
+     * @param executor          the executor to process chunks on, null for serial processing.
+     * @param maxChunksInFlight the maximum number of chunks being processed at once, 0 for the default.
+     */
+    void set(Executor executor, int maxChunksInFlight)
+    {
+        if (maxChunksInFlight < 0)
+        {
+            throw new IllegalArgumentException("maxChunksInFlight cannot be negative");
+        }
+
+        this.executor = executor;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    Executor getExecutor()
+    {
+        return executor;
+    }
+
+    int getMaxChunksInFlight()
+    {
+        return maxChunksInFlight;
+    }
+}
@@ -2,7 +2,16 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bouncycastle.bcpg.AEADAlgorithmTags;
 import org.bouncycastle.bcpg.AEADEncDataPacket;
@@ -176,6 +185,25 @@ private static AEADBlockCipher createAEADCipher(int aeadAlgorithm, Engine engine
      */
     static PGPDataDecryptor createOpenPgpV5DataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
+    {
+        return createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, null, 0);
+    }
+
+    /**
+     * Create a decryptor for OpenPGP v5 AED (AEAD Encrypted Data) packets which, if an executor is
+     * provided, decrypts up to maxChunksInFlight chunks ahead of the reader in parallel.
+     *
+     * @param aeadEncDataPacket AEAD encrypted data packet
+     * @param sessionKey        session key retrieved from a version 5 symmetric-key encrypted session key packet
+     *                          or version 3 public-key encrypted session key packet.
+     * @param executor          executor to decrypt chunks on, null for serial decryption.
+     * @param maxChunksInFlight the maximum number of chunks being decrypted at any one time.
+     * @return decryptor for AEAD encrypted data packets
+     * @throws PGPException
+     */
+    static PGPDataDecryptor createOpenPgpV5DataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey,
+                                                         final Executor executor, final int maxChunksInFlight)
+        throws PGPException
     {
         final int aeadAlgorithm = aeadEncDataPacket.getAEADAlgorithm();
         final byte[] iv = aeadEncDataPacket.getIV();
@@ -194,7 +222,8 @@ public InputStream getInputStream(InputStream in)
             {
                 try
                 {
-                    return new PGPAeadInputStream(true, in, c, secretKey, iv, encAlgorithm, aeadAlgorithm, chunkSize, aaData);
+                    return new PGPAeadInputStream(true, in, c, secretKey, iv, encAlgorithm, aeadAlgorithm, chunkSize, aaData,
+                        executor, maxChunksInFlight);
                 }
                 catch (IOException e)
                 {
@@ -225,6 +254,24 @@ public PGPDigestCalculator getIntegrityCalculator()
      */
     static PGPDataDecryptor createOpenPgpV6DataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
         throws PGPException
+    {
+        return createOpenPgpV6DataDecryptor(seipd, sessionKey, null, 0);
+    }
+
+    /**
+     * Create a data decryptor for SEIPD v2 packets which, if an executor is provided, decrypts up to
+     * maxChunksInFlight chunks ahead of the reader in parallel.
+     *
+     * @param seipd             version 2 symmetrically encrypted integrity-protected data packet
+     * @param sessionKey        session key as retrieved from a version 6 symmetric- or public-key-encrypted session key packet.
+     * @param executor          executor to decrypt chunks on, null for serial decryption.
+     * @param maxChunksInFlight the maximum number of chunks being decrypted at any one time.
+     * @return decryptor
+     * @throws PGPException
+     */
+    static PGPDataDecryptor createOpenPgpV6DataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey,
+                                                         final Executor executor, final int maxChunksInFlight)
+        throws PGPException
     {
         // We cannot handle v1 SEIPD packets in this method (OpenPGP v4)
         if (seipd.getVersion() == SymmetricEncIntegrityPacket.VERSION_1)
@@ -251,7 +298,8 @@ public InputStream getInputStream(InputStream in)
             {
                 try
                 {
-                    return new PGPAeadInputStream(false, in, c, secretKey, iv, cipherAlgo, aeadAlgo, chunkSize, aaData);
+                    return new PGPAeadInputStream(false, in, c, secretKey, iv, cipherAlgo, aeadAlgo, chunkSize, aaData,
+                        executor, maxChunksInFlight);
                 }
                 catch (IOException e)
                 {
@@ -271,6 +319,160 @@ public PGPDigestCalculator getIntegrityCalculator()
         };
     }
 
+    /**
+     * Return the default number of chunks a parallel AEAD stream will have in flight - enough to keep
+     * every processor busy while the caller reads or writes the next one.
+     *
+     * @return twice the number of available processors.
+     */
+    static int getDefaultMaxChunksInFlight()
+    {
+        return 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    private static byte[] getChunkAdata(boolean isV5StyleAEAD, byte[] aaData, long chunkIndex)
+    {
+        byte[] adata = new byte[isV5StyleAEAD ? 13 : aaData.length];
+        System.arraycopy(aaData, 0, adata, 0, aaData.length);
+
+        if (isV5StyleAEAD)
+        {
+            xorChunkId(adata, chunkIndex);
+        }
+
+        return adata;
+    }
+
+    /**
+     * Hand a chunk to the executor, processing it on the calling thread if the executor rejects it
+     * (for example because it has been shut down or its queue is full).
+     */
+    private static void queueChunkTask(Executor executor, FutureTask<byte[]> task)
+    {
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            task.run();
+        }
+    }
+
+    private static byte[] getChunkResult(FutureTask<byte[]> task)
+        throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for chunk");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException("exception processing chunk: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Ciphers for chunks being processed in parallel. Each chunk is processed with its own nonce
+     * so any free cipher will do, a new one is only created when all the existing ones are busy.
+     */
+    private static class ChunkCipherPool
+    {
+        private final Queue<AEADBlockCipher> ciphers = new ConcurrentLinkedQueue<AEADBlockCipher>();
+        private final int encAlgorithm;
+        private final int aeadAlgorithm;
+
+        ChunkCipherPool(int encAlgorithm, int aeadAlgorithm)
+        {
+            this.encAlgorithm = encAlgorithm;
+            this.aeadAlgorithm = aeadAlgorithm;
+        }
+
+        AEADBlockCipher acquire()
+            throws PGPException
+        {
+            AEADBlockCipher c = ciphers.poll();
+
+            return c != null ? c : createAEADCipher(encAlgorithm, aeadAlgorithm);
+        }
+
+        void release(AEADBlockCipher c)
+        {
+            ciphers.offer(c);
+        }
+    }
+
+    /**
+     * Encrypt or decrypt (and authenticate) a single chunk.
+     */
+    private static class ChunkTask
+        implements Callable<byte[]>
+    {
+        private final ChunkCipherPool pool;
+        private final boolean forEncryption;
+        private final KeyParameter secretKey;
+        private final byte[] nonce;
+        private final byte[] adata;
+        private final long chunkIndex;
+        private final byte[] in;
+        private final int inLen;
+
+        ChunkTask(ChunkCipherPool pool, boolean forEncryption, KeyParameter secretKey, byte[] iv, byte[] adata,
+                  long chunkIndex, byte[] in, int inLen)
+        {
+            this.pool = pool;
+            this.forEncryption = forEncryption;
+            this.secretKey = secretKey;
+            this.nonce = getNonce(iv, chunkIndex);
+            this.adata = adata;
+            this.chunkIndex = chunkIndex;
+            this.in = in;
+            this.inLen = inLen;
+        }
+
+        public byte[] call()
+            throws Exception
+        {
+            AEADBlockCipher c = pool.acquire();
+            try
+            {
+                c.init(forEncryption, new AEADParameters(secretKey, 128, nonce));  // always full tag.
+
+                c.processAADBytes(adata, 0, adata.length);
+
+                byte[] out = new byte[c.getOutputSize(inLen)];
+
+                int len = c.processBytes(in, 0, inLen, out, 0);
+
+                len += c.doFinal(out, len);
+
+                return len == out.length ? out : Arrays.copyOfRange(out, 0, len);
+            }
+            catch (InvalidCipherTextException e)
+            {
+                throw new IOException("exception processing chunk " + chunkIndex + ": " + e.getMessage());
+            }
+            finally
+            {
+                pool.release(c);
+            }
+        }
+    }
+
     protected static class PGPAeadInputStream
         extends InputStream
     {
@@ -289,6 +491,15 @@ public PGPDigestCalculator getIntegrityCalculator()
         private long totalBytes = 0;
         private final boolean isV5StyleAEAD;
 
+        // parallel decryption: chunks are read ahead and queued, in order, for decryption.
+        private final Executor executor;
+        private final int maxChunksInFlight;
+        private final ChunkCipherPool cipherPool;
+        private final LinkedList<FutureTask<byte[]>> inFlight = new LinkedList<FutureTask<byte[]>>();
+        private long readChunkIndex = 0;
+        private boolean readComplete = false;
+        private byte[] finalTag;
+
         /**
          * InputStream for decrypting AEAD encrypted data.
          *
@@ -313,6 +524,42 @@ public PGPAeadInputStream(boolean isV5StyleAEAD, InputStream in,
                                   byte[] aaData)
             throws IOException
         {
+            this(isV5StyleAEAD, in, c, secretKey, iv, encAlgorithm, aeadAlgorithm, chunkSize, aaData, null, 0);
+        }
+
+        /**
+         * InputStream for decrypting AEAD encrypted data, decrypting chunks ahead of the reader on
+         * the passed in executor. Chunks are still returned in order and only once they have been
+         * authenticated, at most maxChunksInFlight chunks are buffered at any one time.
+         *
+         * @param isV5StyleAEAD     flavour of AEAD (OpenPGP v5 or v6)
+         * @param in                underlying InputStream
+         * @param c                 decryption cipher
+         * @param secretKey         decryption key
+         * @param iv                initialization vector
+         * @param encAlgorithm      symmetric cipher algorithm
+         * @param aeadAlgorithm     AEAD algorithm
+         * @param chunkSize         chunk size of the AEAD encryption
+         * @param aaData            associated data
+         * @param executor          executor to decrypt chunks on, null for serial decryption.
+         * @param maxChunksInFlight maximum number of chunks being decrypted at once, 0 for the default.
+         * @throws IOException
+         */
+        public PGPAeadInputStream(boolean isV5StyleAEAD, InputStream in,
+                                  AEADBlockCipher c,
+                                  KeyParameter secretKey,
+                                  byte[] iv,
+                                  int encAlgorithm,
+                                  int aeadAlgorithm,
+                                  int chunkSize,
+                                  byte[] aaData,
+                                  Executor executor,
+                                  int maxChunksInFlight)
+            throws IOException
+        {
+            this.executor = executor;
+            this.maxChunksInFlight = maxChunksInFlight > 0 ? maxChunksInFlight : getDefaultMaxChunksInFlight();
+            this.cipherPool = executor != null ? new ChunkCipherPool(encAlgorithm, aeadAlgorithm) : null;
             this.isV5StyleAEAD = isV5StyleAEAD;
             this.in = in;
             this.iv = iv;
@@ -399,9 +646,25 @@ public int available()
             return data.length - dataOff;
         }
 
+        public void close()
+            throws IOException
+        {
+            while (!inFlight.isEmpty())
+            {
+                inFlight.removeFirst().cancel(false);
+            }
+
+            super.close();
+        }
+
         private byte[] readBlock()
             throws IOException
         {
+            if (executor != null)
+            {
+                return readQueuedBlock();
+            }
+
             // we initialise with the first 16 bytes as there is an additional 16 bytes following
             // the last chunk (which may not be the exact chunklength).
             int dataLen = Streams.readFully(in, buf, tagLen + tagLen, chunkLength);
@@ -441,33 +704,98 @@ private byte[] readBlock()
 
             if (dataLen != chunkLength)     // it's our last block
             {
-                adata = getAdata(isV5StyleAEAD, aaData, chunkIndex, totalBytes);
+                checkFinalTag(buf);
+            }
+            else
+            {
+                Streams.readFully(in, buf, tagLen, tagLen);   // read the next tag bytes
+            }
 
-                try
-                {
-                    c.init(false, new AEADParameters(secretKey, 128, getNonce(iv, chunkIndex)));  // always full tag.
+            return decData;
+        }
 
-                    c.processAADBytes(adata, 0, adata.length);
-                    if (isV5StyleAEAD)
-                    {
-                        c.processAADBytes(Pack.longToBigEndian(totalBytes), 0, 8);
-                    }
+        private byte[] readQueuedBlock()
+            throws IOException
+        {
+            while (!readComplete && inFlight.size() < maxChunksInFlight)
+            {
+                queueBlock();
+            }
 
-                    c.processBytes(buf, 0, tagLen, buf, 0);
+            if (inFlight.isEmpty())
+            {
+                return null;
+            }
 
-                    c.doFinal(buf, 0); // check final tag
-                }
-                catch (InvalidCipherTextException e)
-                {
-                    throw new IOException("exception processing final tag: " + e.getMessage());
-                }
+            byte[] decData = getChunkResult(inFlight.removeFirst());
+
+            totalBytes += decData.length;
+            chunkIndex++;
+
+            if (inFlight.isEmpty() && finalTag != null)     // it's our last block
+            {
+                checkFinalTag(finalTag);
+            }
+
+            return decData;
+        }
+
+        private void queueBlock()
+            throws IOException
+        {
+            // as for readBlock(), buf starts with the 2 * tag len bytes following the previous chunk.
+            int dataLen = Streams.readFully(in, buf, tagLen + tagLen, chunkLength);
+            if (dataLen == 0)
+            {
+                readComplete = true;
+                return;
+            }
+
+            byte[] encData = Arrays.copyOfRange(buf, 0, dataLen + tagLen);
+
+            System.arraycopy(buf, dataLen + tagLen, buf, 0, tagLen); // copy back the "tag"
+
+            if (dataLen != chunkLength)     // it's our last block
+            {
+                finalTag = Arrays.copyOfRange(buf, 0, tagLen);
+                readComplete = true;
             }
             else
             {
                 Streams.readFully(in, buf, tagLen, tagLen);   // read the next tag bytes
             }
 
-            return decData;
+            long index = readChunkIndex++;
+            FutureTask<byte[]> task = new FutureTask<byte[]>(new ChunkTask(cipherPool, false, secretKey, iv,
+                getChunkAdata(isV5StyleAEAD, aaData, index), index, encData, encData.length));
+
+            inFlight.addLast(task);
+            queueChunkTask(executor, task);
+        }
+
+        private void checkFinalTag(byte[] tag)
+            throws IOException
+        {
+            byte[] adata = getAdata(isV5StyleAEAD, aaData, chunkIndex, totalBytes);
+
+            try
+            {
+                c.init(false, new AEADParameters(secretKey, 128, getNonce(iv, chunkIndex)));  // always full tag.
+
+                c.processAADBytes(adata, 0, adata.length);
+                if (isV5StyleAEAD)
+                {
+                    c.processAADBytes(Pack.longToBigEndian(totalBytes), 0, 8);
+                }
+
+                c.processBytes(tag, 0, tagLen, tag, 0);
+
+                c.doFinal(tag, 0); // check final tag
+            }
+            catch (InvalidCipherTextException e)
+            {
+                throw new IOException("exception processing final tag: " + e.getMessage());
+            }
         }
 
         private static byte[] getAdata(boolean isV5StyleAEAD, byte[] aaData, long chunkIndex, long totalBytes)
@@ -494,7 +822,6 @@ private static byte[] getAdata(boolean isV5StyleAEAD, byte[] aaData, long chunkI
     {
         private final boolean isV5StyleAEAD;
         private final OutputStream out;
-        private final byte[] data;
         private final AEADBlockCipher c;
         private final KeyParameter secretKey;
         private final byte[] aaData;
@@ -502,10 +829,17 @@ private static byte[] getAdata(boolean isV5StyleAEAD, byte[] aaData, long chunkI
         private final int chunkLength;
         private final int tagLen;
 
+        private byte[] data;
         private int dataOff;
         private long chunkIndex = 0;
         private long totalBytes = 0;
 
+        // parallel encryption: full chunks are queued, and written out, in order.
+        private final Executor executor;
+        private final int maxChunksInFlight;
+        private final ChunkCipherPool cipherPool;
+        private final LinkedList<FutureTask<byte[]>> inFlight = new LinkedList<FutureTask<byte[]>>();
+
         /**
          * OutputStream for AEAD encryption.
          *
@@ -526,6 +860,38 @@ public PGPAeadOutputStream(boolean isV5StyleAEAD,
                                    int aeadAlgorithm,
                                    int chunkSize)
         {
+            this(isV5StyleAEAD, out, c, secretKey, iv, encAlgorithm, aeadAlgorithm, chunkSize, null, 0);
+        }
+
+        /**
+         * OutputStream for AEAD encryption, encrypting chunks on the passed in executor. Chunks are
+         * written to the underlying stream in order, the writer blocks once maxChunksInFlight chunks
+         * are waiting to be encrypted or written.
+         *
+         * @param isV5StyleAEAD     flavour of AEAD (OpenPGP v5 or v6)
+         * @param out               underlying OutputStream
+         * @param c                 AEAD cipher
+         * @param secretKey         secret key
+         * @param iv                initialization vector
+         * @param encAlgorithm      encryption algorithm
+         * @param aeadAlgorithm     aead algorithm
+         * @param chunkSize         chunk size of the AEAD encryption
+         * @param executor          executor to encrypt chunks on, null for serial encryption.
+         * @param maxChunksInFlight maximum number of chunks being encrypted at once, 0 for the default.
+         */
+        public PGPAeadOutputStream(boolean isV5StyleAEAD,
+                                   OutputStream out,
+                                   AEADBlockCipher c,
+                                   KeyParameter secretKey,
+                                   byte[] iv, int encAlgorithm,
+                                   int aeadAlgorithm,
+                                   int chunkSize,
+                                   Executor executor,
+                                   int maxChunksInFlight)
+        {
+            this.executor = executor;
+            this.maxChunksInFlight = maxChunksInFlight > 0 ? maxChunksInFlight : getDefaultMaxChunksInFlight();
+            this.cipherPool = executor != null ? new ChunkCipherPool(encAlgorithm, aeadAlgorithm) : null;
             this.isV5StyleAEAD = isV5StyleAEAD;
             this.out = out;
             this.iv = iv;
@@ -609,6 +975,12 @@ public void close()
         private void writeBlock()
             throws IOException
         {
+            if (executor != null)
+            {
+                queueBlock();
+                return;
+            }
+
             boolean v5StyleAEAD = isV5StyleAEAD;
 
             byte[] adata = v5StyleAEAD ? new byte[13] : new byte[aaData.length];
@@ -640,6 +1012,28 @@ private void writeBlock()
             dataOff = 0;
         }
 
+        private void queueBlock()
+            throws IOException
+        {
+            FutureTask<byte[]> task = new FutureTask<byte[]>(new ChunkTask(cipherPool, true, secretKey, iv,
+                getChunkAdata(isV5StyleAEAD, aaData, chunkIndex), chunkIndex, data, dataOff));
+
+            inFlight.addLast(task);
+            queueChunkTask(executor, task);
+
+            totalBytes += dataOff;
+            chunkIndex++;
+            dataOff = 0;
+            data = new byte[chunkLength];      // the task owns the last one now.
+
+            // write whatever is ready, waiting for the oldest chunk only if the window is full.
+            while (!inFlight.isEmpty()
+                && (inFlight.size() >= maxChunksInFlight || inFlight.getFirst().isDone()))
+            {
+                out.write(getChunkResult(inFlight.removeFirst()));
+            }
+        }
+
         private void finish()
             throws IOException
         {
@@ -647,6 +1041,10 @@ private void finish()
             {
                 writeBlock();
             }
+            while (!inFlight.isEmpty())
+            {
+                out.write(getChunkResult(inFlight.removeFirst()));
+            }
             boolean v5StyleAEAD = isV5StyleAEAD;
             byte[] adata = PGPAeadInputStream.getAdata(v5StyleAEAD, aaData, chunkIndex, totalBytes);
             try
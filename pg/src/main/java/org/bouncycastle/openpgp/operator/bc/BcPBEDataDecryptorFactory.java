@@ -1,5 +1,7 @@
 package org.bouncycastle.openpgp.operator.bc;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.SymmetricEncIntegrityPacket;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
@@ -27,6 +29,8 @@
 public class BcPBEDataDecryptorFactory
     extends PBEDataDecryptorFactory
 {
+    private final BcAEADChunkExecutor chunkExecutor = new BcAEADChunkExecutor();
+
     /**
      * Base constructor.
      *
@@ -38,6 +42,34 @@ public BcPBEDataDecryptorFactory(char[] pass, BcPGPDigestCalculatorProvider calc
         super(pass, calculatorProvider);
     }
 
+    /**
+     * Decrypt AEAD chunks in parallel on the passed in executor, reading ahead up to twice as many
+     * chunks as there are available processors.
+     *
+     * @param executor the executor to decrypt chunks on, null for serial decryption.
+     * @return the current factory.
+     */
+    public BcPBEDataDecryptorFactory setExecutor(Executor executor)
+    {
+        return setExecutor(executor, 0);
+    }
+
+    /**
+     * Decrypt AEAD chunks in parallel on the passed in executor. Data is still only returned in order
+     * and once it has been authenticated, memory use is bounded by maxChunksInFlight times the chunk
+     * size. This has no effect on non-AEAD encrypted data.
+     *
+     * @param executor          the executor to decrypt chunks on, null for serial decryption.
+     * @param maxChunksInFlight the maximum number of chunks being decrypted at once, 0 for the default.
+     * @return the current factory.
+     */
+    public BcPBEDataDecryptorFactory setExecutor(Executor executor, int maxChunksInFlight)
+    {
+        chunkExecutor.set(executor, maxChunksInFlight);
+
+        return this;
+    }
+
     /**
      * Recover the session key from a version 4 SKESK packet used in OpenPGP v4.
      *
@@ -146,7 +178,8 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
     public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey);
+        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, chunkExecutor.getExecutor(),
+            chunkExecutor.getMaxChunksInFlight());
     }
 
     // OpenPGP v6
@@ -154,6 +187,7 @@ public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket,
     public PGPDataDecryptor createDataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey);
+        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey, chunkExecutor.getExecutor(),
+            chunkExecutor.getMaxChunksInFlight());
     }
 }
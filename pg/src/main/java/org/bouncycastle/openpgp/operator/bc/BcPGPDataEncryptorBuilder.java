@@ -2,6 +2,7 @@
 
 import java.io.OutputStream;
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.bcpg.AEADUtils;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
@@ -31,6 +32,7 @@
     private boolean isV5StyleAEAD = true; // TODO: change to false in 1.75
     private int aeadAlgorithm = -1;
     private int chunkSize;
+    private final BcAEADChunkExecutor chunkExecutor = new BcAEADChunkExecutor();
 
     /**
      * Constructs a new data encryptor builder for a specified cipher type.
@@ -126,6 +128,34 @@ public BcPGPDataEncryptorBuilder setSecureRandom(SecureRandom random)
         return this;
     }
 
+    /**
+     * Encrypt AEAD chunks in parallel on the passed in executor, with up to twice as many chunks in
+     * flight as there are available processors.
+     *
+     * @param executor the executor to encrypt chunks on, null for serial encryption.
+     * @return the current builder.
+     */
+    public BcPGPDataEncryptorBuilder setExecutor(Executor executor)
+    {
+        return setExecutor(executor, 0);
+    }
+
+    /**
+     * Encrypt AEAD chunks in parallel on the passed in executor. Chunks are still written in order,
+     * memory use is bounded by maxChunksInFlight times the chunk size. This has no effect unless AEAD
+     * is in use.
+     *
+     * @param executor          the executor to encrypt chunks on, null for serial encryption.
+     * @param maxChunksInFlight the maximum number of chunks being encrypted at once, 0 for the default.
+     * @return the current builder.
+     */
+    public BcPGPDataEncryptorBuilder setExecutor(Executor executor, int maxChunksInFlight)
+    {
+        chunkExecutor.set(executor, maxChunksInFlight);
+
+        return this;
+    }
+
     @Override
     public int getAlgorithm()
     {
@@ -258,7 +288,8 @@ public OutputStream getOutputStream(OutputStream out)
         {
             try
             {
-                return new BcAEADUtil.PGPAeadOutputStream(isV5StyleAEAD, out, c, new KeyParameter(keyBytes), iv, encAlgorithm, aeadAlgorithm, chunkSize);
+                return new BcAEADUtil.PGPAeadOutputStream(isV5StyleAEAD, out, c, new KeyParameter(keyBytes), iv, encAlgorithm, aeadAlgorithm, chunkSize,
+                    chunkExecutor.getExecutor(), chunkExecutor.getMaxChunksInFlight());
             }
             catch (Exception e)
             {
@@ -2,6 +2,7 @@
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.asn1.cryptlib.CryptlibObjectIdentifiers;
 import org.bouncycastle.bcpg.AEADEncDataPacket;
@@ -49,11 +50,41 @@
 
     private final PGPPrivateKey pgpPrivKey;
 
+    private final BcAEADChunkExecutor chunkExecutor = new BcAEADChunkExecutor();
+
     public BcPublicKeyDataDecryptorFactory(PGPPrivateKey pgpPrivKey)
     {
         this.pgpPrivKey = pgpPrivKey;
     }
 
+    /**
+     * Decrypt AEAD chunks in parallel on the passed in executor, reading ahead up to twice as many
+     * chunks as there are available processors.
+     *
+     * @param executor the executor to decrypt chunks on, null for serial decryption.
+     * @return the current factory.
+     */
+    public BcPublicKeyDataDecryptorFactory setExecutor(Executor executor)
+    {
+        return setExecutor(executor, 0);
+    }
+
+    /**
+     * Decrypt AEAD chunks in parallel on the passed in executor. Data is still only returned in order
+     * and once it has been authenticated, memory use is bounded by maxChunksInFlight times the chunk
+     * size. This has no effect on non-AEAD encrypted data.
+     *
+     * @param executor          the executor to decrypt chunks on, null for serial decryption.
+     * @param maxChunksInFlight the maximum number of chunks being decrypted at once, 0 for the default.
+     * @return the current factory.
+     */
+    public BcPublicKeyDataDecryptorFactory setExecutor(Executor executor, int maxChunksInFlight)
+    {
+        chunkExecutor.set(executor, maxChunksInFlight);
+
+        return this;
+    }
+
     @Override
     public byte[] recoverSessionData(int keyAlgorithm, byte[][] secKeyData)
         throws PGPException
@@ -213,7 +244,8 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
     public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey);
+        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, chunkExecutor.getExecutor(),
+            chunkExecutor.getMaxChunksInFlight());
     }
 
     // OpenPGP v6
@@ -221,7 +253,8 @@ public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket,
     public PGPDataDecryptor createDataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey);
+        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey, chunkExecutor.getExecutor(),
+            chunkExecutor.getMaxChunksInFlight());
     }
 
     @FunctionalInterface
@@ -8,6 +8,8 @@
 import java.security.SecureRandom;
 import java.security.Security;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.bcpg.AEADAlgorithmTags;
 import org.bouncycastle.bcpg.ArmoredInputStream;
@@ -127,6 +129,8 @@ public void performTest()
 
         roundTripEncryptionDecryptionTests();
 
+        parallelChunkTests();
+
         paddingPacketTests();
 
         preferredAEADAlgorithmsTests();
@@ -496,6 +500,131 @@ private static String algNames(int aeadAlg, int symAlg)
         return out;
     }
 
+    private void parallelChunkTests()
+        throws Exception
+    {
+        int[] aeadAlgs = new int[]{
+            AEADAlgorithmTags.EAX,
+            AEADAlgorithmTags.OCB,
+            AEADAlgorithmTags.GCM
+        };
+        SecureRandom random = new SecureRandom();
+        // chunks are 64 bytes, so many chunks, a partial last chunk, and a single partial chunk.
+        byte[][] plaintexts = new byte[][]{ new byte[100000], new byte[64 * 1000 - 20], new byte[10] };
+        for (int i = 0; i != plaintexts.length; i++)
+        {
+            random.nextBytes(plaintexts[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (int i = 0; i != aeadAlgs.length; i++)
+            {
+                for (int j = 0; j != plaintexts.length; j++)
+                {
+                    testParallelRoundTrip(true, aeadAlgs[i], plaintexts[j], executor);
+                    testParallelRoundTrip(false, aeadAlgs[i], plaintexts[j], executor);
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // a shut down executor rejects every chunk, they should be processed on the calling thread instead.
+        testParallelRoundTrip(true, AEADAlgorithmTags.OCB, plaintexts[0], executor);
+        testParallelRoundTrip(false, AEADAlgorithmTags.GCM, plaintexts[1], executor);
+    }
+
+    private void testParallelRoundTrip(boolean v5AEAD, int aeadAlg, byte[] plaintext, ExecutorService executor)
+        throws Exception
+    {
+        byte[] parallel = encryptBc(v5AEAD, aeadAlg, plaintext, executor);
+
+        // parallel encryption has to produce a message the serial code accepts, and vice versa.
+        isTrue(Arrays.areEqual(plaintext, decryptBc(parallel, null)));
+        isTrue(Arrays.areEqual(plaintext, decryptBc(parallel, executor)));
+        isTrue(Arrays.areEqual(plaintext, decryptBc(encryptBc(v5AEAD, aeadAlg, plaintext, null), executor)));
+
+        byte[] tampered = Arrays.clone(parallel);
+        tampered[tampered.length / 2] ^= 1;
+        try
+        {
+            decryptBc(tampered, executor);
+            fail("tampered chunk not detected");
+        }
+        catch (Exception e)
+        {
+            // expected
+        }
+
+        // damage the final tag.
+        tampered = Arrays.clone(parallel);
+        tampered[tampered.length - 1] ^= 1;
+        try
+        {
+            decryptBc(tampered, executor);
+            fail("tampered final tag not detected");
+        }
+        catch (Exception e)
+        {
+            // expected
+        }
+    }
+
+    private byte[] encryptBc(boolean v5AEAD, int aeadAlg, byte[] plaintext, ExecutorService executor)
+        throws PGPException, IOException
+    {
+        ByteArrayOutputStream ciphertextOut = new ByteArrayOutputStream();
+        BcPGPDataEncryptorBuilder encBuilder = new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128);
+        if (v5AEAD)
+        {
+            encBuilder.setUseV5AEAD();
+        }
+        else
+        {
+            encBuilder.setUseV6AEAD();
+        }
+        encBuilder.setWithAEAD(aeadAlg, 6);
+        encBuilder.setExecutor(executor, 8);
+
+        PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(encBuilder, false);
+        encGen.setForceSessionKey(true);
+        encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator(PASSWORD,
+            new BcPGPDigestCalculatorProvider().get(HashAlgorithmTags.SHA256)));
+        OutputStream encOut = encGen.open(ciphertextOut, new byte[1 << 9]);
+        PGPLiteralDataGenerator litGen = new PGPLiteralDataGenerator();
+        OutputStream litOut = litGen.open(encOut, PGPLiteralData.BINARY, "", new Date(), new byte[1 << 9]);
+
+        litOut.write(plaintext);
+        litOut.close();
+        encOut.close();
+
+        return ciphertextOut.toByteArray();
+    }
+
+    private byte[] decryptBc(byte[] message, ExecutorService executor)
+        throws PGPException, IOException
+    {
+        PGPObjectFactory objectFactory = new BcPGPObjectFactory(message);
+        PGPEncryptedDataList encryptedDataList = (PGPEncryptedDataList)objectFactory.nextObject();
+        PGPPBEEncryptedData symEncData = (PGPPBEEncryptedData)encryptedDataList.get(0);
+
+        BcPBEDataDecryptorFactory decryptorFactory = new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider());
+        decryptorFactory.setExecutor(executor, 8);
+
+        objectFactory = new BcPGPObjectFactory(symEncData.getDataStream(decryptorFactory));
+        PGPLiteralData literalData = (PGPLiteralData)objectFactory.nextObject();
+
+        byte[] plaintext = Streams.readAll(literalData.getDataStream());
+
+        isTrue(objectFactory.nextObject() == null);
+
+        return plaintext;
+    }
+
     private void paddingPacketTests()
         throws IOException
     {
@@ -10,8 +10,10 @@
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.Security;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.crypto.Cipher;
 
@@ -42,6 +44,7 @@
 import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSecretKey;
 import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSignature;
 import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
 import org.bouncycastle.openpgp.PGPSignatureSubpacketVector;
@@ -3561,6 +3564,7 @@ public void performTest()
             testKeyRingWithMarker();
             testKeyRingGeneratorDirectKeySignedPrimaryKey();
             testSubKeyCreation();
+            testCollectionIndexes();
         }
         catch (PGPException e)
         {
@@ -3576,6 +3580,199 @@ public void performTest()
         }
     }
 
+    private void testCollectionIndexes()
+        throws Exception
+    {
+        List<PGPPublicKeyRing> pubList = new ArrayList<PGPPublicKeyRing>();
+        byte[][] pubs = new byte[][] { pub1, pub2, pub3, pub5 };
+        for (int i = 0; i != pubs.length; i++)
+        {
+            for (Iterator<PGPPublicKeyRing> it = new JcaPGPPublicKeyRingCollection(pubs[i]).iterator(); it.hasNext();)
+            {
+                pubList.add(it.next());
+            }
+        }
+
+        PGPPublicKeyRingCollection pubRings = new PGPPublicKeyRingCollection(pubList);
+
+        for (int i = 0; i != pubList.size(); i++)
+        {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing)pubList.get(i);
+
+            checkPublicIndexes(pubRings, ring, true);
+        }
+
+        isTrue(pubRings.getPublicKey(0x0102030405060708L) == null);
+        isTrue(pubRings.getPublicKeyRing(new byte[20]) == null);
+        isTrue(!pubRings.getKeyRings("no such user").hasNext());
+        isTrue(!pubRings.getKeyRingsForEmail("nobody@example.com").hasNext());
+
+        // removal and re-insertion keep the indexes in step with the collection
+        PGPPublicKeyRing removed = (PGPPublicKeyRing)pubList.get(1);
+        PGPPublicKeyRingCollection smaller = PGPPublicKeyRingCollection.removePublicKeyRing(pubRings, removed);
+
+        checkPublicIndexes(smaller, removed, false);
+        checkPublicIndexes(smaller, (PGPPublicKeyRing)pubList.get(0), true);
+        checkPublicIndexes(pubRings, removed, true);
+
+        PGPPublicKeyRingCollection restored = PGPPublicKeyRingCollection.addPublicKeyRing(smaller, removed);
+
+        for (int i = 0; i != pubList.size(); i++)
+        {
+            checkPublicIndexes(restored, (PGPPublicKeyRing)pubList.get(i), true);
+        }
+
+        // a subkey carried by two rings is found in the first, then in the second once the first is removed
+        PGPPublicKeyRing first = null;
+        PGPPublicKey subKey = null;
+        for (int i = 0; i != pubList.size() && first == null; i++)
+        {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing)pubList.get(i);
+            for (Iterator<PGPPublicKey> it = ring.getPublicKeys(); it.hasNext();)
+            {
+                PGPPublicKey key = (PGPPublicKey)it.next();
+                if (!key.isMasterKey())
+                {
+                    first = ring;
+                    subKey = key;
+                    break;
+                }
+            }
+        }
+        PGPPublicKeyRing other = (PGPPublicKeyRing)pubList.get(first == pubList.get(0) ? 1 : 0);
+        PGPPublicKeyRing second = PGPPublicKeyRing.insertPublicKey(other, subKey);
+        PGPPublicKeyRing unrelated = (PGPPublicKeyRing)pubList.get(pubList.size() - 1);
+
+        List<PGPPublicKeyRing> dupList = new ArrayList<PGPPublicKeyRing>();
+        dupList.add(first);
+        dupList.add(second);
+        dupList.add(unrelated);
+
+        PGPPublicKeyRingCollection dupRings = new PGPPublicKeyRingCollection(dupList);
+
+        isTrue(first == dupRings.getPublicKeyRing(subKey.getKeyID()));
+        isTrue(first == dupRings.getPublicKeyRing(subKey.getFingerprint()));
+
+        PGPPublicKeyRingCollection dupSmaller = PGPPublicKeyRingCollection.removePublicKeyRing(dupRings, unrelated);
+
+        checkPublicIndexes(dupSmaller, unrelated, false);
+        isTrue(first == dupSmaller.getPublicKeyRing(subKey.getKeyID()));
+
+        dupSmaller = PGPPublicKeyRingCollection.removePublicKeyRing(dupSmaller, first);
+
+        isTrue(second == dupSmaller.getPublicKeyRing(subKey.getKeyID()));
+        isTrue(second == dupSmaller.getPublicKeyRing(subKey.getFingerprint()));
+        checkPublicIndexes(dupSmaller, second, true);
+
+        dupSmaller = PGPPublicKeyRingCollection.removePublicKeyRing(dupSmaller, second);
+
+        isTrue(dupSmaller.getPublicKeyRing(subKey.getKeyID()) == null);
+        isTrue(dupSmaller.getPublicKeyRing(subKey.getFingerprint()) == null);
+
+        List<PGPSecretKeyRing> secList = new ArrayList<PGPSecretKeyRing>();
+        byte[][] secs = new byte[][] { sec1, sec2, sec3, sec5 };
+        for (int i = 0; i != secs.length; i++)
+        {
+            for (Iterator<PGPSecretKeyRing> it = new JcaPGPSecretKeyRingCollection(secs[i]).iterator(); it.hasNext();)
+            {
+                secList.add(it.next());
+            }
+        }
+
+        PGPSecretKeyRingCollection secRings = new PGPSecretKeyRingCollection(secList);
+
+        for (int i = 0; i != secList.size(); i++)
+        {
+            checkSecretIndexes(secRings, (PGPSecretKeyRing)secList.get(i), true);
+        }
+
+        PGPSecretKeyRing removedSec = (PGPSecretKeyRing)secList.get(0);
+        PGPSecretKeyRingCollection smallerSec = PGPSecretKeyRingCollection.removeSecretKeyRing(secRings, removedSec);
+
+        checkSecretIndexes(smallerSec, removedSec, false);
+        checkSecretIndexes(PGPSecretKeyRingCollection.addSecretKeyRing(smallerSec, removedSec), removedSec, true);
+    }
+
+    private void checkPublicIndexes(PGPPublicKeyRingCollection pubRings, PGPPublicKeyRing ring, boolean present)
+    {
+        for (Iterator<PGPPublicKey> it = ring.getPublicKeys(); it.hasNext();)
+        {
+            PGPPublicKey key = (PGPPublicKey)it.next();
+
+            if (present)
+            {
+                isEquals(key.getKeyID(), pubRings.getPublicKey(key.getKeyID()).getKeyID());
+                isTrue(ring == pubRings.getPublicKeyRing(key.getKeyID()));
+                isTrue(pubRings.getPublicKey(key.getFingerprint()).hasFingerprint(key.getFingerprint()));
+                isTrue(ring == pubRings.getPublicKeyRing(key.getFingerprint()));
+                isTrue(pubRings.contains(key.getKeyID()));
+            }
+            else
+            {
+                isTrue(pubRings.getPublicKey(key.getKeyID()) == null);
+                isTrue(pubRings.getPublicKeyRing(key.getFingerprint()) == null);
+            }
+        }
+
+        for (Iterator<String> it = ring.getPublicKey().getUserIDs(); it.hasNext();)
+        {
+            String id = (String)it.next();
+
+            isEquals(present, contains(pubRings.getKeyRings(id), ring));
+            isEquals(present, contains(pubRings.getKeyRings(Strings.toUpperCase(id), false, true), ring));
+            isEquals(present, contains(pubRings.getKeyRings(id.substring(1), true), ring));
+
+            int start = id.indexOf('<');
+            if (start >= 0)
+            {
+                isEquals(present, contains(pubRings.getKeyRingsForEmail(Strings.toUpperCase(id.substring(start + 1, id.indexOf('>', start)))), ring));
+            }
+        }
+    }
+
+    private void checkSecretIndexes(PGPSecretKeyRingCollection secRings, PGPSecretKeyRing ring, boolean present)
+    {
+        for (Iterator<PGPSecretKey> it = ring.getSecretKeys(); it.hasNext();)
+        {
+            PGPSecretKey key = (PGPSecretKey)it.next();
+            byte[] fingerprint = key.getPublicKey().getFingerprint();
+
+            if (present)
+            {
+                isEquals(key.getKeyID(), secRings.getSecretKey(key.getKeyID()).getKeyID());
+                isTrue(ring == secRings.getSecretKeyRing(key.getKeyID()));
+                isEquals(key.getKeyID(), secRings.getSecretKey(fingerprint).getKeyID());
+                isTrue(ring == secRings.getSecretKeyRing(fingerprint));
+            }
+            else
+            {
+                isTrue(secRings.getSecretKey(key.getKeyID()) == null);
+                isTrue(secRings.getSecretKey(fingerprint) == null);
+            }
+        }
+
+        for (Iterator<String> it = ring.getSecretKey().getUserIDs(); it.hasNext();)
+        {
+            String id = (String)it.next();
+
+            isEquals(present, contains(secRings.getKeyRings(id), ring));
+            isEquals(present, contains(secRings.getKeyRings(Strings.toLowerCase(id), false, true), ring));
+        }
+    }
+
+    private static boolean contains(Iterator it, Object ring)
+    {
+        while (it.hasNext())
+        {
+            if (it.next() == ring)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private void testSubKeyCreation()
         throws Exception
     {
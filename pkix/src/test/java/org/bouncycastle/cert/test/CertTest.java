@@ -5316,6 +5316,51 @@ private void testIndirect2()
         {
             fail("JCA 2 certificate issuer incorrect");
         }
+
+        // repeated lookups are answered from the CRL's serial number index
+        for (int i = 0; i != 2; i++)
+        {
+            isTrue("JCA 3 certificate issuer incorrect", crl.getRevokedCertificate(BigInteger.valueOf(100)).getCertificateIssuer() == null);
+            isEquals("JCA 4 certificate issuer incorrect", new X500Principal(caName.getEncoded()), crl.getRevokedCertificate(BigInteger.valueOf(130)).getCertificateIssuer());
+            isEquals("JCA 5 certificate issuer incorrect", new X500Principal(caName.getEncoded()), crl.getRevokedCertificate(certificate.getSerialNumber()).getCertificateIssuer());
+            isTrue("unexpected CRL entry", crl.getRevokedCertificate(BigInteger.valueOf(110)) == null);
+        }
+    }
+
+    private void testLargeCRLLookup()
+        throws Exception
+    {
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC", BC);
+
+        kpGen.initialize(256);
+
+        KeyPair pair = kpGen.generateKeyPair();
+        Date now = new Date();
+
+        X509v2CRLBuilder crlGen = new JcaX509v2CRLBuilder(new X500Principal("CN=Test CA"), now);
+
+        for (int i = 0; i != 5000; i++)
+        {
+            crlGen.addCRLEntry(BigInteger.valueOf(2 * i + 1), now, i % 7);
+        }
+
+        X509CRL crl = new JcaX509CRLConverter().setProvider(BC).getCRL(
+            crlGen.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider(BC).build(pair.getPrivate())));
+
+        for (int i = 0; i < 10000; i += 7)
+        {
+            X509CRLEntry entry = crl.getRevokedCertificate(BigInteger.valueOf(i));
+
+            if ((i & 1) == 0)
+            {
+                isTrue("unexpected CRL entry " + i, entry == null);
+            }
+            else
+            {
+                isEquals("wrong CRL entry", BigInteger.valueOf(i), entry.getSerialNumber());
+                isEquals("wrong CRL entry", now.getTime() / 1000, entry.getRevocationDate().getTime() / 1000);
+            }
+        }
     }
 
     // issuing distribution point must be set for an indirect CRL to be recognised
@@ -5591,6 +5636,7 @@ public void performTest()
         testDirect();
         testIndirect();
         testIndirect2();
+        testLargeCRLLookup();
         testMalformedIndirect();
 
         checkCertificate(1, cert1);
@@ -0,0 +1,515 @@
+package org.bouncycastle.jce.provider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.Extension;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.ocsp.CertID;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.test.OCSPTestUtil;
+import org.bouncycastle.jcajce.PKIXCertRevocationCheckerParameters;
+import org.bouncycastle.jcajce.PKIXExtendedParameters;
+import org.bouncycastle.jcajce.util.BCJcaJceHelper;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.io.Streams;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Exercise the provider's OCSP response cache against local responders. This lives in the provider's
+ * package so expiry and refresh can be checked on a cache with its own clock and executor.
+ */
+public class OcspCacheTest
+    extends SimpleTest
+{
+    private static final String BC = "BC";
+
+    private DigestCalculatorProvider digCalcProv;
+    private KeyPair ocspKp;
+    private X509Certificate ca;
+    private X509Certificate ee;
+    private X509Certificate ocsp;
+    private CertPath certPath;
+    private Set trust;
+    private volatile long cacheTime;
+
+    public String getName()
+    {
+        return "OcspCache";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        digCalcProv = new JcaDigestCalculatorProviderBuilder().setProvider(BC).build();
+
+        KeyPair rootKp = OCSPTestUtil.makeKeyPair();
+        KeyPair caKp = OCSPTestUtil.makeKeyPair();
+        KeyPair eeKp = OCSPTestUtil.makeKeyPair();
+
+        ocspKp = OCSPTestUtil.makeKeyPair();
+
+        X509Certificate root = OCSPTestUtil.makeRootCertificate(rootKp, "CN=Root");
+
+        ca = OCSPTestUtil.makeCertificate(caKp, "CN=CA", rootKp, root, true);
+        ee = OCSPTestUtil.makeCertificate(eeKp, "CN=EE", caKp, ca, false);
+        ocsp = OCSPTestUtil.makeRootCertificate(ocspKp, "CN=OCSP");
+
+        List list = new ArrayList();
+        list.add(ee);
+        list.add(ca);
+
+        certPath = CertificateFactory.getInstance("X.509", BC).generateCertPath(list);
+
+        trust = new HashSet();
+        trust.add(new TrustAnchor(root, null));
+
+        testCacheHit();
+        testCoalescing();
+        testCoalescingValidDate();
+        testRefresh();
+        testRefreshFailure();
+    }
+
+    private void testCacheHit()
+        throws Exception
+    {
+        OCSPResponder responder = new OCSPResponder(60 * 60 * 1000L, 0);
+
+        validate(responder.getURI());
+        validate(responder.getURI());
+        validate(responder.getURI());
+
+        isEquals("cached response not used", 1, responder.getRequestCount());
+
+        responder.close();
+    }
+
+    private void testCoalescing()
+        throws Exception
+    {
+        final OCSPResponder responder = new OCSPResponder(60 * 60 * 1000L, 500);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i != threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        validate(responder.getURI());
+                    }
+                    catch (Exception e)
+                    {
+                        failures.add(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        start.countDown();
+
+        for (int i = 0; i != threads.length; i++)
+        {
+            threads[i].join();
+        }
+
+        isTrue("concurrent validation failed: " + failures, failures.isEmpty());
+        isEquals("concurrent fetches not coalesced", 1, responder.getRequestCount());
+
+        responder.close();
+    }
+
+    private void testCoalescingValidDate()
+        throws Exception
+    {
+        final OCSPResponder responder = new OCSPResponder(10000, 500);
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    validate(responder.getURI());
+                }
+                catch (Exception e)
+                {
+                    failures.add(e);
+                }
+            }
+        };
+        thread.start();
+
+        Thread.sleep(100);
+
+        // joins the pending fetch, but the shared response has expired by our valid date.
+        try
+        {
+            validate(responder.getURI(), new Date(System.currentTimeMillis() + 20000));
+            fail("expired response accepted");
+        }
+        catch (CertPathValidatorException e)
+        {
+            // expected
+        }
+
+        thread.join();
+
+        isTrue("validation failed: " + failures, failures.isEmpty());
+        isEquals("shared response not checked against valid date", 2, responder.getRequestCount());
+
+        responder.close();
+    }
+
+    private void testRefresh()
+        throws Exception
+    {
+        OCSPResponder responder = new OCSPResponder(8000, 0);
+
+        long start = startCacheTime();
+        OcspCache cache = createCache();
+        try
+        {
+            fetch(cache, responder.getURI(), new Date(start));
+            fetch(cache, responder.getURI(), new Date(start));
+
+            isEquals(1, responder.getRequestCount());
+
+            // past three quarters of the lifetime - served from cache, refreshed in the background
+            setCacheTime(start + 6500);
+
+            fetch(cache, responder.getURI(), new Date(start + 6500));
+
+            isEquals("response not refreshed", 2, responder.getRequestCount());
+
+            // past the original nextUpdate - the refreshed response should be used.
+            setCacheTime(start + 9000);
+
+            fetch(cache, responder.getURI(), new Date(start + 9000));
+
+            isEquals("refreshed response not used", 2, responder.getRequestCount());
+        }
+        finally
+        {
+            resetCacheTime();
+            responder.close();
+        }
+    }
+
+    private void testRefreshFailure()
+        throws Exception
+    {
+        OCSPResponder responder = new OCSPResponder(8000, 0);
+
+        long start = startCacheTime();
+        OcspCache cache = createCache();
+        try
+        {
+            fetch(cache, responder.getURI(), new Date(start));
+
+            isEquals(1, responder.getRequestCount());
+
+            // past three quarters of the lifetime - the background refresh fails
+            setCacheTime(start + 6500);
+
+            responder.setFailing(true);
+
+            fetch(cache, responder.getURI(), new Date(start + 6500));
+
+            // HttpURLConnection may retry a POST after the connection is dropped, so this can be more than 2.
+            int requestCount = responder.getRequestCount();
+
+            isTrue("refresh not attempted", requestCount > 1);
+
+            responder.setFailing(false);
+
+            // the refresh should be retried on a later request, before the response expires
+            setCacheTime(start + 7000);
+
+            fetch(cache, responder.getURI(), new Date(start + 7000));
+
+            isEquals("failed refresh not retried", requestCount + 1, responder.getRequestCount());
+
+            // past the original nextUpdate - the refreshed response should be used.
+            setCacheTime(start + 9000);
+
+            fetch(cache, responder.getURI(), new Date(start + 9000));
+
+            isEquals("refreshed response not used", requestCount + 1, responder.getRequestCount());
+        }
+        finally
+        {
+            resetCacheTime();
+            responder.close();
+        }
+    }
+
+    /*
+     * Fix the time seen by caches from createCache() and by the responders. Returns the starting time.
+     */
+    private long startCacheTime()
+    {
+        // GeneralizedTime is only encoded to the second, start on one so response times are exact.
+        long start = System.currentTimeMillis() / 1000 * 1000;
+
+        setCacheTime(start);
+
+        return start;
+    }
+
+    private void setCacheTime(long time)
+    {
+        cacheTime = time;
+    }
+
+    private void resetCacheTime()
+    {
+        setCacheTime(0);
+    }
+
+    /*
+     * A cache following our clock and running its refreshes on the calling thread, so expiry and
+     * refresh can be checked without waiting.
+     */
+    private OcspCache createCache()
+    {
+        return new OcspCache(new OcspCache.Clock()
+        {
+            public long currentTimeMillis()
+            {
+                return now();
+            }
+        }, new Executor()
+        {
+            public void execute(Runnable r)
+            {
+                r.run();
+            }
+        });
+    }
+
+    private long now()
+    {
+        long time = cacheTime;
+
+        return time != 0 ? time : System.currentTimeMillis();
+    }
+
+    private void validate(URI responderURI)
+        throws Exception
+    {
+        validate(responderURI, null);
+    }
+
+    private void validate(URI responderURI, Date validDate)
+        throws Exception
+    {
+        CertPathValidator cpv = CertPathValidator.getInstance("PKIX", BC);
+
+        PKIXRevocationChecker rv = (PKIXRevocationChecker)cpv.getRevocationChecker();
+
+        rv.setOcspResponder(responderURI);
+        rv.setOptions(Collections.singleton(PKIXRevocationChecker.Option.ONLY_END_ENTITY));
+        rv.setOcspResponderCert(ocsp);
+
+        PKIXParameters param = new PKIXParameters(trust);
+
+        param.setDate(validDate);
+        param.addCertPathChecker(rv);
+
+        cpv.validate(certPath, param);
+    }
+
+    private void fetch(OcspCache cache, URI responderURI, Date validDate)
+        throws Exception
+    {
+        CertID certID = new CertificateID(digCalcProv.get(CertificateID.HASH_SHA1), new JcaX509CertificateHolder(ca), ee.getSerialNumber()).toASN1Primitive();
+
+        PKIXParameters param = new PKIXParameters(trust);
+
+        param.setDate(validDate);
+
+        PKIXCertRevocationCheckerParameters parameters = new PKIXCertRevocationCheckerParameters(
+            new PKIXExtendedParameters.Builder(param).build(), validDate, certPath, 0, ca, ca.getPublicKey());
+
+        cache.getOcspResponse(certID, parameters, responderURI, ocsp, Collections.<Extension>emptyList(), new BCJcaJceHelper());
+    }
+
+    private byte[] getOcspResponse(long lifetime)
+        throws Exception
+    {
+        BasicOCSPRespBuilder respGen = new JcaBasicOCSPRespBuilder(ocspKp.getPublic(), digCalcProv.get(RespID.HASH_SHA1));
+
+        CertificateID eeID = new CertificateID(digCalcProv.get(CertificateID.HASH_SHA1), new JcaX509CertificateHolder(ca), ee.getSerialNumber());
+
+        Date now = new Date(now());
+        // GeneralizedTime is only encoded to the second, round up so the lifetime is at least as requested.
+        Date nextUpdate = new Date((now.getTime() + lifetime + 999) / 1000 * 1000);
+
+        respGen.addResponse(eeID, CertificateStatus.GOOD, now, nextUpdate);
+
+        BasicOCSPResp resp = respGen.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider(BC).build(ocspKp.getPrivate()), null, now);
+
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, resp).getEncoded();
+    }
+
+    private class OCSPResponder
+        implements Runnable
+    {
+        private final ServerSocket ss;
+        private final long lifetime;
+        private final long delay;
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private volatile boolean failing;
+
+        OCSPResponder(long lifetime, long delay)
+            throws IOException
+        {
+            this.ss = new ServerSocket(0);
+            this.lifetime = lifetime;
+            this.delay = delay;
+
+            Thread t = new Thread(this);
+
+            t.setDaemon(true);
+            t.start();
+        }
+
+        URI getURI()
+        {
+            return URI.create("http://localhost:" + ss.getLocalPort() + "/");
+        }
+
+        int getRequestCount()
+        {
+            return requestCount.get();
+        }
+
+        void setFailing(boolean failing)
+        {
+            this.failing = failing;
+        }
+
+        void close()
+            throws IOException
+        {
+            ss.close();
+        }
+
+        public void run()
+        {
+            try
+            {
+                for (;;)
+                {
+                    Socket s = ss.accept();
+
+                    InputStream sIn = s.getInputStream();
+                    ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+                    int ch;
+                    int contentLength = 0;
+                    while ((ch = sIn.read()) >= 0)
+                    {
+                        bOut.write(ch);
+                        if (ch == '\n')
+                        {
+                            String line = Strings.fromByteArray(bOut.toByteArray()).trim();
+                            if (line.startsWith("Content-Length"))
+                            {
+                                contentLength = Integer.parseInt(line.substring("Content-Length: ".length()));
+                            }
+                            if (line.length() == 0)
+                            {
+                                break;
+                            }
+                            bOut.reset();
+                        }
+                    }
+
+                    byte[] request = new byte[contentLength];
+                    Streams.readFully(sIn, request);
+
+                    requestCount.incrementAndGet();
+
+                    if (failing)
+                    {
+                        s.close();
+                        continue;
+                    }
+
+                    if (delay > 0)
+                    {
+                        Thread.sleep(delay);
+                    }
+
+                    byte[] resp = getOcspResponse(lifetime);
+
+                    OutputStream sOut = s.getOutputStream();
+
+                    sOut.write(Strings.toByteArray("HTTP/1.1 200 OK\r\n"));
+                    sOut.write(Strings.toByteArray("Content-type: application/ocsp-response\r\n"));
+                    sOut.write(Strings.toByteArray("Content-Length: " + resp.length + "\r\n"));
+                    sOut.write(Strings.toByteArray("\r\n"));
+                    sOut.write(resp);
+                    sOut.flush();
+                    sOut.close();
+                    s.close();
+                }
+            }
+            catch (Exception e)
+            {
+                // closed
+            }
+        }
+    }
+
+    public static void main(
+        String[] args)
+        throws Exception
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new OcspCacheTest());
+    }
+}
@@ -21,9 +21,11 @@
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.security.auth.x500.X500Principal;
@@ -74,6 +76,9 @@
     protected byte[] sigAlgParams;
     protected boolean isIndirect;
 
+    private volatile boolean isScanned;
+    private volatile Map<BigInteger, X509CRLEntryObject> revokedIndex;
+
     X509CRLImpl(JcaJceHelper bcHelper, CertificateList c, String sigAlgName, byte[] sigAlgParams, boolean isIndirect)
     {
         this.bcHelper = bcHelper;
@@ -445,6 +450,25 @@ private Set loadCRLEntries()
     }
 
     public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
+    {
+        Map<BigInteger, X509CRLEntryObject> index = revokedIndex;
+        if (index == null)
+        {
+            // a one off lookup is cheaper as a scan, if we're asked again build the index.
+            if (!isScanned)
+            {
+                isScanned = true;
+                return findRevokedCertificate(serialNumber);
+            }
+
+            index = loadRevokedIndex();
+            revokedIndex = index;
+        }
+
+        return index.get(serialNumber);
+    }
+
+    private X509CRLEntry findRevokedCertificate(BigInteger serialNumber)
     {
         Enumeration certs = c.getRevokedCertificateEnumeration();
 
@@ -472,6 +496,37 @@ public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
         return null;
     }
 
+    private Map<BigInteger, X509CRLEntryObject> loadRevokedIndex()
+    {
+        Map<BigInteger, X509CRLEntryObject> index = new HashMap<BigInteger, X509CRLEntryObject>();
+        TBSCertList.CRLEntry[] entries = c.getRevokedCertificates();
+
+        X500Name previousCertificateIssuer = null; // the issuer
+        for (int i = 0; i != entries.length; i++)
+        {
+            TBSCertList.CRLEntry entry = entries[i];
+            BigInteger serialNumber = entry.getUserCertificate().getValue();
+
+            // first entry wins, as with a scan.
+            if (!index.containsKey(serialNumber))
+            {
+                index.put(serialNumber, new X509CRLEntryObject(entry, isIndirect, previousCertificateIssuer));
+            }
+
+            if (isIndirect && entry.hasExtensions())
+            {
+                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+
+                if (currentCaName != null)
+                {
+                    previousCertificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
+                }
+            }
+        }
+
+        return index;
+    }
+
     public Set getRevokedCertificates()
     {
         Set entrySet = loadCRLEntries();
@@ -3,7 +3,6 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.security.cert.CRL;
@@ -12,13 +11,12 @@
 import java.security.cert.X509CRL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 import javax.naming.Context;
 import javax.naming.NamingException;
@@ -28,51 +26,60 @@
 import javax.naming.directory.InitialDirContext;
 
 import org.bouncycastle.jcajce.PKIXCRLStore;
-import org.bouncycastle.util.CollectionStore;
 import org.bouncycastle.util.Iterable;
+import org.bouncycastle.util.Properties;
 import org.bouncycastle.util.Selector;
-import org.bouncycastle.util.Store;
 
+/**
+ * Cache of the CRLs retrieved from distribution points.
+ * <p>
+ * CRLs are held until the earliest nextUpdate of the CRLs found at a distribution point (or for a
+ * configurable maximum age where no nextUpdate is given), with least recently used distribution
+ * points evicted once the cache is full. Revocation lookups on the cached CRLs are indexed by serial
+ * number by the provider's X509CRL implementation, so keeping the parsed CRLs also keeps their index.
+ * </p>
+ * <p>
+ * The cache can be configured using the following system/security properties:
+ * <ul>
+ * <li>org.bouncycastle.crl.cache.maxEntries - the maximum number of distribution points cached (default 128).</li>
+ * <li>org.bouncycastle.crl.cache.maxAge - the lifetime, in seconds, of CRLs without a nextUpdate (default 3600).</li>
+ * </ul>
+ * </p>
+ */
 class CrlCache
 {
     private static final int DEFAULT_TIMEOUT = 15000;
+    private static final int DEFAULT_MAX_ENTRIES = 128;
+    private static final int DEFAULT_MAX_AGE = 3600;
 
-    private static Map<URI, WeakReference<PKIXCRLStore>> cache =
-        Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<PKIXCRLStore>>());
+    private static final int maxEntries = Properties.asInteger("org.bouncycastle.crl.cache.maxEntries", DEFAULT_MAX_ENTRIES);
+    private static final long maxAge = Properties.asInteger("org.bouncycastle.crl.cache.maxAge", DEFAULT_MAX_AGE) * 1000L;
 
-    static synchronized PKIXCRLStore getCrl(CertificateFactory certFact, Date validDate, URI distributionPoint)
-        throws IOException, CRLException
+    private static final Map<URI, CachedCRLs> cache = new LinkedHashMap<URI, CachedCRLs>(16, 0.75f, true)
     {
-        PKIXCRLStore crlStore = null;
-
-        WeakReference<PKIXCRLStore> markerRef = (WeakReference)cache.get(distributionPoint);
-        if (markerRef != null)
+        protected boolean removeEldestEntry(Map.Entry<URI, CachedCRLs> eldest)
         {
-            crlStore = (PKIXCRLStore)markerRef.get();
+            return size() > maxEntries;
         }
+    };
+
+    static synchronized PKIXCRLStore<CRL> getCrl(CertificateFactory certFact, Date validDate, URI distributionPoint)
+        throws IOException, CRLException
+    {
+        long now = System.currentTimeMillis();
 
-        if (crlStore != null)
+        CachedCRLs cached = cache.get(distributionPoint);
+        if (cached != null)
         {
-            boolean isExpired = false;
-            for (Iterator it = crlStore.getMatches(null).iterator(); it.hasNext();)
+            if (now < cached.expiryTime && (cached.nextUpdate == null || !cached.nextUpdate.before(validDate)))
             {
-                X509CRL crl = (X509CRL)it.next();
-
-                Date nextUpdate = crl.getNextUpdate();
-                if (nextUpdate != null && nextUpdate.before(validDate))
-                {
-                    isExpired = true;
-                    break;
-                }
+                return cached.crlStore;
             }
 
-            if (!isExpired)
-            {
-                return crlStore;
-            }
+            cache.remove(distributionPoint);
         }
 
-        Collection crls;
+        Collection<? extends CRL> crls;
 
         if (distributionPoint.getScheme().equals("ldap"))
         {
@@ -84,14 +91,38 @@ static synchronized PKIXCRLStore getCrl(CertificateFactory certFact, Date validD
             crls = getCrls(certFact, distributionPoint);
         }
 
-        LocalCRLStore localCRLStore = new LocalCRLStore(new CollectionStore<CRL>(crls));
+        LocalCRLStore localCRLStore = new LocalCRLStore(crls);
+
+        // the store is only as fresh as its stalest CRL.
+        Date nextUpdate = null;
+        for (Iterator<? extends CRL> it = crls.iterator(); it.hasNext();)
+        {
+            Date crlNextUpdate = ((X509CRL)it.next()).getNextUpdate();
 
-        cache.put(distributionPoint, new WeakReference<PKIXCRLStore>(localCRLStore));
+            if (crlNextUpdate != null && (nextUpdate == null || crlNextUpdate.before(nextUpdate)))
+            {
+                nextUpdate = crlNextUpdate;
+            }
+        }
+
+        long expiryTime = (nextUpdate != null) ? nextUpdate.getTime() : now + maxAge;
+        if (expiryTime > now)
+        {
+            for (Iterator<CachedCRLs> it = cache.values().iterator(); it.hasNext();)
+            {
+                if (now >= it.next().expiryTime)
+                {
+                    it.remove();
+                }
+            }
+
+            cache.put(distributionPoint, new CachedCRLs(localCRLStore, nextUpdate, expiryTime));
+        }
 
         return localCRLStore;
     }
 
-    private static Collection getCrlsFromLDAP(CertificateFactory certFact, URI distributionPoint)
+    private static Collection<? extends CRL> getCrlsFromLDAP(CertificateFactory certFact, URI distributionPoint)
         throws IOException, CRLException
     {
         Map<String, String> env = new Hashtable<String, String>();
@@ -122,7 +153,7 @@ private static Collection getCrlsFromLDAP(CertificateFactory certFact, URI distr
         }
     }
 
-    private static Collection getCrls(CertificateFactory certFact, URI distributionPoint)
+    private static Collection<? extends CRL> getCrls(CertificateFactory certFact, URI distributionPoint)
         throws IOException, CRLException
     {
         HttpURLConnection crlCon = (HttpURLConnection)distributionPoint.toURL().openConnection();
@@ -131,15 +162,15 @@ private static Collection getCrls(CertificateFactory certFact, URI distributionP
 
         InputStream crlIn = crlCon.getInputStream();
 
-        Collection crls = certFact.generateCRLs(crlIn);
+        Collection<? extends CRL> crls = certFact.generateCRLs(crlIn);
 
         crlIn.close();
 
         return crls;
     }
 
-    private static class LocalCRLStore<T extends CRL>
-        implements PKIXCRLStore, Iterable<CRL>
+    private static class LocalCRLStore
+        implements PKIXCRLStore<CRL>, Iterable<CRL>
     {
         private Collection<CRL> _local;
 
@@ -149,9 +180,9 @@ private static Collection getCrls(CertificateFactory certFact, URI distributionP
          * @param collection - initial contents for the store, this is copied.
          */
         public LocalCRLStore(
-            Store<CRL> collection)
+            Collection<? extends CRL> collection)
         {
-            _local = new ArrayList<CRL>(collection.getMatches(null));
+            _local = new ArrayList<CRL>(collection);
         }
 
         /**
@@ -160,7 +191,7 @@ public LocalCRLStore(
          * @param selector the selector to match against.
          * @return a possibly empty collection of matching objects.
          */
-        public Collection getMatches(Selector selector)
+        public Collection<CRL> getMatches(Selector<CRL> selector)
         {
             if (selector == null)
             {
@@ -190,4 +221,18 @@ public Iterator<CRL> iterator()
             return getMatches(null).iterator();
         }
     }
+
+    private static class CachedCRLs
+    {
+        private final PKIXCRLStore<CRL> crlStore;
+        private final Date nextUpdate;
+        private final long expiryTime;
+
+        CachedCRLs(PKIXCRLStore<CRL> crlStore, Date nextUpdate, long expiryTime)
+        {
+            this.crlStore = crlStore;
+            this.nextUpdate = nextUpdate;
+            this.expiryTime = expiryTime;
+        }
+    }
 }
@@ -3,7 +3,6 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -12,11 +11,23 @@
 import java.security.cert.Extension;
 import java.security.cert.X509Certificate;
 import java.text.ParseException;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bouncycastle.asn1.ASN1EncodableVector;
 import org.bouncycastle.asn1.ASN1GeneralizedTime;
@@ -38,72 +49,362 @@
 import org.bouncycastle.asn1.x509.Extensions;
 import org.bouncycastle.jcajce.PKIXCertRevocationCheckerParameters;
 import org.bouncycastle.jcajce.util.JcaJceHelper;
+import org.bouncycastle.util.Properties;
 import org.bouncycastle.util.io.Streams;
 
+/**
+ * A bounded cache of OCSP responses keyed by responder and CertID.
+ * <p>
+ * Entries honour the nextUpdate of the matching SingleResponse (or a configurable maximum age where
+ * no nextUpdate is given), are evicted in least recently used order once the cache is full, and are
+ * refreshed in the background once a configurable part of their lifetime has passed. Concurrent
+ * requests for the same CertID share a single request to the responder. Requests carrying a nonce
+ * are always sent to the responder.
+ * </p>
+ * <p>
+ * The cache can be configured using the following system/security properties:
+ * <ul>
+ * <li>org.bouncycastle.ocsp.cache.maxEntries - the maximum number of cached responses (default 1024).</li>
+ * <li>org.bouncycastle.ocsp.cache.maxAge - the lifetime, in seconds, of responses without a nextUpdate (default 300).</li>
+ * <li>org.bouncycastle.ocsp.cache.refreshPercent - the percentage of a response's lifetime after which it is
+ * refreshed (default 75).</li>
+ * </ul>
+ * </p>
+ */
 class OcspCache
 {
     private static final int DEFAULT_TIMEOUT = 15000;
     private static final int DEFAULT_MAX_RESPONSE_SIZE = 32 * 1024;
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+    private static final int DEFAULT_MAX_AGE = 300;
+    private static final int DEFAULT_REFRESH_PERCENT = 75;
+    private static final long SWEEP_INTERVAL = 60 * 1000L;
 
-    private static Map<URI, WeakReference<Map<CertID, OCSPResponse>>> cache
-        = Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<Map<CertID, OCSPResponse>>>());
+    private static final int maxEntries = Properties.asInteger("org.bouncycastle.ocsp.cache.maxEntries", DEFAULT_MAX_ENTRIES);
+    private static final long maxAge = Properties.asInteger("org.bouncycastle.ocsp.cache.maxAge", DEFAULT_MAX_AGE) * 1000L;
+    private static final int refreshPercent = getRefreshPercent();
 
-    static OCSPResponse getOcspResponse(
+    private static final Executor defaultRefresher = new ThreadPoolExecutor(0, 4, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "BC OCSP cache refresh");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+    private static final Clock systemClock = new Clock()
+    {
+        public long currentTimeMillis()
+        {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Source of the time used for expiry and refresh decisions.
+     */
+    interface Clock
+    {
+        long currentTimeMillis();
+    }
+
+    private final Map<ResponseKey, CachedResponse> cache = new LinkedHashMap<ResponseKey, CachedResponse>(16, 0.75f, true)
+    {
+        protected boolean removeEldestEntry(Map.Entry<ResponseKey, CachedResponse> eldest)
+        {
+            return size() > maxEntries;
+        }
+    };
+
+    private final ConcurrentMap<ResponseKey, FutureTask<OCSPResponse>> pending
+        = new ConcurrentHashMap<ResponseKey, FutureTask<OCSPResponse>>();
+
+    private final Clock clock;
+    private final Executor refresher;
+
+    private long nextSweepTime = 0;
+
+    OcspCache()
+    {
+        this(systemClock, defaultRefresher);
+    }
+
+    /**
+     * Base constructor.
+     *
+     * @param clock the source of the time used for expiry and refresh decisions.
+     * @param refresher the executor background refreshes are run on.
+     */
+    OcspCache(Clock clock, Executor refresher)
+    {
+        this.clock = clock;
+        this.refresher = refresher;
+    }
+
+    OCSPResponse getOcspResponse(
         CertID certID, PKIXCertRevocationCheckerParameters parameters,
         URI ocspResponder, X509Certificate responderCert, List<Extension> ocspExtensions,
         JcaJceHelper helper)
         throws CertPathValidatorException
     {
-        Map<CertID, OCSPResponse> responseMap = null;
+        ResponseKey key = new ResponseKey(ocspResponder, certID, responderCert);
 
-        WeakReference<Map<CertID, OCSPResponse>> markerRef = cache.get(ocspResponder);
-        if (markerRef != null)
+        // a nonce asks for a fresh response, so it is never answered from the cache or shared.
+        if (getNonce(ocspExtensions) != null)
         {
-            responseMap = markerRef.get();
+            return fetchOcspResponse(key, parameters, ocspExtensions, helper);
         }
 
-        if (responseMap != null)
+        long now = clock.currentTimeMillis();
+        CachedResponse cached;
+
+        synchronized (cache)
         {
-            OCSPResponse response = responseMap.get(certID);
-            if (response != null)
+            cached = cache.get(key);
+            if (cached != null && (now >= cached.expiryTime || !cached.isValidAt(parameters.getValidDate())))
             {
-                BasicOCSPResponse basicResp = BasicOCSPResponse.getInstance(
-                    ASN1OctetString.getInstance(response.getResponseBytes().getResponse()).getOctets());
+                cache.remove(key);
+                cached = null;
+            }
+        }
 
-                ResponseData responseData = ResponseData.getInstance(basicResp.getTbsResponseData());
+        if (cached != null)
+        {
+            if (now >= cached.refreshTime && cached.refreshing.compareAndSet(false, true))
+            {
+                scheduleRefresh(cached, key, parameters, ocspExtensions, helper);
+            }
 
-                ASN1Sequence s = responseData.getResponses();
+            return cached.response;
+        }
 
-                for (int i = 0; i != s.size(); i++)
-                {
-                    SingleResponse resp = SingleResponse.getInstance(s.getObjectAt(i));
+        FutureTask<OCSPResponse> task = new FutureTask<OCSPResponse>(new ResponseFetcher(key, parameters, ocspExtensions, helper));
+        FutureTask<OCSPResponse> existing = pending.putIfAbsent(key, task);
+        if (existing == null)
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                pending.remove(key, task);
+            }
+
+            return getResult(task, parameters);
+        }
 
-                    if (certID.equals(resp.getCertID()))
+        // the shared response was validated for another caller's valid date, so check it against ours.
+        OCSPResponse response = getResult(existing, parameters);
+        if (!isValidAt(key.certID, response, parameters.getValidDate()))
+        {
+            return fetchOcspResponse(key, parameters, ocspExtensions, helper);
+        }
+
+        return response;
+    }
+
+    private void scheduleRefresh(final CachedResponse cached, final ResponseKey key,
+        final PKIXCertRevocationCheckerParameters parameters, final List<Extension> ocspExtensions,
+        final JcaJceHelper helper)
+    {
+        final FutureTask<OCSPResponse> task = new FutureTask<OCSPResponse>(new ResponseFetcher(key, parameters, ocspExtensions, helper));
+        if (pending.putIfAbsent(key, task) != null)
+        {
+            // already being fetched - if that fails, a later caller can try again.
+            cached.refreshing.set(false);
+            return;
+        }
+
+        try
+        {
+            refresher.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
                     {
-                        ASN1GeneralizedTime nextUp = resp.getNextUpdate();
-                        try
-                        {
-                            if (nextUp != null && parameters.getValidDate().after(nextUp.getDate()))
-                            {
-                                responseMap.remove(certID);
-                                response = null;
-                            }
-                        }
-                        catch (ParseException e)
-                        {
-                            // this should never happen, but...
-                            responseMap.remove(certID);
-                            response = null;
-                        }
+                        task.run();
+                    }
+                    finally
+                    {
+                        pending.remove(key, task);
+                        // a successful refresh replaces the entry, otherwise allow another attempt.
+                        cached.refreshing.set(false);
                     }
                 }
-                if (response != null)
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // refresher busy, try again on a later request.
+            pending.remove(key, task);
+            cached.refreshing.set(false);
+        }
+    }
+
+    private static OCSPResponse getResult(FutureTask<OCSPResponse> task, PKIXCertRevocationCheckerParameters parameters)
+        throws CertPathValidatorException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CertPathValidatorException("interrupted waiting for OCSP response",
+                e, parameters.getCertPath(), parameters.getIndex());
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof CertPathValidatorException)
+            {
+                CertPathValidatorException ce = (CertPathValidatorException)cause;
+                if (ce.getCertPath() == parameters.getCertPath() && ce.getIndex() == parameters.getIndex())
+                {
+                    throw ce;
+                }
+                // raised on behalf of another caller - report it against our own path.
+                throw new CertPathValidatorException(ce.getMessage(), ce.getCause(), parameters.getCertPath(), parameters.getIndex());
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new CertPathValidatorException("OCSP request failed: " + cause.getMessage(),
+                cause, parameters.getCertPath(), parameters.getIndex());
+        }
+    }
+
+    private void cacheResponse(ResponseKey key, OCSPResponse response)
+    {
+        long now = clock.currentTimeMillis();
+        Date nextUpdate;
+
+        try
+        {
+            nextUpdate = getNextUpdate(key.certID, response);
+        }
+        catch (ParseException e)
+        {
+            // this should never happen, but if it does don't cache the response.
+            return;
+        }
+
+        long expiryTime = (nextUpdate != null) ? nextUpdate.getTime() : now + maxAge;
+        if (expiryTime <= now)
+        {
+            return;
+        }
+
+        CachedResponse entry = new CachedResponse(response, nextUpdate, expiryTime, now + (expiryTime - now) / 100 * refreshPercent);
+
+        synchronized (cache)
+        {
+            if (now >= nextSweepTime)
+            {
+                for (Iterator<CachedResponse> it = cache.values().iterator(); it.hasNext();)
                 {
-                    return response;
+                    if (now >= it.next().expiryTime)
+                    {
+                        it.remove();
+                    }
                 }
+                nextSweepTime = now + SWEEP_INTERVAL;
+            }
+
+            cache.put(key, entry);
+        }
+    }
+
+    private static int getRefreshPercent()
+    {
+        int percent = Properties.asInteger("org.bouncycastle.ocsp.cache.refreshPercent", DEFAULT_REFRESH_PERCENT);
+
+        return (percent > 0 && percent <= 100) ? percent : DEFAULT_REFRESH_PERCENT;
+    }
+
+    private static boolean isValidAt(CertID certID, OCSPResponse response, Date validDate)
+    {
+        try
+        {
+            Date nextUpdate = getNextUpdate(certID, response);
+
+            return nextUpdate == null || !validDate.after(nextUpdate);
+        }
+        catch (ParseException e)
+        {
+            return false;
+        }
+    }
+
+    private static Date getNextUpdate(CertID certID, OCSPResponse response)
+        throws ParseException
+    {
+        BasicOCSPResponse basicResp = BasicOCSPResponse.getInstance(
+            ASN1OctetString.getInstance(response.getResponseBytes().getResponse()).getOctets());
+
+        ResponseData responseData = ResponseData.getInstance(basicResp.getTbsResponseData());
+
+        ASN1Sequence s = responseData.getResponses();
+
+        for (int i = 0; i != s.size(); i++)
+        {
+            SingleResponse resp = SingleResponse.getInstance(s.getObjectAt(i));
+
+            if (isSameCertID(certID, resp.getCertID()))
+            {
+                ASN1GeneralizedTime nextUp = resp.getNextUpdate();
+
+                return nextUp == null ? null : nextUp.getDate();
             }
         }
 
+        return null;
+    }
+
+    // compare ignoring the encoding of the hash algorithm parameters (absent vs NULL).
+    private static boolean isSameCertID(CertID a, CertID b)
+    {
+        return a.getSerialNumber().equals(b.getSerialNumber())
+            && a.getIssuerKeyHash().equals(b.getIssuerKeyHash())
+            && a.getIssuerNameHash().equals(b.getIssuerNameHash())
+            && a.getHashAlgorithm().getAlgorithm().equals(b.getHashAlgorithm().getAlgorithm());
+    }
+
+    private static byte[] getNonce(List<Extension> ocspExtensions)
+    {
+        for (int i = 0; i != ocspExtensions.size(); i++)
+        {
+            Extension ext = ocspExtensions.get(i);
+
+            if (OCSPObjectIdentifiers.id_pkix_ocsp_nonce.getId().equals(ext.getId()))
+            {
+                return ext.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private OCSPResponse fetchOcspResponse(
+        ResponseKey key, PKIXCertRevocationCheckerParameters parameters,
+        List<Extension> ocspExtensions, JcaJceHelper helper)
+        throws CertPathValidatorException
+    {
+        URI ocspResponder = key.responder;
+        CertID certID = key.certID;
+        X509Certificate responderCert = key.responderCert;
+
         URL ocspUrl;
         try
         {
@@ -199,22 +500,7 @@ static OCSPResponse getOcspResponse(
                         "OCSP response failed to validate", null, parameters.getCertPath(), parameters.getIndex());
                 }
 
-                markerRef = cache.get(ocspResponder);
-                if (markerRef != null)
-                {
-                    responseMap = markerRef.get();
-                }
-
-                if (responseMap != null)
-                {
-                    responseMap.put(certID, response);
-                }
-                else
-                {
-                    responseMap = new HashMap<CertID, OCSPResponse>();
-                    responseMap.put(certID, response);
-                    cache.put(ocspResponder, new WeakReference<Map<CertID, OCSPResponse>>(responseMap));
-                }
+                cacheResponse(key, response);
 
                 return response;
             }
@@ -231,4 +517,86 @@ static OCSPResponse getOcspResponse(
                      e, parameters.getCertPath(), parameters.getIndex());
         }
     }
+
+    private class ResponseFetcher
+        implements Callable<OCSPResponse>
+    {
+        private final ResponseKey key;
+        private final PKIXCertRevocationCheckerParameters parameters;
+        private final List<Extension> ocspExtensions;
+        private final JcaJceHelper helper;
+
+        ResponseFetcher(ResponseKey key, PKIXCertRevocationCheckerParameters parameters, List<Extension> ocspExtensions, JcaJceHelper helper)
+        {
+            this.key = key;
+            this.parameters = parameters;
+            this.ocspExtensions = ocspExtensions;
+            this.helper = helper;
+        }
+
+        public OCSPResponse call()
+            throws CertPathValidatorException
+        {
+            return fetchOcspResponse(key, parameters, ocspExtensions, helper);
+        }
+    }
+
+    private static class ResponseKey
+    {
+        private final URI responder;
+        private final CertID certID;
+        private final X509Certificate responderCert;
+
+        ResponseKey(URI responder, CertID certID, X509Certificate responderCert)
+        {
+            this.responder = responder;
+            this.certID = certID;
+            this.responderCert = responderCert;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof ResponseKey))
+            {
+                return false;
+            }
+
+            ResponseKey other = (ResponseKey)o;
+
+            return responder.equals(other.responder)
+                && certID.equals(other.certID)
+                && (responderCert == null ? other.responderCert == null : responderCert.equals(other.responderCert));
+        }
+
+        public int hashCode()
+        {
+            return responder.hashCode() * 31 + certID.hashCode();
+        }
+    }
+
+    private static class CachedResponse
+    {
+        private final OCSPResponse response;
+        private final Date nextUpdate;
+        private final long expiryTime;
+        private final long refreshTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        CachedResponse(OCSPResponse response, Date nextUpdate, long expiryTime, long refreshTime)
+        {
+            this.response = response;
+            this.nextUpdate = nextUpdate;
+            this.expiryTime = expiryTime;
+            this.refreshTime = refreshTime;
+        }
+
+        boolean isValidAt(Date validDate)
+        {
+            return nextUpdate == null || !validDate.after(nextUpdate);
+        }
+    }
 }
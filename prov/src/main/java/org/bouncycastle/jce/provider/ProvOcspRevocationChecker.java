@@ -76,6 +76,8 @@
 
     private static final Map oids = new HashMap();
 
+    private static final OcspCache ocspCache = new OcspCache();
+
     static
     {
         //
@@ -216,7 +218,7 @@ public void check(Certificate certificate)
             // TODO: configure hash algorithm
             CertID id = createCertID(new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1), issuer, new ASN1Integer(cert.getSerialNumber()));
 
-            OCSPResponse response = OcspCache.getOcspResponse(id, parameters, ocspUri, parent.getOcspResponderCert(), parent.getOcspExtensions(), helper);
+            OCSPResponse response = ocspCache.getOcspResponse(id, parameters, ocspUri, parent.getOcspResponderCert(), parent.getOcspExtensions(), helper);
 
             try
             {
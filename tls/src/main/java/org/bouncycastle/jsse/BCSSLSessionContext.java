@@ -0,0 +1,103 @@
+package org.bouncycastle.jsse;
+
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * A BCJSSE-specific interface providing access to extended session cache functionality.
+ */
+public interface BCSSLSessionContext
+    extends SSLSessionContext
+{
+    /**
+     * Returns the number of session lookups that found a valid cached session.
+     *
+     * @return The number of cache hits since this context was created.
+     */
+    long getCacheHitCount();
+
+    /**
+     * Returns the number of session lookups that did not find a valid cached session.
+     *
+     * @return The number of cache misses since this context was created.
+     */
+    long getCacheMissCount();
+
+    /**
+     * Returns the number of sessions removed from the cache to keep it within the session cache size.
+     * Sessions removed because they expired, were invalidated, or were reclaimed by the garbage collector are
+     * not included.
+     *
+     * @return The number of cache evictions since this context was created.
+     */
+    long getCacheEvictionCount();
+
+    /**
+     * Returns whether a server using this context issues stateless session tickets. See
+     * {@link #setStatelessSessionTickets(boolean)}.
+     *
+     * @return true if stateless session tickets are enabled.
+     */
+    boolean isStatelessSessionTickets();
+
+    /**
+     * Enables or disables stateless session tickets for a server using this context. When enabled, the state of
+     * each new session is encrypted into the ticket issued to the client (RFC 5077 for TLS 1.2, RFC 8446 4.6.1.
+     * for TLS 1.3) instead of being cached, so that resumption doesn't depend on the size of the session cache. The
+     * default is given by the "jdk.tls.server.enableSessionTicketExtension" system property (false if unset).
+     * <p>
+     * Has no effect on a client session context.
+     * </p>
+     *
+     * @param statelessSessionTickets true to enable stateless session tickets.
+     */
+    void setStatelessSessionTickets(boolean statelessSessionTickets);
+
+    /**
+     * Returns the number of seconds a session ticket key is used to protect new tickets. See
+     * {@link #setSessionTicketKeyTimeout(int)}.
+     *
+     * @return the session ticket key timeout in seconds, 0 meaning keys are not rotated.
+     */
+    int getSessionTicketKeyTimeout();
+
+    /**
+     * Sets the number of seconds a session ticket key is used to protect new tickets, after which a new key is
+     * started. Earlier keys remain valid for decrypting tickets for the session timeout, so tickets issued just
+     * before a rotation can still be redeemed. The default is given by the "jdk.tls.server.statelessKeyTimeout"
+     * system property (3600 if unset).
+     *
+     * @param seconds the session ticket key timeout in seconds, 0 to not rotate keys.
+     * @throws IllegalArgumentException if seconds is negative.
+     */
+    void setSessionTicketKeyTimeout(int seconds) throws IllegalArgumentException;
+
+    /**
+     * Installs a key protecting stateless session tickets, so that servers (e.g. all those in a deployment) given
+     * the same keys can resume each other's tickets. The key is used for new tickets from now on, for the validity
+     * period, and is then still accepted for the grace period, which should normally be at least the session
+     * timeout. The previous key stops being used for new tickets and starts its own grace period; installing a key
+     * again under the same name replaces it.
+     * <p>
+     * Once a key has been installed this context no longer generates keys of its own (and ignores the session
+     * ticket key timeout), and no stateless tickets are issued while none of the installed keys is current. Has no
+     * effect on a client session context.
+     * </p>
+     *
+     * @param keyName the 16 byte name identifying the key in the tickets it protects.
+     * @param encryptionKey the 16 byte AES key used to encrypt the tickets.
+     * @param macKey the 32 byte HMAC-SHA256 key used to authenticate the tickets.
+     * @param validitySeconds the number of seconds the key is used for new tickets, 0 meaning until another key is
+     *                        installed or {@link #rotateSessionTicketKeys()} is called.
+     * @param graceSeconds the number of seconds the key is still accepted once it is no longer used for new tickets.
+     * @throws IllegalArgumentException if a key has the wrong length, or either period is negative.
+     */
+    void installSessionTicketKey(byte[] keyName, byte[] encryptionKey, byte[] macKey, int validitySeconds,
+        int graceSeconds) throws IllegalArgumentException;
+
+    /**
+     * Immediately starts a new session ticket key, e.g. if the current one may have been exposed. Tickets
+     * already issued under earlier keys remain valid until those keys expire. If keys have been installed (see
+     * {@link #installSessionTicketKey}), the current one is retired and no new key is started.
+     */
+    void rotateSessionTicketKeys();
+}
@@ -1,58 +1,99 @@
 package org.bouncycastle.jsse.provider;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLSession;
-import javax.net.ssl.SSLSessionContext;
 
+import org.bouncycastle.jsse.BCSNIServerName;
+import org.bouncycastle.jsse.BCSSLSessionContext;
+import org.bouncycastle.tls.EarlyDataReplayFilter;
+import org.bouncycastle.tls.ServerName;
 import org.bouncycastle.tls.SessionID;
+import org.bouncycastle.tls.SessionParameters;
 import org.bouncycastle.tls.TlsSession;
 import org.bouncycastle.tls.TlsUtils;
 import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
 
 class ProvSSLSessionContext
-    implements SSLSessionContext
+    implements BCSSLSessionContext
 {
     private static final Logger LOG = Logger.getLogger(ProvSSLSessionContext.class.getName());
 
     private static final int provSessionCacheSize = PropertyUtils
         .getIntegerSystemProperty("javax.net.ssl.sessionCacheSize", 20480, 0, Integer.MAX_VALUE);
 
-    // NOTE: This is configured as a simple LRU cache using the "access order" constructor
-    @SuppressWarnings("serial")
-    protected final Map<SessionID, SessionEntry> sessionsByID = new LinkedHashMap<SessionID, SessionEntry>(16, 0.75f, true)
-    {
-        protected boolean removeEldestEntry(Map.Entry<SessionID, SessionEntry> eldest)
-        {
-            boolean shouldRemove = sessionCacheSize > 0 && size() > sessionCacheSize;
-            if (shouldRemove)
-            {
-                removeSessionByPeer(eldest.getValue());
-            }
-            return shouldRemove;
-        }
-    };
-    protected final Map<String, SessionEntry> sessionsByPeer = new HashMap<String, SessionEntry>();
+    private static final boolean provServerEnableStatelessTickets = PropertyUtils
+        .getBooleanSystemProperty("jdk.tls.server.enableSessionTicketExtension", false);
+
+    private static final int provServerStatelessKeyTimeout = PropertyUtils
+        .getIntegerSystemProperty("jdk.tls.server.statelessKeyTimeout", 3600, 0, Integer.MAX_VALUE);
+
+    // RFC 8446 4.6.1. Servers MUST NOT use any value greater than 604800 seconds (7 days).
+    private static final int MAX_TICKET_LIFETIME_SECONDS = 604800;
+
+    // RFC 8446 8.3. Permitted ticket age skew, and ClientHellos recorded, for accepting TLS 1.3 early data
+    private static final long EARLY_DATA_WINDOW_MILLIS = 10 * 1000L;
+    private static final int EARLY_DATA_MAX_ENTRIES = 10000;
+
+    // NOTE: Must be a power of 2
+    private static final int SEGMENT_COUNT = 16;
+
+    // Minimum interval between (amortized) sweeps of expired sessions
+    private static final long SWEEP_INTERVAL_MILLIS = 60 * 1000L;
+
+    /*
+     * Sessions by ID are spread across segments, each a simple LRU cache (using the "access order"
+     * constructor) with its own lock, so that lookups of unrelated sessions don't contend.
+     */
+    protected final Segment[] sessionsByID;
+    protected final ConcurrentMap<String, SessionEntry> sessionsByPeer = new ConcurrentHashMap<String, SessionEntry>();
     protected final ReferenceQueue<ProvSSLSession> sessionsQueue = new ReferenceQueue<ProvSSLSession>();
 
     protected final ContextData contextData;
+    protected final ProvSessionTicketKeys sessionTicketKeys;
+    protected final EarlyDataReplayFilter earlyDataReplayFilter = new EarlyDataReplayFilter(
+        EARLY_DATA_WINDOW_MILLIS, EARLY_DATA_MAX_ENTRIES);
+
+    protected volatile int sessionCacheSize = provSessionCacheSize;
+    protected volatile int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+    protected volatile boolean statelessSessionTickets = provServerEnableStatelessTickets;
+    protected volatile int sessionTicketKeyTimeoutSeconds = provServerStatelessKeyTimeout;
 
-    protected int sessionCacheSize = provSessionCacheSize;
-    protected int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+    private final AtomicInteger sessionCount = new AtomicInteger(0);
+    private final AtomicLong hitCount = new AtomicLong(0L);
+    private final AtomicLong missCount = new AtomicLong(0L);
+    private final AtomicLong evictionCount = new AtomicLong(0L);
+    private final AtomicLong nextSweepMillis = new AtomicLong(0L);
 
     ProvSSLSessionContext(ContextData contextData)
     {
         this.contextData = contextData;
+        this.sessionTicketKeys = new ProvSessionTicketKeys(contextData.getCrypto());
+
+        this.sessionsByID = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; ++i)
+        {
+            sessionsByID[i] = new Segment();
+        }
     }
 
     ProvSSLContextSpi getSSLContext()
@@ -65,14 +106,25 @@ JcaTlsCrypto getCrypto()
         return contextData.getCrypto();
     }
 
-    synchronized ProvSSLSession getSessionImpl(byte[] sessionID)
+    ProvSSLSession getSessionImpl(byte[] sessionID)
     {
         processQueue();
 
-        return accessSession(mapGet(sessionsByID, makeSessionID(sessionID)));
+        SessionID id = makeSessionID(sessionID);
+        SessionEntry sessionEntry = null;
+        if (null != id)
+        {
+            Segment segment = getSegment(id);
+            synchronized (segment)
+            {
+                sessionEntry = segment.get(id);
+            }
+        }
+
+        return recordAccess(accessSession(sessionEntry));
     }
 
-    synchronized ProvSSLSession getSessionImpl(String hostName, int port)
+    ProvSSLSession getSessionImpl(String hostName, int port)
     {
         processQueue();
 
@@ -80,22 +132,95 @@ synchronized ProvSSLSession getSessionImpl(String hostName, int port)
         ProvSSLSession session = accessSession(sessionEntry);
         if (session != null)
         {
-            // NOTE: For the current simple cache implementation, need to 'access' the sessionByIDs entry
-            sessionsByID.get(sessionEntry.getSessionID());
+            /*
+             * NOTE: For the current simple cache implementation, need to 'access' the sessionByIDs entry. That
+             * also confirms the entry is still cached, since it leaves its segment before its peer mapping goes.
+             */
+            boolean cached;
+            Segment segment = getSegment(sessionEntry.getSessionID());
+            synchronized (segment)
+            {
+                cached = (segment.get(sessionEntry.getSessionID()) == sessionEntry);
+            }
+
+            if (!cached)
+            {
+                removeSessionByPeer(sessionEntry);
+                session = null;
+            }
+        }
+        return recordAccess(session);
+    }
+
+    /**
+     * Remove the session with the given ID from the cache, returning it if it was still cached and valid. Only one
+     * caller can claim a given session, so it suits sessions that may be used once only. The session is expected to
+     * have been looked up already, so this isn't counted as a cache hit or miss.
+     */
+    ProvSSLSession claimSession(byte[] sessionID)
+    {
+        processQueue();
+
+        SessionID id = makeSessionID(sessionID);
+        if (null == id)
+        {
+            return null;
+        }
+
+        SessionEntry sessionEntry;
+        Segment segment = getSegment(id);
+        synchronized (segment)
+        {
+            sessionEntry = segment.remove(id);
+        }
+
+        if (null == sessionEntry)
+        {
+            return null;
+        }
+
+        sessionCount.decrementAndGet();
+        removeSessionByPeer(sessionEntry);
+
+        ProvSSLSession session = sessionEntry.get();
+        if (null != session)
+        {
+            long currentTimeMillis = System.currentTimeMillis();
+            if (invalidateIfCreatedBefore(sessionEntry, getCreationTimeLimit(currentTimeMillis)))
+            {
+                session = null;
+            }
+            else
+            {
+                session.accessedAt(currentTimeMillis);
+            }
         }
         return session;
     }
 
-    synchronized void removeSession(byte[] sessionID)
+    void removeSession(byte[] sessionID)
     {
-        SessionEntry sessionEntry = mapRemove(sessionsByID, makeSessionID(sessionID));
+        SessionID id = makeSessionID(sessionID);
+        if (null == id)
+        {
+            return;
+        }
+
+        SessionEntry sessionEntry;
+        Segment segment = getSegment(id);
+        synchronized (segment)
+        {
+            sessionEntry = segment.remove(id);
+        }
+
         if (null != sessionEntry)
         {
+            sessionCount.decrementAndGet();
             removeSessionByPeer(sessionEntry);
         }
     }
 
-    synchronized ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
+    ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
         JsseSessionParameters jsseSessionParameters, boolean addToCache)
     {
         processQueue();
@@ -105,37 +230,201 @@ synchronized ProvSSLSession reportSession(String peerHost, int peerPort, TlsSess
             return new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters);
         }
 
+        long currentTimeMillis = System.currentTimeMillis();
+        long sweepMillis = nextSweepMillis.get();
+        if (currentTimeMillis >= sweepMillis
+            && nextSweepMillis.compareAndSet(sweepMillis, currentTimeMillis + SWEEP_INTERVAL_MILLIS))
+        {
+            // Only one thread per interval pays for this; other threads continue unimpeded
+            removeAllExpiredSessions();
+        }
+
         SessionID sessionID = makeSessionID(tlsSession.getSessionID());
-        SessionEntry sessionEntry = mapGet(sessionsByID, sessionID);
+        if (null == sessionID)
+        {
+            return new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters);
+        }
 
-        ProvSSLSession session = sessionEntry == null ? null : sessionEntry.get();
-        if (null == session || session.getTlsSession() != tlsSession)
+        ProvSSLSession session;
+        boolean added = false;
+
+        Segment segment = getSegment(sessionID);
+        synchronized (segment)
         {
-            session = new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters);
+            SessionEntry sessionEntry = segment.get(sessionID);
 
-            if (null != sessionID)
+            session = sessionEntry == null ? null : sessionEntry.get();
+            if (null == session || session.getTlsSession() != tlsSession)
             {
+                SessionEntry previous = sessionEntry;
+
+                session = new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters);
                 sessionEntry = new SessionEntry(sessionID, session, sessionsQueue);
-                sessionsByID.put(sessionID, sessionEntry);
+                segment.put(sessionID, sessionEntry);
+
+                if (null == previous)
+                {
+                    added = true;
+                }
+                else
+                {
+                    // The replaced entry may be mapped under a different peer
+                    removeSessionByPeer(previous);
+                }
             }
+
+            /*
+             * NOTE: The peer mapping is updated under the segment lock, so that it can't be added after another
+             * thread has removed the entry from the segment (and so would never remove the peer mapping).
+             */
+            mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
         }
 
-        if (null != sessionEntry)
+        if (added)
         {
-            mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+            sessionCount.incrementAndGet();
+            removeExcessSessions(segment);
         }
 
         return session;
     }
 
-    public synchronized Enumeration<byte[]> getIds()
+    /**
+     * The filter shared by the connections that can resume sessions from this context's tickets with early data.
+     */
+    EarlyDataReplayFilter getEarlyDataReplayFilter()
+    {
+        return earlyDataReplayFilter;
+    }
+
+    /**
+     * The lifetime, in seconds, of the tickets issued for sessions in this context, which follows the session
+     * timeout (a timeout of 0 meaning the maximum ticket lifetime).
+     */
+    long getSessionTicketLifetime()
+    {
+        int sessionTimeout = sessionTimeoutSeconds;
+
+        return (sessionTimeout <= 0 || sessionTimeout > MAX_TICKET_LIFETIME_SECONDS)
+            ? MAX_TICKET_LIFETIME_SECONDS
+            : sessionTimeout;
+    }
+
+    byte[] createStatelessSessionTicket(SessionParameters sessionParameters,
+        JsseSessionParameters jsseSessionParameters) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        sessionParameters.encode(getCrypto(), buf);
+
+        String endpointIDAlgorithm = jsseSessionParameters.getEndpointIDAlgorithm();
+        if (null == endpointIDAlgorithm)
+        {
+            TlsUtils.writeUint8(0, buf);
+        }
+        else
+        {
+            TlsUtils.writeUint8(1, buf);
+            TlsUtils.writeOpaque16(Strings.toUTF8ByteArray(endpointIDAlgorithm), buf);
+        }
+
+        BCSNIServerName matchedSNIServerName = jsseSessionParameters.getMatchedSNIServerName();
+        if (null == matchedSNIServerName)
+        {
+            TlsUtils.writeUint8(0, buf);
+        }
+        else
+        {
+            TlsUtils.writeUint8(1, buf);
+            TlsUtils.writeUint8(matchedSNIServerName.getType(), buf);
+            TlsUtils.writeOpaque16(matchedSNIServerName.getEncoded(), buf);
+        }
+
+        byte[] state = buf.toByteArray();
+        try
+        {
+            long lifetimeMillis = 1000L * getSessionTicketLifetime();
+            long rotationMillis = 1000L * sessionTicketKeyTimeoutSeconds;
+
+            return sessionTicketKeys.protect(state, rotationMillis, lifetimeMillis);
+        }
+        finally
+        {
+            Arrays.fill(state, (byte)0);
+        }
+    }
+
+    /**
+     * Recover the session carried by a ticket from {@link #createStatelessSessionTicket}. The session is not
+     * cached; its ID is the unique prefix (key name and IV) of the ticket.
+     *
+     * @return the ticket's session, or null if this context can't decrypt the ticket.
+     */
+    ProvSSLSession resumeStatelessSessionTicket(String peerHost, int peerPort, byte[] ticket)
+    {
+        byte[] state = null;
+        try
+        {
+            state = sessionTicketKeys.unprotect(ticket);
+            if (null == state)
+            {
+                return null;
+            }
+
+            ByteArrayInputStream buf = new ByteArrayInputStream(state);
+            SessionParameters sessionParameters = SessionParameters.parse(getCrypto(), buf);
+
+            String endpointIDAlgorithm = null;
+            if (0 != TlsUtils.readUint8(buf))
+            {
+                endpointIDAlgorithm = Strings.fromUTF8ByteArray(TlsUtils.readOpaque16(buf));
+            }
+
+            BCSNIServerName matchedSNIServerName = null;
+            if (0 != TlsUtils.readUint8(buf))
+            {
+                short nameType = TlsUtils.readUint8(buf);
+                matchedSNIServerName = JsseUtils.convertSNIServerName(
+                    new ServerName(nameType, TlsUtils.readOpaque16(buf, 1)));
+            }
+
+            byte[] sessionID = ProvSessionTicketKeys.getTicketID(ticket);
+            TlsSession tlsSession = TlsUtils.importSession(sessionID, sessionParameters);
+
+            return new ProvSSLSession(this, peerHost, peerPort, tlsSession,
+                new JsseSessionParameters(endpointIDAlgorithm, matchedSNIServerName));
+        }
+        catch (Exception e)
+        {
+            if (LOG.isLoggable(Level.FINER))
+            {
+                LOG.log(Level.FINER, "Failed to recover session from ticket", e);
+            }
+            return null;
+        }
+        finally
+        {
+            if (null != state)
+            {
+                Arrays.fill(state, (byte)0);
+            }
+        }
+    }
+
+    public Enumeration<byte[]> getIds()
     {
         removeAllExpiredSessions();
 
-        ArrayList<byte[]> ids = new ArrayList<byte[]>(sessionsByID.size());
-        for (SessionID sessionID : sessionsByID.keySet())
+        ArrayList<byte[]> ids = new ArrayList<byte[]>(sessionCount.get());
+        for (int i = 0; i < SEGMENT_COUNT; ++i)
         {
-            ids.add(sessionID.getBytes());
+            Segment segment = sessionsByID[i];
+            synchronized (segment)
+            {
+                for (SessionID sessionID : segment.keySet())
+                {
+                    ids.add(sessionID.getBytes());
+                }
+            }
         }
         return Collections.enumeration(ids);
     }
@@ -150,16 +439,76 @@ public SSLSession getSession(byte[] sessionID)
         return getSessionImpl(sessionID);
     }
 
-    public synchronized int getSessionCacheSize()
+    public int getSessionCacheSize()
     {
         return sessionCacheSize;
     }
 
-    public synchronized int getSessionTimeout()
+    public int getSessionTimeout()
     {
         return sessionTimeoutSeconds;
     }
 
+    public long getCacheHitCount()
+    {
+        return hitCount.get();
+    }
+
+    public long getCacheMissCount()
+    {
+        return missCount.get();
+    }
+
+    public long getCacheEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    public boolean isStatelessSessionTickets()
+    {
+        return statelessSessionTickets;
+    }
+
+    public int getSessionTicketKeyTimeout()
+    {
+        return sessionTicketKeyTimeoutSeconds;
+    }
+
+    public void installSessionTicketKey(byte[] keyName, byte[] encryptionKey, byte[] macKey, int validitySeconds,
+        int graceSeconds) throws IllegalArgumentException
+    {
+        if (validitySeconds < 0)
+        {
+            throw new IllegalArgumentException("'validitySeconds' cannot be < 0");
+        }
+        if (graceSeconds < 0)
+        {
+            throw new IllegalArgumentException("'graceSeconds' cannot be < 0");
+        }
+
+        sessionTicketKeys.install(keyName, encryptionKey, macKey, 1000L * validitySeconds, 1000L * graceSeconds);
+    }
+
+    public void rotateSessionTicketKeys()
+    {
+        sessionTicketKeys.rotate();
+    }
+
+    public void setStatelessSessionTickets(boolean statelessSessionTickets)
+    {
+        this.statelessSessionTickets = statelessSessionTickets;
+    }
+
+    public void setSessionTicketKeyTimeout(int seconds) throws IllegalArgumentException
+    {
+        if (seconds < 0)
+        {
+            throw new IllegalArgumentException("'seconds' cannot be < 0");
+        }
+
+        this.sessionTicketKeyTimeoutSeconds = seconds;
+    }
+
     public synchronized void setSessionCacheSize(int size) throws IllegalArgumentException
     {
         if (sessionCacheSize == size)
@@ -177,21 +526,7 @@ public synchronized void setSessionCacheSize(int size) throws IllegalArgumentExc
         removeAllExpiredSessions();
 
         // Immediately remove LRU sessions in excess of the new limit
-        if (sessionCacheSize > 0)
-        {
-            int currentSize = sessionsByID.size();
-            if (currentSize > sessionCacheSize)
-            {
-                Iterator<SessionEntry> iter = sessionsByID.values().iterator();
-                while (iter.hasNext() && currentSize > sessionCacheSize)
-                {
-                    SessionEntry sessionEntry = iter.next();
-                    iter.remove();
-                    removeSessionByPeer(sessionEntry);
-                    --currentSize;
-                }
-            }
-        }
+        removeExcessSessions(null);
     }
 
     public synchronized void setSessionTimeout(int seconds) throws IllegalArgumentException
@@ -267,34 +602,163 @@ private void processQueue()
         }
     }
 
+    private ProvSSLSession recordAccess(ProvSSLSession session)
+    {
+        (session == null ? missCount : hitCount).incrementAndGet();
+        return session;
+    }
+
     private void removeAllExpiredSessions()
     {
         processQueue();
 
         long creationTimeLimit = getCreationTimeLimit(System.currentTimeMillis());
 
-        Iterator<SessionEntry> iter = sessionsByID.values().iterator();
-        while (iter.hasNext())
+        // NOTE: One segment at a time, so lookups in other segments can proceed
+        for (int i = 0; i < SEGMENT_COUNT; ++i)
         {
-            SessionEntry sessionEntry = iter.next();
-            if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
+            Segment segment = sessionsByID[i];
+            ArrayList<SessionEntry> removed = null;
+
+            synchronized (segment)
             {
-                iter.remove();
-                removeSessionByPeer(sessionEntry);
+                Iterator<SessionEntry> iter = segment.values().iterator();
+                while (iter.hasNext())
+                {
+                    SessionEntry sessionEntry = iter.next();
+                    if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
+                    {
+                        iter.remove();
+                        if (removed == null)
+                        {
+                            removed = new ArrayList<SessionEntry>();
+                        }
+                        removed.add(sessionEntry);
+                    }
+                }
+            }
+
+            if (removed != null)
+            {
+                sessionCount.addAndGet(-removed.size());
+                for (SessionEntry sessionEntry : removed)
+                {
+                    removeSessionByPeer(sessionEntry);
+                }
             }
         }
     }
 
+    private void removeExcessSessions(Segment preferred)
+    {
+        int limit = sessionCacheSize;
+        if (limit < 1)
+        {
+            return;
+        }
+
+        /*
+         * Evict from the segment just added to where possible (approximating global LRU order), otherwise
+         * from whichever segment holds the least recently accessed session.
+         */
+        while (sessionCount.get() > limit)
+        {
+            SessionEntry eldest = null;
+
+            if (preferred != null)
+            {
+                synchronized (preferred)
+                {
+                    // Leave the most recently added session in place
+                    if (preferred.size() > 1)
+                    {
+                        eldest = preferred.removeEldest();
+                    }
+                }
+            }
+
+            if (eldest == null)
+            {
+                Segment segment = getLeastRecentlyAccessedSegment();
+                if (segment == null)
+                {
+                    break;
+                }
+
+                synchronized (segment)
+                {
+                    eldest = segment.removeEldest();
+                }
+
+                if (eldest == null)
+                {
+                    continue;
+                }
+            }
+
+            sessionCount.decrementAndGet();
+            evictionCount.incrementAndGet();
+            removeSessionByPeer(eldest);
+        }
+    }
+
+    private Segment getLeastRecentlyAccessedSegment()
+    {
+        Segment result = null;
+        long resultAccessTime = Long.MAX_VALUE;
+
+        for (int i = 0; i < SEGMENT_COUNT; ++i)
+        {
+            Segment segment = sessionsByID[i];
+            synchronized (segment)
+            {
+                if (segment.isEmpty())
+                {
+                    continue;
+                }
+
+                ProvSSLSession session = segment.values().iterator().next().get();
+                long accessTime = session == null ? Long.MIN_VALUE : session.getLastAccessedTime();
+                if (result == null || accessTime < resultAccessTime)
+                {
+                    result = segment;
+                    resultAccessTime = accessTime;
+                }
+            }
+        }
+
+        return result;
+    }
+
     private void removeSession(SessionEntry sessionEntry)
     {
-        mapRemove(sessionsByID, sessionEntry.getSessionID(), sessionEntry);
+        boolean removed;
+        Segment segment = getSegment(sessionEntry.getSessionID());
+        synchronized (segment)
+        {
+            removed = mapRemove(segment, sessionEntry.getSessionID(), sessionEntry);
+        }
+
+        if (removed)
+        {
+            sessionCount.decrementAndGet();
+        }
 
         removeSessionByPeer(sessionEntry);
     }
 
+    private Segment getSegment(SessionID sessionID)
+    {
+        int h = sessionID.hashCode();
+        h ^= (h >>> 16);
+        h ^= (h >>> 8);
+        return sessionsByID[h & (SEGMENT_COUNT - 1)];
+    }
+
     private boolean removeSessionByPeer(SessionEntry sessionEntry)
     {
-        return mapRemove(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+        String peerKey = sessionEntry.getPeerKey();
+        return peerKey != null && sessionsByPeer.remove(peerKey, sessionEntry);
     }
 
     private static String makePeerKey(ProvSSLSession session)
@@ -333,15 +797,6 @@ private static <K, V> V mapGet(Map<K, V> map, K key)
         return key == null ? null : map.get(key);
     }
 
-    private static <K, V> V mapRemove(Map<K, V> map, K key)
-    {
-        if (map == null)
-        {
-            throw new NullPointerException();
-        }
-        return key == null ? null : map.remove(key);
-    }
-
     private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
     {
         if (map == null || value == null)
@@ -364,6 +819,29 @@ private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
         return false;
     }
 
+    @SuppressWarnings("serial")
+    private static final class Segment
+        extends LinkedHashMap<SessionID, SessionEntry>
+    {
+        Segment()
+        {
+            super(16, 0.75f, true);
+        }
+
+        SessionEntry removeEldest()
+        {
+            Iterator<SessionEntry> iter = values().iterator();
+            if (!iter.hasNext())
+            {
+                return null;
+            }
+
+            SessionEntry eldest = iter.next();
+            iter.remove();
+            return eldest;
+        }
+    }
+
     private static final class SessionEntry
         extends SoftReference<ProvSSLSession>
     {
@@ -0,0 +1,322 @@
+package org.bouncycastle.jsse.provider;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.MACAlgorithm;
+import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.crypto.TlsHMAC;
+import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * A rotating ring of keys protecting stateless session tickets, following RFC 5077 4. Recommended Ticket
+ * Construction: a ticket is key_name | IV | AES-128-CBC(state) | HMAC-SHA-256(key_name | IV | ciphertext).
+ * <p>
+ * A new key is started once the current one has been used for the rotation interval (or on request), and earlier
+ * keys continue to be accepted for a grace period after that, so that tickets issued under them can still be
+ * redeemed until they expire.
+ * </p>
+ * <p>
+ * Keys can instead be installed (see {@link #install}), so that servers sharing them can resume each other's
+ * tickets. Once a key has been installed no keys are generated, and no tickets are issued while none of the
+ * installed keys is current.
+ * </p>
+ */
+class ProvSessionTicketKeys
+{
+    private static final Logger LOG = Logger.getLogger(ProvSessionTicketKeys.class.getName());
+
+    private static final int KEY_NAME_LENGTH = 16;
+    private static final int IV_LENGTH = 16;
+    private static final int AES_KEY_LENGTH = 16;
+    private static final int MAC_KEY_LENGTH = 32;
+    private static final int MAC_LENGTH = 32;
+
+    private final JcaTlsCrypto crypto;
+
+    // Newest first
+    private final List<TicketKey> keys = new ArrayList<TicketKey>();
+
+    // Guarded by this
+    private boolean installedKeys = false;
+
+    ProvSessionTicketKeys(JcaTlsCrypto crypto)
+    {
+        this.crypto = crypto;
+    }
+
+    /**
+     * A unique, 32 byte, identifier for a ticket issued by {@link #protect(byte[], long, long)}: its key name and IV.
+     */
+    static byte[] getTicketID(byte[] ticket)
+    {
+        return Arrays.copyOf(ticket, KEY_NAME_LENGTH + IV_LENGTH);
+    }
+
+    /**
+     * Encrypt and authenticate ticket state under the current key, starting a new one if it is due.
+     *
+     * @param state the state to protect.
+     * @param rotationMillis how long a key is used for new tickets.
+     * @param graceMillis how long a key is still accepted after it stops being used for new tickets.
+     * @return the ticket, or null if keys are installed but none of them is current.
+     */
+    byte[] protect(byte[] state, long rotationMillis, long graceMillis) throws IOException
+    {
+        TicketKey key = getCurrentKey(System.currentTimeMillis(), rotationMillis, graceMillis);
+        if (null == key)
+        {
+            return null;
+        }
+
+        byte[] iv = new byte[IV_LENGTH];
+        crypto.getSecureRandom().nextBytes(iv);
+
+        byte[] ciphertext = key.cipher(Cipher.ENCRYPT_MODE, iv, state, 0, state.length);
+
+        int macOff = KEY_NAME_LENGTH + IV_LENGTH + ciphertext.length;
+        byte[] ticket = new byte[macOff + MAC_LENGTH];
+        System.arraycopy(key.name, 0, ticket, 0, KEY_NAME_LENGTH);
+        System.arraycopy(iv, 0, ticket, KEY_NAME_LENGTH, IV_LENGTH);
+        System.arraycopy(ciphertext, 0, ticket, KEY_NAME_LENGTH + IV_LENGTH, ciphertext.length);
+
+        byte[] mac = key.calculateMAC(ticket, 0, macOff);
+        System.arraycopy(mac, 0, ticket, macOff, MAC_LENGTH);
+        return ticket;
+    }
+
+    /**
+     * Recover the state from a ticket issued by {@link #protect(byte[], long, long)}.
+     *
+     * @return the ticket state, or null if the ticket was not issued under any current key or fails authentication.
+     */
+    byte[] unprotect(byte[] ticket) throws IOException
+    {
+        if (null == ticket || ticket.length < KEY_NAME_LENGTH + IV_LENGTH + IV_LENGTH + MAC_LENGTH)
+        {
+            return null;
+        }
+
+        TicketKey key = findKey(ticket, System.currentTimeMillis());
+        if (null == key)
+        {
+            return null;
+        }
+
+        int macOff = ticket.length - MAC_LENGTH;
+        byte[] mac = key.calculateMAC(ticket, 0, macOff);
+        if (!Arrays.constantTimeAreEqual(MAC_LENGTH, mac, 0, ticket, macOff))
+        {
+            return null;
+        }
+
+        byte[] iv = Arrays.copyOfRange(ticket, KEY_NAME_LENGTH, KEY_NAME_LENGTH + IV_LENGTH);
+        return key.cipher(Cipher.DECRYPT_MODE, iv, ticket, KEY_NAME_LENGTH + IV_LENGTH,
+            macOff - (KEY_NAME_LENGTH + IV_LENGTH));
+    }
+
+    /**
+     * Install a key, which is used for new tickets from now on, for the validity period, and accepted for the grace
+     * period after that. The previous current key is retired, i.e. starts its own grace period. A key installed
+     * again under the same name replaces the earlier one.
+     *
+     * @param validityMillis how long the key is used for new tickets, 0 meaning until it is replaced or rotated.
+     * @param graceMillis how long the key is still accepted after it stops being used for new tickets.
+     */
+    synchronized void install(byte[] name, byte[] aesKey, byte[] macKey, long validityMillis, long graceMillis)
+    {
+        if (null == name || name.length != KEY_NAME_LENGTH)
+        {
+            throw new IllegalArgumentException("'keyName' must be " + KEY_NAME_LENGTH + " bytes");
+        }
+        if (null == aesKey || aesKey.length != AES_KEY_LENGTH)
+        {
+            throw new IllegalArgumentException("'encryptionKey' must be " + AES_KEY_LENGTH + " bytes");
+        }
+        if (null == macKey || macKey.length != MAC_KEY_LENGTH)
+        {
+            throw new IllegalArgumentException("'macKey' must be " + MAC_KEY_LENGTH + " bytes");
+        }
+
+        long now = System.currentTimeMillis();
+
+        Iterator<TicketKey> it = keys.iterator();
+        while (it.hasNext())
+        {
+            if (Arrays.areEqual(name, it.next().name))
+            {
+                it.remove();
+            }
+        }
+
+        rotate(now);
+
+        long retireAt = validityMillis < 1L ? Long.MAX_VALUE : now + validityMillis;
+        long expireAt = retireAt == Long.MAX_VALUE ? Long.MAX_VALUE : retireAt + graceMillis;
+
+        keys.add(0, new TicketKey(Arrays.clone(name), Arrays.clone(aesKey), Arrays.clone(macKey), retireAt,
+            expireAt, graceMillis));
+        this.installedKeys = true;
+
+        if (LOG.isLoggable(Level.FINE))
+        {
+            // -DM Hex.toHexString
+            LOG.fine("Installed session ticket key: " + Hex.toHexString(name));
+        }
+    }
+
+    /**
+     * Stop issuing tickets under the current key. Tickets already issued under it remain valid for the grace
+     * period.
+     */
+    synchronized void rotate()
+    {
+        rotate(System.currentTimeMillis());
+    }
+
+    private synchronized TicketKey getCurrentKey(long now, long rotationMillis, long graceMillis)
+    {
+        removeExpiredKeys(now);
+
+        if (!keys.isEmpty())
+        {
+            TicketKey current = keys.get(0);
+            if (now < current.retireAt)
+            {
+                return current;
+            }
+        }
+
+        if (installedKeys)
+        {
+            return null;
+        }
+
+        SecureRandom random = crypto.getSecureRandom();
+        byte[] name = new byte[KEY_NAME_LENGTH];
+        byte[] aesKey = new byte[AES_KEY_LENGTH];
+        byte[] macKey = new byte[MAC_KEY_LENGTH];
+        random.nextBytes(name);
+        random.nextBytes(aesKey);
+        random.nextBytes(macKey);
+
+        long retireAt = rotationMillis < 1L ? Long.MAX_VALUE : now + rotationMillis;
+        long expireAt = retireAt == Long.MAX_VALUE ? Long.MAX_VALUE : retireAt + graceMillis;
+
+        TicketKey key = new TicketKey(name, aesKey, macKey, retireAt, expireAt, graceMillis);
+        keys.add(0, key);
+
+        if (LOG.isLoggable(Level.FINE))
+        {
+            // -DM Hex.toHexString
+            LOG.fine("Started new session ticket key: " + Hex.toHexString(name));
+        }
+
+        return key;
+    }
+
+    private synchronized TicketKey findKey(byte[] ticket, long now)
+    {
+        removeExpiredKeys(now);
+
+        for (TicketKey key : keys)
+        {
+            if (Arrays.areEqual(key.name, 0, KEY_NAME_LENGTH, ticket, 0, KEY_NAME_LENGTH))
+            {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private void rotate(long now)
+    {
+        if (!keys.isEmpty())
+        {
+            TicketKey current = keys.get(0);
+            current.retire(now, now + current.graceMillis);
+        }
+    }
+
+    private void removeExpiredKeys(long now)
+    {
+        Iterator<TicketKey> it = keys.iterator();
+        while (it.hasNext())
+        {
+            TicketKey key = it.next();
+            if (now >= key.expireAt)
+            {
+                it.remove();
+
+                if (LOG.isLoggable(Level.FINE))
+                {
+                    // -DM Hex.toHexString
+                    LOG.fine("Removed expired session ticket key: " + Hex.toHexString(key.name));
+                }
+            }
+        }
+    }
+
+    private final class TicketKey
+    {
+        final byte[] name;
+        final SecretKeySpec aesKey;
+        final byte[] macKey;
+        final long graceMillis;
+
+        // Guarded by the enclosing ProvSessionTicketKeys
+        long retireAt;
+        long expireAt;
+
+        TicketKey(byte[] name, byte[] aesKey, byte[] macKey, long retireAt, long expireAt, long graceMillis)
+        {
+            this.name = name;
+            this.aesKey = new SecretKeySpec(aesKey, "AES");
+            this.macKey = macKey;
+            this.retireAt = retireAt;
+            this.expireAt = expireAt;
+            this.graceMillis = graceMillis;
+        }
+
+        void retire(long retireAt, long expireAt)
+        {
+            this.retireAt = Math.min(this.retireAt, retireAt);
+            this.expireAt = Math.min(this.expireAt, expireAt);
+        }
+
+        byte[] calculateMAC(byte[] buf, int off, int len)
+        {
+            TlsHMAC hmac = crypto.createHMAC(MACAlgorithm.hmac_sha256);
+            hmac.setKey(macKey, 0, macKey.length);
+            hmac.update(buf, off, len);
+            return hmac.calculateMAC();
+        }
+
+        byte[] cipher(int mode, byte[] iv, byte[] buf, int off, int len) throws IOException
+        {
+            try
+            {
+                Cipher cipher = crypto.getHelper().createCipher("AES/CBC/PKCS5Padding");
+                cipher.init(mode, aesKey, new IvParameterSpec(iv), crypto.getSecureRandom());
+                return cipher.doFinal(buf, off, len);
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw new TlsFatalAlert(AlertDescription.internal_error, "Session ticket protection failed", e);
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,8 @@
 import org.bouncycastle.tls.CertificateStatus;
 import org.bouncycastle.tls.ClientCertificateType;
 import org.bouncycastle.tls.DefaultTlsServer;
+import org.bouncycastle.tls.EarlyDataReplayFilter;
+import org.bouncycastle.tls.ExtensionType;
 import org.bouncycastle.tls.KeyExchangeAlgorithm;
 import org.bouncycastle.tls.NamedGroup;
 import org.bouncycastle.tls.ProtocolName;
@@ -50,6 +53,7 @@
 import org.bouncycastle.tls.crypto.TlsDHConfig;
 import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.encoders.Hex;
 
 class ProvTlsServer
@@ -71,6 +75,10 @@
     private static final boolean provServerEnableSessionResumption = PropertyUtils
         .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableSessionResumption", true);
 
+    // NOTE: TLS 1.3 early (0-RTT) data may be replayed, so it is disabled unless this is set (see getMaxEarlyDataSize)
+    private static final int provServerMaxEarlyDataSize = PropertyUtils
+        .getIntegerSystemProperty("org.bouncycastle.jsse.server.maxEarlyDataSize", 0, 0, Integer.MAX_VALUE);
+
     // TODO[jsse] Support status_request and status_request_v2 extensions
 //    private static final boolean provServerEnableStatusRequest = PropertyUtils.getBooleanSystemProperty(
 //        "jdk.tls.server.enableStatusRequestExtension", false);
@@ -180,10 +188,12 @@ private static BigInteger parseDHParameter(String s, int beginIndex, int endInde
     protected final JsseSecurityParameters jsseSecurityParameters = new JsseSecurityParameters();
 
     protected ProvSSLSession sslSession = null;
+    protected Map<TlsSession, ProvSSLSession> sessionsToResume = null;
     protected BCSNIServerName matchedSNIServerName = null;
     protected Set<String> keyManagerMissCache = null;
     protected TlsCredentials credentials = null;
     protected boolean handshakeComplete = false;
+    protected boolean statelessTicketIssued = false;
 
     ProvTlsServer(ProvTlsManager manager, ProvSSLParameters sslParameters)
     {
@@ -693,10 +703,23 @@ public Hashtable<Integer, byte[]> getServerExtensions() throws IOException
          */
         if (null != matchedSNIServerName)
         {
-            // TODO[tls13] Resumption/PSK. SNI is always negotiated per-connection in TLS 1.3
+            // NOTE: SNI is always negotiated per-connection in TLS 1.3, including when resuming
             TlsExtensionsUtils.addServerNameExtensionServer(serverExtensions);
         }
 
+        /*
+         * RFC 5077 3.2. Stateless tickets are offered to any client that supports them; in TLS 1.3 they are issued
+         * without negotiation.
+         */
+        if (!TlsUtils.isTLSv13(context) && isStatelessSessionTickets())
+        {
+            Integer extSessionTicket = Integers.valueOf(ExtensionType.session_ticket);
+            if (null != TlsUtils.getExtensionData(clientExtensions, extSessionTicket))
+            {
+                TlsExtensionsUtils.addEmptyExtensionData(serverExtensions, extSessionTicket);
+            }
+        }
+
         @SuppressWarnings("unchecked")
         Hashtable<Integer, byte[]> result = serverExtensions;
 
@@ -706,20 +729,15 @@ public Hashtable<Integer, byte[]> getServerExtensions() throws IOException
     @Override
     public TlsSession getSessionToResume(byte[] sessionID)
     {
-        ProvSSLSessionContext sslSessionContext = manager.getContextData().getServerSessionContext();
-
         if (provServerEnableSessionResumption)
         {
-            ProvSSLSession availableSSLSession = sslSessionContext.getSessionImpl(sessionID);
+            ProvSSLSession availableSSLSession = manager.getContextData().getServerSessionContext()
+                .getSessionImpl(sessionID);
 
-            if (null != availableSSLSession)
+            TlsSession sessionToResume = offerSessionToResume(availableSSLSession);
+            if (null != sessionToResume)
             {
-                TlsSession sessionToResume = availableSSLSession.getTlsSession();
-                if (isResumable(availableSSLSession, sessionToResume))
-                {
-                    this.sslSession = availableSSLSession;
-                    return sessionToResume;
-                }
+                return sessionToResume;
             }
         }
 
@@ -727,10 +745,58 @@ public TlsSession getSessionToResume(byte[] sessionID)
         return null;
     }
 
+    @Override
+    public TlsSession getSessionToResumeFromTicket(byte[] ticket)
+    {
+        if (!provServerEnableSessionResumption)
+        {
+            return null;
+        }
+
+        ProvSSLSessionContext sslSessionContext = manager.getContextData().getServerSessionContext();
+
+        if (sslSessionContext.isStatelessSessionTickets())
+        {
+            ProvSSLSession ticketSSLSession = sslSessionContext.resumeStatelessSessionTicket(
+                manager.getPeerHost(), manager.getPeerPort(), ticket);
+
+            TlsSession sessionToResume = offerSessionToResume(ticketSSLSession);
+            if (null != sessionToResume)
+            {
+                return sessionToResume;
+            }
+        }
+
+        // NOTE: A TLS 1.3 ticket that isn't stateless is the ID of a cached session (see createSessionTicket)
+        if (TlsUtils.isTLSv13(context))
+        {
+            return offerSessionToResume(sslSessionContext.getSessionImpl(ticket));
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean claimSessionFromTicket(byte[] ticket, TlsSession session)
+    {
+        /*
+         * A cached TLS 1.3 ticket session can be used once only, so it is claimed (removed from the cache) here;
+         * once claimed it can't be resumed by another connection, even if this one goes on to fail.
+         */
+        if (TlsUtils.isTLSv13(context) && Arrays.areEqual(ticket, session.getSessionID()))
+        {
+            ProvSSLSessionContext sslSessionContext = manager.getContextData().getServerSessionContext();
+
+            return null != sslSessionContext.claimSession(ticket);
+        }
+
+        return true;
+    }
+
     @Override
     public byte[] getNewSessionID()
     {
-        // TODO[tls13] Resumption/PSK
+        // NOTE: TLS 1.3 sessions are resumed via tickets instead (see createSessionTicket)
         if (!provServerEnableSessionResumption || TlsUtils.isTLSv13(context))
         {
             return null;
@@ -739,12 +805,107 @@ public byte[] getNewSessionID()
         return context.getNonceGenerator().generateNonce(32);
     }
 
+    @Override
+    public long getSessionTicketLifetime()
+    {
+        // NOTE: Before TLS 1.3 this is only called if we sent the SessionTicket extension
+        if (!provServerEnableSessionResumption)
+        {
+            return 0L;
+        }
+
+        return manager.getContextData().getServerSessionContext().getSessionTicketLifetime();
+    }
+
+    @Override
+    public long getMaxEarlyDataSize()
+    {
+        /*
+         * NOTE: Early data is only accepted for resumed TLS 1.3 sessions, and is then read as ordinary application
+         * data; the application can't tell it apart, so it must only enable this if every request is safe to replay.
+         */
+        if (!provServerEnableSessionResumption)
+        {
+            return 0L;
+        }
+
+        return provServerMaxEarlyDataSize;
+    }
+
+    @Override
+    public EarlyDataReplayFilter getEarlyDataReplayFilter()
+    {
+        return manager.getContextData().getServerSessionContext().getEarlyDataReplayFilter();
+    }
+
+    @Override
+    public byte[] createSessionTicket(SessionParameters sessionParameters) throws IOException
+    {
+        ProvSSLSessionContext sslSessionContext = manager.getContextData().getServerSessionContext();
+        JsseSessionParameters jsseSessionParameters = new JsseSessionParameters(
+            sslParameters.getEndpointIdentificationAlgorithm(), matchedSNIServerName);
+
+        if (sslSessionContext.isStatelessSessionTickets())
+        {
+            byte[] ticket;
+            try
+            {
+                ticket = sslSessionContext.createStatelessSessionTicket(sessionParameters, jsseSessionParameters);
+            }
+            finally
+            {
+                // The ticket holds the only copy of the session state
+                sessionParameters.clear();
+            }
+
+            if (null == ticket)
+            {
+                if (LOG.isLoggable(Level.FINE))
+                {
+                    LOG.fine(serverID + " has no current session ticket key; not issuing a ticket");
+                }
+                return null;
+            }
+
+            this.statelessTicketIssued = true;
+
+            if (LOG.isLoggable(Level.FINE))
+            {
+                // -DM Hex.toHexString
+                LOG.fine(serverID + " issued stateless session ticket: "
+                    + Hex.toHexString(ProvSessionTicketKeys.getTicketID(ticket)));
+            }
+
+            return ticket;
+        }
+
+        /*
+         * The ticket is just a random identifier for a session cached under it; each ticket is given its own
+         * session so that it can be used once only (see notifyHandshakeComplete).
+         */
+        byte[] ticket = context.getNonceGenerator().generateNonce(32);
+
+        sslSessionContext.reportSession(manager.getPeerHost(), manager.getPeerPort(),
+            TlsUtils.importSession(ticket, sessionParameters), jsseSessionParameters, true);
+
+        if (LOG.isLoggable(Level.FINE))
+        {
+            // -DM Hex.toHexString
+            LOG.fine(serverID + " issued session ticket: " + Hex.toHexString(ticket));
+        }
+
+        return ticket;
+    }
+
     @Override
     public void notifySession(TlsSession session)
     {
         byte[] sessionID = session.getSessionID();
 
-        boolean isResumed = (null != sslSession && sslSession.getTlsSession() == session);
+        this.sslSession = (null == sessionsToResume) ? null : sessionsToResume.get(session);
+        this.sessionsToResume = null;
+
+        boolean isResumed = (null != sslSession);
         if (isResumed)
         {
             if (LOG.isLoggable(Level.FINE))
@@ -755,8 +916,6 @@ public void notifySession(TlsSession session)
         }
         else
         {
-            this.sslSession = null;
-
             if (LOG.isLoggable(Level.FINE))
             {
                 if (TlsUtils.isNullOrEmpty(sessionID))
@@ -905,8 +1064,9 @@ public synchronized void notifyHandshakeComplete() throws IOException
             int peerPort = manager.getPeerPort();
             JsseSessionParameters jsseSessionParameters = new JsseSessionParameters(
                 sslParameters.getEndpointIdentificationAlgorithm(), matchedSNIServerName);
-            // TODO[tls13] Resumption/PSK
-            boolean addToCache = provServerEnableSessionResumption && !TlsUtils.isTLSv13(context);
+            // NOTE: TLS 1.3 sessions are cached per ticket instead (see createSessionTicket)
+            boolean addToCache = provServerEnableSessionResumption && !TlsUtils.isTLSv13(context)
+                && !statelessTicketIssued;
 
             this.sslSession = sslSessionContext.reportSession(peerHost, peerPort, connectionTlsSession,
                 jsseSessionParameters, addToCache);
@@ -1010,6 +1170,31 @@ protected boolean isClientAuthEnabled()
         return sslParameters.getNeedClientAuth() || sslParameters.getWantClientAuth();
     }
 
+    protected boolean isStatelessSessionTickets()
+    {
+        return provServerEnableSessionResumption
+            && manager.getContextData().getServerSessionContext().isStatelessSessionTickets();
+    }
+
+    private TlsSession offerSessionToResume(ProvSSLSession provSSLSession)
+    {
+        if (null != provSSLSession)
+        {
+            TlsSession tlsSession = provSSLSession.getTlsSession();
+            if (isResumable(provSSLSession, tlsSession))
+            {
+                // NOTE: Only the session the protocol goes on to use is taken up, in notifySession
+                if (null == sessionsToResume)
+                {
+                    this.sessionsToResume = new IdentityHashMap<TlsSession, ProvSSLSession>();
+                }
+                sessionsToResume.put(tlsSession, provSSLSession);
+                return tlsSession;
+            }
+        }
+        return null;
+    }
+
     protected boolean isResumable(ProvSSLSession provSSLSession, TlsSession tlsSession)
     {
         if (null == tlsSession || !tlsSession.isResumable())
@@ -1021,10 +1206,6 @@ protected boolean isResumable(ProvSSLSession provSSLSession, TlsSession tlsSessi
             SecurityParameters securityParameters = context.getSecurityParametersHandshake();
 
             ProtocolVersion negotiatedVersion = securityParameters.getNegotiatedVersion();
-            if (TlsUtils.isTLSv13(negotiatedVersion))
-            {
-                return false;
-            }
 
             // TODO[resumption] Avoid the copy somehow?
             SessionParameters sessionParameters = tlsSession.exportSessionParameters();
@@ -239,6 +239,12 @@ public Vector getExternalPSKs()
         return null;
     }
 
+    public byte[] getEarlyData()
+        throws IOException
+    {
+        return null;
+    }
+
     public boolean isFallback()
     {
         /*
@@ -300,6 +306,14 @@ public Hashtable getClientExtensions()
             {
                 TlsExtensionsUtils.addCertificateAuthoritiesExtension(clientExtensions, certificateAuthorities);
             }
+
+            int[] certificateCompressionAlgorithms = TlsUtils.getCertificateCompressionAlgorithms(
+                getCertificateCompressors());
+            if (certificateCompressionAlgorithms != null)
+            {
+                TlsExtensionsUtils.addCompressCertificateExtension(clientExtensions,
+                    certificateCompressionAlgorithms);
+            }
         }
 
         if (offeringPreTLSv13)
@@ -340,6 +340,44 @@ public byte[] getNewSessionID()
         return null;
     }
 
+    public TlsSession getSessionToResumeFromTicket(byte[] ticket)
+    {
+        return null;
+    }
+
+    public boolean claimSessionFromTicket(byte[] ticket, TlsSession session)
+    {
+        return true;
+    }
+
+    public long getSessionTicketLifetime()
+        throws IOException
+    {
+        return 0L;
+    }
+
+    public byte[] createSessionTicket(SessionParameters sessionParameters)
+        throws IOException
+    {
+        return null;
+    }
+
+    public long getMaxEarlyDataSize()
+        throws IOException
+    {
+        return 0L;
+    }
+
+    public EarlyDataReplayFilter getEarlyDataReplayFilter()
+    {
+        return null;
+    }
+
+    public boolean allowEarlyDataWithExternalPSK()
+    {
+        return false;
+    }
+
     public TlsPSKExternal getExternalPSK(Vector identities)
     {
         return null;
@@ -0,0 +1,119 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A {@link TlsCertificateCompressor} that remembers the compressed form of recently sent Certificate messages, so
+ * that a server compresses each of its certificate chains once rather than on every handshake.
+ * <p>
+ * Entries are keyed on the full Certificate message, so a chain is only served from the cache if it would be
+ * sent exactly as before (including any per-entry extensions, e.g. a stapled OCSP response). A single instance
+ * should be shared by all connections using the same credentials. Decompression is passed straight through.
+ * </p>
+ */
+public class CachingTlsCertificateCompressor
+    implements TlsCertificateCompressor
+{
+    private final TlsCertificateCompressor compressor;
+    private final int maxEntries;
+
+    // Least recently used first
+    private final LinkedHashMap cache;
+
+    /**
+     * @param compressor the compressor to cache the output of.
+     * @param maxEntries the maximum number of compressed Certificate messages to keep.
+     */
+    public CachingTlsCertificateCompressor(TlsCertificateCompressor compressor, int maxEntries)
+    {
+        if (null == compressor)
+        {
+            throw new NullPointerException("'compressor' cannot be null");
+        }
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("'maxEntries' must be positive");
+        }
+
+        this.compressor = compressor;
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap(16, 0.75f, true);
+    }
+
+    public int getAlgorithm()
+    {
+        return compressor.getAlgorithm();
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    /**
+     * Return the number of compressed Certificate messages currently cached.
+     */
+    public synchronized int size()
+    {
+        return cache.size();
+    }
+
+    public byte[] compress(byte[] certificateMessage) throws IOException
+    {
+        Message key = new Message(certificateMessage);
+
+        byte[] compressed;
+        synchronized (this)
+        {
+            compressed = (byte[])cache.get(key);
+        }
+
+        if (null == compressed)
+        {
+            compressed = compressor.compress(certificateMessage);
+
+            synchronized (this)
+            {
+                cache.put(key, compressed);
+
+                if (cache.size() > maxEntries)
+                {
+                    cache.remove(((Map.Entry)cache.entrySet().iterator().next()).getKey());
+                }
+            }
+        }
+
+        return Arrays.clone(compressed);
+    }
+
+    public byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException
+    {
+        return compressor.decompress(compressedCertificateMessage, uncompressedLength);
+    }
+
+    private static final class Message
+    {
+        private final byte[] encoding;
+        private final int hashCode;
+
+        Message(byte[] encoding)
+        {
+            this.encoding = Arrays.clone(encoding);
+            this.hashCode = Arrays.hashCode(encoding);
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof Message && Arrays.areEqual(encoding, ((Message)o).encoding);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
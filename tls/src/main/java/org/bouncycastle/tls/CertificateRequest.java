@@ -56,6 +56,7 @@ private static Vector checkSupportedSignatureAlgorithms(Vector supportedSignatur
     protected final Vector supportedSignatureAlgorithms;
     protected final Vector supportedSignatureAlgorithmsCert;
     protected final Vector certificateAuthorities;
+    protected final int[] certificateCompressionAlgorithms;
 
     /**
      * @param certificateTypes       see {@link ClientCertificateType} for valid constants.
@@ -64,7 +65,7 @@ private static Vector checkSupportedSignatureAlgorithms(Vector supportedSignatur
     public CertificateRequest(short[] certificateTypes, Vector supportedSignatureAlgorithms,
         Vector certificateAuthorities)
     {
-        this(null, certificateTypes, supportedSignatureAlgorithms, null, certificateAuthorities);
+        this(null, certificateTypes, supportedSignatureAlgorithms, null, certificateAuthorities, null);
     }
 
     // TODO[tls13] Prefer to manage the certificateRequestContext internally only? 
@@ -79,11 +80,11 @@ public CertificateRequest(byte[] certificateRequestContext, Vector supportedSign
 
         this(certificateRequestContext, null,
             checkSupportedSignatureAlgorithms(supportedSignatureAlgorithms, AlertDescription.internal_error),
-            supportedSignatureAlgorithmsCert, certificateAuthorities);
+            supportedSignatureAlgorithmsCert, certificateAuthorities, null);
     }
 
     private CertificateRequest(byte[] certificateRequestContext, short[] certificateTypes, Vector supportedSignatureAlgorithms,
-        Vector supportedSignatureAlgorithmsCert, Vector certificateAuthorities)
+        Vector supportedSignatureAlgorithmsCert, Vector certificateAuthorities, int[] certificateCompressionAlgorithms)
     {
         if (null != certificateRequestContext && !TlsUtils.isValidUint8(certificateRequestContext.length))
         {
@@ -100,6 +101,7 @@ private CertificateRequest(byte[] certificateRequestContext, short[] certificate
         this.supportedSignatureAlgorithms = supportedSignatureAlgorithms;
         this.supportedSignatureAlgorithmsCert = supportedSignatureAlgorithmsCert;
         this.certificateAuthorities = certificateAuthorities;
+        this.certificateCompressionAlgorithms = certificateCompressionAlgorithms;
     }
 
     public byte[] getCertificateRequestContext()
@@ -141,11 +143,26 @@ public Vector getCertificateAuthorities()
         return certificateAuthorities;
     }
 
+    /**
+     * @return an optional array of {@link CertificateCompressionAlgorithm} (RFC 8879). May be non-null from
+     *         TLS 1.3 onwards.
+     */
+    public int[] getCertificateCompressionAlgorithms()
+    {
+        return Arrays.clone(certificateCompressionAlgorithms);
+    }
+
     public boolean hasCertificateRequestContext(byte[] certificateRequestContext)
     {
         return Arrays.areEqual(this.certificateRequestContext, certificateRequestContext);
     }
 
+    CertificateRequest withCertificateCompressionAlgorithms(int[] certificateCompressionAlgorithms)
+    {
+        return new CertificateRequest(certificateRequestContext, certificateTypes, supportedSignatureAlgorithms,
+            supportedSignatureAlgorithmsCert, certificateAuthorities, certificateCompressionAlgorithms);
+    }
+
     /**
      * Encode this {@link CertificateRequest} to an {@link OutputStream}.
      *
@@ -164,7 +181,7 @@ public void encode(TlsContext context, OutputStream output)
         if (isTLSv13 != (null != certificateRequestContext) ||
             isTLSv13 != (null == certificateTypes) ||
             isTLSv12 != (null != supportedSignatureAlgorithms) ||
-            (!isTLSv13 && (null != supportedSignatureAlgorithmsCert)))
+            (!isTLSv13 && (null != supportedSignatureAlgorithmsCert || null != certificateCompressionAlgorithms)))
         {
             throw new IllegalStateException();
         }
@@ -186,6 +203,11 @@ public void encode(TlsContext context, OutputStream output)
                 TlsExtensionsUtils.addCertificateAuthoritiesExtension(extensions, certificateAuthorities);
             }
 
+            if (null != certificateCompressionAlgorithms)
+            {
+                TlsExtensionsUtils.addCompressCertificateExtension(extensions, certificateCompressionAlgorithms);
+            }
+
             byte[] extEncoding = TlsProtocol.writeExtensionsData(extensions);
 
             TlsUtils.writeOpaque16(extEncoding, output);
@@ -263,9 +285,10 @@ public static CertificateRequest parse(TlsContext context, InputStream input)
             Vector supportedSignatureAlgorithmsCert = TlsExtensionsUtils
                 .getSignatureAlgorithmsCertExtension(extensions);
             Vector certificateAuthorities = TlsExtensionsUtils.getCertificateAuthoritiesExtension(extensions);
+            int[] certificateCompressionAlgorithms = TlsExtensionsUtils.getCompressCertificateExtension(extensions);
 
-            return new CertificateRequest(certificateRequestContext, supportedSignatureAlgorithms,
-                supportedSignatureAlgorithmsCert, certificateAuthorities);
+            return new CertificateRequest(certificateRequestContext, null, supportedSignatureAlgorithms,
+                supportedSignatureAlgorithmsCert, certificateAuthorities, certificateCompressionAlgorithms);
         }
 
         final boolean isTLSv12 = TlsUtils.isTLSv12(negotiatedVersion);
@@ -0,0 +1,177 @@
+package org.bouncycastle.tls;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A bounded, time-windowed anti-replay filter for TLS 1.3 early data, following RFC 8446 8.2. Client Hello
+ * Recording and 8.3. Freshness Checks.
+ * <p>
+ * A ClientHello offering early data is only accepted if its ticket age (where there is one) is within the
+ * window of what the server expects, and if no ClientHello with the same PSK binder has been seen while that
+ * ClientHello could still pass the freshness check. The filter holds at most a fixed number of entries; when
+ * it is full, early data is rejected (the handshake itself proceeds as normal) rather than risking a replay.
+ * </p>
+ * <p>
+ * A filter should be shared by all connections that can accept the same tickets (e.g. a whole server
+ * deployment, if the state is shared). Note that external PSKs have no ticket age, so for those only the
+ * ClientHello record protects against replay, and only for as long as it is held; servers therefore don't accept
+ * early data under external PSKs unless they opt in (see {@link TlsServer#allowEarlyDataWithExternalPSK()}).
+ * </p>
+ */
+public class EarlyDataReplayFilter
+{
+    private final long windowMillis;
+    private final int maxEntries;
+
+    // Binder -> time first seen, oldest first
+    private final LinkedHashMap entries = new LinkedHashMap();
+
+    /**
+     * Base constructor.
+     *
+     * @param windowMillis the permitted difference, in milliseconds, between the client's and the server's view
+     *                     of a ticket's age.
+     * @param maxEntries the maximum number of ClientHellos to record.
+     */
+    public EarlyDataReplayFilter(long windowMillis, int maxEntries)
+    {
+        if (windowMillis < 1L)
+        {
+            throw new IllegalArgumentException("'windowMillis' must be positive");
+        }
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("'maxEntries' must be positive");
+        }
+
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public long getWindowMillis()
+    {
+        return windowMillis;
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    /**
+     * Return the number of ClientHellos currently recorded.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Check whether early data offered with a ClientHello may be accepted, recording the ClientHello if so. The
+     * time is taken from {@link #currentTimeMillis()}.
+     *
+     * @param binder the binder of the (first) offered PSK, which is unique to the ClientHello.
+     * @param ticketAgeSkew the difference, in milliseconds, between the ticket age reported by the client and
+     *                      the server's own view of it; 0 if there is no ticket (external PSKs).
+     * @return true if early data may be accepted, false if it must be rejected.
+     */
+    public boolean accept(byte[] binder, long ticketAgeSkew)
+    {
+        return accept(binder, ticketAgeSkew, currentTimeMillis());
+    }
+
+    /**
+     * Check whether early data offered with a ClientHello may be accepted, recording the ClientHello if so.
+     *
+     * @param binder the binder of the (first) offered PSK, which is unique to the ClientHello.
+     * @param ticketAgeSkew the difference, in milliseconds, between the ticket age reported by the client and
+     *                      the server's own view of it; 0 if there is no ticket (external PSKs).
+     * @param currentTimeMillis the current time.
+     * @return true if early data may be accepted, false if it must be rejected.
+     */
+    public boolean accept(byte[] binder, long ticketAgeSkew, long currentTimeMillis)
+    {
+        if (null == binder || binder.length < 1)
+        {
+            throw new IllegalArgumentException("'binder' cannot be null or empty");
+        }
+
+        // RFC 8446 8.3. Freshness Checks
+        if (ticketAgeSkew < -windowMillis || ticketAgeSkew > windowMillis)
+        {
+            return false;
+        }
+
+        Binder key = new Binder(binder);
+
+        synchronized (this)
+        {
+            removeExpiredEntries(currentTimeMillis);
+
+            if (entries.containsKey(key) || entries.size() >= maxEntries)
+            {
+                return false;
+            }
+
+            entries.put(key, Long.valueOf(currentTimeMillis));
+            return true;
+        }
+    }
+
+    /**
+     * Return the time used to record and expire ClientHellos in {@link #accept(byte[], long)}. Subclasses may
+     * override this to use another time source.
+     *
+     * @return the current time, in milliseconds.
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    private void removeExpiredEntries(long currentTimeMillis)
+    {
+        /*
+         * A ClientHello that passed the freshness check could still pass it when replayed up to two windows
+         * later (the skew can move from one end of the window to the other).
+         */
+        long expiry = currentTimeMillis - 2 * windowMillis;
+
+        Iterator it = entries.entrySet().iterator();
+        while (it.hasNext())
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            if (((Long)entry.getValue()).longValue() > expiry)
+            {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private static final class Binder
+    {
+        private final byte[] value;
+        private final int hashCode;
+
+        Binder(byte[] value)
+        {
+            this.value = Arrays.clone(value);
+            this.hashCode = Arrays.hashCode(value);
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof Binder && Arrays.areEqual(value, ((Binder)o).value);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
@@ -11,6 +11,7 @@
 import org.bouncycastle.tls.crypto.TlsHash;
 import org.bouncycastle.tls.crypto.TlsHashOutputStream;
 import org.bouncycastle.tls.crypto.TlsSecret;
+import org.bouncycastle.util.Arrays;
 
 public class OfferedPsks
 {
@@ -34,16 +35,46 @@
     {
         final int index;
         final TlsPSK psk;
+        final TlsSession session;
+        final int prfAlgorithm;
         final short[] pskKeyExchangeModes;
+        final short pskKeyExchangeMode;
         final TlsSecret earlySecret;
 
         SelectedConfig(int index, TlsPSK psk, short[] pskKeyExchangeModes, TlsSecret earlySecret)
+        {
+            this(index, psk, null, psk.getPRFAlgorithm(), pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke,
+                earlySecret);
+        }
+
+        SelectedConfig(int index, TlsSession session, int prfAlgorithm, short[] pskKeyExchangeModes,
+            short pskKeyExchangeMode, TlsSecret earlySecret)
+        {
+            this(index, null, session, prfAlgorithm, pskKeyExchangeModes, pskKeyExchangeMode, earlySecret);
+        }
+
+        private SelectedConfig(int index, TlsPSK psk, TlsSession session, int prfAlgorithm,
+            short[] pskKeyExchangeModes, short pskKeyExchangeMode, TlsSecret earlySecret)
         {
             this.index = index;
             this.psk = psk;
+            this.session = session;
+            this.prfAlgorithm = prfAlgorithm;
             this.pskKeyExchangeModes = pskKeyExchangeModes;
+            this.pskKeyExchangeMode = pskKeyExchangeMode;
             this.earlySecret = earlySecret;
         }
+
+        boolean isResumption()
+        {
+            return null != session;
+        }
+
+        SelectedConfig withIndex(int index)
+        {
+            return new SelectedConfig(index, psk, session, prfAlgorithm, pskKeyExchangeModes, pskKeyExchangeMode,
+                earlySecret);
+        }
     }
 
     protected final Vector identities;
@@ -102,6 +133,18 @@ public int getIndexOfIdentity(PskIdentity pskIdentity)
         return -1;
     }
 
+    int getIndexOfIdentity(byte[] identity)
+    {
+        for (int i = 0, count = identities.size(); i < count; ++i)
+        {
+            if (Arrays.areEqual(identity, ((PskIdentity)identities.elementAt(i)).getIdentity()))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public void encode(OutputStream output) throws IOException
     {
         // identities
@@ -7,6 +7,7 @@
 import java.io.OutputStream;
 
 import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsCipherExt;
 import org.bouncycastle.tls.crypto.TlsDecodeResult;
 import org.bouncycastle.tls.crypto.TlsEncodeResult;
 import org.bouncycastle.tls.crypto.TlsNullNullCipher;
@@ -28,6 +29,12 @@
     private TlsCipher readCipher = TlsNullNullCipher.INSTANCE;
     private TlsCipher readCipherDeferred = null;
     private TlsCipher writeCipher = TlsNullNullCipher.INSTANCE;
+    private TlsCipher readCipherAfterEarlyData = null;
+    private TlsCipher writeCipherAfterEarlyData = null;
+    private int skipEarlyDataLimit = 0;
+
+    // Reused for every record written; guarded by 'this'
+    private byte[] writeBuffer = null;
 
     private ProtocolVersion writeVersion = null;
 
@@ -113,9 +120,73 @@ void enablePendingCipherWrite()
         writeSeqNo.reset();
     }
 
+    /**
+     * The pending (handshake) cipher is enabled for reading once the peer's early data is ended by an
+     * EndOfEarlyData message, see {@link #endEarlyDataRead()}.
+     */
+    void enablePendingCipherReadAfterEarlyData()
+        throws IOException
+    {
+        if (pendingCipher == null || readCipherAfterEarlyData != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+        this.readCipherAfterEarlyData = pendingCipher;
+    }
+
+    /**
+     * The pending (handshake) cipher is enabled for writing once our early data is ended, see
+     * {@link #endEarlyDataWrite()}.
+     */
+    void enablePendingCipherWriteAfterEarlyData()
+        throws IOException
+    {
+        if (pendingCipher == null || writeCipherAfterEarlyData != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+        this.writeCipherAfterEarlyData = pendingCipher;
+    }
+
+    void endEarlyDataRead()
+        throws IOException
+    {
+        if (readCipherAfterEarlyData == null || readCipherDeferred != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+        this.readCipher = readCipherAfterEarlyData;
+        this.readCipherAfterEarlyData = null;
+        this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+        readSeqNo.reset();
+    }
+
+    void endEarlyDataWrite()
+    {
+        // NOTE: If the handshake cipher isn't available yet (e.g. after a HelloRetryRequest), revert to plaintext
+        this.writeCipher = null == writeCipherAfterEarlyData ? TlsNullNullCipher.INSTANCE : writeCipherAfterEarlyData;
+        this.writeCipherAfterEarlyData = null;
+        writeSeqNo.reset();
+    }
+
+    /**
+     * RFC 8446 4.2.10. A server that did not accept the client's early data skips past records it cannot
+     * deprotect (or, after a HelloRetryRequest, any application_data records), up to a limit.
+     *
+     * @param limit the number of bytes of early data plaintext that may be skipped.
+     */
+    void skipEarlyData(int limit)
+    {
+        this.skipEarlyDataLimit = Math.max(0, limit);
+    }
+
     void finaliseHandshake()
         throws IOException
     {
+        if (readCipherAfterEarlyData != null || writeCipherAfterEarlyData != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.handshake_failure);
+        }
         if (readCipher != pendingCipher || writeCipher != pendingCipher)
         {
             throw new TlsFatalAlert(AlertDescription.handshake_failure);
@@ -205,6 +276,10 @@ boolean readFullRecord(byte[] input, int inputOff, int inputLen)
 
         TlsDecodeResult decoded = decodeAndVerify(recordType, recordVersion, input,
             inputOff + RecordFormat.FRAGMENT_OFFSET, length);
+        if (null == decoded)
+        {
+            return true;
+        }
 
         handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
         return true;
@@ -244,15 +319,35 @@ boolean readRecord()
             inputRecord.reset();
         }
 
+        if (null == decoded)
+        {
+            return true;
+        }
+
         handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
         return true;
     }
 
+    /**
+     * @return the decoded record, or null if it was skipped as rejected early data.
+     */
     TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion, byte[] ciphertext, int off, int len)
         throws IOException
     {
-        long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
-        TlsDecodeResult decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
+        TlsDecodeResult decoded;
+        if (skipEarlyDataLimit > 0 && ContentType.application_data == recordType)
+        {
+            decoded = decodeOrSkipEarlyData(recordType, recordVersion, ciphertext, off, len);
+            if (null == decoded)
+            {
+                return null;
+            }
+        }
+        else
+        {
+            long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
+            decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
+        }
 
         checkLength(decoded.len, plaintextLimit, AlertDescription.record_overflow);
 
@@ -268,7 +363,48 @@ TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion,
         return decoded;
     }
 
-    void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int plaintextLength)
+    private TlsDecodeResult decodeOrSkipEarlyData(short recordType, ProtocolVersion recordVersion, byte[] ciphertext,
+        int off, int len) throws IOException
+    {
+        int skipLength = len;
+
+        if (readCipher.usesOpaqueRecordTypeDecode())
+        {
+            // NOTE: A record that fails deprotection doesn't use up a sequence number
+            long seqNo = readSeqNo.currentValue();
+            try
+            {
+                TlsDecodeResult decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext,
+                    off, len);
+
+                readSeqNo.nextValue(AlertDescription.unexpected_message);
+                this.skipEarlyDataLimit = 0;
+                return decoded;
+            }
+            catch (TlsFatalAlert e)
+            {
+                if (AlertDescription.bad_record_mac != e.getAlertDescription())
+                {
+                    throw e;
+                }
+
+                skipLength = readCipher.getPlaintextDecodeLimit(len);
+                if (skipLength > skipEarlyDataLimit)
+                {
+                    throw e;
+                }
+            }
+        }
+        else if (skipLength > skipEarlyDataLimit)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Early data exceeds the skip limit");
+        }
+
+        this.skipEarlyDataLimit -= skipLength;
+        return null;
+    }
+
+    synchronized void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int plaintextLength)
         throws IOException
     {
         // Never send anything until a valid ClientHello has been received
@@ -294,19 +430,41 @@ void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int p
         long seqNo = writeSeqNo.nextValue(AlertDescription.internal_error);
         ProtocolVersion recordVersion = writeVersion;
 
-        TlsEncodeResult encoded = writeCipher.encodePlaintext(seqNo, contentType, recordVersion,
-            RecordFormat.FRAGMENT_OFFSET, plaintext, plaintextOffset, plaintextLength);
+        byte[] buf;
+        int off, len;
+        short recordType;
+
+        if (writeCipher instanceof TlsCipherExt)
+        {
+            buf = getWriteBuffer(RecordFormat.FRAGMENT_OFFSET + writeCipher.getCiphertextEncodeLimit(plaintextLength));
+            off = 0;
+            len = RecordFormat.FRAGMENT_OFFSET + ((TlsCipherExt)writeCipher).encodePlaintext(seqNo, contentType,
+                recordVersion, plaintext, plaintextOffset, plaintextLength, buf, RecordFormat.FRAGMENT_OFFSET);
+
+            // NOTE: TLS (unlike DTLS) has no connection ID, so an opaque record type is always application_data
+            recordType = writeCipher.usesOpaqueRecordTypeEncode() ? ContentType.application_data : contentType;
+        }
+        else
+        {
+            TlsEncodeResult encoded = writeCipher.encodePlaintext(seqNo, contentType, recordVersion,
+                RecordFormat.FRAGMENT_OFFSET, plaintext, plaintextOffset, plaintextLength);
+
+            buf = encoded.buf;
+            off = encoded.off;
+            len = encoded.len;
+            recordType = encoded.recordType;
+        }
 
-        int ciphertextLength = encoded.len - RecordFormat.FRAGMENT_OFFSET;
+        int ciphertextLength = len - RecordFormat.FRAGMENT_OFFSET;
         TlsUtils.checkUint16(ciphertextLength);
 
-        TlsUtils.writeUint8(encoded.recordType, encoded.buf, encoded.off + RecordFormat.TYPE_OFFSET);
-        TlsUtils.writeVersion(recordVersion, encoded.buf, encoded.off + RecordFormat.VERSION_OFFSET);
-        TlsUtils.writeUint16(ciphertextLength, encoded.buf, encoded.off + RecordFormat.LENGTH_OFFSET);
+        TlsUtils.writeUint8(recordType, buf, off + RecordFormat.TYPE_OFFSET);
+        TlsUtils.writeVersion(recordVersion, buf, off + RecordFormat.VERSION_OFFSET);
+        TlsUtils.writeUint16(ciphertextLength, buf, off + RecordFormat.LENGTH_OFFSET);
 
         try
         {
-            output.write(encoded.buf, encoded.off, encoded.len);
+            output.write(buf, off, len);
         }
         catch (InterruptedIOException e)
         {
@@ -316,6 +474,22 @@ void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int p
         output.flush();
     }
 
+    private byte[] getWriteBuffer(int length)
+    {
+        if (null == writeBuffer || writeBuffer.length < length)
+        {
+            /*
+             * Grow geometrically (up to a full record) rather than straight to a full record, so that connections
+             * only writing small records keep a small buffer.
+             */
+            int fullLength = RecordFormat.FRAGMENT_OFFSET + writeCipher.getCiphertextEncodeLimit(plaintextLimit);
+            int grownLength = null == writeBuffer ? 0 : Math.min(2 * writeBuffer.length, fullLength);
+
+            this.writeBuffer = new byte[Math.max(length, grownLength)];
+        }
+        return writeBuffer;
+    }
+
     void close() throws IOException
     {
         inputRecord.reset();
@@ -347,6 +521,15 @@ void close() throws IOException
             }
         }
 
+        /*
+         * Only once the output is closed, so that a writer blocked in it fails (and releases the lock) rather than
+         * holding up the close.
+         */
+        synchronized (this)
+        {
+            this.writeBuffer = null;
+        }
+
         if (io != null)
         {
             throw io;
@@ -396,7 +579,7 @@ else if (readCipher.usesOpaqueRecordTypeDecode())
             {
             case ContentType.application_data:
             {
-                if (!handler.isApplicationDataReady())
+                if (!handler.isApplicationDataReady() && skipEarlyDataLimit < 1)
                 {
                     throw new TlsFatalAlert(AlertDescription.unexpected_message,
                         "Not ready for " + ContentType.getText(ContentType.application_data));
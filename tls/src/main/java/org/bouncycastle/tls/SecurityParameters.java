@@ -12,6 +12,7 @@
 {
     int entity = -1;
     boolean resumedSession = false;
+    boolean earlyDataAccepted = false;
     boolean renegotiating = false;
     boolean secureRenegotiation = false;
     int cipherSuite = CipherSuite.TLS_NULL_WITH_NULL_NULL;
@@ -104,6 +105,15 @@ public boolean isResumedSession()
         return resumedSession;
     }
 
+    /**
+     * Whether the server accepted the 0-RTT (early) data sent with the ClientHello (RFC 8446 4.2.10). If the
+     * client sent early data and this is false, the early data was discarded by the server.
+     */
+    public boolean isEarlyDataAccepted()
+    {
+        return earlyDataAccepted;
+    }
+
     public boolean isRenegotiating()
     {
         return renegotiating;
@@ -3,8 +3,12 @@
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Hashtable;
 
+import org.bouncycastle.tls.crypto.TlsCertificate;
+import org.bouncycastle.tls.crypto.TlsCrypto;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.util.Arrays;
 
@@ -21,6 +25,9 @@
         private byte[] srpIdentity = null;
         private byte[] encodedServerExtensions = null;
         private boolean extendedMasterSecret = false;
+        private long ticketAgeAdd = 0L;
+        private long ticketIssueTime = 0L;
+        private long ticketLifetime = 0L;
 
         public Builder()
         {
@@ -31,7 +38,8 @@ public SessionParameters build()
             validate(this.cipherSuite >= 0, "cipherSuite");
             validate(this.masterSecret != null, "masterSecret");
             return new SessionParameters(cipherSuite, localCertificate, masterSecret, negotiatedVersion,
-                peerCertificate, pskIdentity, srpIdentity, encodedServerExtensions, extendedMasterSecret);
+                peerCertificate, pskIdentity, srpIdentity, encodedServerExtensions, extendedMasterSecret, ticketAgeAdd,
+                ticketIssueTime, ticketLifetime);
         }
 
         public Builder setCipherSuite(int cipherSuite)
@@ -82,6 +90,33 @@ public Builder setSRPIdentity(byte[] srpIdentity)
             return this;
         }
 
+        /**
+         * Set the obfuscation value (RFC 8446 4.6.1. ticket_age_add) of the TLS 1.3 ticket for this session.
+         */
+        public Builder setTicketAgeAdd(long ticketAgeAdd)
+        {
+            this.ticketAgeAdd = ticketAgeAdd & 0xFFFFFFFFL;
+            return this;
+        }
+
+        /**
+         * Set the time, in milliseconds since the epoch, that the TLS 1.3 ticket for this session was issued.
+         */
+        public Builder setTicketIssueTime(long ticketIssueTime)
+        {
+            this.ticketIssueTime = ticketIssueTime;
+            return this;
+        }
+
+        /**
+         * Set the lifetime, in seconds, of the TLS 1.3 ticket for this session (RFC 8446 4.6.1. ticket_lifetime).
+         */
+        public Builder setTicketLifetime(long ticketLifetime)
+        {
+            this.ticketLifetime = ticketLifetime;
+            return this;
+        }
+
         public Builder setServerExtensions(Hashtable serverExtensions) throws IOException
         {
             if (serverExtensions == null || serverExtensions.isEmpty())
@@ -106,6 +141,11 @@ private void validate(boolean condition, String parameter)
         }
     }
 
+    /*
+     * Version of the format written by encode, to be bumped if it ever changes.
+     */
+    private static final short ENCODING_VERSION = 1;
+
     private int cipherSuite;
     private Certificate localCertificate;
     private TlsSecret masterSecret;
@@ -115,10 +155,14 @@ private void validate(boolean condition, String parameter)
     private byte[] srpIdentity = null;
     private byte[] encodedServerExtensions;
     private boolean extendedMasterSecret;
+    private long ticketAgeAdd;
+    private long ticketIssueTime;
+    private long ticketLifetime;
 
     private SessionParameters(int cipherSuite, Certificate localCertificate, TlsSecret masterSecret,
         ProtocolVersion negotiatedVersion, Certificate peerCertificate, byte[] pskIdentity, byte[] srpIdentity,
-        byte[] encodedServerExtensions, boolean extendedMasterSecret)
+        byte[] encodedServerExtensions, boolean extendedMasterSecret, long ticketAgeAdd, long ticketIssueTime,
+        long ticketLifetime)
     {
         this.cipherSuite = cipherSuite;
         this.localCertificate = localCertificate;
@@ -129,6 +173,9 @@ private SessionParameters(int cipherSuite, Certificate localCertificate, TlsSecr
         this.srpIdentity = Arrays.clone(srpIdentity);
         this.encodedServerExtensions = encodedServerExtensions;
         this.extendedMasterSecret = extendedMasterSecret;
+        this.ticketAgeAdd = ticketAgeAdd;
+        this.ticketIssueTime = ticketIssueTime;
+        this.ticketLifetime = ticketLifetime;
     }
 
     public void clear()
@@ -142,7 +189,45 @@ public void clear()
     public SessionParameters copy()
     {
         return new SessionParameters(cipherSuite, localCertificate, masterSecret, negotiatedVersion, peerCertificate,
-            pskIdentity, srpIdentity, encodedServerExtensions, extendedMasterSecret);
+            pskIdentity, srpIdentity, encodedServerExtensions, extendedMasterSecret, ticketAgeAdd, ticketIssueTime,
+            ticketLifetime);
+    }
+
+    /**
+     * Encode these parameters, so that they can later be recovered with {@link #parse(TlsCrypto, InputStream)}, for
+     * example as the state carried in a stateless session ticket (RFC 5077 4.). The encoding includes the master
+     * secret in the clear, so it must be kept confidential.
+     *
+     * @param crypto the crypto to extract (a copy of) the master secret with.
+     * @param output the {@link OutputStream} to encode to.
+     * @throws IOException
+     */
+    public void encode(TlsCrypto crypto, OutputStream output) throws IOException
+    {
+        TlsUtils.writeUint8(ENCODING_VERSION, output);
+        TlsUtils.writeVersion(negotiatedVersion, output);
+        TlsUtils.writeUint16(cipherSuite, output);
+        TlsUtils.writeUint8(extendedMasterSecret ? 1 : 0, output);
+
+        byte[] secret = crypto.adoptSecret(masterSecret).extract();
+        try
+        {
+            TlsUtils.writeOpaque8(secret, output);
+        }
+        finally
+        {
+            Arrays.fill(secret, (byte)0);
+        }
+
+        encodeCertificate(localCertificate, output);
+        encodeCertificate(peerCertificate, output);
+        encodeOptional(pskIdentity, output);
+        encodeOptional(srpIdentity, output);
+        encodeOptional(encodedServerExtensions, output);
+
+        TlsUtils.writeUint32(ticketAgeAdd, output);
+        TlsUtils.writeUint48(ticketIssueTime, output);
+        TlsUtils.writeUint32(ticketLifetime, output);
     }
 
     public int getCipherSuite()
@@ -180,6 +265,38 @@ public byte[] getSRPIdentity()
         return srpIdentity;
     }
 
+    public long getTicketAgeAdd()
+    {
+        return ticketAgeAdd;
+    }
+
+    public long getTicketIssueTime()
+    {
+        return ticketIssueTime;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetime;
+    }
+
+    /**
+     * Check whether the TLS 1.3 ticket for this session has outlived its lifetime.
+     *
+     * @param currentTimeMillis the current time, in milliseconds since the epoch.
+     * @return true if the session has a ticket lifetime that has expired, otherwise false.
+     */
+    public boolean isTicketExpired(long currentTimeMillis)
+    {
+        if (ticketLifetime <= 0L)
+        {
+            return false;
+        }
+
+        long ageMillis = currentTimeMillis - ticketIssueTime;
+        return ageMillis < 0L || ageMillis > ticketLifetime * 1000L;
+    }
+
     public boolean isExtendedMasterSecret()
     {
         return extendedMasterSecret;
@@ -195,4 +312,102 @@ public Hashtable readServerExtensions() throws IOException
         ByteArrayInputStream buf = new ByteArrayInputStream(encodedServerExtensions);
         return TlsProtocol.readExtensions(buf);
     }
+
+    /**
+     * Parse parameters previously encoded by {@link #encode(TlsCrypto, OutputStream)}.
+     *
+     * @param crypto the crypto to create the master secret and any certificates with.
+     * @param input  the {@link InputStream} to parse from.
+     * @return a {@link SessionParameters} object.
+     * @throws IOException
+     */
+    public static SessionParameters parse(TlsCrypto crypto, InputStream input) throws IOException
+    {
+        if (ENCODING_VERSION != TlsUtils.readUint8(input))
+        {
+            throw new TlsFatalAlert(AlertDescription.decode_error);
+        }
+
+        ProtocolVersion negotiatedVersion = TlsUtils.readVersion(input);
+        int cipherSuite = TlsUtils.readUint16(input);
+        boolean extendedMasterSecret = TlsUtils.readUint8(input) != 0;
+
+        byte[] secret = TlsUtils.readOpaque8(input, 1);
+        TlsSecret masterSecret = crypto.createSecret(secret);
+        Arrays.fill(secret, (byte)0);
+
+        Certificate localCertificate = parseCertificate(crypto, input);
+        Certificate peerCertificate = parseCertificate(crypto, input);
+        byte[] pskIdentity = parseOptional(input);
+        byte[] srpIdentity = parseOptional(input);
+        byte[] encodedServerExtensions = parseOptional(input);
+
+        long ticketAgeAdd = TlsUtils.readUint32(input);
+        long ticketIssueTime = TlsUtils.readUint48(input);
+        long ticketLifetime = TlsUtils.readUint32(input);
+
+        return new SessionParameters(cipherSuite, localCertificate, masterSecret, negotiatedVersion, peerCertificate,
+            pskIdentity, srpIdentity, encodedServerExtensions, extendedMasterSecret, ticketAgeAdd, ticketIssueTime,
+            ticketLifetime);
+    }
+
+    private static void encodeCertificate(Certificate certificate, OutputStream output) throws IOException
+    {
+        if (null == certificate)
+        {
+            TlsUtils.writeUint8(0, output);
+            return;
+        }
+
+        TlsUtils.writeUint8(1, output);
+        TlsUtils.writeUint8(certificate.getCertificateType(), output);
+        encodeOptional(certificate.getCertificateRequestContext(), output);
+
+        int count = certificate.getLength();
+        TlsUtils.checkUint16(count);
+        TlsUtils.writeUint16(count, output);
+        for (int i = 0; i < count; ++i)
+        {
+            TlsUtils.writeOpaque24(certificate.getCertificateAt(i).getEncoded(), output);
+        }
+    }
+
+    private static void encodeOptional(byte[] data, OutputStream output) throws IOException
+    {
+        if (null == data)
+        {
+            TlsUtils.writeUint8(0, output);
+        }
+        else
+        {
+            TlsUtils.writeUint8(1, output);
+            TlsUtils.writeOpaque16(data, output);
+        }
+    }
+
+    private static Certificate parseCertificate(TlsCrypto crypto, InputStream input) throws IOException
+    {
+        if (0 == TlsUtils.readUint8(input))
+        {
+            return null;
+        }
+
+        short certificateType = TlsUtils.readUint8(input);
+        byte[] certificateRequestContext = parseOptional(input);
+
+        int count = TlsUtils.readUint16(input);
+        CertificateEntry[] certificateEntryList = new CertificateEntry[count];
+        for (int i = 0; i < count; ++i)
+        {
+            TlsCertificate cert = crypto.createCertificate(certificateType, TlsUtils.readOpaque24(input, 1));
+            certificateEntryList[i] = new CertificateEntry(cert, null);
+        }
+
+        return new Certificate(certificateType, certificateRequestContext, certificateEntryList);
+    }
+
+    private static byte[] parseOptional(InputStream input) throws IOException
+    {
+        return 0 == TlsUtils.readUint8(input) ? null : TlsUtils.readOpaque16(input);
+    }
 }
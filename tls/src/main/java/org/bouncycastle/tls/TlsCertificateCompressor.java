@@ -0,0 +1,36 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * Interface for a certificate compression algorithm, as used by the CompressedCertificate message of RFC 8879.
+ */
+public interface TlsCertificateCompressor
+{
+    /**
+     * @return the {@link CertificateCompressionAlgorithm} implemented.
+     */
+    int getAlgorithm();
+
+    /**
+     * Compress the encoding of a Certificate message (the message body only).
+     *
+     * @param certificateMessage the Certificate message to compress.
+     * @return the compressed form of the message.
+     * @throws IOException
+     */
+    byte[] compress(byte[] certificateMessage) throws IOException;
+
+    /**
+     * Decompress a received compressed Certificate message. Implementations must not produce more than the
+     * expected number of bytes, and should fail as soon as the input is found to decompress to more (or less).
+     *
+     * @param compressedCertificateMessage the compressed Certificate message.
+     * @param uncompressedLength the length the peer claims the message decompresses to. This has already been
+     *                           checked against {@link TlsPeer#getMaxHandshakeMessageSize()}.
+     * @return the Certificate message, of exactly <code>uncompressedLength</code> bytes, or null if the input
+     *         could not be decompressed to that.
+     * @throws IOException
+     */
+    byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException;
+}
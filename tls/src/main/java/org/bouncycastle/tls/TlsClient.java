@@ -32,6 +32,28 @@
      */
     Vector getExternalPSKs();
 
+    /**
+     * RFC 8446 4.2.10. Return data to send as TLS 1.3 early (0-RTT) data, immediately after the ClientHello, or
+     * null to not send early data. This is only called if the first PSK offered is an external PSK, which then
+     * protects the early data (with the first offered TLS 1.3 cipher suite that uses the PSK's hash).
+     * <p>
+     * NOTE: The client doesn't yet resume TLS 1.3 sessions from the server's tickets, so early data can't be sent
+     * under a resumption PSK. Servers normally refuse early data under an external PSK (see
+     * {@link TlsServer#allowEarlyDataWithExternalPSK()}), so in practice it is only accepted by a server configured
+     * for it. The BCJSSE provider never sends early data.
+     * </p>
+     * <p>
+     * Early data is not forward secret and may be replayed by an attacker, so it should only carry requests that
+     * are safe to repeat. The server may not accept it (see {@link SecurityParameters#isEarlyDataAccepted()}), in
+     * which case it should be sent again as ordinary application data once the handshake completes.
+     * </p>
+     *
+     * @return the early data to send, or null.
+     * @throws IOException
+     */
+    byte[] getEarlyData()
+        throws IOException;
+
     boolean isFallback();
 
     // Hashtable is (Integer -> byte[])
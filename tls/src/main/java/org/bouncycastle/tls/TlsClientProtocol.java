@@ -29,6 +29,8 @@
     protected CertificateStatus certificateStatus = null;
     protected CertificateRequest certificateRequest = null;
 
+    protected boolean earlyDataOffered = false;
+
     /**
      * Constructor for non-blocking mode.<br>
      * <br>
@@ -119,6 +121,8 @@ protected void cleanupHandshake()
 
         this.certificateStatus = null;
         this.certificateRequest = null;
+
+        this.earlyDataOffered = false;
     }
 
     protected TlsContext getContext()
@@ -166,6 +170,26 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             }
             break;
         }
+        case HandshakeType.compressed_certificate:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_ENCRYPTED_EXTENSIONS:
+            {
+                skip13CertificateRequest();
+                // NB: Fall through to next case label
+            }
+            case CS_SERVER_CERTIFICATE_REQUEST:
+            {
+                receive13ServerCompressedCertificate(buf);
+                this.connection_state = CS_SERVER_CERTIFICATE;
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
         case HandshakeType.certificate_request:
         {
             switch (this.connection_state)
@@ -243,10 +267,18 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 recordStream.setIgnoreChangeCipherSpec(false);
 
                 /*
-                 * TODO[tls13] After receiving the server's Finished message, if the server has accepted early
+                 * RFC 8446 4.5. After receiving the server's Finished message, if the server has accepted early
                  * data, an EndOfEarlyData message will be sent to indicate the key change. This message will
                  * be encrypted with the 0-RTT traffic keys.
                  */
+                if (earlyDataOffered)
+                {
+                    send13EndOfEarlyDataMessage();
+                    this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+
+                    this.earlyDataOffered = false;
+                    recordStream.endEarlyDataWrite();
+                }
 
                 if (null != certificateRequest)
                 {
@@ -265,7 +297,8 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                         clientCertificate = Certificate.EMPTY_CHAIN_TLS13;
                     }
 
-                    send13CertificateMessage(clientCertificate);
+                    send13CertificateMessage(clientCertificate,
+                        certificateRequest.getCertificateCompressionAlgorithms());
                     this.connection_state = CS_CLIENT_CERTIFICATE;
 
                     if (null != clientCredentials)
@@ -337,7 +370,6 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         case HandshakeType.certificate_url:
         case HandshakeType.client_hello:
         case HandshakeType.client_key_exchange:
-        case HandshakeType.compressed_certificate:
         case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
@@ -921,6 +953,13 @@ protected void process13HelloRetryRequest(ServerHello helloRetryRequest)
         TlsUtils.negotiatedCipherSuite(securityParameters, cipherSuite);
         tlsClient.notifySelectedCipherSuite(cipherSuite);
 
+        // RFC 8446 4.2.10. Early data is rejected by a HelloRetryRequest; the retried ClientHello is sent in the clear
+        if (earlyDataOffered)
+        {
+            this.earlyDataOffered = false;
+            recordStream.endEarlyDataWrite();
+        }
+
         this.clientAgreements = null;
         this.retryCookie = cookie;
         this.retryGroup = selected_group;
@@ -1024,6 +1063,13 @@ protected void process13ServerHello(ServerHello serverHello, boolean afterHelloR
             }
 
             tlsClient.notifySelectedPSK(selectedPSK);
+
+            // RFC 8446 4.2.10. Early data can only be accepted if the first offered PSK was selected
+            if (earlyDataOffered && 0 != selected_identity)
+            {
+                this.earlyDataOffered = false;
+                recordStream.endEarlyDataWrite();
+            }
         }
 
         TlsSecret sharedSecret = null;
@@ -1079,17 +1125,28 @@ protected void process13ServerHelloCoda(ServerHello serverHello, boolean afterHe
             recordStream.setIgnoreChangeCipherSpec(true);
 
             /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
+             * NOTE: If offering early_data, the record was already placed immediately after the first
              * ClientHello.
              */
             /*
              * TODO[tls13] Ideally wait until just after Server Finished received, but then we'd need to defer
              * the enabling of the pending write cipher
              */
-            sendChangeCipherSpecMessage();
+            if (!clientExtensions.containsKey(TlsExtensionsUtils.EXT_early_data))
+            {
+                sendChangeCipherSpecMessage();
+            }
         }
 
-        recordStream.enablePendingCipherWrite();
+        if (earlyDataOffered)
+        {
+            // NOTE: Writing stays under the early traffic keys until acceptance (and EndOfEarlyData) is known
+            recordStream.enablePendingCipherWriteAfterEarlyData();
+        }
+        else
+        {
+            recordStream.enablePendingCipherWrite();
+        }
         recordStream.enablePendingCipherRead(false);
     }
 
@@ -1145,6 +1202,15 @@ protected void processServerHello(ServerHello serverHello)
 
         TlsUtils.negotiatedVersionTLSClient(tlsClientContext, tlsClient);
 
+        /*
+         * RFC 8446 D.3. A client that attempts to send 0-RTT data MUST fail a connection if it receives a
+         * ServerHello with TLS 1.2 or older.
+         */
+        if (earlyDataOffered && !ProtocolVersion.TLSv13.isEqualOrEarlierVersionOf(server_version))
+        {
+            throw new TlsFatalAlert(AlertDescription.protocol_version);
+        }
+
         if (ProtocolVersion.TLSv13.isEqualOrEarlierVersionOf(server_version))
         {
             process13ServerHello(serverHello, false);
@@ -1515,6 +1581,22 @@ protected void receive13EncryptedExtensions(ByteArrayInputStream buf)
         final SecurityParameters securityParameters = tlsClientContext.getSecurityParametersHandshake();
         final ProtocolVersion negotiatedVersion = securityParameters.getNegotiatedVersion();
 
+        /*
+         * RFC 8446 4.2.10. The server indicates acceptance of early data in its EncryptedExtensions. If it
+         * didn't accept it, the handshake traffic keys are used from now on.
+         */
+        boolean earlyDataAccepted = TlsExtensionsUtils.hasEarlyDataIndication(serverExtensions);
+        if (earlyDataAccepted && !earlyDataOffered)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+        securityParameters.earlyDataAccepted = earlyDataAccepted;
+        if (earlyDataOffered && !earlyDataAccepted)
+        {
+            this.earlyDataOffered = false;
+            recordStream.endEarlyDataWrite();
+        }
+
         securityParameters.applicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(serverExtensions);
         securityParameters.applicationProtocolSet = true;
 
@@ -1597,6 +1679,14 @@ protected void receive13ServerCertificate(ByteArrayInputStream buf)
         handleServerCertificate();
     }
 
+    protected void receive13ServerCompressedCertificate(ByteArrayInputStream buf)
+        throws IOException
+    {
+        int[] offeredAlgorithms = TlsExtensionsUtils.getCompressCertificateExtension(clientExtensions);
+
+        receive13ServerCertificate(receive13CompressedCertificate(buf, offeredAlgorithms));
+    }
+
     protected void receive13ServerCertificateVerify(ByteArrayInputStream buf)
         throws IOException
     {
@@ -1657,6 +1747,9 @@ protected void send13ClientHelloRetry() throws IOException
     {
         Hashtable clientHelloExtensions = clientHello.getExtensions();
 
+        // NOTE: If early data was offered, the change_cipher_spec was already sent after the first ClientHello
+        boolean sentChangeCipherSpec = clientHelloExtensions.containsKey(TlsExtensionsUtils.EXT_early_data);
+
         clientHelloExtensions.remove(TlsExtensionsUtils.EXT_cookie);
         clientHelloExtensions.remove(TlsExtensionsUtils.EXT_early_data);
         clientHelloExtensions.remove(TlsExtensionsUtils.EXT_key_share);
@@ -1714,13 +1807,10 @@ protected void send13ClientHelloRetry() throws IOException
          */
 
         // See RFC 8446 D.4.
+        if (!sentChangeCipherSpec)
         {
             recordStream.setIgnoreChangeCipherSpec(true);
 
-            /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
-             * ClientHello.
-             */
             sendChangeCipherSpecMessage();
         }
 
@@ -1945,12 +2035,72 @@ protected void sendClientHello()
 
 
 
+        /*
+         * RFC 8446 4.2.10. Early data is sent under the first offered PSK (only external PSKs are offered).
+         */
+        byte[] earlyData = null;
+        int earlyDataCipherSuite = -1;
+        if (offeringTLSv13Plus && null != clientBinders && !securityParameters.isRenegotiating())
+        {
+            earlyDataCipherSuite = TlsUtils.getEarlyDataCipherSuite13(offeredCipherSuites,
+                clientBinders.psks[0].getPRFAlgorithm());
+            if (earlyDataCipherSuite >= 0)
+            {
+                earlyData = tlsClient.getEarlyData();
+                if (null != earlyData)
+                {
+                    TlsExtensionsUtils.addEarlyDataIndication(clientExtensions);
+                }
+            }
+        }
+
         int bindersSize = null == clientBinders ? 0 : clientBinders.bindersSize;
 
         this.clientHello = new ClientHello(legacy_version, securityParameters.getClientRandom(), legacy_session_id,
             null, offeredCipherSuites, clientExtensions, bindersSize);
 
         sendClientHelloMessage();
+
+        if (null != earlyData)
+        {
+            send13EarlyData(earlyDataCipherSuite, earlyData);
+        }
+    }
+
+    protected void send13EarlyData(int cipherSuite, byte[] earlyData) throws IOException
+    {
+        SecurityParameters securityParameters = tlsClientContext.getSecurityParametersHandshake();
+
+        // See RFC 8446 D.4. If offering early_data, the record is placed immediately after the first ClientHello.
+        recordStream.setIgnoreChangeCipherSpec(true);
+        sendChangeCipherSpecMessage();
+
+        /*
+         * NOTE: The version and cipher suite are provisional, for the early traffic keys only; they are
+         * negotiated (again) when the ServerHello is received.
+         */
+        securityParameters.negotiatedVersion = ProtocolVersion.TLSv13;
+        TlsUtils.negotiatedCipherSuite(securityParameters, cipherSuite);
+        securityParameters.earlySecret = clientBinders.earlySecrets[0];
+
+        byte[] clientHelloTranscriptHash = TlsUtils.getClientHelloTranscriptHash(tlsClientContext, handshakeHash);
+
+        TlsUtils.establish13PhaseEarly(tlsClientContext, clientHelloTranscriptHash, recordStream);
+
+        recordStream.enablePendingCipherWrite();
+        this.earlyDataOffered = true;
+
+        int plaintextLimit = recordStream.getPlaintextLimit();
+        for (int off = 0; off < earlyData.length; off += plaintextLimit)
+        {
+            int len = Math.min(plaintextLimit, earlyData.length - off);
+            safeWriteRecord(ContentType.application_data, earlyData, off, len);
+        }
+    }
+
+    protected void send13EndOfEarlyDataMessage() throws IOException
+    {
+        HandshakeMessageOutput.send(this, HandshakeType.end_of_early_data, TlsUtils.EMPTY_BYTES);
     }
 
     protected void sendClientHelloMessage() throws IOException
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls;
 
 import java.io.IOException;
+import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsCertificate;
 import org.bouncycastle.tls.crypto.TlsCrypto;
@@ -57,6 +58,18 @@
 
     int getMaxHandshakeMessageSize();
 
+    /**
+     * RFC 8879. The certificate compression algorithms supported, in order of preference. From TLS 1.3, these
+     * are offered to the peer (in the ClientHello, or the server's CertificateRequest) for compressing the
+     * Certificate message it sends, and used to compress our own Certificate message where the peer offers
+     * one of them. A received Certificate message may not decompress to more than
+     * {@link #getMaxHandshakeMessageSize()}.
+     *
+     * @return a {@link java.util.Vector} of {@link TlsCertificateCompressor}, or null (or empty) to disable
+     *         certificate compression.
+     */
+    Vector getCertificateCompressors();
+
     short[] getPskKeyExchangeModes();
 
     /**
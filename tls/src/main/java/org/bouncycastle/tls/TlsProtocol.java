@@ -166,6 +166,7 @@ protected boolean isTLSv13ConnectionState()
     protected boolean selectedPSK13 = false;
     protected boolean receivedChangeCipherSpec = false;
     protected boolean expectSessionTicket = false;
+    protected long earlyDataRemaining = -1L;
 
     protected boolean blocking;
     protected ByteQueueInputStream inputBuffers;
@@ -475,6 +476,7 @@ protected void cleanupHandshake()
         this.selectedPSK13 = false;
         this.receivedChangeCipherSpec = false;
         this.expectSessionTicket = false;
+        this.earlyDataRemaining = -1L;
     }
 
     protected void completeHandshake()
@@ -567,7 +569,15 @@ protected void processRecord(short protocol, byte[] buf, int off, int len)
         {
             if (!appDataReady)
             {
-                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                /*
+                 * RFC 8446 4.2.10. A server that accepted early data receives it until the EndOfEarlyData
+                 * message, up to its max_early_data_size.
+                 */
+                if (len > earlyDataRemaining)
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+                earlyDataRemaining -= len;
             }
             applicationDataQueue.addData(buf, off, len);
             processApplicationDataQueue();
@@ -1779,6 +1789,16 @@ protected void sendCertificateMessage(Certificate certificate, OutputStream endP
     }
 
     protected void send13CertificateMessage(Certificate certificate) throws IOException
+    {
+        send13CertificateMessage(certificate, null);
+    }
+
+    /**
+     * @param peerCompressionAlgorithms the certificate compression algorithms (RFC 8879) offered by the peer, or
+     *                                  null if it offered none.
+     */
+    protected void send13CertificateMessage(Certificate certificate, int[] peerCompressionAlgorithms)
+        throws IOException
     {
         if (null == certificate)
         {
@@ -1792,13 +1812,94 @@ protected void send13CertificateMessage(Certificate certificate) throws IOExcept
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.certificate);
-        certificate.encode(context, message, null);
-        message.send(this);
+        TlsCertificateCompressor compressor = TlsUtils.selectCertificateCompressor(
+            getPeer().getCertificateCompressors(), peerCompressionAlgorithms);
+
+        if (null == compressor)
+        {
+            HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.certificate);
+            certificate.encode(context, message, null);
+            message.send(this);
+        }
+        else
+        {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            certificate.encode(context, buf, null);
+            byte[] certificateMessage = buf.toByteArray();
+
+            byte[] compressedCertificateMessage = compressor.compress(certificateMessage);
+
+            /*
+             * RFC 8879 4. The sender MAY send an uncompressed Certificate message instead, so we do that
+             * whenever compression doesn't actually help.
+             */
+            if (TlsUtils.isNullOrEmpty(compressedCertificateMessage)
+                || compressedCertificateMessage.length + 8 >= certificateMessage.length)
+            {
+                HandshakeMessageOutput.send(this, HandshakeType.certificate, certificateMessage);
+            }
+            else
+            {
+                HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.compressed_certificate,
+                    compressedCertificateMessage.length + 8);
+                TlsUtils.writeUint16(compressor.getAlgorithm(), message);
+                TlsUtils.writeUint24(certificateMessage.length, message);
+                TlsUtils.writeOpaque24(compressedCertificateMessage, message);
+                message.send(this);
+            }
+        }
 
         securityParameters.localCertificate = certificate;
     }
 
+    /**
+     * RFC 8879 4. Recover the Certificate message carried by a CompressedCertificate message.
+     *
+     * @param offeredAlgorithms the certificate compression algorithms we offered to the peer, or null if none.
+     * @return the decompressed Certificate message.
+     */
+    protected ByteArrayInputStream receive13CompressedCertificate(ByteArrayInputStream buf, int[] offeredAlgorithms)
+        throws IOException
+    {
+        if (null == offeredAlgorithms)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        int algorithm = TlsUtils.readUint16(buf);
+        int uncompressedLength = TlsUtils.readUint24(buf);
+        byte[] compressedCertificateMessage = TlsUtils.readOpaque24(buf, 1);
+
+        assertEmpty(buf);
+
+        if (!Arrays.contains(offeredAlgorithms, algorithm))
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        TlsCertificateCompressor compressor = TlsUtils.selectCertificateCompressor(
+            getPeer().getCertificateCompressors(), new int[]{ algorithm });
+        if (null == compressor)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        int maxLength = getPeer().getMaxHandshakeMessageSize();
+        if (uncompressedLength < 1 || uncompressedLength > maxLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate,
+                "Compressed certificate too large: " + uncompressedLength + " > " + maxLength);
+        }
+
+        byte[] certificateMessage = compressor.decompress(compressedCertificateMessage, uncompressedLength);
+        if (null == certificateMessage || certificateMessage.length != uncompressedLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate, "Certificate decompression failed");
+        }
+
+        return new ByteArrayInputStream(certificateMessage);
+    }
+
     protected void send13CertificateVerifyMessage(DigitallySigned certificateVerify)
         throws IOException
     {
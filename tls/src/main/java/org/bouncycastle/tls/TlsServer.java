@@ -39,6 +39,105 @@
      */
     TlsPSKExternal getExternalPSK(Vector identities);
 
+    /**
+     * Return the session for a ticket the client presents, if available. Tickets are those issued by
+     * {@link #createSessionTicket(SessionParameters)}: for TLS 1.3 this is called with the identity of each PSK the
+     * client offers, and for earlier versions with any (non-empty) RFC 5077 session ticket, which is tried before
+     * the client's session ID. Session IDs themselves are only ever passed to {@link #getSessionToResume(byte[])}.
+     *
+     * @param ticket the ticket presented by the client.
+     * @return A {@link TlsSession} exporting the parameters the ticket was issued for, or null.
+     */
+    TlsSession getSessionToResumeFromTicket(byte[] ticket);
+
+    /**
+     * RFC 8446 4.2.11. Called once the binder of the PSK identity the server selected has verified, before the
+     * session {@link #getSessionToResumeFromTicket(byte[])} returned for it is resumed. Looking a ticket up should
+     * leave it usable; a ticket that can be used once only is claimed here instead, so that tickets that are merely
+     * inspected, or offered with a bad binder, are not used up.
+     *
+     * @param ticket the ticket presented by the client.
+     * @param session the session returned for the ticket by {@link #getSessionToResumeFromTicket(byte[])}.
+     * @return true if the session may be resumed, or false (e.g. if another connection has already claimed the
+     *         ticket) to continue with a full handshake.
+     */
+    boolean claimSessionFromTicket(byte[] ticket, TlsSession session);
+
+    /**
+     * RFC 8446 4.6.1. Return the lifetime, in seconds, of the TLS 1.3 session tickets to issue, which must not
+     * exceed 604800 (seven days). If this returns 0 no tickets are issued and TLS 1.3 sessions cannot be resumed.
+     * <p>
+     * For earlier versions this is only called if the server sent the SessionTicket extension (RFC 5077). If it
+     * returns non-zero the ticket is then created by {@link #createSessionTicket(SessionParameters)}, otherwise by
+     * {@link #getNewSessionTicket()}.
+     * </p>
+     *
+     * @return the ticket lifetime in seconds, or 0 to not issue tickets.
+     * @throws IOException
+     */
+    long getSessionTicketLifetime()
+        throws IOException;
+
+    /**
+     * RFC 8446 4.6.1. Called once a TLS 1.3 handshake has completed, if {@link #getSessionTicketLifetime()} is
+     * non-zero, to issue a ticket the client can later offer to resume the session. The ticket is opaque to the
+     * client; when it is offered it is passed to {@link #getSessionToResumeFromTicket(byte[])}, which must then
+     * return a {@link TlsSession} exporting the given parameters. For earlier versions the same applies to the
+     * RFC 5077 NewSessionTicket sent at the end of a full handshake.
+     * <p>
+     * The ticket may simply identify a session the server keeps, or carry the (protected) session state itself,
+     * see {@link SessionParameters#encode(org.bouncycastle.tls.crypto.TlsCrypto, java.io.OutputStream)}.
+     * </p>
+     *
+     * @param sessionParameters the parameters of the resumable session, including its resumption PSK (TLS 1.3) or
+     *                          master secret as the master secret.
+     * @return the ticket, or null to not send a NewSessionTicket (TLS 1.3) or to defer to
+     *         {@link #getNewSessionTicket()}.
+     * @throws IOException
+     */
+    byte[] createSessionTicket(SessionParameters sessionParameters)
+        throws IOException;
+
+    /**
+     * RFC 8446 4.2.10. Return the maximum amount of TLS 1.3 early (0-RTT) data, in bytes, to accept from a client,
+     * or 0 to never accept it. If non-zero, issued tickets allow early data up to this amount, and early data
+     * sent under the first offered PSK is accepted if it passes {@link #getEarlyDataReplayFilter()}; it is then
+     * available to read as application data before the handshake completes. Rejected early data is skipped. Only
+     * resumption PSKs qualify, unless {@link #allowEarlyDataWithExternalPSK()} returns true.
+     * <p>
+     * Early data is not forward secret and can be replayed across connections despite the filter (e.g. to a
+     * different server, or when the filter is full), so it should only be accepted for requests that are safe to
+     * repeat.
+     * </p>
+     *
+     * @return the maximum early data size in bytes, or 0 to not accept early data.
+     * @throws IOException
+     */
+    long getMaxEarlyDataSize()
+        throws IOException;
+
+    /**
+     * Return the filter used to detect replayed ClientHellos offering early data. It should be shared by all
+     * connections that can accept the same PSKs. Early data is never accepted if this returns null.
+     *
+     * @return the {@link EarlyDataReplayFilter}, or null.
+     */
+    EarlyDataReplayFilter getEarlyDataReplayFilter();
+
+    /**
+     * Return whether TLS 1.3 early data may also be accepted under an external PSK, subject to
+     * {@link #getMaxEarlyDataSize()} and {@link #getEarlyDataReplayFilter()}.
+     * <p>
+     * An external PSK has no ticket age, so the freshness check (RFC 8446 8.3) can't be applied: once the replay
+     * filter no longer holds a ClientHello (two windows after it was seen, or sooner if the filter is full), the
+     * same ClientHello and its early data will be accepted again. Only return true if replays of the early data
+     * are harmless at any time.
+     * </p>
+     *
+     * @return true to accept early data under external PSKs.
+     */
+    boolean allowEarlyDataWithExternalPSK();
+
     void notifySession(TlsSession session);
 
     void notifyClientVersion(ProtocolVersion clientVersion) throws IOException;
@@ -15,10 +15,17 @@
 import org.bouncycastle.tls.crypto.TlsKemConfig;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Objects;
 
 public class TlsServerProtocol
     extends TlsProtocol
 {
+    /*
+     * RFC 8446 4.2.10. The minimum amount of early data that is skipped if it isn't accepted, so that clients
+     * attempting 0-RTT can still connect to a server that doesn't accept early data.
+     */
+    private static final int EARLY_DATA_SKIP_LIMIT = 1 << 14;
+
     protected TlsServer tlsServer = null;
     TlsServerContextImpl tlsServerContext = null;
 
@@ -26,6 +33,10 @@
     protected TlsKeyExchange keyExchange = null;
     protected CertificateRequest certificateRequest = null;
 
+    // The PSK selected for a ClientHello answered with a HelloRetryRequest
+    private OfferedPsks.SelectedConfig retryPSK = null;
+    private byte[] retryPSKIdentity = null;
+
     /**
      * Constructor for non-blocking mode.<br>
      * <br>
@@ -103,6 +114,13 @@ protected void cleanupHandshake()
         this.offeredCipherSuites = null;
         this.keyExchange = null;
         this.certificateRequest = null;
+
+        if (null != retryPSK)
+        {
+            retryPSK.earlySecret.destroy();
+            this.retryPSK = null;
+        }
+        this.retryPSKIdentity = null;
     }
 
     protected boolean expectCertificateVerifyMessage()
@@ -168,9 +186,7 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
         ProtocolVersion serverVersion = securityParameters.getNegotiatedVersion();
         TlsCrypto crypto = tlsServerContext.getCrypto();
 
-        // NOTE: Will only select for psk_dhe_ke
-        OfferedPsks.SelectedConfig selectedPSK = TlsUtils.selectPreSharedKey(tlsServerContext, tlsServer,
-            clientHelloExtensions, clientHelloMessage, handshakeHash, afterHelloRetryRequest);
+        OfferedPsks.SelectedConfig selectedPSK = null;
 
         Vector clientShares = TlsExtensionsUtils.getKeyShareClientHello(clientHelloExtensions);
         KeyShareEntry clientShare = null;
@@ -182,6 +198,15 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
                 throw new TlsFatalAlert(AlertDescription.internal_error);
             }
 
+            /*
+             * The PSK (and so the session, if resuming) selected for the initial ClientHello stands; it isn't
+             * looked up again, since a single-use ticket has already been claimed.
+             */
+            selectedPSK = TlsUtils.selectPreSharedKeyAfterRetry(tlsServerContext, clientHelloExtensions,
+                clientHelloMessage, handshakeHash, retryPSK, retryPSKIdentity);
+            this.retryPSK = null;
+            this.retryPSKIdentity = null;
+
             if (null == selectedPSK)
             {
                 /*
@@ -197,7 +222,7 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             else
             {
                 // TODO[tls13] Maybe filter the offered PSKs by PRF algorithm before server selection instead
-                if (selectedPSK.psk.getPRFAlgorithm() != securityParameters.getPRFAlgorithm())
+                if (selectedPSK.prfAlgorithm != securityParameters.getPRFAlgorithm())
                 {
                     throw new TlsFatalAlert(AlertDescription.illegal_parameter);
                 }
@@ -248,6 +273,12 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
 
             TlsUtils.establishClientSigAlgs(securityParameters, clientHelloExtensions);
 
+            tlsServer.processClientExtensions(clientHelloExtensions);
+
+            // NOTE: Resumption PSKs are looked up after the server has seen the client extensions (e.g. SNI)
+            selectedPSK = TlsUtils.selectPreSharedKey(tlsServerContext, tlsServer, clientHelloExtensions,
+                offeredCipherSuites, clientHelloMessage, handshakeHash);
+
             /*
              * RFC 8446 4.2.3. If a server is authenticating via a certificate and the client has
              * not sent a "signature_algorithms" extension, then the server MUST abort the handshake
@@ -258,16 +289,17 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
                 throw new TlsFatalAlert(AlertDescription.missing_extension);
             }
 
-            tlsServer.processClientExtensions(clientHelloExtensions);
+            if (null != selectedPSK && selectedPSK.isResumption())
+            {
+                if (!establishSession(selectedPSK.session))
+                {
+                    throw new TlsFatalAlert(AlertDescription.internal_error);
+                }
 
-            /*
-             * NOTE: Currently no server support for session resumption
-             * 
-             * If adding support, ensure securityParameters.tlsUnique is set to the localVerifyData, but
-             * ONLY when extended_master_secret has been negotiated (otherwise NULL).
-             */
+                securityParameters.resumedSession = true;
+            }
+            else
             {
-                // TODO[tls13] Resumption/PSK
                 securityParameters.resumedSession = false;
 
                 this.tlsSession = TlsUtils.importSession(TlsUtils.EMPTY_BYTES, null);
@@ -282,8 +314,10 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             TlsUtils.negotiatedVersionTLSServer(tlsServerContext);
 
             {
-                // TODO[tls13] Constrain selection when PSK selected
-                int cipherSuite = tlsServer.getSelectedCipherSuite();
+                // TODO[tls13] Constrain selection when external PSK selected
+                int cipherSuite = securityParameters.isResumedSession()
+                    ?   sessionParameters.getCipherSuite()
+                    :   tlsServer.getSelectedCipherSuite();
 
                 if (!TlsUtils.isValidCipherSuiteSelection(offeredCipherSuites, cipherSuite) ||
                     !TlsUtils.isValidVersionForCipherSuite(cipherSuite, serverVersion))
@@ -297,37 +331,55 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             int[] clientSupportedGroups = securityParameters.getClientSupportedGroups();
             int[] serverSupportedGroups = securityParameters.getServerSupportedGroups();
 
-            clientShare = TlsUtils.selectKeyShare(crypto, serverVersion, clientShares, clientSupportedGroups,
-                serverSupportedGroups);
-
-            if (null == clientShare)
+            // NOTE: No key share is needed for PSK-only key establishment
+            if (null == selectedPSK || PskKeyExchangeMode.psk_ke != selectedPSK.pskKeyExchangeMode)
             {
-                this.retryGroup = TlsUtils.selectKeyShareGroup(crypto, serverVersion, clientSupportedGroups,
+                clientShare = TlsUtils.selectKeyShare(crypto, serverVersion, clientShares, clientSupportedGroups,
                     serverSupportedGroups);
-                if (retryGroup < 0)
+
+                if (null == clientShare)
                 {
-                    throw new TlsFatalAlert(AlertDescription.handshake_failure);
-                }
+                    this.retryGroup = TlsUtils.selectKeyShareGroup(crypto, serverVersion, clientSupportedGroups,
+                        serverSupportedGroups);
+                    if (retryGroup < 0)
+                    {
+                        throw new TlsFatalAlert(AlertDescription.handshake_failure);
+                    }
 
-                this.retryCookie = tlsServerContext.getNonceGenerator().generateNonce(16);
+                    this.retryCookie = tlsServerContext.getNonceGenerator().generateNonce(16);
 
-                return generate13HelloRetryRequest(clientHello);
-            }
+                    if (null != selectedPSK)
+                    {
+                        this.retryPSK = selectedPSK;
+                        this.retryPSKIdentity = ((PskIdentity)TlsExtensionsUtils
+                            .getPreSharedKeyClientHello(clientHelloExtensions).getIdentities()
+                            .elementAt(selectedPSK.index)).getIdentity();
+                    }
 
-            if (clientShare.getNamedGroup() != serverSupportedGroups[0])
-            {
-                /*
-                 * TODO[tls13] RFC 8446 4.2.7. As of TLS 1.3, servers are permitted to send the
-                 * "supported_groups" extension to the client. Clients MUST NOT act upon any
-                 * information found in "supported_groups" prior to successful completion of the
-                 * handshake but MAY use the information learned from a successfully completed
-                 * handshake to change what groups they use in their "key_share" extension in
-                 * subsequent connections. If the server has a group it prefers to the ones in the
-                 * "key_share" extension but is still willing to accept the ClientHello, it SHOULD
-                 * send "supported_groups" to update the client's view of its preferences; this
-                 * extension SHOULD contain all groups the server supports, regardless of whether
-                 * they are currently supported by the client.
-                 */
+                    // RFC 8446 4.2.10. Early data is always rejected after a HelloRetryRequest
+                    if (TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+                    {
+                        recordStream.skipEarlyData(getEarlyDataSkipLimit(tlsServer.getMaxEarlyDataSize()));
+                    }
+
+                    return generate13HelloRetryRequest(clientHello);
+                }
+
+                if (clientShare.getNamedGroup() != serverSupportedGroups[0])
+                {
+                    /*
+                     * TODO[tls13] RFC 8446 4.2.7. As of TLS 1.3, servers are permitted to send the
+                     * "supported_groups" extension to the client. Clients MUST NOT act upon any
+                     * information found in "supported_groups" prior to successful completion of the
+                     * handshake but MAY use the information learned from a successfully completed
+                     * handshake to change what groups they use in their "key_share" extension in
+                     * subsequent connections. If the server has a group it prefers to the ones in the
+                     * "key_share" extension but is still willing to accept the ClientHello, it SHOULD
+                     * send "supported_groups" to update the client's view of its preferences; this
+                     * extension SHOULD contain all groups the server supports, regardless of whether
+                     * they are currently supported by the client.
+                     */
+                }
             }
         }
 
@@ -393,7 +445,8 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             TlsExtensionsUtils.addPreSharedKeyServerHello(serverHelloExtensions, selectedPSK.index);
         }
 
-        TlsSecret sharedSecret;
+        TlsSecret sharedSecret = null;
+        if (null != clientShare)
         {
             int namedGroup = clientShare.getNamedGroup();
     
@@ -426,6 +479,31 @@ else if (NamedGroup.refersToASpecificKem(namedGroup))
 
         TlsUtils.establish13PhaseSecrets(tlsServerContext, pskEarlySecret, sharedSecret);
 
+        if (!afterHelloRetryRequest && TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+        {
+            long maxEarlyDataSize = tlsServer.getMaxEarlyDataSize();
+
+            if (accept13EarlyData(selectedPSK, clientHelloExtensions, maxEarlyDataSize))
+            {
+                TlsExtensionsUtils.addEarlyDataIndication(serverEncryptedExtensions);
+
+                securityParameters.earlyDataAccepted = true;
+                this.earlyDataRemaining = maxEarlyDataSize;
+
+                byte[] clientHelloTranscriptHash = TlsUtils.getClientHelloTranscriptHash(tlsServerContext,
+                    handshakeHash);
+
+                TlsUtils.establish13PhaseEarly(tlsServerContext, clientHelloTranscriptHash, recordStream);
+
+                // NOTE: The client's early data follows its ClientHello (and possibly a change_cipher_spec)
+                recordStream.enablePendingCipherRead(true);
+            }
+            else
+            {
+                recordStream.skipEarlyData(getEarlyDataSkipLimit(maxEarlyDataSize));
+            }
+        }
+
         this.serverExtensions = serverEncryptedExtensions;
 
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
@@ -660,7 +738,26 @@ protected ServerHello generateServerHello(ClientHello clientHello, HandshakeMess
             tlsServer.processClientExtensions(clientExtensions);
         }
 
-        TlsSession sessionToResume = tlsServer.getSessionToResume(clientHello.getSessionID());
+        TlsSession sessionToResume = null;
+        boolean ticketResumption = false;
+
+        /*
+         * RFC 5077 3.4. A session ticket presented by the client is tried first; if it is accepted the server
+         * echoes the client's session ID instead of the ticket session's own.
+         */
+        {
+            byte[] sessionTicket = TlsUtils.getExtensionData(clientExtensions, EXT_SessionTicket);
+            if (!TlsUtils.isNullOrEmpty(sessionTicket))
+            {
+                sessionToResume = tlsServer.getSessionToResumeFromTicket(sessionTicket);
+                ticketResumption = (null != sessionToResume);
+            }
+        }
+
+        if (null == sessionToResume)
+        {
+            sessionToResume = tlsServer.getSessionToResume(clientHello.getSessionID());
+        }
 
         boolean resumedSession = establishSession(sessionToResume);
 
@@ -669,6 +766,11 @@ protected ServerHello generateServerHello(ClientHello clientHello, HandshakeMess
             resumedSession = false;
         }
 
+        if (resumedSession && sessionParameters.isTicketExpired(System.currentTimeMillis()))
+        {
+            resumedSession = false;
+        }
+
         // TODO Check the session cipher suite is selectable by the same rules that getSelectedCipherSuite uses
 
         // TODO Check the resumed session has a peer certificate if we NEED client-auth
@@ -755,6 +857,12 @@ else if (resumedSession)
             this.serverExtensions = TlsExtensionsUtils.ensureExtensionsInitialised(sessionServerExtensions);
         }
 
+        if (resumedSession)
+        {
+            // NOTE: Tickets are only issued after a full handshake, so don't echo one from the original handshake
+            serverExtensions.remove(EXT_SessionTicket);
+        }
+
         tlsServer.getServerExtensionsForConnection(serverExtensions);
 
         if (securityParameters.isRenegotiating())
@@ -848,7 +956,11 @@ else if (TlsUtils.hasExpectedEmptyExtensionData(serverExtensions, TlsExtensionsU
 
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
 
-        return new ServerHello(serverVersion, securityParameters.getServerRandom(), securityParameters.getSessionID(),
+        byte[] serverHelloSessionID = (resumedSession && ticketResumption)
+            ?   clientHello.getSessionID()
+            :   securityParameters.getSessionID();
+
+        return new ServerHello(serverVersion, securityParameters.getServerRandom(), serverHelloSessionID,
             securityParameters.getCipherSuite(), serverExtensions);
     }
 
@@ -876,12 +988,13 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         }
 
         /*
-         * TODO[tls13] Abbreviated handshakes (PSK resumption)
-         * 
-         * NOTE: No CertificateRequest, Certificate, CertificateVerify messages, but client
-         * might now send EndOfEarlyData after receiving server Finished message.
+         * NOTE: For abbreviated handshakes (PSK), no CertificateRequest, Certificate, CertificateVerify
+         * messages. If early data was accepted, the client sends EndOfEarlyData after receiving the server
+         * Finished message.
          */
 
+        final SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+
         switch (type)
         {
         case HandshakeType.certificate:
@@ -889,6 +1002,15 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
+            {
+                if (securityParameters.isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+
+                // NB: Fall through to next case label
+            }
+            case CS_CLIENT_END_OF_EARLY_DATA:
             {
                 receive13ClientCertificate(buf);
                 this.connection_state = CS_CLIENT_CERTIFICATE;
@@ -899,6 +1021,30 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             }
             break;
         }
+        case HandshakeType.compressed_certificate:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_FINISHED:
+            {
+                if (securityParameters.isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+
+                // NB: Fall through to next case label
+            }
+            case CS_CLIENT_END_OF_EARLY_DATA:
+            {
+                receive13ClientCompressedCertificate(buf);
+                this.connection_state = CS_CLIENT_CERTIFICATE;
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
         case HandshakeType.certificate_verify:
         {
             switch (this.connection_state)
@@ -946,6 +1092,15 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
+            {
+                if (securityParameters.isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+
+                // NB: Fall through to next case label
+            }
+            case CS_CLIENT_END_OF_EARLY_DATA:
             {
                 skip13ClientCertificate();
                 // NB: Fall through to next case label
@@ -958,6 +1113,7 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             case CS_CLIENT_CERTIFICATE_VERIFY:
             {
                 receive13ClientFinished(buf);
+                buf.updateHash(handshakeHash);
                 this.connection_state = CS_CLIENT_FINISHED;
 
                 // See RFC 8446 D.4.
@@ -966,7 +1122,53 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 // NOTE: Completes the switch to application-data phase (server entered after CS_SERVER_FINISHED).
                 recordStream.enablePendingCipherRead(false);
 
+                long ticketLifetime = tlsServer.getSessionTicketLifetime();
+
+                TlsSecret resumptionMasterSecret = null;
+                if (ticketLifetime > 0L)
+                {
+                    byte[] clientFinishedTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+
+                    resumptionMasterSecret = TlsUtils.derive13ResumptionMasterSecret(tlsServerContext,
+                        clientFinishedTranscriptHash);
+                }
+
                 completeHandshake();
+
+                if (null != resumptionMasterSecret)
+                {
+                    try
+                    {
+                        send13NewSessionTicketMessage(resumptionMasterSecret, ticketLifetime);
+                    }
+                    finally
+                    {
+                        resumptionMasterSecret.destroy();
+                    }
+                }
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
+        case HandshakeType.end_of_early_data:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_FINISHED:
+            {
+                if (!securityParameters.isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+
+                receive13EndOfEarlyData(buf);
+                this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+
+                this.earlyDataRemaining = -1L;
+                recordStream.endEarlyDataRead();
                 break;
             }
             default:
@@ -984,9 +1186,7 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         case HandshakeType.certificate_status:
         case HandshakeType.certificate_url:
         case HandshakeType.client_key_exchange:
-        case HandshakeType.compressed_certificate:
         case HandshakeType.encrypted_extensions:
-        case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
         case HandshakeType.message_hash:
@@ -1008,11 +1208,6 @@ protected void handleHandshakeMessage(short type, HandshakeMessageInput buf)
         if (connection_state > CS_CLIENT_HELLO
             && TlsUtils.isTLSv13(securityParameters.getNegotiatedVersion()))
         {
-            if (securityParameters.isResumedSession())
-            {
-                throw new TlsFatalAlert(AlertDescription.internal_error);
-            }
-
             handle13HandshakeMessage(type, buf);
             return;
         }
@@ -1369,7 +1564,7 @@ else if (TlsUtils.isSSL(tlsServerContext))
                      * new_session_ticket message.
                      */
 
-                    sendNewSessionTicketMessage(tlsServer.getNewSessionTicket());
+                    sendNewSessionTicketMessage(generateNewSessionTicket());
                     this.connection_state = CS_SERVER_SESSION_TICKET;
                 }
 
@@ -1466,6 +1661,16 @@ protected void receive13ClientCertificate(ByteArrayInputStream buf)
         notifyClientCertificate(clientCertificate);
     }
 
+    protected void receive13ClientCompressedCertificate(ByteArrayInputStream buf)
+        throws IOException
+    {
+        int[] offeredAlgorithms = null == certificateRequest
+            ?   null
+            :   certificateRequest.getCertificateCompressionAlgorithms();
+
+        receive13ClientCertificate(receive13CompressedCertificate(buf, offeredAlgorithms));
+    }
+
     protected void receive13ClientCertificateVerify(ByteArrayInputStream buf)
         throws IOException
     {
@@ -1482,6 +1687,11 @@ protected void receive13ClientCertificateVerify(ByteArrayInputStream buf)
         TlsUtils.verify13CertificateVerifyClient(tlsServerContext, handshakeHash, certificateVerify);
     }
 
+    protected void receive13EndOfEarlyData(ByteArrayInputStream buf) throws IOException
+    {
+        assertEmpty(buf);
+    }
+
     protected void receive13ClientFinished(ByteArrayInputStream buf) throws IOException
     {
         process13FinishedMessage(buf);
@@ -1554,6 +1764,78 @@ protected void receiveClientKeyExchangeMessage(ByteArrayInputStream buf)
         }
     }
 
+    private boolean accept13EarlyData(OfferedPsks.SelectedConfig selectedPSK, Hashtable clientHelloExtensions,
+        long maxEarlyDataSize) throws IOException
+    {
+        /*
+         * RFC 8446 4.2.10. In order to accept early data, the server MUST have accepted a PSK cipher suite and
+         * selected the first key offered in the client's "pre_shared_key" extension. In addition, it MUST verify
+         * that the following values are the same as those associated with the selected PSK: [..] TLS version
+         * number, selected cipher suite, selected ALPN protocol, if any.
+         */
+        if (maxEarlyDataSize < 1L || null == selectedPSK || 0 != selectedPSK.index)
+        {
+            return false;
+        }
+
+        EarlyDataReplayFilter replayFilter = tlsServer.getEarlyDataReplayFilter();
+        if (null == replayFilter)
+        {
+            return false;
+        }
+
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+        OfferedPsks offeredPsks = TlsExtensionsUtils.getPreSharedKeyClientHello(clientHelloExtensions);
+        long currentTimeMillis = System.currentTimeMillis();
+
+        long ticketAgeSkew = 0L;
+        if (selectedPSK.isResumption())
+        {
+            // NOTE: The version and cipher suite were already taken from the session being resumed
+            ProtocolName sessionApplicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(
+                sessionParameters.readServerExtensions());
+            if (!Objects.areEqual(sessionApplicationProtocol, securityParameters.getApplicationProtocol()))
+            {
+                return false;
+            }
+
+            // RFC 8446 8.3. Freshness Checks
+            PskIdentity identity = (PskIdentity)offeredPsks.getIdentities().elementAt(0);
+            long clientTicketAge = (identity.getObfuscatedTicketAge() - sessionParameters.getTicketAgeAdd())
+                & 0xFFFFFFFFL;
+            long serverTicketAge = currentTimeMillis - sessionParameters.getTicketIssueTime();
+
+            ticketAgeSkew = clientTicketAge - serverTicketAge;
+        }
+        else
+        {
+            /*
+             * An external PSK has no ticket age for a freshness check, so a ClientHello the replay filter has
+             * forgotten would be accepted again; early data is only accepted here if the server opts in to that.
+             */
+            if (!tlsServer.allowEarlyDataWithExternalPSK())
+            {
+                return false;
+            }
+
+            int earlyDataCipherSuite = TlsUtils.getEarlyDataCipherSuite13(offeredCipherSuites,
+                selectedPSK.prfAlgorithm);
+            if (earlyDataCipherSuite != securityParameters.getCipherSuite())
+            {
+                return false;
+            }
+        }
+
+        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(0);
+
+        return replayFilter.accept(binder, ticketAgeSkew);
+    }
+
+    private static int getEarlyDataSkipLimit(long maxEarlyDataSize)
+    {
+        return (int)Math.min(Integer.MAX_VALUE, Math.max(EARLY_DATA_SKIP_LIMIT, maxEarlyDataSize));
+    }
+
     protected void send13EncryptedExtensionsMessage(Hashtable serverExtensions) throws IOException
     {
         // TODO[tls13] Avoid extra copy; use placeholder to write opaque-16 data directly to message buffer
@@ -1565,6 +1847,115 @@ protected void send13EncryptedExtensionsMessage(Hashtable serverExtensions) thro
         message.send(this);
     }
 
+    protected NewSessionTicket generateNewSessionTicket() throws IOException
+    {
+        /*
+         * RFC 5077 4. If the server issues its own tickets, it is given the state of the new session to put in
+         * one; otherwise the ticket comes from getNewSessionTicket.
+         */
+        long ticketLifetime = tlsServer.getSessionTicketLifetime();
+        if (ticketLifetime > 0L)
+        {
+            SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+
+            TlsSecret ticketMasterSecret = tlsServerContext.getCrypto().adoptSecret(
+                securityParameters.getMasterSecret());
+
+            SessionParameters ticketSessionParameters = new SessionParameters.Builder()
+                .setCipherSuite(securityParameters.getCipherSuite())
+                .setExtendedMasterSecret(securityParameters.isExtendedMasterSecret())
+                .setLocalCertificate(securityParameters.getLocalCertificate())
+                .setMasterSecret(ticketMasterSecret)
+                .setNegotiatedVersion(securityParameters.getNegotiatedVersion())
+                .setPeerCertificate(securityParameters.getPeerCertificate())
+                .setPSKIdentity(securityParameters.getPSKIdentity())
+                .setSRPIdentity(securityParameters.getSRPIdentity())
+                .setServerExtensions(this.serverExtensions)
+                .setTicketIssueTime(System.currentTimeMillis())
+                .setTicketLifetime(ticketLifetime)
+                .build();
+
+            byte[] ticket = tlsServer.createSessionTicket(ticketSessionParameters);
+            if (null != ticket)
+            {
+                return new NewSessionTicket(ticketLifetime, ticket);
+            }
+
+            ticketMasterSecret.destroy();
+        }
+
+        return tlsServer.getNewSessionTicket();
+    }
+
+    protected void send13NewSessionTicketMessage(TlsSecret resumptionMasterSecret, long ticketLifetime)
+        throws IOException
+    {
+        /*
+         * RFC 8446 4.6.1. Servers MUST NOT use any value greater than 604800 seconds (7 days).
+         */
+        if (ticketLifetime > 604800L)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersConnection();
+
+        byte[] ticketNonce = tlsServerContext.getNonceGenerator().generateNonce(8);
+        long ticketAgeAdd = TlsUtils.readUint32(tlsServerContext.getNonceGenerator().generateNonce(4), 0);
+
+        TlsSecret resumptionPSK = TlsUtils.derive13ResumptionPSK(securityParameters, resumptionMasterSecret,
+            ticketNonce);
+
+        // NOTE: The ALPN protocol is kept with the ticket, since early data under it must use the same one
+        Hashtable ticketServerExtensions = null;
+        ProtocolName applicationProtocol = securityParameters.getApplicationProtocol();
+        if (null != applicationProtocol)
+        {
+            ticketServerExtensions = new Hashtable();
+            TlsExtensionsUtils.addALPNExtensionServer(ticketServerExtensions, applicationProtocol);
+        }
+
+        SessionParameters ticketSessionParameters = new SessionParameters.Builder()
+            .setCipherSuite(securityParameters.getCipherSuite())
+            .setExtendedMasterSecret(securityParameters.isExtendedMasterSecret())
+            .setLocalCertificate(securityParameters.getLocalCertificate())
+            .setMasterSecret(resumptionPSK)
+            .setNegotiatedVersion(securityParameters.getNegotiatedVersion())
+            .setPeerCertificate(securityParameters.getPeerCertificate())
+            .setServerExtensions(ticketServerExtensions)
+            .setTicketAgeAdd(ticketAgeAdd)
+            .setTicketIssueTime(System.currentTimeMillis())
+            .setTicketLifetime(ticketLifetime)
+            .build();
+
+        byte[] ticket = tlsServer.createSessionTicket(ticketSessionParameters);
+        if (null == ticket)
+        {
+            resumptionPSK.destroy();
+            return;
+        }
+        if (ticket.length < 1)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        Hashtable ticketExtensions = new Hashtable();
+
+        long maxEarlyDataSize = tlsServer.getMaxEarlyDataSize();
+        if (maxEarlyDataSize > 0L && null != tlsServer.getEarlyDataReplayFilter())
+        {
+            TlsExtensionsUtils.addEarlyDataMaxSize(ticketExtensions, maxEarlyDataSize);
+        }
+
+        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.new_session_ticket);
+        TlsUtils.writeUint32(ticketLifetime, message);
+        TlsUtils.writeUint32(ticketAgeAdd, message);
+        TlsUtils.writeOpaque8(ticketNonce, message);
+        TlsUtils.writeOpaque16(ticket, message);
+        TlsUtils.writeOpaque16(writeExtensionsData(ticketExtensions), message);
+        message.send(this);
+    }
+
     protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHelloRetryRequest) throws IOException
     {
         final SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
@@ -1574,7 +1965,16 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
         TlsUtils.establish13PhaseHandshake(tlsServerContext, serverHelloTranscriptHash, recordStream);
 
         recordStream.enablePendingCipherWrite();
-        recordStream.enablePendingCipherRead(true);
+
+        if (securityParameters.isEarlyDataAccepted())
+        {
+            // NOTE: The client switches to the handshake traffic keys after its EndOfEarlyData message
+            recordStream.enablePendingCipherReadAfterEarlyData();
+        }
+        else
+        {
+            recordStream.enablePendingCipherRead(true);
+        }
 
         send13EncryptedExtensionsMessage(serverExtensions);
         this.connection_state = CS_SERVER_ENCRYPTED_EXTENSIONS;
@@ -1596,6 +1996,17 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
                     {
                         throw new TlsFatalAlert(AlertDescription.internal_error);
                     }
+
+                    if (null == certificateRequest.getCertificateCompressionAlgorithms())
+                    {
+                        int[] certificateCompressionAlgorithms = TlsUtils.getCertificateCompressionAlgorithms(
+                            tlsServer.getCertificateCompressors());
+                        if (null != certificateCompressionAlgorithms)
+                        {
+                            this.certificateRequest = certificateRequest
+                                .withCertificateCompressionAlgorithms(certificateCompressionAlgorithms);
+                        }
+                    }
     
                     TlsUtils.establishServerSigAlgs(securityParameters, certificateRequest);
     
@@ -1622,7 +2033,8 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
                  */
 
                 Certificate serverCertificate = serverCredentials.getCertificate();
-                send13CertificateMessage(serverCertificate);
+                send13CertificateMessage(serverCertificate,
+                    TlsExtensionsUtils.getCompressCertificateExtension(clientExtensions));
                 securityParameters.tlsServerEndPoint = null;
                 this.connection_state = CS_SERVER_CERTIFICATE;
             }
@@ -1872,7 +1872,7 @@ private static void establish13TrafficSecrets(TlsContext context, byte[] transcr
                 transcriptHash);
         }
 
-        // TODO[tls13] Early data (client->server only)
+        // NOTE: For early data (client->server only) there is no serverLabel, and the cipher is one-way
 
         recordStream.setPendingCipher(initCipher(context));
     }
@@ -1890,6 +1890,22 @@ static void establish13PhaseApplication(TlsContext context, byte[] serverFinishe
             serverFinishedTranscriptHash);
     }
 
+    static TlsSecret derive13ResumptionMasterSecret(TlsContext context, byte[] clientFinishedTranscriptHash)
+        throws IOException
+    {
+        SecurityParameters securityParameters = context.getSecurityParametersHandshake();
+
+        return deriveSecret(securityParameters, securityParameters.getMasterSecret(), "res master",
+            clientFinishedTranscriptHash);
+    }
+
+    static TlsSecret derive13ResumptionPSK(SecurityParameters securityParameters, TlsSecret resumptionMasterSecret,
+        byte[] ticketNonce) throws IOException
+    {
+        return TlsCryptoUtils.hkdfExpandLabel(resumptionMasterSecret, securityParameters.getPRFCryptoHashAlgorithm(),
+            "resumption", ticketNonce, securityParameters.getPRFHashLength());
+    }
+
     static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscriptHash, RecordStream recordStream)
         throws IOException
     {
@@ -1898,7 +1914,6 @@ static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscri
 
         // TODO[tls13] binder_key
 
-        // TODO[tls13] Early data (client->server only)
         if (null != recordStream)
         {
             establish13TrafficSecrets(context, clientHelloTranscriptHash, phaseSecret, "c e traffic", null,
@@ -1909,6 +1924,76 @@ static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscri
             clientHelloTranscriptHash);
     }
 
+    /**
+     * RFC 8446 4.2.10. Early data under an external PSK uses the first offered TLS 1.3 cipher suite with the PSK's
+     * hash, so that client and server agree on it without further configuration.
+     */
+    static int getEarlyDataCipherSuite13(int[] offeredCipherSuites, int prfAlgorithm)
+    {
+        if (null != offeredCipherSuites)
+        {
+            for (int i = 0; i < offeredCipherSuites.length; ++i)
+            {
+                int cipherSuite = offeredCipherSuites[i];
+                if (getPRFAlgorithm13(cipherSuite) == prfAlgorithm)
+                {
+                    return cipherSuite;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Transcript-Hash(ClientHello), for early data, while the handshake hash is still buffering (i.e. before the
+     * PRF has been determined).
+     */
+    static byte[] getClientHelloTranscriptHash(TlsContext context, TlsHandshakeHash handshakeHash)
+        throws IOException
+    {
+        int cryptoHashAlgorithm = context.getSecurityParametersHandshake().getPRFCryptoHashAlgorithm();
+
+        TlsHash hash = context.getCrypto().createHash(cryptoHashAlgorithm);
+        handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+        return hash.calculateHash();
+    }
+
+    static int[] getCertificateCompressionAlgorithms(Vector certificateCompressors)
+    {
+        if (isNullOrEmpty(certificateCompressors))
+        {
+            return null;
+        }
+
+        int count = certificateCompressors.size();
+        int[] algorithms = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            algorithms[i] = ((TlsCertificateCompressor)certificateCompressors.elementAt(i)).getAlgorithm();
+        }
+        return algorithms;
+    }
+
+    /**
+     * RFC 8879. Select the first of our certificate compressors (in preference order) that the peer offered.
+     */
+    static TlsCertificateCompressor selectCertificateCompressor(Vector certificateCompressors,
+        int[] peerAlgorithms)
+    {
+        if (null != certificateCompressors && null != peerAlgorithms)
+        {
+            for (int i = 0, count = certificateCompressors.size(); i < count; ++i)
+            {
+                TlsCertificateCompressor compressor = (TlsCertificateCompressor)certificateCompressors.elementAt(i);
+                if (Arrays.contains(peerAlgorithms, compressor.getAlgorithm()))
+                {
+                    return compressor;
+                }
+            }
+        }
+        return null;
+    }
+
     static void establish13PhaseHandshake(TlsContext context, byte[] serverHelloTranscriptHash,
         RecordStream recordStream) throws IOException
     {
@@ -6031,74 +6116,228 @@ static OfferedPsks.BindersConfig addPreSharedKeyToClientHelloRetry(TlsClientCont
     }
 
     static OfferedPsks.SelectedConfig selectPreSharedKey(TlsServerContext serverContext, TlsServer server,
-        Hashtable clientHelloExtensions, HandshakeMessageInput clientHelloMessage, TlsHandshakeHash handshakeHash,
-        boolean afterHelloRetryRequest) throws IOException
+        Hashtable clientHelloExtensions, int[] offeredCipherSuites, HandshakeMessageInput clientHelloMessage,
+        TlsHandshakeHash handshakeHash) throws IOException
     {
-        boolean handshakeHashUpdated = false;
-
         OfferedPsks offeredPsks = TlsExtensionsUtils.getPreSharedKeyClientHello(clientHelloExtensions);
-        if (null != offeredPsks)
+        if (null == offeredPsks)
         {
-            short[] pskKeyExchangeModes = TlsExtensionsUtils.getPSKKeyExchangeModesExtension(clientHelloExtensions);
-            if (isNullOrEmpty(pskKeyExchangeModes))
-            {
-                throw new TlsFatalAlert(AlertDescription.missing_extension);
-            }
+            clientHelloMessage.updateHash(handshakeHash);
+            return null;
+        }
+
+        short[] pskKeyExchangeModes = TlsExtensionsUtils.getPSKKeyExchangeModesExtension(clientHelloExtensions);
+        if (isNullOrEmpty(pskKeyExchangeModes))
+        {
+            throw new TlsFatalAlert(AlertDescription.missing_extension);
+        }
+
+        TlsCrypto crypto = serverContext.getCrypto();
 
-            // TODO[tls13] Add support for psk_ke?
-            if (Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
+        /*
+         * RFC 8446 4.2.11. Prior to accepting PSK key establishment, the server MUST validate the corresponding
+         * binder value. If this value is not present or does not validate, the server MUST abort the handshake.
+         * Servers SHOULD NOT attempt to validate multiple binders; rather, they SHOULD select a single PSK and
+         * validate solely the binder that corresponds to that PSK.
+         */
+        OfferedPsks.SelectedConfig selected = selectResumptionPSK(serverContext, server, offeredPsks,
+            offeredCipherSuites, pskKeyExchangeModes);
+
+        // TODO[tls13] Add support for psk_ke with external PSKs?
+        if (null == selected && Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
+        {
+            // TODO[tls13] Prefer to get the exact index from the server?
+            TlsPSKExternal psk = server.getExternalPSK(offeredPsks.getIdentities());
+            if (null != psk)
             {
-                // TODO[tls13] Prefer to get the exact index from the server?
-                TlsPSKExternal psk = server.getExternalPSK(offeredPsks.getIdentities());
-                if (null != psk)
+                int index = offeredPsks.getIndexOfIdentity(new PskIdentity(psk.getIdentity(), 0L));
+                if (index >= 0)
                 {
-                    int index = offeredPsks.getIndexOfIdentity(new PskIdentity(psk.getIdentity(), 0L));
-                    if (index >= 0)
-                    {
-                        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
+                    TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
 
-                        TlsCrypto crypto = serverContext.getCrypto();
-                        TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
+                    selected = new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
+                }
+            }
+        }
 
-                        // TODO[tls13-psk] Handle resumption PSKs
-                        boolean isExternalPSK = true;
-                        int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
+        if (null == selected)
+        {
+            clientHelloMessage.updateHash(handshakeHash);
+            return null;
+        }
 
-                        byte[] transcriptHash;
-                        {
-                            handshakeHashUpdated = true;
-                            int bindersSize = offeredPsks.getBindersSize();
-                            clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
-
-                            if (afterHelloRetryRequest)
-                            {
-                                transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
-                            }
-                            else
-                            {
-                                TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
-                                handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
-                                transcriptHash = hash.calculateHash();
-                            }
-
-                            clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
-                        }
+        int bindersSize = offeredPsks.getBindersSize();
 
-                        byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
-                            earlySecret, transcriptHash);
+        clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
 
-                        if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
-                        {
-                            return new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
-                        }
-                    }
-                }
+        boolean verified = verifyPSKBinder(crypto, offeredPsks, selected, clientHelloMessage, handshakeHash, false);
+
+        clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
+
+        if (!verified)
+        {
+            selected.earlySecret.destroy();
+            throw new TlsFatalAlert(AlertDescription.decrypt_error, "PSK binder verification failed");
+        }
+
+        /*
+         * Only now that the binder has verified is the ticket taken up; a ticket that was merely looked at, or
+         * offered with a bad binder, remains available.
+         */
+        if (selected.isResumption())
+        {
+            byte[] ticket = ((PskIdentity)offeredPsks.getIdentities().elementAt(selected.index)).getIdentity();
+
+            if (!server.claimSessionFromTicket(ticket, selected.session))
+            {
+                selected.earlySecret.destroy();
+                return null;
             }
         }
 
-        if (!handshakeHashUpdated)
+        return selected;
+    }
+
+    /**
+     * RFC 8446 4.1.2. The client's retried ClientHello (following a HelloRetryRequest) is only allowed to update
+     * the "obfuscated_ticket_age" and binder values (and drop incompatible PSKs), so the PSK selected for the
+     * initial ClientHello (or the lack of one) stands; it must still be offered, and its binder is validated again.
+     */
+    static OfferedPsks.SelectedConfig selectPreSharedKeyAfterRetry(TlsServerContext serverContext,
+        Hashtable clientHelloExtensions, HandshakeMessageInput clientHelloMessage, TlsHandshakeHash handshakeHash,
+        OfferedPsks.SelectedConfig initialPSK, byte[] initialPSKIdentity) throws IOException
+    {
+        OfferedPsks offeredPsks = TlsExtensionsUtils.getPreSharedKeyClientHello(clientHelloExtensions);
+        if (null == initialPSK)
         {
             clientHelloMessage.updateHash(handshakeHash);
+            return null;
+        }
+
+        if (null == offeredPsks)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        int index = offeredPsks.getIndexOfIdentity(initialPSKIdentity);
+        if (index < 0)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        OfferedPsks.SelectedConfig selected = initialPSK.withIndex(index);
+
+        int bindersSize = offeredPsks.getBindersSize();
+
+        clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
+
+        boolean verified = verifyPSKBinder(serverContext.getCrypto(), offeredPsks, selected, clientHelloMessage,
+            handshakeHash, true);
+
+        clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
+
+        if (!verified)
+        {
+            throw new TlsFatalAlert(AlertDescription.decrypt_error, "PSK binder verification failed");
+        }
+
+        return selected;
+    }
+
+    private static boolean verifyPSKBinder(TlsCrypto crypto, OfferedPsks offeredPsks,
+        OfferedPsks.SelectedConfig selected, HandshakeMessageInput clientHelloMessage, TlsHandshakeHash handshakeHash,
+        boolean afterHelloRetryRequest) throws IOException
+    {
+        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(selected.index);
+
+        boolean isExternalPSK = !selected.isResumption();
+        int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(selected.prfAlgorithm);
+
+        // NOTE: The handshake hash has been updated with the ClientHello up to (not including) the binders
+        byte[] transcriptHash;
+        if (afterHelloRetryRequest)
+        {
+            transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
+        }
+        else
+        {
+            TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
+            handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+            transcriptHash = hash.calculateHash();
+        }
+
+        byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
+            selected.earlySecret, transcriptHash);
+
+        return Arrays.constantTimeAreEqual(calculatedBinder, binder);
+    }
+
+    private static OfferedPsks.SelectedConfig selectResumptionPSK(TlsServerContext serverContext, TlsServer server,
+        OfferedPsks offeredPsks, int[] offeredCipherSuites, short[] pskKeyExchangeModes)
+    {
+        /*
+         * RFC 8446 4.2.9. The server MUST NOT select a key exchange mode that is not listed by the client. Prefer
+         * psk_dhe_ke (for forward secrecy) when both are offered.
+         */
+        short pskKeyExchangeMode;
+        if (Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
+        {
+            pskKeyExchangeMode = PskKeyExchangeMode.psk_dhe_ke;
+        }
+        else if (Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_ke))
+        {
+            pskKeyExchangeMode = PskKeyExchangeMode.psk_ke;
+        }
+        else
+        {
+            return null;
+        }
+
+        TlsCrypto crypto = serverContext.getCrypto();
+        ProtocolVersion negotiatedVersion = serverContext.getSecurityParametersHandshake().getNegotiatedVersion();
+        long currentTimeMillis = System.currentTimeMillis();
+
+        Vector identities = offeredPsks.getIdentities();
+        for (int i = 0, count = identities.size(); i < count; ++i)
+        {
+            PskIdentity identity = (PskIdentity)identities.elementAt(i);
+
+            TlsSession session = server.getSessionToResumeFromTicket(identity.getIdentity());
+            if (null == session || !session.isResumable())
+            {
+                continue;
+            }
+
+            SessionParameters sessionParameters = session.exportSessionParameters();
+            if (null == sessionParameters ||
+                !negotiatedVersion.equals(sessionParameters.getNegotiatedVersion()) ||
+                !Arrays.contains(offeredCipherSuites, sessionParameters.getCipherSuite()) ||
+                sessionParameters.isTicketExpired(currentTimeMillis))
+            {
+                continue;
+            }
+
+            int prfAlgorithm = getPRFAlgorithm13(sessionParameters.getCipherSuite());
+            if (prfAlgorithm < 0)
+            {
+                continue;
+            }
+
+            TlsSecret resumptionPSK = getSessionMasterSecret(crypto, sessionParameters.getMasterSecret());
+            if (null == resumptionPSK)
+            {
+                continue;
+            }
+
+            int cryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(prfAlgorithm);
+            TlsSecret earlySecret = crypto
+                .hkdfInit(cryptoHashAlgorithm)
+                .hkdfExtract(cryptoHashAlgorithm, resumptionPSK);
+
+            resumptionPSK.destroy();
+
+            return new OfferedPsks.SelectedConfig(i, session, prfAlgorithm, pskKeyExchangeModes, pskKeyExchangeMode,
+                earlySecret);
         }
 
         return null;
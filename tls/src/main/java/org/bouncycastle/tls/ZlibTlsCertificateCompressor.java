@@ -0,0 +1,108 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link TlsCertificateCompressor} for {@link CertificateCompressionAlgorithm#zlib}, using the RFC 1950 format
+ * as implemented by <code>java.util.zip</code>.
+ */
+public class ZlibTlsCertificateCompressor
+    implements TlsCertificateCompressor
+{
+    protected final int level;
+
+    /**
+     * Constructor using the best compression level; a certificate chain is typically compressed once (see
+     * {@link CachingTlsCertificateCompressor}) and decompressed many times.
+     */
+    public ZlibTlsCertificateCompressor()
+    {
+        this(Deflater.BEST_COMPRESSION);
+    }
+
+    /**
+     * @param level the compression level (0-9), see {@link Deflater}.
+     */
+    public ZlibTlsCertificateCompressor(int level)
+    {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+        {
+            throw new IllegalArgumentException("'level' must be from 0 to 9");
+        }
+
+        this.level = level;
+    }
+
+    public int getAlgorithm()
+    {
+        return CertificateCompressionAlgorithm.zlib;
+    }
+
+    public byte[] compress(byte[] certificateMessage) throws IOException
+    {
+        Deflater deflater = new Deflater(level);
+        try
+        {
+            deflater.setInput(certificateMessage);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(certificateMessage.length / 2 + 64);
+            byte[] buf = new byte[4096];
+            while (!deflater.finished())
+            {
+                int count = deflater.deflate(buf);
+                output.write(buf, 0, count);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    public byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressedCertificateMessage);
+
+            byte[] output = new byte[uncompressedLength];
+            int pos = 0;
+            while (pos < uncompressedLength)
+            {
+                int count = inflater.inflate(output, pos, uncompressedLength - pos);
+                if (count < 1 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    return null;
+                }
+                pos += count;
+            }
+
+            // The stream must end exactly here, with no trailing input
+            if (!inflater.finished() && inflater.inflate(new byte[1]) > 0)
+            {
+                return null;
+            }
+            if (!inflater.finished() || inflater.getRemaining() > 0)
+            {
+                return null;
+            }
+
+            return output;
+        }
+        catch (DataFormatException e)
+        {
+            return null;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.bouncycastle.tls.crypto;
+
+import java.io.IOException;
+
+import org.bouncycastle.tls.ProtocolVersion;
+
+/**
+ * Optional extension of {@link TlsCipher} for ciphers that can encode a record into a caller-provided buffer.
+ * Callers check for it with instanceof, falling back to
+ * {@link TlsCipher#encodePlaintext(long, short, ProtocolVersion, int, byte[], int, int)} otherwise.
+ */
+public interface TlsCipherExt
+    extends TlsCipher
+{
+    /**
+     * Encode the passed in plaintext using the current bulk cipher, writing the encoded fragment to a
+     * caller-provided buffer, which allows the caller to reuse (or pool) its record buffers. The record type to
+     * send the fragment under is the passed in content type, unless {@link #usesOpaqueRecordTypeEncode()} is
+     * true, in which case it is {@link org.bouncycastle.tls.ContentType#application_data} (or
+     * {@link org.bouncycastle.tls.ContentType#tls12_cid} if a connection ID is in use).
+     *
+     * @param seqNo sequence number of the message represented by plaintext.
+     * @param contentType content type of the message represented by plaintext.
+     * @param recordVersion {@link ProtocolVersion} used for the record.
+     * @param plaintext array holding input plaintext to the cipher.
+     * @param offset offset into input array the plaintext starts at.
+     * @param len length of the plaintext in the array.
+     * @param output array to write the encoded fragment to. There must be room for at least
+     *               {@link #getCiphertextEncodeLimit(int)} bytes (for 'len') from 'outputOffset'; the plaintext
+     *               must not overlap this range.
+     * @param outputOffset offset into output array to write the encoded fragment at.
+     * @return the length of the encoded fragment.
+     * @throws IOException
+     */
+    int encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext, int offset,
+        int len, byte[] output, int outputOffset) throws IOException;
+}
@@ -8,7 +8,7 @@
 import org.bouncycastle.tls.SecurityParameters;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.TlsUtils;
-import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsCipherExt;
 import org.bouncycastle.tls.crypto.TlsCryptoParameters;
 import org.bouncycastle.tls.crypto.TlsDecodeResult;
 import org.bouncycastle.tls.crypto.TlsEncodeResult;
@@ -21,7 +21,7 @@
  * A generic TLS 1.0-1.2 block cipher. This can be used for AES or 3DES for example.
  */
 public final class TlsBlockCipher
-    implements TlsCipher
+    implements TlsCipherExt
 {
     private final TlsCryptoParameters cryptoParams;
     private final byte[] randomData;
@@ -184,6 +184,19 @@ public int getPlaintextEncodeLimit(int ciphertextLimit)
 
     public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
         int headerAllocation, byte[] plaintext, int offset, int len) throws IOException
+    {
+        byte[] outBuf = new byte[headerAllocation + getCiphertextEncodeLimit(len)];
+
+        int ciphertextLength = encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, len, outBuf,
+            headerAllocation);
+
+        short recordType = encryptUseInnerPlaintext ? ContentType.tls12_cid : contentType;
+
+        return new TlsEncodeResult(outBuf, 0, headerAllocation + ciphertextLength, recordType);
+    }
+
+    public int encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, byte[] output, int outputOffset) throws IOException
     {
         int blockSize = encryptCipher.getBlockSize();
         int macSize = writeMac.getSize();
@@ -212,59 +225,58 @@ public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVe
             totalSize += blockSize;
         }
 
-        byte[] outBuf = new byte[headerAllocation + totalSize];
-        int outOff = headerAllocation;
+        int outOff = outputOffset;
 
         if (useExplicitIV)
         {
             // Technically the explicit IV will be the encryption of this nonce
             byte[] explicitIV = cryptoParams.getNonceGenerator().generateNonce(blockSize);
-            System.arraycopy(explicitIV, 0, outBuf, outOff, blockSize);
+            System.arraycopy(explicitIV, 0, output, outOff, blockSize);
             outOff += blockSize;
         }
 
         int innerPlaintextOffset = outOff;
 
-        System.arraycopy(plaintext, offset, outBuf, outOff, len);
+        System.arraycopy(plaintext, offset, output, outOff, len);
         outOff += len;
 
         short recordType = contentType;
         if (encryptUseInnerPlaintext)
         {
-            outBuf[outOff++] = (byte)contentType;
+            output[outOff++] = (byte)contentType;
             recordType = ContentType.tls12_cid;
         }
 
         if (!encryptThenMAC)
         {
-            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, outBuf, innerPlaintextOffset,
+            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, output, innerPlaintextOffset,
                 innerPlaintextLength);
-            System.arraycopy(mac, 0, outBuf, outOff, mac.length);
+            System.arraycopy(mac, 0, output, outOff, mac.length);
             outOff += mac.length;
         }
 
         byte padByte = (byte)(padding_length - 1);
         for (int i = 0; i < padding_length; ++i)
         {
-            outBuf[outOff++] = padByte;
+            output[outOff++] = padByte;
         }
 
-        encryptCipher.doFinal(outBuf, headerAllocation, outOff - headerAllocation, outBuf, headerAllocation);
+        encryptCipher.doFinal(output, outputOffset, outOff - outputOffset, output, outputOffset);
 
         if (encryptThenMAC)
         {
-            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, outBuf, headerAllocation,
-                outOff - headerAllocation);
-            System.arraycopy(mac, 0, outBuf, outOff, mac.length);
+            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, output, outputOffset,
+                outOff - outputOffset);
+            System.arraycopy(mac, 0, output, outOff, mac.length);
             outOff += mac.length;
         }
 
-        if (outOff != outBuf.length)
+        if (outOff - outputOffset != totalSize)
         {
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        return new TlsEncodeResult(outBuf, 0, outBuf.length, recordType);
+        return totalSize;
     }
 
     public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
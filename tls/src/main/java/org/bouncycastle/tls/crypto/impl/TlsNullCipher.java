@@ -8,7 +8,7 @@
 import org.bouncycastle.tls.SecurityParameters;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.TlsUtils;
-import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsCipherExt;
 import org.bouncycastle.tls.crypto.TlsCryptoParameters;
 import org.bouncycastle.tls.crypto.TlsDecodeResult;
 import org.bouncycastle.tls.crypto.TlsEncodeResult;
@@ -19,7 +19,7 @@
  * The NULL cipher.
  */
 public final class TlsNullCipher
-    implements TlsCipher
+    implements TlsCipherExt
 {
     private final TlsSuiteHMac readMac, writeMac;
     private final byte[] decryptConnectionID, encryptConnectionID;
@@ -99,27 +99,39 @@ public int getPlaintextEncodeLimit(int ciphertextLimit)
 
     public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, int headerAllocation,
         byte[] plaintext, int offset, int len) throws IOException
+    {
+        byte[] ciphertext = new byte[headerAllocation + getCiphertextEncodeLimit(len)];
+
+        int ciphertextLength = encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, len, ciphertext,
+            headerAllocation);
+
+        short recordType = encryptUseInnerPlaintext ? ContentType.tls12_cid : contentType;
+
+        return new TlsEncodeResult(ciphertext, 0, headerAllocation + ciphertextLength, recordType);
+    }
+
+    public int encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, byte[] output, int outputOffset) throws IOException
     {
         int macSize = writeMac.getSize();
 
         // TODO[cid] If we support adding padding to DTLSInnerPlaintext, this will need review
         int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
 
-        byte[] ciphertext = new byte[headerAllocation + innerPlaintextLength + macSize];
-        System.arraycopy(plaintext, offset, ciphertext, headerAllocation, len);
+        System.arraycopy(plaintext, offset, output, outputOffset, len);
 
         short recordType = contentType;
         if (encryptUseInnerPlaintext)
         {
-            ciphertext[headerAllocation + len] = (byte)contentType;
+            output[outputOffset + len] = (byte)contentType;
             recordType = ContentType.tls12_cid;
         }
 
-        byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, ciphertext, headerAllocation,
+        byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, output, outputOffset,
             innerPlaintextLength);
-        System.arraycopy(mac, 0, ciphertext, headerAllocation + innerPlaintextLength, mac.length);
+        System.arraycopy(mac, 0, output, outputOffset + innerPlaintextLength, mac.length);
 
-        return new TlsEncodeResult(ciphertext, 0, ciphertext.length, recordType);
+        return innerPlaintextLength + macSize;
     }
 
     public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
@@ -3,10 +3,16 @@
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Iterator;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.KeyGenerationParameters;
 import org.bouncycastle.crypto.agreement.srp.SRP6Client;
 import org.bouncycastle.crypto.agreement.srp.SRP6Server;
 import org.bouncycastle.crypto.agreement.srp.SRP6VerifierGenerator;
@@ -24,6 +30,7 @@
 import org.bouncycastle.crypto.engines.DESedeEngine;
 import org.bouncycastle.crypto.engines.SEEDEngine;
 import org.bouncycastle.crypto.engines.SM4Engine;
+import org.bouncycastle.crypto.generators.PooledKeyPairGenerator;
 import org.bouncycastle.crypto.macs.HMac;
 import org.bouncycastle.crypto.modes.AEADBlockCipher;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
@@ -69,6 +76,7 @@
 import org.bouncycastle.tls.crypto.impl.TlsImplUtils;
 import org.bouncycastle.tls.crypto.impl.TlsNullCipher;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Integers;
 
 /**
  * Class for providing cryptographic services for TLS based on implementations in the BC light-weight API.
@@ -81,6 +89,10 @@
     extends AbstractTlsCrypto
 {
     private final SecureRandom entropySource;
+    private final ConcurrentHashMap keyPairPools = new ConcurrentHashMap();
+
+    private volatile Executor keyPairPoolExecutor = null;
+    private int keyPairPoolLowWatermark, keyPairPoolHighWatermark;
 
     // TODO[tls] Better default SecureRandom?
     public BcTlsCrypto()
@@ -103,6 +115,91 @@ public SecureRandom getSecureRandom()
         return entropySource;
     }
 
+    /**
+     * Serve the ephemeral key pairs for ECDH, X25519, X448 and ML-KEM key shares from pools that are
+     * filled in the background, taking key generation off the handshake's critical path. A pool is
+     * created for each named group the first time it is used.
+     *
+     * @param executor the executor to generate key pairs on, or null to stop pooling.
+     * @param lowWatermark the pool size at or below which a pool is refilled.
+     * @param highWatermark the size a pool is refilled to.
+     */
+    public synchronized void setKeyPairPooling(Executor executor, int lowWatermark, int highWatermark)
+    {
+        if (executor != null && (lowWatermark < 0 || highWatermark <= lowWatermark))
+        {
+            throw new IllegalArgumentException("watermarks must satisfy 0 <= lowWatermark < highWatermark");
+        }
+
+        this.keyPairPoolExecutor = null;
+
+        for (Iterator it = keyPairPools.values().iterator(); it.hasNext();)
+        {
+            ((PooledKeyPairGenerator)it.next()).close();
+        }
+        keyPairPools.clear();
+
+        this.keyPairPoolLowWatermark = lowWatermark;
+        this.keyPairPoolHighWatermark = highWatermark;
+        this.keyPairPoolExecutor = executor;
+    }
+
+    /**
+     * Return the key pair pool for a named group, for example to check its statistics.
+     *
+     * @param namedGroup the {@link NamedGroup} of interest.
+     * @return the pool for namedGroup, or null if there is none (yet).
+     */
+    public PooledKeyPairGenerator getKeyPairPool(int namedGroup)
+    {
+        return (PooledKeyPairGenerator)keyPairPools.get(Integers.valueOf(namedGroup));
+    }
+
+    /**
+     * Generate an ephemeral key pair for a named group, from its pool if pooling is enabled.
+     *
+     * @param namedGroup the {@link NamedGroup} the key pair is for.
+     * @param keyPairGenerator a new, uninitialised generator for the group.
+     * @param parameters the parameters to initialise keyPairGenerator with.
+     */
+    AsymmetricCipherKeyPair generateKeyPair(int namedGroup, AsymmetricCipherKeyPairGenerator keyPairGenerator,
+        KeyGenerationParameters parameters)
+    {
+        // NOTE: Only creating a pool takes the lock, the common case is a lookup in the concurrent map
+        PooledKeyPairGenerator pool = null;
+        if (keyPairPoolExecutor != null)
+        {
+            Integer key = Integers.valueOf(namedGroup);
+
+            pool = (PooledKeyPairGenerator)keyPairPools.get(key);
+            if (pool == null)
+            {
+                synchronized (this)
+                {
+                    if (keyPairPoolExecutor != null)
+                    {
+                        pool = (PooledKeyPairGenerator)keyPairPools.get(key);
+                        if (pool == null)
+                        {
+                            pool = new PooledKeyPairGenerator(keyPairGenerator, keyPairPoolExecutor,
+                                keyPairPoolLowWatermark, keyPairPoolHighWatermark);
+                            pool.init(parameters);
+                            keyPairPools.put(key, pool);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (pool != null)
+        {
+            return pool.generateKeyPair();
+        }
+
+        keyPairGenerator.init(parameters);
+        return keyPairGenerator.generateKeyPair();
+    }
+
     public TlsCertificate createCertificate(byte[] encoding)
         throws IOException
     {
@@ -124,8 +124,7 @@ public byte[] encodePublicKey(ECPublicKeyParameters publicKey)
 
     public AsymmetricCipherKeyPair generateKeyPair()
     {
-        ECKeyPairGenerator keyPairGenerator = new ECKeyPairGenerator();
-        keyPairGenerator.init(new ECKeyGenerationParameters(domainParameters, crypto.getSecureRandom()));
-        return keyPairGenerator.generateKeyPair();
+        return crypto.generateKeyPair(config.getNamedGroup(), new ECKeyPairGenerator(),
+            new ECKeyGenerationParameters(domainParameters, crypto.getSecureRandom()));
     }
 }
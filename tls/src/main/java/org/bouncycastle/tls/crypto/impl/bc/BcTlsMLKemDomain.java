@@ -34,12 +34,14 @@ protected static KyberParameters getKyberParameters(int namedGroup)
     }
 
     protected final BcTlsCrypto crypto;
+    protected final TlsKemConfig config;
     protected final KyberParameters kyberParameters;
     protected final boolean isServer;
 
     public BcTlsMLKemDomain(BcTlsCrypto crypto, TlsKemConfig kemConfig)
     {
         this.crypto = crypto;
+        this.config = kemConfig;
         this.kyberParameters = getKyberParameters(kemConfig.getNamedGroup());
         this.isServer = kemConfig.isServer();
     }
@@ -79,9 +81,8 @@ public byte[] encodePublicKey(KyberPublicKeyParameters publicKey)
 
     public AsymmetricCipherKeyPair generateKeyPair()
     {
-        KyberKeyPairGenerator keyPairGenerator = new KyberKeyPairGenerator();
-        keyPairGenerator.init(new KyberKeyGenerationParameters(crypto.getSecureRandom(), kyberParameters));
-        return keyPairGenerator.generateKeyPair();
+        return crypto.generateKeyPair(config.getNamedGroup(), new KyberKeyPairGenerator(),
+            new KyberKeyGenerationParameters(crypto.getSecureRandom(), kyberParameters));
     }
 
     public boolean isServer()
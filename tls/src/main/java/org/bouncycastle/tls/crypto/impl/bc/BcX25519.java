@@ -2,8 +2,14 @@
 
 import java.io.IOException;
 
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.generators.X25519KeyPairGenerator;
+import org.bouncycastle.crypto.params.X25519KeyGenerationParameters;
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
 import org.bouncycastle.math.ec.rfc7748.X25519;
 import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.NamedGroup;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.crypto.TlsAgreement;
 import org.bouncycastle.tls.crypto.TlsSecret;
@@ -25,11 +31,11 @@ public BcX25519(BcTlsCrypto crypto)
 
     public byte[] generateEphemeral() throws IOException
     {
-        crypto.getSecureRandom().nextBytes(privateKey);
+        AsymmetricCipherKeyPair kp = crypto.generateKeyPair(NamedGroup.x25519, new X25519KeyPairGenerator(),
+            new X25519KeyGenerationParameters(crypto.getSecureRandom()));
 
-        byte[] publicKey = new byte[X25519.POINT_SIZE];
-        X25519.scalarMultBase(privateKey, 0, publicKey, 0);
-        return publicKey;
+        ((X25519PrivateKeyParameters)kp.getPrivate()).encode(privateKey, 0);
+        return ((X25519PublicKeyParameters)kp.getPublic()).getEncoded();
     }
 
     public void receivePeerValue(byte[] peerValue) throws IOException
@@ -2,8 +2,14 @@
 
 import java.io.IOException;
 
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.generators.X448KeyPairGenerator;
+import org.bouncycastle.crypto.params.X448KeyGenerationParameters;
+import org.bouncycastle.crypto.params.X448PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X448PublicKeyParameters;
 import org.bouncycastle.math.ec.rfc7748.X448;
 import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.NamedGroup;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.crypto.TlsAgreement;
 import org.bouncycastle.tls.crypto.TlsSecret;
@@ -25,11 +31,11 @@ public BcX448(BcTlsCrypto crypto)
 
     public byte[] generateEphemeral() throws IOException
     {
-        crypto.getSecureRandom().nextBytes(privateKey);
+        AsymmetricCipherKeyPair kp = crypto.generateKeyPair(NamedGroup.x448, new X448KeyPairGenerator(),
+            new X448KeyGenerationParameters(crypto.getSecureRandom()));
 
-        byte[] publicKey = new byte[X448.POINT_SIZE];
-        X448.scalarMultBase(privateKey, 0, publicKey, 0);
-        return publicKey;
+        ((X448PrivateKeyParameters)kp.getPrivate()).encode(privateKey, 0);
+        return ((X448PublicKeyParameters)kp.getPublic()).getEncoded();
     }
 
     public void receivePeerValue(byte[] peerValue) throws IOException
@@ -0,0 +1,536 @@
+package org.bouncycastle.jsse.provider.test;
+
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+import junit.framework.TestCase;
+import org.bouncycastle.jsse.BCSSLEngine;
+import org.bouncycastle.jsse.BCSSLParameters;
+import org.bouncycastle.jsse.BCSSLSessionContext;
+import org.bouncycastle.util.Arrays;
+
+public class SessionCacheTest
+    extends TestCase
+{
+    private static final String HOST = "localhost";
+
+    protected void setUp()
+    {
+        ProviderUtils.setupLowPriority(false);
+    }
+
+    public void testResumptionCounters()
+        throws Exception
+    {
+        Contexts contexts = new Contexts();
+
+        BCSSLSessionContext serverSessions = (BCSSLSessionContext)contexts.server.getServerSessionContext();
+        BCSSLSessionContext clientSessions = (BCSSLSessionContext)contexts.client.getClientSessionContext();
+
+        SSLSession first = contexts.connect("TLSv1.2", 4433);
+        SSLSession second = contexts.connect("TLSv1.2", 4433);
+
+        assertTrue(Arrays.areEqual(first.getId(), second.getId()));
+        assertEquals(1L, serverSessions.getCacheHitCount());
+        assertEquals(1L, clientSessions.getCacheHitCount());
+        assertEquals(1L, clientSessions.getCacheMissCount());
+        assertEquals(0L, serverSessions.getCacheEvictionCount());
+
+        assertEquals(1, Collections.list(serverSessions.getIds()).size());
+        assertNotNull(serverSessions.getSession(first.getId()));
+    }
+
+    public void testEviction()
+        throws Exception
+    {
+        Contexts contexts = new Contexts();
+
+        BCSSLSessionContext serverSessions = (BCSSLSessionContext)contexts.server.getServerSessionContext();
+        serverSessions.setSessionCacheSize(3);
+
+        byte[][] ids = new byte[5][];
+        for (int i = 0; i < ids.length; ++i)
+        {
+            // Distinct peers, so every connection is a full handshake
+            ids[i] = contexts.connect("TLSv1.2", 5000 + i).getId();
+        }
+
+        assertEquals(3, count(serverSessions.getIds()));
+        assertEquals(2L, serverSessions.getCacheEvictionCount());
+
+        // LRU eviction keeps the most recent sessions
+        assertNotNull(serverSessions.getSession(ids[4]));
+
+        serverSessions.setSessionCacheSize(1);
+        assertEquals(1, count(serverSessions.getIds()));
+        assertNotNull(serverSessions.getSession(ids[4]));
+        assertEquals(4L, serverSessions.getCacheEvictionCount());
+
+        serverSessions.setSessionCacheSize(0);
+        contexts.connect("TLSv1.2", 6000);
+        contexts.connect("TLSv1.2", 6001);
+        assertEquals(3, count(serverSessions.getIds()));
+    }
+
+    public void testExpiry()
+        throws Exception
+    {
+        Contexts contexts = new Contexts();
+
+        SSLSessionContext serverSessions = contexts.server.getServerSessionContext();
+
+        byte[] id = contexts.connect("TLSv1.2", 7000).getId();
+        assertNotNull(serverSessions.getSession(id));
+
+        serverSessions.setSessionTimeout(1);
+        Thread.sleep(1100);
+
+        assertNull(serverSessions.getSession(id));
+        assertEquals(0, count(serverSessions.getIds()));
+    }
+
+    public void testTLSv13TicketResumption()
+        throws Exception
+    {
+        Contexts contexts = new Contexts();
+
+        BCSSLSessionContext serverSessions = (BCSSLSessionContext)contexts.server.getServerSessionContext();
+
+        // The JDK's own client resumes TLS 1.3 sessions using the tickets the server issues
+        SSLSession first = contexts.connect(contexts.jdkClient, "TLSv1.3", 8000);
+        assertEquals(0L, serverSessions.getCacheHitCount());
+        assertEquals(1, count(serverSessions.getIds()));
+
+        byte[] firstTicket = serverSessions.getIds().nextElement();
+
+        SSLSession second = contexts.connect(contexts.jdkClient, "TLSv1.3", 8000);
+        assertEquals(1L, serverSessions.getCacheHitCount());
+        assertTrue(Arrays.areEqual(firstTicket, second.getId()));
+        assertEquals(first.getCipherSuite(), second.getCipherSuite());
+        assertEquals("TLSv1.3", second.getProtocol());
+
+        // Tickets are single-use, and the resumed connection was issued a new one
+        assertNull(serverSessions.getSession(firstTicket));
+        assertEquals(1, count(serverSessions.getIds()));
+
+        SSLSession third = contexts.connect(contexts.jdkClient, "TLSv1.3", 8000);
+        assertEquals(2L, serverSessions.getCacheHitCount());
+        assertFalse(Arrays.areEqual(firstTicket, third.getId()));
+    }
+
+    public void testTLSv13TicketResumptionWithHelloRetryRequest()
+        throws Exception
+    {
+        Contexts contexts = new Contexts("secp384r1");
+
+        BCSSLSessionContext serverSessions = (BCSSLSessionContext)contexts.server.getServerSessionContext();
+
+        // The JDK client doesn't send a secp384r1 key share up front, so every handshake needs a HelloRetryRequest
+        contexts.serverNamedGroups = new String[]{ "secp384r1" };
+
+        contexts.connect(contexts.jdkClient, "TLSv1.3", 8500);
+        int fullHandshakes = contexts.fullHandshakes.get();
+        assertTrue(fullHandshakes > 0);
+
+        byte[] firstTicket = serverSessions.getIds().nextElement();
+
+        // The session selected for the first ClientHello is resumed after the retry
+        SSLSession resumed = contexts.connect(contexts.jdkClient, "TLSv1.3", 8500);
+        assertEquals(fullHandshakes, contexts.fullHandshakes.get());
+        assertEquals(1L, serverSessions.getCacheHitCount());
+        assertTrue(Arrays.areEqual(firstTicket, resumed.getId()));
+        assertNull(serverSessions.getSession(firstTicket));
+    }
+
+    public void testStatelessTicketResumption()
+        throws Exception
+    {
+        implTestStatelessTicketResumption("TLSv1.2", 8100);
+        implTestStatelessTicketResumption("TLSv1.3", 8200);
+    }
+
+    private void implTestStatelessTicketResumption(String protocol, int port)
+        throws Exception
+    {
+        Contexts contexts = new Contexts();
+
+        BCSSLSessionContext serverSessions = (BCSSLSessionContext)contexts.server.getServerSessionContext();
+        serverSessions.setStatelessSessionTickets(true);
+        assertTrue(serverSessions.isStatelessSessionTickets());
+
+        contexts.connect(contexts.jdkClient, protocol, port);
+        int fullHandshakes = contexts.fullHandshakes.get();
+        assertTrue(fullHandshakes > 0);
+
+        // The session state went out in the ticket, not into the cache
+        assertEquals(0, count(serverSessions.getIds()));
+
+        SSLSession resumed = contexts.connect(contexts.jdkClient, protocol, port);
+        assertEquals(fullHandshakes, contexts.fullHandshakes.get());
+        assertEquals(protocol, resumed.getProtocol());
+        assertEquals(0, count(serverSessions.getIds()));
+        assertEquals(0L, serverSessions.getCacheHitCount());
+
+        // Tickets issued under a rotated key are still accepted during its grace period
+        serverSessions.rotateSessionTicketKeys();
+        contexts.connect(contexts.jdkClient, protocol, port);
+        assertEquals(fullHandshakes, contexts.fullHandshakes.get());
+
+        // A server with different ticket keys can't resume the session
+        Contexts other = new Contexts(contexts);
+        ((BCSSLSessionContext)other.server.getServerSessionContext()).setStatelessSessionTickets(true);
+        other.connect(contexts.jdkClient, protocol, port);
+        assertTrue(other.fullHandshakes.get() > 0);
+    }
+
+    public void testInstalledSessionTicketKeys()
+        throws Exception
+    {
+        implTestInstalledSessionTicketKeys("TLSv1.2", 8300);
+        implTestInstalledSessionTicketKeys("TLSv1.3", 8400);
+    }
+
+    private void implTestInstalledSessionTicketKeys(String protocol, int port)
+        throws Exception
+    {
+        SecureRandom random = new SecureRandom();
+        byte[] keyName = new byte[16], encryptionKey = new byte[16], macKey = new byte[32];
+        random.nextBytes(keyName);
+        random.nextBytes(encryptionKey);
+        random.nextBytes(macKey);
+
+        Contexts contexts = new Contexts();
+        Contexts other = new Contexts(contexts);
+
+        Contexts[] servers = new Contexts[]{ contexts, other };
+        for (int i = 0; i < servers.length; ++i)
+        {
+            BCSSLSessionContext serverSessions = (BCSSLSessionContext)servers[i].server.getServerSessionContext();
+            serverSessions.setStatelessSessionTickets(true);
+            serverSessions.installSessionTicketKey(keyName, encryptionKey, macKey, 3600, 86400);
+        }
+
+        contexts.connect(contexts.jdkClient, protocol, port);
+        assertTrue(contexts.fullHandshakes.get() > 0);
+
+        // A ticket issued by one server is resumed by another given the same keys
+        SSLSession resumed = other.connect(contexts.jdkClient, protocol, port);
+        assertEquals(0, other.fullHandshakes.get());
+        assertEquals(protocol, resumed.getProtocol());
+
+        // A server without the keys can't
+        Contexts third = new Contexts(contexts);
+        BCSSLSessionContext thirdSessions = (BCSSLSessionContext)third.server.getServerSessionContext();
+        thirdSessions.setStatelessSessionTickets(true);
+        third.connect(contexts.jdkClient, protocol, port);
+        assertTrue(third.fullHandshakes.get() > 0);
+
+        try
+        {
+            thirdSessions.installSessionTicketKey(keyName, encryptionKey, new byte[16], 3600, 86400);
+            fail("short MAC key accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    public void testSessionTicketKeyTimeout()
+        throws Exception
+    {
+        Contexts contexts = new Contexts();
+
+        BCSSLSessionContext serverSessions = (BCSSLSessionContext)contexts.server.getServerSessionContext();
+
+        assertFalse(serverSessions.isStatelessSessionTickets());
+        assertEquals(3600, serverSessions.getSessionTicketKeyTimeout());
+
+        serverSessions.setSessionTicketKeyTimeout(0);
+        assertEquals(0, serverSessions.getSessionTicketKeyTimeout());
+
+        try
+        {
+            serverSessions.setSessionTicketKeyTimeout(-1);
+            fail("negative timeout accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private static int count(Enumeration<byte[]> e)
+    {
+        return Collections.list(e).size();
+    }
+
+    static class Contexts
+    {
+        final SSLContext client;
+        final SSLContext jdkClient;
+        final SSLContext server;
+        final X509ExtendedKeyManager serverKeyManager;
+        final AtomicInteger fullHandshakes = new AtomicInteger();
+        String[] serverNamedGroups = null;
+
+        Contexts()
+            throws Exception
+        {
+            this(null, "secp256r1");
+        }
+
+        /**
+         * Create contexts whose server key is on the given curve.
+         */
+        Contexts(String curveName)
+            throws Exception
+        {
+            this(null, curveName);
+        }
+
+        /**
+         * Create contexts sharing the clients of another, but with a server of their own.
+         */
+        Contexts(Contexts clients)
+            throws Exception
+        {
+            this(clients, null);
+        }
+
+        private Contexts(Contexts clients, String curveName)
+            throws Exception
+        {
+            if (null == clients)
+            {
+                char[] keyPass = "keyPassword".toCharArray();
+
+                KeyPair caKeyPair = TestUtils.generateECKeyPair(curveName);
+                X509Certificate caCert = TestUtils.generateRootCert(caKeyPair);
+
+                KeyStore serverKs = KeyStore.getInstance("JKS");
+                serverKs.load(null, null);
+                serverKs.setKeyEntry("server", caKeyPair.getPrivate(), keyPass, new X509Certificate[]{ caCert });
+
+                KeyStore clientTs = KeyStore.getInstance("JKS");
+                clientTs.load(null, null);
+                clientTs.setCertificateEntry("ca", caCert);
+
+                KeyManagerFactory kmf = KeyManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+                kmf.init(serverKs, keyPass);
+
+                this.serverKeyManager = (X509ExtendedKeyManager)kmf.getKeyManagers()[0];
+
+                TrustManagerFactory tmf = TrustManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+                tmf.init(clientTs);
+
+                this.client = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+                client.init(null, tmf.getTrustManagers(),
+                    SecureRandom.getInstance("DEFAULT", ProviderUtils.PROVIDER_NAME_BC));
+
+                TrustManagerFactory jdkTmf = TrustManagerFactory.getInstance("PKIX", "SunJSSE");
+                jdkTmf.init(clientTs);
+
+                this.jdkClient = SSLContext.getInstance("TLS", "SunJSSE");
+                jdkClient.init(null, jdkTmf.getTrustManagers(), new SecureRandom());
+            }
+            else
+            {
+                this.serverKeyManager = clients.serverKeyManager;
+                this.client = clients.client;
+                this.jdkClient = clients.jdkClient;
+            }
+
+            // The server's key manager is only consulted during full handshakes
+            KeyManager countingKeyManager = new CountingKeyManager(serverKeyManager, fullHandshakes);
+
+            this.server = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+            server.init(new KeyManager[]{ countingKeyManager }, null,
+                SecureRandom.getInstance("DEFAULT", ProviderUtils.PROVIDER_NAME_BC));
+        }
+
+        SSLSession connect(String protocol, int port)
+            throws Exception
+        {
+            return connect(client, protocol, port);
+        }
+
+        SSLSession connect(SSLContext client, String protocol, int port)
+            throws Exception
+        {
+            SSLEngine clientEngine = client.createSSLEngine(HOST, port);
+            clientEngine.setEnabledProtocols(new String[]{ protocol });
+            clientEngine.setUseClientMode(true);
+
+            SSLEngine serverEngine = server.createSSLEngine();
+            serverEngine.setEnabledProtocols(new String[]{ protocol });
+            serverEngine.setUseClientMode(false);
+
+            if (null != serverNamedGroups)
+            {
+                BCSSLEngine bcServerEngine = (BCSSLEngine)serverEngine;
+                BCSSLParameters serverParameters = bcServerEngine.getParameters();
+                serverParameters.setNamedGroups(serverNamedGroups);
+                bcServerEngine.setParameters(serverParameters);
+            }
+
+            handshake(clientEngine, serverEngine);
+
+            // TLS 1.3 tickets are sent after the handshake
+            deliver(serverEngine, clientEngine);
+
+            return serverEngine.getSession();
+        }
+    }
+
+    static class CountingKeyManager
+        extends X509ExtendedKeyManager
+    {
+        private final X509ExtendedKeyManager keyManager;
+        private final AtomicInteger serverAliasCount;
+
+        CountingKeyManager(X509ExtendedKeyManager keyManager, AtomicInteger serverAliasCount)
+        {
+            this.keyManager = keyManager;
+            this.serverAliasCount = serverAliasCount;
+        }
+
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket)
+        {
+            return keyManager.chooseClientAlias(keyType, issuers, socket);
+        }
+
+        public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine)
+        {
+            return keyManager.chooseEngineClientAlias(keyType, issuers, engine);
+        }
+
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket)
+        {
+            serverAliasCount.incrementAndGet();
+            return keyManager.chooseServerAlias(keyType, issuers, socket);
+        }
+
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine)
+        {
+            serverAliasCount.incrementAndGet();
+            return keyManager.chooseEngineServerAlias(keyType, issuers, engine);
+        }
+
+        public X509Certificate[] getCertificateChain(String alias)
+        {
+            return keyManager.getCertificateChain(alias);
+        }
+
+        public String[] getClientAliases(String keyType, Principal[] issuers)
+        {
+            return keyManager.getClientAliases(keyType, issuers);
+        }
+
+        public PrivateKey getPrivateKey(String alias)
+        {
+            return keyManager.getPrivateKey(alias);
+        }
+
+        public String[] getServerAliases(String keyType, Principal[] issuers)
+        {
+            return keyManager.getServerAliases(keyType, issuers);
+        }
+    }
+
+    static void handshake(SSLEngine clientEngine, SSLEngine serverEngine)
+        throws Exception
+    {
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer clientIn = ByteBuffer.allocate(clientEngine.getSession().getApplicationBufferSize());
+        ByteBuffer serverIn = ByteBuffer.allocate(serverEngine.getSession().getApplicationBufferSize());
+        ByteBuffer clientToServer = ByteBuffer.allocate(clientEngine.getSession().getPacketBufferSize());
+        ByteBuffer serverToClient = ByteBuffer.allocate(serverEngine.getSession().getPacketBufferSize());
+
+        clientEngine.beginHandshake();
+        serverEngine.beginHandshake();
+
+        for (int i = 0; i < 100; ++i)
+        {
+            if (isHandshakeDone(clientEngine) && isHandshakeDone(serverEngine))
+            {
+                return;
+            }
+
+            runDelegatedTasks(clientEngine, clientEngine.wrap(empty, clientToServer));
+            runDelegatedTasks(serverEngine, serverEngine.wrap(empty, serverToClient));
+
+            ((java.nio.Buffer)clientToServer).flip();
+            ((java.nio.Buffer)serverToClient).flip();
+
+            runDelegatedTasks(clientEngine, clientEngine.unwrap(serverToClient, clientIn));
+            runDelegatedTasks(serverEngine, serverEngine.unwrap(clientToServer, serverIn));
+
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+
+        fail("handshake did not complete");
+    }
+
+    static void deliver(SSLEngine from, SSLEngine to)
+        throws Exception
+    {
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer packets = ByteBuffer.allocate(from.getSession().getPacketBufferSize());
+        ByteBuffer appIn = ByteBuffer.allocate(to.getSession().getApplicationBufferSize());
+
+        from.wrap(empty, packets);
+        ((java.nio.Buffer)packets).flip();
+
+        while (packets.hasRemaining())
+        {
+            SSLEngineResult result = to.unwrap(packets, appIn);
+            runDelegatedTasks(to, result);
+            if (result.bytesConsumed() == 0)
+            {
+                break;
+            }
+        }
+    }
+
+    private static boolean isHandshakeDone(SSLEngine engine)
+    {
+        HandshakeStatus status = engine.getHandshakeStatus();
+        return HandshakeStatus.NOT_HANDSHAKING == status || HandshakeStatus.FINISHED == status;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine, SSLEngineResult result)
+    {
+        if (HandshakeStatus.NEED_TASK != result.getHandshakeStatus())
+        {
+            return;
+        }
+
+        Runnable runnable;
+        while ((runnable = engine.getDelegatedTask()) != null)
+        {
+            runnable.run();
+        }
+    }
+}
@@ -1,14 +1,371 @@
 package org.bouncycastle.tls.crypto.test;
 
+import java.io.IOException;
 import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.crypto.generators.PooledKeyPairGenerator;
+import org.bouncycastle.tls.CipherType;
+import org.bouncycastle.tls.ContentType;
+import org.bouncycastle.tls.EncryptionAlgorithm;
+import org.bouncycastle.tls.MACAlgorithm;
+import org.bouncycastle.tls.NamedGroup;
+import org.bouncycastle.tls.PRFAlgorithm;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SecurityParameters;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.tls.crypto.CryptoHashAlgorithm;
+import org.bouncycastle.tls.crypto.TlsAgreement;
+import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsCipherExt;
+import org.bouncycastle.tls.crypto.TlsCryptoParameters;
+import org.bouncycastle.tls.crypto.TlsDecodeResult;
+import org.bouncycastle.tls.crypto.TlsECConfig;
+import org.bouncycastle.tls.crypto.TlsEncodeResult;
+import org.bouncycastle.tls.crypto.TlsKemConfig;
+import org.bouncycastle.tls.crypto.TlsNonceGenerator;
+import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
 
 public class BcTlsCryptoTest
     extends TlsCryptoTest
 {
+    // AEAD, block and null ciphers, as (encryption algorithm, MAC algorithm) for each version
+    private static final ProtocolVersion[] CIPHER_VERSIONS = new ProtocolVersion[]{ ProtocolVersion.TLSv12,
+        ProtocolVersion.TLSv12, ProtocolVersion.TLSv12, ProtocolVersion.TLSv13, ProtocolVersion.TLSv13,
+        ProtocolVersion.TLSv12, ProtocolVersion.TLSv10, ProtocolVersion.TLSv12 };
+    private static final int[][] CIPHER_ALGORITHMS = new int[][]{
+        { EncryptionAlgorithm.AES_128_GCM, MACAlgorithm._null },
+        { EncryptionAlgorithm.AES_256_CCM_8, MACAlgorithm._null },
+        { EncryptionAlgorithm.CHACHA20_POLY1305, MACAlgorithm._null },
+        { EncryptionAlgorithm.AES_128_GCM, MACAlgorithm._null },
+        { EncryptionAlgorithm.CHACHA20_POLY1305, MACAlgorithm._null },
+        { EncryptionAlgorithm.AES_128_CBC, MACAlgorithm.hmac_sha256 },
+        { EncryptionAlgorithm.AES_256_CBC, MACAlgorithm.hmac_sha1 },
+        { EncryptionAlgorithm.NULL, MACAlgorithm.hmac_sha256 } };
+
     public BcTlsCryptoTest()
     {
         super(new BcTlsCrypto());
     }
+
+    public void testKeyPairPooling() throws Exception
+    {
+        BcTlsCrypto pooled = new BcTlsCrypto(new SecureRandom());
+
+        // run refills on the calling thread so the pools are predictably full
+        pooled.setKeyPairPooling(new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                command.run();
+            }
+        }, 1, 4);
+
+        int[] ecGroups = new int[]{ NamedGroup.secp256r1, NamedGroup.x25519, NamedGroup.x448 };
+        for (int i = 0; i < ecGroups.length; ++i)
+        {
+            TlsECConfig ecConfig = new TlsECConfig(ecGroups[i]);
+            Set shares = new HashSet();
+
+            for (int round = 0; round < 6; ++round)
+            {
+                TlsAgreement aA = pooled.createECDomain(ecConfig).createECDH();
+                TlsAgreement aB = pooled.createECDomain(ecConfig).createECDH();
+
+                implTestPooledAgreement(pooled, aA, aB, shares);
+            }
+
+            PooledKeyPairGenerator pool = pooled.getKeyPairPool(ecGroups[i]);
+            assertNotNull(pool);
+            assertEquals(12, pool.getHits());
+            assertEquals(0, pool.getMisses());
+        }
+
+        int kemGroup = NamedGroup.DRAFT_mlkem768;
+        if (pooled.hasNamedGroup(kemGroup))
+        {
+            Set shares = new HashSet();
+
+            for (int round = 0; round < 6; ++round)
+            {
+                TlsAgreement aA = pooled.createKemDomain(new TlsKemConfig(kemGroup, false)).createKem();
+                TlsAgreement aB = pooled.createKemDomain(new TlsKemConfig(kemGroup, true)).createKem();
+
+                implTestPooledAgreement(pooled, aA, aB, shares);
+            }
+
+            // only the client side generates a key pair
+            assertEquals(6, pooled.getKeyPairPool(kemGroup).getHits());
+        }
+
+        pooled.setKeyPairPooling(null, 0, 0);
+        assertNull(pooled.getKeyPairPool(NamedGroup.x25519));
+
+        implTestPooledAgreement(pooled, pooled.createECDomain(new TlsECConfig(NamedGroup.x25519)).createECDH(),
+            pooled.createECDomain(new TlsECConfig(NamedGroup.x25519)).createECDH(), new HashSet());
+    }
+
+    public void testCipherEncodeToBuffer() throws Exception
+    {
+        BcTlsCrypto crypto = new BcTlsCrypto();
+
+        for (int i = 0; i < CIPHER_VERSIONS.length; ++i)
+        {
+            ProtocolVersion version = CIPHER_VERSIONS[i];
+            int[] cipher = CIPHER_ALGORITHMS[i];
+
+            TlsCipher allocating = createCipher(crypto, version, cipher[0], cipher[1], false);
+            TlsCipher inPlace = createCipher(crypto, version, cipher[0], cipher[1], false);
+            TlsCipher decoder = createCipher(crypto, version, cipher[0], cipher[1], true);
+
+            assertTrue(inPlace instanceof TlsCipherExt);
+
+            for (int len = 0; len < 300; len += 37)
+            {
+                byte[] plaintext = createPlaintext(len);
+                long seqNo = len;
+
+                TlsEncodeResult expected = allocating.encodePlaintext(seqNo, ContentType.application_data,
+                    ProtocolVersion.TLSv12, 5, plaintext, 3, len);
+
+                // a non-zero offset, with the space around the fragment left untouched
+                byte[] output = new byte[11 + inPlace.getCiphertextEncodeLimit(len) + 11];
+                Arrays.fill(output, (byte)0xA5);
+
+                int fragmentLength = ((TlsCipherExt)inPlace).encodePlaintext(seqNo, ContentType.application_data,
+                    ProtocolVersion.TLSv12, plaintext, 3, len, output, 11);
+
+                assertEquals(expected.len - 5, fragmentLength);
+                assertTrue(Arrays.areEqual(expected.buf, expected.off + 5, expected.off + expected.len, output, 11,
+                    11 + fragmentLength));
+                assertEquals((byte)0xA5, output[10]);
+                assertEquals((byte)0xA5, output[11 + fragmentLength]);
+
+                TlsDecodeResult decoded = decoder.decodeCiphertext(seqNo, expected.recordType, ProtocolVersion.TLSv12,
+                    output, 11, fragmentLength);
+
+                assertEquals(ContentType.application_data, decoded.contentType);
+                assertTrue(Arrays.areEqual(plaintext, 3, 3 + len, decoded.buf, decoded.off, decoded.off + decoded.len));
+            }
+        }
+    }
+
+    public void testCipherScratchReuse() throws Exception
+    {
+        BcTlsCrypto crypto = new BcTlsCrypto();
+
+        for (int i = 0; i < CIPHER_VERSIONS.length; ++i)
+        {
+            ProtocolVersion version = CIPHER_VERSIONS[i];
+            int[] cipher = CIPHER_ALGORITHMS[i];
+
+            TlsCipher client = createCipher(crypto, version, cipher[0], cipher[1], false);
+            TlsCipher server = createCipher(crypto, version, cipher[0], cipher[1], true);
+
+            /*
+             * Block ciphers carry the CBC state across records, so there the reference ciphers must see the same
+             * records; otherwise each record is compared against a cipher that has encoded nothing else.
+             */
+            boolean chained = CipherType.block == TlsUtils.getEncryptionAlgorithmType(cipher[0]);
+            TlsCipher clientReference = chained ? createCipher(crypto, version, cipher[0], cipher[1], false) : null;
+            TlsCipher serverReference = chained ? createCipher(crypto, version, cipher[0], cipher[1], true) : null;
+
+            /*
+             * Each cipher keeps one nonce and additional data array per direction, reused for every record; records
+             * of varying length and type, interleaving encoding and decoding on the same ciphers, must come out the
+             * same as from the reference ciphers, and decode correctly.
+             */
+            short[] contentTypes = new short[]{ ContentType.handshake, ContentType.application_data, ContentType.alert };
+            int[] lengths = new int[]{ 1000, 0, 17, 255, 1 };
+
+            for (int seqNo = 0; seqNo < 10; ++seqNo)
+            {
+                short contentType = contentTypes[seqNo % contentTypes.length];
+                byte[] plaintext = createPlaintext(lengths[seqNo % lengths.length]);
+
+                implTestRecord(chained ? clientReference : createCipher(crypto, version, cipher[0], cipher[1], false),
+                    client, server, seqNo, contentType, plaintext);
+                implTestRecord(chained ? serverReference : createCipher(crypto, version, cipher[0], cipher[1], true),
+                    server, client, seqNo, contentType, plaintext);
+            }
+        }
+    }
+
+    private static void implTestRecord(TlsCipher reference, TlsCipher encoder, TlsCipher decoder, long seqNo,
+        short contentType, byte[] plaintext) throws IOException
+    {
+        TlsEncodeResult expected = reference.encodePlaintext(seqNo, contentType, ProtocolVersion.TLSv12, 0,
+            plaintext, 0, plaintext.length);
+
+        byte[] output = new byte[encoder.getCiphertextEncodeLimit(plaintext.length)];
+        int fragmentLength = ((TlsCipherExt)encoder).encodePlaintext(seqNo, contentType, ProtocolVersion.TLSv12,
+            plaintext, 0, plaintext.length, output, 0);
+
+        assertTrue(Arrays.areEqual(expected.buf, expected.off, expected.off + expected.len, output, 0,
+            fragmentLength));
+
+        TlsDecodeResult decoded = decoder.decodeCiphertext(seqNo, expected.recordType, ProtocolVersion.TLSv12,
+            output, 0, fragmentLength);
+
+        assertEquals(contentType, decoded.contentType);
+        assertTrue(Arrays.areEqual(plaintext, 0, plaintext.length, decoded.buf, decoded.off,
+            decoded.off + decoded.len));
+    }
+
+    private static TlsCipher createCipher(BcTlsCrypto crypto, ProtocolVersion version, int encryptionAlgorithm,
+        int macAlgorithm, boolean isServer) throws IOException
+    {
+        return crypto.createCipher(new CipherTestParameters(crypto, version, isServer), encryptionAlgorithm,
+            macAlgorithm);
+    }
+
+    private static byte[] createPlaintext(int len)
+    {
+        // room either side, so that offsets into the array are exercised
+        byte[] plaintext = new byte[len + 6];
+        for (int i = 0; i < plaintext.length; ++i)
+        {
+            plaintext[i] = (byte)(i * 7 + len);
+        }
+        return plaintext;
+    }
+
+    private static void implTestPooledAgreement(BcTlsCrypto pooled, TlsAgreement aA, TlsAgreement aB, Set shares)
+        throws IOException
+    {
+        byte[] pA = aA.generateEphemeral();
+        aB.receivePeerValue(pA);
+
+        byte[] pB = aB.generateEphemeral();
+        aA.receivePeerValue(pB);
+
+        TlsSecret sA = aA.calculateSecret();
+        TlsSecret sB = aB.calculateSecret();
+
+        assertTrue(Arrays.areEqual(pooled.adoptSecret(sA).extract(), pooled.adoptSecret(sB).extract()));
+
+        // no key share is ever handed out twice
+        assertTrue(shares.add(Hex.toHexString(pA)));
+        assertTrue(shares.add(Hex.toHexString(pB)));
+    }
+
+    /**
+     * Fixed keys, and a nonce generator returning zeros, so that ciphers with the same parameters encode
+     * identically (block ciphers draw their explicit IV from the nonce generator).
+     */
+    private static class CipherTestParameters
+        extends TlsCryptoParameters
+    {
+        private final SecurityParameters securityParameters;
+        private final boolean isServer;
+
+        CipherTestParameters(BcTlsCrypto crypto, ProtocolVersion version, boolean isServer)
+        {
+            super(null);
+
+            this.securityParameters = new CipherTestSecurityParameters(crypto, version);
+            this.isServer = isServer;
+        }
+
+        public SecurityParameters getSecurityParametersConnection()
+        {
+            return securityParameters;
+        }
+
+        public SecurityParameters getSecurityParametersHandshake()
+        {
+            return securityParameters;
+        }
+
+        public ProtocolVersion getServerVersion()
+        {
+            return securityParameters.getNegotiatedVersion();
+        }
+
+        public boolean isServer()
+        {
+            return isServer;
+        }
+
+        public TlsNonceGenerator getNonceGenerator()
+        {
+            return new TlsNonceGenerator()
+            {
+                public byte[] generateNonce(int size)
+                {
+                    return new byte[size];
+                }
+            };
+        }
+    }
+
+    private static class CipherTestSecurityParameters
+        extends SecurityParameters
+    {
+        private final BcTlsCrypto crypto;
+        private final ProtocolVersion version;
+
+        CipherTestSecurityParameters(BcTlsCrypto crypto, ProtocolVersion version)
+        {
+            this.crypto = crypto;
+            this.version = version;
+        }
+
+        public ProtocolVersion getNegotiatedVersion()
+        {
+            return version;
+        }
+
+        public int getPRFAlgorithm()
+        {
+            return TlsUtils.isTLSv13(version) ? PRFAlgorithm.tls13_hkdf_sha256 : PRFAlgorithm.tls_prf_sha256;
+        }
+
+        public int getPRFCryptoHashAlgorithm()
+        {
+            return CryptoHashAlgorithm.sha256;
+        }
+
+        public TlsSecret getMasterSecret()
+        {
+            return createSecret(48, 1);
+        }
+
+        public TlsSecret getTrafficSecretClient()
+        {
+            return createSecret(32, 2);
+        }
+
+        public TlsSecret getTrafficSecretServer()
+        {
+            return createSecret(32, 3);
+        }
+
+        public byte[] getClientRandom()
+        {
+            return createBytes(32, 4);
+        }
+
+        public byte[] getServerRandom()
+        {
+            return createBytes(32, 5);
+        }
+
+        private TlsSecret createSecret(int length, int seed)
+        {
+            return crypto.createSecret(createBytes(length, seed));
+        }
+
+        private static byte[] createBytes(int length, int seed)
+        {
+            byte[] bytes = new byte[length];
+            Arrays.fill(bytes, (byte)seed);
+            return bytes;
+        }
+    }
 }
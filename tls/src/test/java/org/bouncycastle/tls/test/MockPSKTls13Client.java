@@ -24,11 +24,23 @@
 class MockPSKTls13Client
     extends AbstractTlsClient
 {
+    private byte[] earlyData = null;
+
     MockPSKTls13Client()
     {
         super(new BcTlsCrypto());
     }
 
+    void setEarlyData(byte[] earlyData)
+    {
+        this.earlyData = earlyData;
+    }
+
+    public byte[] getEarlyData()
+    {
+        return earlyData;
+    }
+
 //    public Vector getEarlyKeyShareGroups()
 //    {
 //        return null;
@@ -108,6 +120,11 @@ public TlsAuthentication getAuthentication() throws IOException
         throw new TlsFatalAlert(AlertDescription.internal_error);
     }
 
+    boolean isEarlyDataAccepted()
+    {
+        return context.getSecurityParametersConnection().isEarlyDataAccepted();
+    }
+
     public void notifyHandshakeComplete() throws IOException
     {
         super.notifyHandshakeComplete();
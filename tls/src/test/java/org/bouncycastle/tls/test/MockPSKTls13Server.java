@@ -10,6 +10,7 @@
 import org.bouncycastle.tls.AlertLevel;
 import org.bouncycastle.tls.BasicTlsPSKExternal;
 import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.EarlyDataReplayFilter;
 import org.bouncycastle.tls.PRFAlgorithm;
 import org.bouncycastle.tls.ProtocolName;
 import org.bouncycastle.tls.ProtocolVersion;
@@ -25,11 +26,41 @@
 class MockPSKTls13Server
     extends AbstractTlsServer
 {
+    private long maxEarlyDataSize = 0L;
+    private EarlyDataReplayFilter earlyDataReplayFilter = null;
+    private boolean allowEarlyDataWithExternalPSK = false;
+
     MockPSKTls13Server()
     {
         super(new BcTlsCrypto());
     }
 
+    void setEarlyData(long maxEarlyDataSize, EarlyDataReplayFilter earlyDataReplayFilter)
+    {
+        this.maxEarlyDataSize = maxEarlyDataSize;
+        this.earlyDataReplayFilter = earlyDataReplayFilter;
+    }
+
+    void setAllowEarlyDataWithExternalPSK(boolean allowEarlyDataWithExternalPSK)
+    {
+        this.allowEarlyDataWithExternalPSK = allowEarlyDataWithExternalPSK;
+    }
+
+    public long getMaxEarlyDataSize()
+    {
+        return maxEarlyDataSize;
+    }
+
+    public EarlyDataReplayFilter getEarlyDataReplayFilter()
+    {
+        return earlyDataReplayFilter;
+    }
+
+    public boolean allowEarlyDataWithExternalPSK()
+    {
+        return allowEarlyDataWithExternalPSK;
+    }
+
     public TlsCredentials getCredentials() throws IOException
     {
         return null;
@@ -106,6 +137,11 @@ public void notifyAlertReceived(short alertLevel, short alertDescription)
             + ", " + AlertDescription.getText(alertDescription));
     }
 
+    boolean isEarlyDataAccepted()
+    {
+        return context.getSecurityParametersConnection().isEarlyDataAccepted();
+    }
+
     public void notifyHandshakeComplete() throws IOException
     {
         super.notifyHandshakeComplete();
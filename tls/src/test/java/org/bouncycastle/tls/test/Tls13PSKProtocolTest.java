@@ -1,13 +1,18 @@
 package org.bouncycastle.tls.test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 
+import org.bouncycastle.tls.EarlyDataReplayFilter;
 import org.bouncycastle.tls.TlsClientProtocol;
 import org.bouncycastle.tls.TlsServerProtocol;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
 import org.bouncycastle.util.io.Streams;
+import org.bouncycastle.util.io.TeeOutputStream;
 
 import junit.framework.TestCase;
 
@@ -15,19 +20,181 @@
     extends TestCase
 {
     public void testClientServer() throws Exception
+    {
+        implTestClientServer(new MockPSKTls13Client(), new MockPSKTls13Server(), null);
+    }
+
+    public void testEarlyDataAccepted() throws Exception
+    {
+        MockPSKTls13Client client = new MockPSKTls13Client();
+        MockPSKTls13Server server = new MockPSKTls13Server();
+
+        byte[] earlyData = Strings.toUTF8ByteArray("GET / HTTP/1.1\r\n\r\n");
+        client.setEarlyData(earlyData);
+        server.setEarlyData(1024, new EarlyDataReplayFilter(10000L, 100));
+        server.setAllowEarlyDataWithExternalPSK(true);
+
+        implTestClientServer(client, server, earlyData);
+
+        assertTrue(client.isEarlyDataAccepted());
+        assertTrue(server.isEarlyDataAccepted());
+    }
+
+    public void testEarlyDataRejected() throws Exception
+    {
+        MockPSKTls13Client client = new MockPSKTls13Client();
+        MockPSKTls13Server server = new MockPSKTls13Server();
+
+        client.setEarlyData(Strings.toUTF8ByteArray("GET / HTTP/1.1\r\n\r\n"));
+
+        implTestClientServer(client, server, null);
+
+        assertFalse(client.isEarlyDataAccepted());
+        assertFalse(server.isEarlyDataAccepted());
+    }
+
+    public void testEarlyDataRejectedForExternalPSK() throws Exception
+    {
+        MockPSKTls13Client client = new MockPSKTls13Client();
+        MockPSKTls13Server server = new MockPSKTls13Server();
+
+        client.setEarlyData(Strings.toUTF8ByteArray("GET / HTTP/1.1\r\n\r\n"));
+        server.setEarlyData(1024, new EarlyDataReplayFilter(10000L, 100));
+
+        implTestClientServer(client, server, null);
+
+        assertFalse(client.isEarlyDataAccepted());
+        assertFalse(server.isEarlyDataAccepted());
+    }
+
+    public void testEarlyDataReplayRejected() throws Exception
+    {
+        final long[] now = new long[]{ System.currentTimeMillis() };
+        EarlyDataReplayFilter filter = new EarlyDataReplayFilter(100L, 100)
+        {
+            protected long currentTimeMillis()
+            {
+                return now[0];
+            }
+        };
+
+        MockPSKTls13Client client = new MockPSKTls13Client();
+        MockPSKTls13Server server = new MockPSKTls13Server();
+
+        byte[] earlyData = Strings.toUTF8ByteArray("GET / HTTP/1.1\r\n\r\n");
+        client.setEarlyData(earlyData);
+        server.setEarlyData(1024, filter);
+        server.setAllowEarlyDataWithExternalPSK(true);
+
+        ByteArrayOutputStream clientFlights = new ByteArrayOutputStream();
+        implTestClientServer(client, server, earlyData, clientFlights);
+        assertTrue(server.isEarlyDataAccepted());
+
+        // Replayed while the filter holds the ClientHello
+        MockPSKTls13Server replayServer = new MockPSKTls13Server();
+        replayServer.setEarlyData(1024, filter);
+        replayServer.setAllowEarlyDataWithExternalPSK(true);
+        assertFalse(replayEarlyData(replayServer, clientFlights.toByteArray()));
+
+        // Replayed after the window, once the filter has forgotten it; only the default refusal of early data
+        // under external PSKs stops this one
+        now[0] += 2 * filter.getWindowMillis() + 1L;
+
+        replayServer = new MockPSKTls13Server();
+        replayServer.setEarlyData(1024, filter);
+        assertFalse(replayEarlyData(replayServer, clientFlights.toByteArray()));
+
+        replayServer = new MockPSKTls13Server();
+        replayServer.setEarlyData(1024, filter);
+        replayServer.setAllowEarlyDataWithExternalPSK(true);
+        assertTrue(replayEarlyData(replayServer, clientFlights.toByteArray()));
+    }
+
+    public void testEarlyDataReplayFilter()
+    {
+        EarlyDataReplayFilter filter = new EarlyDataReplayFilter(1000L, 2);
+
+        byte[] b1 = Strings.toUTF8ByteArray("binder1"), b2 = Strings.toUTF8ByteArray("binder2");
+        byte[] b3 = Strings.toUTF8ByteArray("binder3");
+
+        assertTrue(filter.accept(b1, 0L, 0L));
+        assertFalse(filter.accept(b1, 0L, 10L));
+
+        // stale ticket age
+        assertFalse(filter.accept(b2, 1001L, 10L));
+        assertTrue(filter.accept(b2, -1000L, 10L));
+
+        // full
+        assertFalse(filter.accept(b3, 0L, 20L));
+        assertEquals(2, filter.size());
+
+        // b1 can no longer pass the freshness check, so is forgotten
+        assertTrue(filter.accept(b3, 0L, 2000L));
+        assertEquals(2, filter.size());
+        assertFalse(filter.accept(b2, 0L, 2000L));
+
+        // A ticket's obfuscated age doesn't change when its ClientHello is replayed, so the skew grows with time
+        assertFalse(filter.accept(b1, -2001L, 2001L));
+    }
+
+    /**
+     * Feed the records of recorded client flights to a new connection, returning whether any early data was
+     * accepted.
+     */
+    private boolean replayEarlyData(MockPSKTls13Server server, byte[] clientFlights) throws Exception
+    {
+        TlsServerProtocol serverProtocol = new TlsServerProtocol();
+        serverProtocol.accept(server);
+
+        int pos = 0;
+        while (pos + 5 <= clientFlights.length)
+        {
+            int recordLength = 5 + ((clientFlights[pos + 3] & 0xFF) << 8 | (clientFlights[pos + 4] & 0xFF));
+            try
+            {
+                serverProtocol.offerInput(clientFlights, pos, recordLength);
+            }
+            catch (IOException e)
+            {
+                // The rest of the original handshake can't complete against a different server key share
+                break;
+            }
+
+            if (serverProtocol.getAvailableInputBytes() > 0)
+            {
+                return true;
+            }
+
+            pos += recordLength;
+        }
+        return false;
+    }
+
+    private void implTestClientServer(MockPSKTls13Client client, MockPSKTls13Server server, byte[] earlyData)
+        throws Exception
+    {
+        implTestClientServer(client, server, earlyData, null);
+    }
+
+    private void implTestClientServer(MockPSKTls13Client client, MockPSKTls13Server server, byte[] earlyData,
+        OutputStream clientRecorder) throws Exception
     {
         PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
         PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
-        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        OutputStream clientWrite = new PipedOutputStream(serverRead);
         PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
 
+        if (null != clientRecorder)
+        {
+            clientWrite = new TeeOutputStream(clientWrite, clientRecorder);
+        }
+
         TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
         TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
 
-        ServerThread serverThread = new ServerThread(serverProtocol);
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
         serverThread.start();
 
-        MockPSKTls13Client client = new MockPSKTls13Client();
         clientProtocol.connect(client);
 
         // NOTE: Because we write-all before we read-any, this length can't be more than the pipe capacity
@@ -39,11 +206,13 @@ public void testClientServer() throws Exception
         OutputStream output = clientProtocol.getOutputStream();
         output.write(data);
 
-        byte[] echo = new byte[data.length];
+        byte[] expected = null == earlyData ? data : Arrays.concatenate(earlyData, data);
+
+        byte[] echo = new byte[expected.length];
         int count = Streams.readFully(clientProtocol.getInputStream(), echo);
 
-        assertEquals(count, data.length);
-        assertTrue(Arrays.areEqual(data, echo));
+        assertEquals(count, expected.length);
+        assertTrue(Arrays.areEqual(expected, echo));
 
         output.close();
 
@@ -54,17 +223,18 @@ public void testClientServer() throws Exception
         extends Thread
     {
         private final TlsServerProtocol serverProtocol;
+        private final MockPSKTls13Server server;
 
-        ServerThread(TlsServerProtocol serverProtocol)
+        ServerThread(TlsServerProtocol serverProtocol, MockPSKTls13Server server)
         {
             this.serverProtocol = serverProtocol;
+            this.server = server;
         }
 
         public void run()
         {
             try
             {
-                MockPSKTls13Server server = new MockPSKTls13Server();
                 serverProtocol.accept(server);
                 Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
                 serverProtocol.close();
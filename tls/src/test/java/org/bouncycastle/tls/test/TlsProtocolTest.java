@@ -1,11 +1,17 @@
 package org.bouncycastle.tls.test;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.Vector;
 
+import org.bouncycastle.tls.CachingTlsCertificateCompressor;
+import org.bouncycastle.tls.TlsCertificateCompressor;
 import org.bouncycastle.tls.TlsClientProtocol;
 import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.tls.ZlibTlsCertificateCompressor;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.io.Streams;
 
@@ -15,6 +21,77 @@
     extends TestCase
 {
     public void testClientServer() throws Exception
+    {
+        implTestClientServer(new MockTlsClient(null), new MockTlsServer());
+    }
+
+    public void testCertificateCompression() throws Exception
+    {
+        RecordingCertificateCompressor clientZlib = new RecordingCertificateCompressor(
+            new ZlibTlsCertificateCompressor());
+        RecordingCertificateCompressor serverZlib = new RecordingCertificateCompressor(
+            new ZlibTlsCertificateCompressor());
+
+        final CachingTlsCertificateCompressor clientCompressor = new CachingTlsCertificateCompressor(clientZlib, 4);
+        final CachingTlsCertificateCompressor serverCompressor = new CachingTlsCertificateCompressor(serverZlib, 4);
+
+        for (int i = 0; i < 2; ++i)
+        {
+            MockTlsClient client = new MockTlsClient(null)
+            {
+                public Vector getCertificateCompressors()
+                {
+                    return TlsUtils.vectorOfOne(clientCompressor);
+                }
+            };
+            MockTlsServer server = new MockTlsServer()
+            {
+                public Vector getCertificateCompressors()
+                {
+                    return TlsUtils.vectorOfOne(serverCompressor);
+                }
+            };
+
+            implTestClientServer(client, server);
+
+            // Each side compressed its Certificate message once, with the second handshake served from the cache
+            assertEquals(1, clientZlib.compressCount);
+            assertEquals(1, serverZlib.compressCount);
+
+            // The client decompressed the server's Certificate message once per handshake. The client's own
+            // (empty) Certificate message doesn't shrink, so is sent uncompressed and the server has nothing to do
+            assertEquals(i + 1, clientZlib.decompressCount);
+            assertEquals(0, serverZlib.decompressCount);
+
+            // The client received the server's Certificate message, and so its certificate chain, as sent
+            assertTrue(Arrays.areEqual(serverZlib.compressed, clientZlib.decompressed));
+        }
+
+        assertEquals(1, clientCompressor.size());
+        assertEquals(1, serverCompressor.size());
+    }
+
+    public void testCertificateDecompression() throws Exception
+    {
+        ZlibTlsCertificateCompressor compressor = new ZlibTlsCertificateCompressor();
+
+        byte[] message = new byte[1000];
+        byte[] compressed = compressor.compress(message);
+        assertTrue(compressed.length < message.length);
+
+        assertTrue(Arrays.areEqual(message, compressor.decompress(compressed, message.length)));
+
+        // The claimed length must be exact
+        assertNull(compressor.decompress(compressed, message.length - 1));
+        assertNull(compressor.decompress(compressed, message.length + 1));
+
+        // Trailing or corrupt input is rejected
+        assertNull(compressor.decompress(Arrays.append(compressed, (byte)0), message.length));
+        compressed[compressed.length / 2] ^= 0x55;
+        assertNull(compressor.decompress(compressed, message.length));
+    }
+
+    private void implTestClientServer(MockTlsClient client, MockTlsServer server) throws Exception
     {
         PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
         PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
@@ -24,10 +101,9 @@ public void testClientServer() throws Exception
         TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
         TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
 
-        ServerThread serverThread = new ServerThread(serverProtocol);
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
         serverThread.start();
 
-        MockTlsClient client = new MockTlsClient(null);
         clientProtocol.connect(client);
 
         // NOTE: Because we write-all before we read-any, this length can't be more than the pipe capacity
@@ -50,21 +126,56 @@ public void testClientServer() throws Exception
         serverThread.join();
     }
 
+    static class RecordingCertificateCompressor
+        implements TlsCertificateCompressor
+    {
+        private final TlsCertificateCompressor compressor;
+
+        int compressCount = 0, decompressCount = 0;
+        byte[] compressed = null, decompressed = null;
+
+        RecordingCertificateCompressor(TlsCertificateCompressor compressor)
+        {
+            this.compressor = compressor;
+        }
+
+        public int getAlgorithm()
+        {
+            return compressor.getAlgorithm();
+        }
+
+        public synchronized byte[] compress(byte[] certificateMessage) throws IOException
+        {
+            ++compressCount;
+            compressed = Arrays.clone(certificateMessage);
+            return compressor.compress(certificateMessage);
+        }
+
+        public synchronized byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength)
+            throws IOException
+        {
+            ++decompressCount;
+            decompressed = compressor.decompress(compressedCertificateMessage, uncompressedLength);
+            return Arrays.clone(decompressed);
+        }
+    }
+
     static class ServerThread
         extends Thread
     {
         private final TlsServerProtocol serverProtocol;
+        private final MockTlsServer server;
 
-        ServerThread(TlsServerProtocol serverProtocol)
+        ServerThread(TlsServerProtocol serverProtocol, MockTlsServer server)
         {
             this.serverProtocol = serverProtocol;
+            this.server = server;
         }
 
         public void run()
         {
             try
             {
-                MockTlsServer server = new MockTlsServer();
                 serverProtocol.accept(server);
                 Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
                 serverProtocol.close();